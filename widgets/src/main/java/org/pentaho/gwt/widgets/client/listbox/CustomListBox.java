@@ -44,10 +44,20 @@ import org.pentaho.gwt.widgets.client.utils.ElementUtils;
 import org.pentaho.gwt.widgets.client.utils.Rectangle;
 import org.pentaho.gwt.widgets.client.utils.string.StringUtils;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * ComplexListBox is a List-style widget can contain custom list-items made (images + text, text + checkboxes) This list
@@ -96,12 +106,19 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
   protected FlexTable dropGrid = new FlexTable();
   private DropPopupPanel popup;
   private SearchTextBox searchTextBox = new SearchTextBox();
+  private ListItemTextIndex searchIndex;
+  private Timer searchTimer;
   private PopupList popupVbox = new PopupList();
   protected PentahoFocusPanel fPanel = new PentahoFocusPanel();
   private ScrollPanel popupScrollPanel = new ScrollPanel();
 
   protected List<ChangeListener> listeners = new ArrayList<>();
   private final int spacing = 1;
+  private static final int DEFAULT_VIRTUAL_ROW_HEIGHT = 20;
+  private static final int VIRTUAL_OVERSCAN_ROWS = 5;
+  private static final int VIRTUAL_WIDTH_SAMPLE_SIZE = 20;
+  private static final int SEARCH_DELAY_MILLIS = 150;
+  private static final int TYPE_AHEAD_RESET_MILLIS = 1000;
   protected int maxHeight, maxWidth, averageHeight; // height and width of largest ListItem
   private String primaryStyleName;
   private String height, width;
@@ -115,6 +132,19 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
   protected DragController dragController;
   protected boolean multiSelect;
 
+  // Members for virtualized rendering
+  private boolean virtualized;
+  private int rowHeight = -1;
+  private int estimatedRowHeight = -1;
+  /* Visible for testing */
+  VirtualItemWindow listWindow = new VirtualItemWindow( listPanel, listScrollPanel );
+  private VirtualItemWindow popupWindow = new VirtualItemWindow( popupVbox, popupScrollPanel );
+
+  // Members for item size measurement
+  /* Visible for testing */
+  Map<ListItem, Rectangle> itemSizes = new HashMap<>();
+  private boolean uniformItemSize;
+
   public CustomListBox() {
 
     selectedItemWrapper.addStyleName( "flex-row" );
@@ -227,6 +257,8 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
    */
   public void remove( ListItem listItem ) {
     this.items.remove( listItem );
+    this.searchIndex = null;
+    invalidateItemSize( listItem );
     setSelectedIndex( 0 );
 
     if ( suppressLayout == false ) {
@@ -239,8 +271,10 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
    */
   public void removeAll() {
     this.items.clear();
+    this.searchIndex = null;
+    invalidateItemSizes();
     this.selectedIndex = -1;
-    this.selectedItems.clear();
+    this.selection.clear();
 
     if ( this.suppressLayout == false ) {
       for ( ChangeListener l : listeners ) {
@@ -277,6 +311,7 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
   public void addItem( ListItem item ) {
     item.setStylePrimaryName( this.primaryStyleName );
     items.add( item );
+    searchIndex = null;
 
     item.setListItemListener( this );
 
@@ -329,6 +364,7 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
     DefaultListItem item = new DefaultListItem( label );
     item.setStylePrimaryName( this.primaryStyleName );
     items.add( item );
+    searchIndex = null;
     item.setListItemListener( this );
 
     // If first one added, set selectedIndex to 0
@@ -346,7 +382,7 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
   }
 
   /**
-   * Returns a list of current ListItems that match {@code search}.
+   * Returns a list of current ListItems whose text contains {@code search}, ignoring case.
    *
    * @param search - value to filter ListItems
    *
@@ -357,18 +393,51 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
       return this.items;
     }
 
-    return this.items.stream()
-      .filter( item -> item.getText().contains( search ) )
-      .collect( Collectors.toList() );
+    return getSearchIndex().find( search );
+  }
+
+  /**
+   * Gets the text index of the items. The index is built lazily and discarded whenever items are added, removed or
+   * replaced, including through {@link #getItems()}, and whenever an item reports a change.
+   */
+  private ListItemTextIndex getSearchIndex() {
+    if ( searchIndex == null ) {
+      searchIndex = new ListItemTextIndex( this.items );
+    }
+
+    return searchIndex;
   }
 
   /**
-   * Returns a list of current ListItems.
+   * Updates the UI after the search text changes. Clearing the search is applied right away, while typing is
+   * debounced, so that the list is filtered once the user pauses.
+   */
+  private void onSearchChange() {
+    if ( searchTimer == null ) {
+      searchTimer = new Timer() {
+        @Override
+        public void run() {
+          updateUI();
+        }
+      };
+    }
+
+    searchTimer.cancel();
+
+    if ( StringUtils.isEmpty( getSearchTextBox().getValue() ) ) {
+      updateUI();
+    } else {
+      searchTimer.schedule( SEARCH_DELAY_MILLIS );
+    }
+  }
+
+  /**
+   * Returns a list of current ListItems. The list is a live view of the items of the list control.
    * 
    * @return List of ListItems
    */
   public List<ListItem> getItems() {
-    return items;
+    return new ItemsView();
   }
 
   /**
@@ -495,6 +564,95 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
     }
   }
 
+  /**
+   * Replaces all items of the list control at once. Unlike adding items one by one, the layout is updated, and change
+   * listeners are notified, only once.
+   *
+   * @param newItems
+   *          the new ListItems
+   */
+  public void setItems( List<ListItem> newItems ) {
+    for ( ListItem item : newItems ) {
+      prepareItem( item );
+    }
+
+    replaceItems( new ArrayList<>( newItems ) );
+  }
+
+  /**
+   * Replaces all items of the list control at once, by items with the given values and labels. The corresponding
+   * {@link DefaultListItem}s are only created when first accessed, e.g. when rendered.
+   *
+   * @param values
+   *          the values of the items
+   * @param labels
+   *          the labels of the items, or <code>null</code> to use the values as labels
+   */
+  public void setItems( Object[] values, String[] labels ) {
+    if ( labels != null && labels.length != values.length ) {
+      throw new IllegalArgumentException( "The number of labels must match the number of values" ); //$NON-NLS-1$
+    }
+
+    replaceItems( new LazyDefaultListItems( values, labels ) );
+  }
+
+  /**
+   * Adds the given ListItems to the list control at once. Unlike adding items one by one, the layout is updated, and
+   * change listeners are notified, only once.
+   *
+   * @param newItems
+   *          the ListItems to add
+   */
+  public void addItems( Collection<? extends ListItem> newItems ) {
+    if ( newItems.isEmpty() ) {
+      return;
+    }
+
+    for ( ListItem item : newItems ) {
+      prepareItem( item );
+    }
+
+    items.addAll( newItems );
+    onItemsChanged();
+  }
+
+  private void prepareItem( ListItem item ) {
+    item.setStylePrimaryName( this.primaryStyleName );
+    item.setListItemListener( this );
+
+    if ( dragController != null ) {
+      dragController.makeDraggable( item.getWidget() );
+    }
+  }
+
+  private void replaceItems( List<ListItem> newItems ) {
+    this.items = newItems;
+    this.selectedIndex = -1;
+    this.selection.clear();
+    invalidateItemSizes();
+
+    onItemsChanged();
+  }
+
+  private void onItemsChanged() {
+    this.searchIndex = null;
+
+    if ( suppressLayout ) {
+      // Done when layout is no longer suppressed.
+      return;
+    }
+
+    if ( isDefaultSelectionEnabled() && selectedIndex < 0 && !items.isEmpty() && this.visible == 1 ) {
+      this.setSelectedIndex( 0 ); // notifies listeners
+    } else {
+      for ( ChangeListener l : listeners ) {
+        l.onChange( this );
+      }
+    }
+
+    updateUI();
+  }
+
   private String getAcceptedText() {
     if ( this.val != null ) {
       return this.val;
@@ -508,26 +666,25 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
    * Called by updateUI when the list is not a drop-down (visible row count > 1)
    */
   private void updateList() {
-    listPanel.clear();
+    if ( virtualized ) {
+      updateVirtualList();
+      return;
+    }
+
+    listWindow.deactivate();
     maxHeight = 0;
     maxWidth = 0;
 
     List<ListItem> listItems = findItems( searchTextBox.getValue() );
+    renderItems( listPanel, listItems );
 
     // actually going to average up the heights
-    for ( ListItem li : listItems ) {
-      Widget w = li.getWidget();
-
-      Rectangle rect = ElementUtils.getSize( w.getElement() );
+    for ( Rectangle rect : measureItems( listItems ) ) {
       // we only care about this if the user hasn't specified a height.
       if ( height == null ) {
         maxHeight += rect.height;
       }
       maxWidth = Math.max( maxWidth, rect.width );
-
-      // Add it to the dropdown
-      listPanel.add( w );
-      listPanel.setCellWidth( w, "100%" );
     }
 
     if ( height == null && !listItems.isEmpty() ) {
@@ -549,6 +706,59 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
     }
   }
 
+  /**
+   * Renders all the given items in a panel, in order. Only the widgets of the items which the panel does not show, in
+   * place, are attached, and only the other widgets are detached, so that, e.g., narrowing a search does not re-render
+   * the items which still match.
+   */
+  /* Visible for testing */
+  static void renderItems( VerticalPanel panel, List<ListItem> listItems ) {
+    Set<Widget> widgets = new HashSet<>();
+    for ( ListItem li : listItems ) {
+      widgets.add( li.getWidget() );
+    }
+
+    for ( int i = panel.getWidgetCount() - 1; i >= 0; i-- ) {
+      if ( !widgets.contains( panel.getWidget( i ) ) ) {
+        panel.remove( i );
+      }
+    }
+
+    for ( int i = 0; i < listItems.size(); i++ ) {
+      Widget w = listItems.get( i ).getWidget();
+      if ( i >= panel.getWidgetCount() || panel.getWidget( i ) != w ) {
+        panel.insert( w, i );
+        panel.setCellWidth( w, "100%" );
+      }
+    }
+  }
+
+  /**
+   * Called by updateList when in virtualized mode. Only the items in the visible window are rendered.
+   */
+  private void updateVirtualList() {
+    List<ListItem> listItems = findItems( searchTextBox.getValue() );
+
+    // we only care about this if the user has specified a visible row count and no height
+    if ( height == null ) {
+      maxHeight = getVirtualRowHeight();
+
+      int h = ( this.visible * ( maxHeight + spacing ) );
+      this.listScrollPanel.setHeight( h + "px" );
+      fPanel.setHeight( h + "px" );
+    } else {
+      this.listScrollPanel.setHeight( height );
+      fPanel.setHeight( height );
+    }
+
+    listWindow.setItems( listItems );
+
+    if ( width == null ) {
+      maxWidth = listWindow.measureMaxWidth();
+      this.fPanel.setWidth( maxWidth + 40 + "px" ); // 20 is scrollbar space
+    }
+  }
+
   /**
    * Called by updateUI when the list is a drop-down (visible row count = 1)
    */
@@ -569,30 +779,34 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
 
     // Update popup panel,
     // Calculate the size of the largest list item.
-    popupVbox.clear();
     maxWidth = 0;
     averageHeight = 0; // Actually used to set the width of the arrow
     popupHeight = null;
 
     List<ListItem> listItems = findItems( searchTextBox.getValue() );
 
-    int totalHeight = 0;
-    for ( ListItem li : listItems ) {
-      Widget w = li.getWidget();
-
-      Rectangle rect = ElementUtils.getSize( w.getElement() );
-      maxWidth = Math.max( maxWidth, rect.width );
-      maxHeight = Math.max( maxHeight, rect.height );
-      totalHeight += rect.height;
+    if ( virtualized ) {
+      // Only the items in the visible window are rendered.
+      averageHeight = getVirtualRowHeight();
+      maxHeight = Math.max( maxHeight, averageHeight );
 
-      // Add it to the dropdown
-      popupVbox.add( w );
-      popupVbox.setCellWidth( w, "100%" );
-    }
+      popupWindow.setItems( listItems );
+      maxWidth = popupWindow.measureMaxWidth();
+    } else {
+      popupWindow.deactivate();
+      renderItems( popupVbox, listItems );
+
+      int totalHeight = 0;
+      for ( Rectangle rect : measureItems( listItems ) ) {
+        maxWidth = Math.max( maxWidth, rect.width );
+        maxHeight = Math.max( maxHeight, rect.height );
+        totalHeight += rect.height;
+      }
 
-    // Average the height of the items
-    if ( !items.isEmpty() ) {
-      averageHeight = Math.round( totalHeight / listItems.size() );
+      // Average the height of the items
+      if ( !items.isEmpty() ) {
+        averageHeight = Math.round( totalHeight / listItems.size() );
+      }
     }
 
     // Set the size of the drop-down based on the largest list item
@@ -643,6 +857,11 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
       }
 
       adjustPopupPosition();
+
+      if ( virtualized ) {
+        // The viewport height may have changed.
+        popupWindow.render();
+      }
     }
   }
 
@@ -735,7 +954,7 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
     if ( isSearchable() ) {
       SearchTextBox search = getSearchTextBox();
 
-      search.addChangeListener( widget -> updateUI() );
+      search.addChangeListener( widget -> onSearchChange() );
       content.add( search );
     }
 
@@ -764,12 +983,28 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
       return;
     }
 
+    ensureItemVisible( items.get( selectedIndex ), selectedIndex );
+  }
+
+  /**
+   * Scrolls the list, or the drop-down popup, so that the given item, at the given index of the items, is visible.
+   * In virtualized mode, the item's widget is rendered, if needed.
+   */
+  private void ensureItemVisible( ListItem item, int index ) {
     if ( this.visible > 1 ) {
-      this.listScrollPanel.ensureVisible( items.get( selectedIndex ).getWidget() );
+      if ( virtualized ) {
+        listWindow.ensureVisible( item, index );
+      } else {
+        this.listScrollPanel.ensureVisible( item.getWidget() );
+      }
       return;
     }
 
-    popupScrollPanel.ensureVisible( items.get( selectedIndex ).getWidget() );
+    if ( virtualized ) {
+      popupWindow.ensureVisible( item, index );
+    } else {
+      popupScrollPanel.ensureVisible( item.getWidget() );
+    }
   }
 
   /**
@@ -791,49 +1026,48 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
 
   }
 
-  protected List<ListItem> selectedItems = new ArrayList<ListItem>();
+  /**
+   * The indexes of the selected items.
+   */
+  protected BitSet selection = new BitSet();
+
+  /**
+   * The selected items, in the order of the list. This is a view of {@link #selection}: adding an item to it selects
+   * the item, and removing an item deselects it, without updating how the items are shown.
+   *
+   * @deprecated Use {@link #selection}, or {@link #getSelectedItems()}.
+   */
+  @Deprecated
+  protected List<ListItem> selectedItems = new SelectedItems();
 
   protected void handleSelection( ListItem item, Event evt ) {
+    int idxOfNewSelection = items.indexOf( item );
+
     if ( !evt.getCtrlKey() && !evt.getShiftKey() && !evt.getMetaKey() ) {
-      for ( ListItem itm : selectedItems ) {
-        itm.onDeselect();
-      }
+      clearSelection();
       if ( selectedIndex > -1 ) {
         items.get( selectedIndex ).onDeselect();
       }
-      selectedItems.clear();
       item.onSelect();
-      if ( !selectedItems.contains( item ) ) {
-        selectedItems.add( item );
+      if ( idxOfNewSelection >= 0 ) {
+        selection.set( idxOfNewSelection );
       }
-      selectedIndex = items.indexOf( item );
+      selectedIndex = idxOfNewSelection;
 
       scrollSelectedItemIntoView();
     } else if ( evt.getShiftKey() ) {
-      int idxOfNewSelection = items.indexOf( item );
-      int startIdx = Math.min( selectedIndex, idxOfNewSelection );
+      int startIdx = Math.max( 0, Math.min( selectedIndex, idxOfNewSelection ) );
       int endIndex = Math.max( selectedIndex, idxOfNewSelection );
 
-      for ( int i = startIdx; i <= endIndex; i++ ) {
-        if ( !selectedItems.contains( items.get( i ) ) ) {
-          selectedItems.add( items.get( i ) );
-        }
-        items.get( i ).onSelect();
-      }
+      selectItemRange( startIdx, endIndex );
 
-    } else if ( evt.getCtrlKey() || evt.getMetaKey() ) {
-      if ( selectedItems.remove( item ) ) {
+    } else if ( idxOfNewSelection >= 0 ) { // Ctrl or Meta
+      if ( selection.get( idxOfNewSelection ) ) {
+        selection.clear( idxOfNewSelection );
         item.onDeselect();
       } else {
         item.onSelect();
-
-        if ( !selectedItems.contains( item ) ) {
-          selectedItems.add( item );
-        }
-      }
-    } else {
-      if ( !selectedItems.contains( item ) ) {
-        selectedItems.add( item );
+        selection.set( idxOfNewSelection );
       }
     }
 
@@ -860,9 +1094,9 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
       items.get( selectedIndex ).onDeselect();
     }
 
-    selectedItems.clear();
+    selection.clear();
     if ( idx >= 0 && items.size() > idx ) {
-      selectedItems.add( items.get( idx ) );
+      selection.set( idx );
     }
 
     int prevIdx = selectedIndex;
@@ -892,17 +1126,61 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
       }
       return;
     }
-    for ( ListItem item : selectedItems ) {
-      item.onDeselect();
-    }
-    selectedItems.clear();
+    clearSelection();
     for ( int i = 0; i < indices.length; i++ ) {
       int idx = indices[i];
       if ( idx >= 0 && idx < items.size() ) {
         items.get( idx ).onSelect();
-        selectedItems.add( items.get( idx ) );
+        selection.set( idx );
+      }
+    }
+
+    if ( this.suppressLayout == false ) {
+      for ( ChangeListener l : listeners ) {
+        l.onChange( this );
+      }
+    }
+  }
+
+  /**
+   * Adds the items from start to end, inclusive, to the selection of a multi-select list. For single selection lists,
+   * selects the item at the start index.
+   *
+   * @param start
+   *          index of the first ListItem to select
+   * @param end
+   *          index of the last ListItem to select
+   */
+  public void selectRange( int start, int end ) {
+    if ( multiSelect == false ) {
+      setSelectedIndex( start );
+      return;
+    }
+
+    selectItemRange( Math.max( 0, start ), Math.min( end, items.size() - 1 ) );
+
+    if ( this.suppressLayout == false ) {
+      for ( ChangeListener l : listeners ) {
+        l.onChange( this );
       }
     }
+  }
+
+  /**
+   * Removes the items from start to end, inclusive, from the selection of a multi-select list.
+   *
+   * @param start
+   *          index of the first ListItem to deselect
+   * @param end
+   *          index of the last ListItem to deselect
+   */
+  public void deselectRange( int start, int end ) {
+    int last = Math.min( end, items.size() - 1 );
+    for ( int i = selection.nextSetBit( Math.max( 0, start ) ); i >= 0 && i <= last;
+          i = selection.nextSetBit( i + 1 ) ) {
+      items.get( i ).onDeselect();
+      selection.clear( i );
+    }
 
     if ( this.suppressLayout == false ) {
       for ( ChangeListener l : listeners ) {
@@ -911,6 +1189,31 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
     }
   }
 
+  /**
+   * Selects all items of a multi-select list.
+   */
+  public void selectAll() {
+    selectRange( 0, items.size() - 1 );
+  }
+
+  private void selectItemRange( int start, int end ) {
+    if ( start > end ) {
+      return;
+    }
+
+    for ( int i = start; i <= end; i++ ) {
+      items.get( i ).onSelect();
+    }
+    selection.set( start, end + 1 );
+  }
+
+  private void clearSelection() {
+    for ( int i = selection.nextSetBit( 0 ); i >= 0 && i < items.size(); i = selection.nextSetBit( i + 1 ) ) {
+      items.get( i ).onDeselect();
+    }
+    selection.clear();
+  }
+
   public boolean isDefaultSelectionEnabled() {
     return this.defaultSelectionEnabled;
   }
@@ -970,13 +1273,18 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
   }
 
   public List<ListItem> getSelectedItems() {
-    return new ArrayList<ListItem>( selectedItems );
+    List<ListItem> selectedItems = new ArrayList<ListItem>( selection.cardinality() );
+    for ( int i = selection.nextSetBit( 0 ); i >= 0 && i < items.size(); i = selection.nextSetBit( i + 1 ) ) {
+      selectedItems.add( items.get( i ) );
+    }
+    return selectedItems;
   }
 
   public int[] getSelectedIndices() {
-    int[] selectedIndices = new int[selectedItems.size()];
-    for ( int i = 0; i < selectedItems.size(); i++ ) {
-      selectedIndices[i] = items.indexOf( selectedItems.get( i ) );
+    int[] selectedIndices = new int[selection.cardinality()];
+    int j = 0;
+    for ( int i = selection.nextSetBit( 0 ); i >= 0; i = selection.nextSetBit( i + 1 ) ) {
+      selectedIndices[j++] = i;
     }
     return selectedIndices;
   }
@@ -991,6 +1299,8 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
     for ( ListItem item : items ) {
       item.setStylePrimaryName( s );
     }
+
+    invalidateItemSizes();
   }
 
   @Override
@@ -1067,6 +1377,9 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
 
   private int shiftOriginIdx = -1;
 
+  private String typeAheadPrefix = "";
+  private long typeAheadTime;
+
   public void onKeyDown( Widget widget, char c, int i ) {
     Event event = Event.getCurrentEvent();
     if ( c == 16 ) { // shift
@@ -1101,6 +1414,53 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
   }
 
   public void onKeyPress( Widget widget, char c, int i ) {
+    if ( isEnabled() == false || editable ) {
+      return;
+    }
+
+    if ( ( i & ( MODIFIER_CTRL | MODIFIER_META | MODIFIER_ALT ) ) == 0 && Character.isLetterOrDigit( c ) ) {
+      typeAhead( c );
+    }
+  }
+
+  /**
+   * Selects the next item whose text starts with the characters typed so far. Typing the same character repeatedly
+   * cycles through the items starting with it. The typed characters are forgotten after a short pause.
+   */
+  private void typeAhead( char c ) {
+    long now = now();
+    if ( now - typeAheadTime > TYPE_AHEAD_RESET_MILLIS ) {
+      typeAheadPrefix = "";
+    }
+    typeAheadTime = now;
+
+    String key = String.valueOf( c ).toLowerCase();
+    int fromIndex;
+    if ( typeAheadPrefix.isEmpty() || typeAheadPrefix.replace( key, "" ).isEmpty() ) {
+      // First or repeated character: cycle to the next item starting with it.
+      typeAheadPrefix = key;
+      fromIndex = selectedIndex + 1;
+    } else {
+      // Extended prefix: the current item is kept if it still matches.
+      typeAheadPrefix += key;
+      fromIndex = Math.max( selectedIndex, 0 );
+    }
+
+    int index = getSearchIndex().findNextWithPrefix( typeAheadPrefix, fromIndex );
+    if ( index < 0 || index == selectedIndex ) {
+      return;
+    }
+
+    if ( multiSelect ) {
+      clearSelection();
+    }
+    setSelectedIndex( index );
+    scrollSelectedItemIntoView();
+  }
+
+  /* Visible for testing */
+  long now() {
+    return System.currentTimeMillis();
   }
 
   public void onKeyUp( Widget widget, char c, int i ) {
@@ -1116,34 +1476,26 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
         if ( selectedIndex > 0 ) {
 
           if ( multiSelect && !Event.getCurrentEvent().getShiftKey() ) {
-            for ( ListItem itm : selectedItems ) {
-              itm.onDeselect();
-            }
-            selectedItems.clear();
+            clearSelection();
             ListItem itm = items.get( selectedIndex - 1 );
             selectedIndex = selectedIndex - 1;
             itm.onSelect();
-            if ( !selectedItems.contains( itm ) ) {
-              selectedItems.add( itm );
-            }
+            selection.set( selectedIndex );
             fireEvents = true;
-            this.listScrollPanel.ensureVisible( itm.getWidget() );
+            ensureItemVisible( itm, selectedIndex );
           } else if ( multiSelect && Event.getCurrentEvent().getShiftKey() ) {
 
             ListItem itm = items.get( selectedIndex - 1 );
 
-            if ( !selectedItems.contains( itm ) ) {
-              selectedItems.add( itm );
-            }
+            selection.set( selectedIndex - 1 );
             itm.onSelect();
-            this.listScrollPanel.ensureVisible( itm.getWidget() );
+            ensureItemVisible( itm, selectedIndex - 1 );
 
-            ListItem prevItem = items.get( selectedIndex );
             if ( selectedIndex != shiftOriginIdx
                 && shiftOriginIdx < selectedIndex
-                && selectedItems.contains( prevItem ) ) {
-              selectedItems.remove( prevItem );
-              prevItem.onDeselect();
+                && selection.get( selectedIndex ) ) {
+              selection.clear( selectedIndex );
+              items.get( selectedIndex ).onDeselect();
             }
 
             selectedIndex = selectedIndex - 1;
@@ -1162,36 +1514,28 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
       case 40: // Down
         if ( selectedIndex < items.size() - 1 ) {
           if ( multiSelect && !Event.getCurrentEvent().getShiftKey() ) {
-            for ( ListItem itm : selectedItems ) {
-              itm.onDeselect();
-            }
-            selectedItems.clear();
+            clearSelection();
             ListItem itm = items.get( selectedIndex + 1 );
             selectedIndex = selectedIndex + 1;
             itm.onSelect();
-            if ( !selectedItems.contains( itm ) ) {
-              selectedItems.add( itm );
-            }
+            selection.set( selectedIndex );
             fireEvents = true;
-            this.listScrollPanel.ensureVisible( itm.getWidget() );
+            ensureItemVisible( itm, selectedIndex );
           } else if ( multiSelect && Event.getCurrentEvent().getShiftKey() ) {
 
             ListItem itm = items.get( selectedIndex + 1 );
 
-            if ( !selectedItems.contains( itm ) ) {
-              selectedItems.add( itm );
-            }
+            selection.set( selectedIndex + 1 );
             itm.onSelect();
 
-            ListItem prevItem = items.get( selectedIndex );
             if ( selectedIndex != shiftOriginIdx
                 && shiftOriginIdx > selectedIndex
-                && selectedItems.contains( prevItem ) ) {
-              selectedItems.remove( prevItem );
-              prevItem.onDeselect();
+                && selection.get( selectedIndex ) ) {
+              selection.clear( selectedIndex );
+              items.get( selectedIndex ).onDeselect();
             }
 
-            this.listScrollPanel.ensureVisible( itm.getWidget() );
+            ensureItemVisible( itm, selectedIndex + 1 );
 
             selectedIndex = selectedIndex + 1;
 
@@ -1214,11 +1558,7 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
         break;
       case 65: // A
         if ( Event.getCurrentEvent().getCtrlKey() ) {
-          for ( ListItem item : items ) {
-            item.onSelect();
-          }
-          selectedItems.clear();
-          selectedItems.addAll( items );
+          selectItemRange( 0, items.size() - 1 );
 
           fireEvents = true;
         }
@@ -1262,6 +1602,11 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
     }
   }
 
+  public void itemChanged( ListItem listItem ) {
+    searchIndex = null;
+    invalidateItemSize( listItem );
+  }
+
   // ======================================= Inner Classes ===================================== //
 
   /**
@@ -1467,4 +1812,503 @@ public class CustomListBox extends VerticalFlexPanel implements ChangeListener,
   public void setMultiSelect( boolean multiSelect ) {
     this.multiSelect = multiSelect;
   }
+
+  public boolean isVirtualized() {
+    return virtualized;
+  }
+
+  /**
+   * Setting virtualized to true renders only the items which are visible in the list, or in the drop-down popup, plus
+   * a few more above and below. Item widgets are attached and detached as the user scrolls. This is useful for lists
+   * with thousands of items.
+   * <p>
+   * All rows are assumed to have the same height, which is either the one specified using {@link #setRowHeight(int)}
+   * or, otherwise, the height of the first item.
+   *
+   * @param virtualized
+   */
+  public void setVirtualized( boolean virtualized ) {
+    this.virtualized = virtualized;
+    if ( suppressLayout == false ) {
+      updateUI();
+    }
+  }
+
+  public int getRowHeight() {
+    return rowHeight;
+  }
+
+  /**
+   * Sets the fixed height of each row, in pixels, used in virtualized mode. When not positive (default), the row
+   * height is estimated by measuring the first item.
+   *
+   * @param rowHeight
+   */
+  public void setRowHeight( int rowHeight ) {
+    this.rowHeight = rowHeight;
+    this.estimatedRowHeight = -1;
+    if ( virtualized && suppressLayout == false ) {
+      updateUI();
+    }
+  }
+
+  public boolean isUniformItemSize() {
+    return uniformItemSize;
+  }
+
+  /**
+   * Setting uniformItemSize to true indicates that all items use the same style, so that measuring a single sample
+   * item, the one with the longest text, is enough to know the size of all of them.
+   *
+   * @param uniformItemSize
+   */
+  public void setUniformItemSize( boolean uniformItemSize ) {
+    this.uniformItemSize = uniformItemSize;
+    if ( suppressLayout == false ) {
+      updateUI();
+    }
+  }
+
+  /**
+   * Discards the cached size of the given item. Must be called when the content of an item changes after it has been
+   * added to the list, unless the item reports the change through {@link ListItemListener#itemChanged(ListItem)}.
+   *
+   * @param item
+   */
+  public void invalidateItemSize( ListItem item ) {
+    itemSizes.remove( item );
+    estimatedRowHeight = -1;
+  }
+
+  /**
+   * Discards the cached sizes of all items.
+   */
+  public void invalidateItemSizes() {
+    itemSizes.clear();
+    estimatedRowHeight = -1;
+  }
+
+  private Rectangle measureItem( ListItem item ) {
+    return measureItems( Collections.singletonList( item ) )[ 0 ];
+  }
+
+  /**
+   * Gets the sizes of the given items. Sizes are cached per item. Items which were not yet measured are measured all
+   * at once, in a single batch.
+   */
+  /* Visible for testing */
+  Rectangle[] measureItems( List<ListItem> listItems ) {
+    Rectangle[] sizes = new Rectangle[ listItems.size() ];
+
+    if ( uniformItemSize && !listItems.isEmpty() ) {
+      ListItem sample = listItems.get( 0 );
+      for ( ListItem item : listItems ) {
+        if ( String.valueOf( item.getText() ).length() > String.valueOf( sample.getText() ).length() ) {
+          sample = item;
+        }
+      }
+
+      Rectangle sampleSize = itemSizes.get( sample );
+      if ( sampleSize == null ) {
+        sampleSize = ElementUtils.getSize( sample.getWidget().getElement() );
+        cacheItemSize( sample, sampleSize );
+      }
+
+      Arrays.fill( sizes, sampleSize );
+      return sizes;
+    }
+
+    List<Integer> unmeasuredIndexes = new ArrayList<>();
+    List<Element> unmeasuredElements = new ArrayList<>();
+    for ( int i = 0; i < sizes.length; i++ ) {
+      ListItem item = listItems.get( i );
+      sizes[ i ] = itemSizes.get( item );
+      if ( sizes[ i ] == null ) {
+        unmeasuredIndexes.add( i );
+        unmeasuredElements.add( item.getWidget().getElement() );
+      }
+    }
+
+    if ( !unmeasuredIndexes.isEmpty() ) {
+      Rectangle[] measuredSizes = ElementUtils.getSizes( unmeasuredElements );
+      for ( int i = 0; i < measuredSizes.length; i++ ) {
+        int index = unmeasuredIndexes.get( i );
+        sizes[ index ] = measuredSizes[ i ];
+        cacheItemSize( listItems.get( index ), measuredSizes[ i ] );
+      }
+    }
+
+    return sizes;
+  }
+
+  private void cacheItemSize( ListItem item, Rectangle size ) {
+    // An empty size means the item could not be laid out yet. Measure it again next time.
+    if ( size.width > 0 || size.height > 0 ) {
+      itemSizes.put( item, size );
+    }
+  }
+
+  private int getVirtualRowHeight() {
+    if ( rowHeight > 0 ) {
+      return rowHeight;
+    }
+
+    if ( estimatedRowHeight <= 0 && !items.isEmpty() ) {
+      estimatedRowHeight = measureItem( items.get( 0 ) ).height;
+    }
+
+    return estimatedRowHeight > 0 ? estimatedRowHeight : DEFAULT_VIRTUAL_ROW_HEIGHT;
+  }
+
+  private int getVirtualRowPitch() {
+    return getVirtualRowHeight() + spacing;
+  }
+
+  /**
+   * Live view of {@link #items}, which discards the search index whenever it is modified.
+   */
+  private class ItemsView extends AbstractList<ListItem> {
+
+    @Override
+    public ListItem get( int index ) {
+      return items.get( index );
+    }
+
+    @Override
+    public int size() {
+      return items.size();
+    }
+
+    @Override
+    public ListItem set( int index, ListItem item ) {
+      searchIndex = null;
+      return items.set( index, item );
+    }
+
+    @Override
+    public void add( int index, ListItem item ) {
+      searchIndex = null;
+      items.add( index, item );
+      modCount++;
+    }
+
+    @Override
+    public ListItem remove( int index ) {
+      searchIndex = null;
+      modCount++;
+      return items.remove( index );
+    }
+  }
+
+  /**
+   * List of the selected items, which reads and writes {@link #selection}.
+   */
+  /* Visible for testing */
+  class SelectedItems extends AbstractList<ListItem> {
+
+    @Override
+    public ListItem get( int index ) {
+      return items.get( getItemIndex( index ) );
+    }
+
+    @Override
+    public int size() {
+      return selection.cardinality();
+    }
+
+    @Override
+    public boolean contains( Object item ) {
+      int idx = items.indexOf( item );
+      return idx >= 0 && selection.get( idx );
+    }
+
+    @Override
+    public void add( int index, ListItem item ) {
+      // The items are kept in the order of the list, whatever the index.
+      int idx = items.indexOf( item );
+      if ( idx >= 0 ) {
+        selection.set( idx );
+        modCount++;
+      }
+    }
+
+    @Override
+    public ListItem remove( int index ) {
+      int idx = getItemIndex( index );
+      selection.clear( idx );
+      modCount++;
+      return items.get( idx );
+    }
+
+    @Override
+    public void clear() {
+      selection.clear();
+      modCount++;
+    }
+
+    /**
+     * Gets the index, in the list, of the selected item at an index of this list.
+     */
+    private int getItemIndex( int index ) {
+      if ( index < 0 ) {
+        throw new IndexOutOfBoundsException( String.valueOf( index ) );
+      }
+
+      int idx = selection.nextSetBit( 0 );
+      for ( int i = 0; i < index && idx >= 0; i++ ) {
+        idx = selection.nextSetBit( idx + 1 );
+      }
+      if ( idx < 0 || idx >= items.size() ) {
+        throw new IndexOutOfBoundsException( String.valueOf( index ) );
+      }
+      return idx;
+    }
+  }
+
+  /**
+   * List of {@link DefaultListItem}s which are created from values and labels only when first accessed.
+   */
+  private class LazyDefaultListItems extends AbstractList<ListItem> {
+    private final Object[] values;
+    private final String[] labels;
+
+    // Each entry is either a ListItem or the Integer index of the value and label of an item not yet created.
+    private final List<Object> entries;
+
+    public LazyDefaultListItems( Object[] values, String[] labels ) {
+      this.values = values;
+      this.labels = labels;
+      this.entries = new ArrayList<>( values.length );
+
+      for ( int i = 0; i < values.length; i++ ) {
+        entries.add( i );
+      }
+    }
+
+    @Override
+    public ListItem get( int index ) {
+      Object entry = entries.get( index );
+      if ( entry instanceof ListItem ) {
+        return (ListItem) entry;
+      }
+
+      int sourceIndex = (Integer) entry;
+      DefaultListItem item = new DefaultListItem(
+        labels != null ? labels[ sourceIndex ] : String.valueOf( values[ sourceIndex ] ) );
+      item.setValue( values[ sourceIndex ] );
+      prepareItem( item );
+
+      entries.set( index, item );
+      return item;
+    }
+
+    @Override
+    public int size() {
+      return entries.size();
+    }
+
+    @Override
+    public int indexOf( Object item ) {
+      // Items not yet created cannot be equal to the given one.
+      return item instanceof ListItem ? entries.indexOf( item ) : -1;
+    }
+
+    @Override
+    public ListItem set( int index, ListItem item ) {
+      ListItem previous = get( index );
+      entries.set( index, item );
+      return previous;
+    }
+
+    @Override
+    public void add( int index, ListItem item ) {
+      entries.add( index, item );
+      modCount++;
+    }
+
+    @Override
+    public ListItem remove( int index ) {
+      ListItem previous = get( index );
+      entries.remove( index );
+      modCount++;
+      return previous;
+    }
+
+    @Override
+    public void clear() {
+      entries.clear();
+      modCount++;
+    }
+  }
+
+  /**
+   * Renders the window of items which is visible in a scroll panel, plus some overscan rows. Spacers above and below
+   * the window stand in for the items which are not rendered. When scrolling, only the widgets of the items which
+   * enter or leave the window are attached or detached.
+   */
+  /* Visible for testing */
+  class VirtualItemWindow {
+    private final VerticalPanel panel;
+    private final ScrollPanel scrollPanel;
+
+    /* Visible for testing */
+    SimplePanel topSpacer = new SimplePanel();
+
+    /* Visible for testing */
+    SimplePanel bottomSpacer = new SimplePanel();
+
+    private List<ListItem> windowItems = new ArrayList<>();
+
+    // Rendered range of windowItems, [start, end).
+    private int start;
+    private int end;
+    private boolean active;
+
+    public VirtualItemWindow( VerticalPanel panel, ScrollPanel scrollPanel ) {
+      this.panel = panel;
+      this.scrollPanel = scrollPanel;
+
+      scrollPanel.addScrollHandler( event -> {
+        if ( active ) {
+          render();
+        }
+      } );
+    }
+
+    public void setItems( List<ListItem> windowItems ) {
+      this.windowItems = windowItems;
+      this.start = 0;
+      this.end = 0;
+      this.active = true;
+
+      panel.clear();
+      panel.add( topSpacer );
+      panel.add( bottomSpacer );
+
+      render();
+    }
+
+    /**
+     * Stops managing the panel, which is about to be fully rendered.
+     */
+    public void deactivate() {
+      this.active = false;
+    }
+
+    public void render() {
+      if ( !active ) {
+        return;
+      }
+
+      int pitch = getVirtualRowPitch();
+      int viewportHeight = scrollPanel.getOffsetHeight();
+      if ( viewportHeight <= 0 ) {
+        viewportHeight = Math.max( visible, maxDropVisible ) * pitch;
+      }
+
+      int first = Math.max( 0, scrollPanel.getVerticalScrollPosition() / pitch - VIRTUAL_OVERSCAN_ROWS );
+      int last = Math.min( windowItems.size(), first + viewportHeight / pitch + 1 + 2 * VIRTUAL_OVERSCAN_ROWS );
+      first = Math.min( first, last );
+
+      if ( first == start && last == end ) {
+        return;
+      }
+
+      // Detach the widgets which left the window. Panel index 0 is the top spacer and the last one is the bottom
+      // spacer.
+      while ( start < end && start < first ) {
+        panel.remove( 1 );
+        start++;
+      }
+
+      while ( end > start && end > last ) {
+        panel.remove( panel.getWidgetCount() - 2 );
+        end--;
+      }
+
+      if ( start == end ) {
+        start = first;
+        end = first;
+      }
+
+      // Attach the widgets which entered the window.
+      while ( start > first ) {
+        start--;
+        insertRow( windowItems.get( start ), 1 );
+      }
+
+      while ( end < last ) {
+        insertRow( windowItems.get( end ), panel.getWidgetCount() - 1 );
+        end++;
+      }
+
+      topSpacer.setHeight( ( start * pitch ) + "px" );
+      bottomSpacer.setHeight( ( ( windowItems.size() - end ) * pitch ) + "px" );
+    }
+
+    private void insertRow( ListItem item, int beforeIndex ) {
+      Widget w = item.getWidget();
+      panel.insert( w, beforeIndex );
+      panel.setCellWidth( w, "100%" );
+    }
+
+    /**
+     * Scrolls to the given item and renders the window around it. The item is looked up in the rendered items only if
+     * these are filtered and, thus, the given index of the item in all items does not match.
+     */
+    public void ensureVisible( ListItem item, int itemsIndex ) {
+      int index = itemsIndex >= 0 && itemsIndex < windowItems.size() && windowItems.get( itemsIndex ) == item
+        ? itemsIndex
+        : windowItems.indexOf( item );
+      if ( index < 0 ) {
+        return;
+      }
+
+      int pitch = getVirtualRowPitch();
+      int top = index * pitch;
+      int viewportHeight = scrollPanel.getOffsetHeight();
+      int position = scrollPanel.getVerticalScrollPosition();
+
+      if ( top < position ) {
+        scrollPanel.setVerticalScrollPosition( top );
+      } else if ( viewportHeight > 0 && top + pitch > position + viewportHeight ) {
+        scrollPanel.setVerticalScrollPosition( top + pitch - viewportHeight );
+      }
+
+      render();
+    }
+
+    /**
+     * Measures the width of the widest item, without measuring all of them. Besides the rendered items, the cached
+     * sizes of all items are taken into account, and the unrendered items which have the longest texts, and are thus
+     * likely the widest, are measured.
+     */
+    public int measureMaxWidth() {
+      // The longest unmeasured items, shortest first, so that the shortest is the one to drop.
+      PriorityQueue<ListItem> longestItems = new PriorityQueue<>( VIRTUAL_WIDTH_SAMPLE_SIZE + 1,
+          Comparator.comparingInt( item -> String.valueOf( item.getText() ).length() ) );
+
+      int width = 0;
+      for ( int i = 0; i < windowItems.size(); i++ ) {
+        ListItem item = windowItems.get( i );
+        Rectangle size = itemSizes.get( item );
+        if ( size != null ) {
+          width = Math.max( width, size.width );
+        } else if ( i < start || i >= end ) {
+          longestItems.add( item );
+          if ( longestItems.size() > VIRTUAL_WIDTH_SAMPLE_SIZE ) {
+            longestItems.poll();
+          }
+        }
+      }
+
+      List<ListItem> measuredItems = new ArrayList<>( windowItems.subList( start, end ) );
+      measuredItems.addAll( longestItems );
+      for ( Rectangle rect : measureItems( measuredItems ) ) {
+        width = Math.max( width, rect.width );
+      }
+
+      return width;
+    }
+  }
 }
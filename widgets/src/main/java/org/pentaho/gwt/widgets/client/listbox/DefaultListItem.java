@@ -113,6 +113,7 @@ public class DefaultListItem extends HorizontalFlexPanel implements ListItem<Obj
     dropWidget.addStyleName( HorizontalFlexPanel.STYLE_NAME );//$NON-NLS-1$
     super.setStylePrimaryName( style + "-item" ); //$NON-NLS-1$
     super.addStyleName( HorizontalFlexPanel.STYLE_NAME );
+    fireItemChanged();
   }
 
   /**
@@ -201,6 +202,7 @@ public class DefaultListItem extends HorizontalFlexPanel implements ListItem<Obj
 
   public void setValue( Object o ) {
     this.value = o;
+    fireItemChanged();
   }
 
   public void onHoverEnter() {
@@ -232,6 +234,13 @@ public class DefaultListItem extends HorizontalFlexPanel implements ListItem<Obj
 
   public void setText( String text ) {
     this.text = text;
+    fireItemChanged();
+  }
+
+  protected void fireItemChanged() {
+    if ( listItemListener != null ) {
+      listItemListener.itemChanged( this );
+    }
   }
 
   private static class WrapperWidget extends Widget {
@@ -23,4 +23,12 @@ public interface ListItemListener {
   void itemSelected( ListItem listItem, Event event );
 
   void doAction( ListItem listItem );
+
+  /**
+   * Called when the text, value or style of an item changes after it was added to a list.
+   *
+   * @param listItem the changed item
+   */
+  default void itemChanged( ListItem listItem ) {
+  }
 }
@@ -0,0 +1,160 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.listbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Case-insensitive text index over the items of a {@link CustomListBox}, used to filter them as the user types.
+ * <p>
+ * The texts of the items are lower-cased once, when the index is built, so that filtering is a plain scan of them. As
+ * the user usually extends the query one character at a time, the matches of the previous query are kept, and a query
+ * which extends it only scans those.
+ * <p>
+ * For prefix lookups, e.g. type-ahead, the items are additionally sorted by text, once, when first needed.
+ * <p>
+ * The index is a snapshot of the items and their texts. It must be discarded when they change.
+ */
+class ListItemTextIndex {
+  private final List<ListItem> items;
+  private final String[] lowerTexts;
+
+  // The previous query, lower-cased, and the indexes of the items it matched.
+  private String lastQuery;
+  private int[] lastMatches;
+  private int lastMatchCount;
+
+  // The number of texts scanned by the previous query.
+  private int lastScanCount;
+
+  // Item indexes sorted by text. Built on first use.
+  private int[] sortedIndexes;
+
+  public ListItemTextIndex( List<ListItem> items ) {
+    this.items = new ArrayList<>( items );
+    this.lowerTexts = new String[ items.size() ];
+
+    for ( int i = 0; i < lowerTexts.length; i++ ) {
+      String text = this.items.get( i ).getText();
+      lowerTexts[ i ] = text == null ? "" : text.toLowerCase();
+    }
+  }
+
+  /**
+   * Gets the items whose text contains the given query, ignoring case, in their original order.
+   *
+   * @param query The text to search for.
+   * @return The matching items.
+   */
+  public List<ListItem> find( String query ) {
+    String lowerQuery = query.toLowerCase();
+    if ( lowerQuery.isEmpty() ) {
+      return new ArrayList<>( items );
+    }
+
+    // Items which do not contain the previous query cannot contain one which extends it.
+    boolean narrow = lastQuery != null && lowerQuery.startsWith( lastQuery );
+    int candidateCount = narrow ? lastMatchCount : lowerTexts.length;
+
+    int[] matches = new int[ candidateCount ];
+    int matchCount = 0;
+    for ( int i = 0; i < candidateCount; i++ ) {
+      int index = narrow ? lastMatches[ i ] : i;
+      if ( lowerTexts[ index ].contains( lowerQuery ) ) {
+        matches[ matchCount++ ] = index;
+      }
+    }
+
+    lastQuery = lowerQuery;
+    lastMatches = matches;
+    lastMatchCount = matchCount;
+    lastScanCount = candidateCount;
+
+    List<ListItem> result = new ArrayList<>( matchCount );
+    for ( int i = 0; i < matchCount; i++ ) {
+      result.add( items.get( matches[ i ] ) );
+    }
+
+    return result;
+  }
+
+  /**
+   * Gets the number of texts scanned by the previous call to {@link #find(String)}.
+   */
+  /* Visible for testing */
+  int getLastScanCount() {
+    return lastScanCount;
+  }
+
+  /**
+   * Gets the index of the first item, at or after the given index, whose text starts with the given prefix, ignoring
+   * case. The search wraps around to the start of the list.
+   *
+   * @param prefix The prefix to search for.
+   * @param fromIndex The index at which to start searching.
+   * @return The index of the matching item, if any; <code>-1</code>, otherwise.
+   */
+  public int findNextWithPrefix( String prefix, int fromIndex ) {
+    String lowerPrefix = prefix.toLowerCase();
+    int[] sorted = getSortedIndexes();
+
+    // Binary search for the first text which is not less than the prefix.
+    int low = 0;
+    int high = sorted.length;
+    while ( low < high ) {
+      int middle = ( low + high ) >>> 1;
+      if ( lowerTexts[ sorted[ middle ] ].compareTo( lowerPrefix ) < 0 ) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    // All matches follow it. Find the match nearest to fromIndex, wrapping around.
+    int next = -1;
+    int first = -1;
+    for ( int i = low; i < sorted.length && lowerTexts[ sorted[ i ] ].startsWith( lowerPrefix ); i++ ) {
+      int index = sorted[ i ];
+      if ( first < 0 || index < first ) {
+        first = index;
+      }
+      if ( index >= fromIndex && ( next < 0 || index < next ) ) {
+        next = index;
+      }
+    }
+
+    return next >= 0 ? next : first;
+  }
+
+  private int[] getSortedIndexes() {
+    if ( sortedIndexes == null ) {
+      Integer[] indexes = new Integer[ lowerTexts.length ];
+      for ( int i = 0; i < indexes.length; i++ ) {
+        indexes[ i ] = i;
+      }
+
+      // Stable, so items with equal texts keep their relative order.
+      Arrays.sort( indexes, ( a, b ) -> lowerTexts[ a ].compareTo( lowerTexts[ b ] ) );
+
+      sortedIndexes = new int[ indexes.length ];
+      for ( int i = 0; i < indexes.length; i++ ) {
+        sortedIndexes[ i ] = indexes[ i ];
+      }
+    }
+
+    return sortedIndexes;
+  }
+}
@@ -14,21 +14,25 @@
 package org.pentaho.gwt.widgets.client.table;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
 
 import com.google.gwt.event.dom.client.KeyCodes;
 import org.pentaho.gwt.widgets.client.i18n.WidgetsLocalizedMessages;
 import org.pentaho.gwt.widgets.client.i18n.WidgetsLocalizedMessagesSingleton;
 import org.pentaho.gwt.widgets.client.table.ColumnComparators.BaseColumnComparator;
 import org.pentaho.gwt.widgets.client.table.ColumnComparators.ColumnComparatorTypes;
+import org.pentaho.gwt.widgets.client.text.SearchTextBox;
 import org.pentaho.gwt.widgets.client.utils.ElementUtils;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.dom.client.Style;
+import com.google.gwt.dom.client.TableRowElement;
 import com.google.gwt.gen2.table.client.AbstractScrollTable;
 import com.google.gwt.gen2.table.client.FixedWidthFlexTable;
 import com.google.gwt.gen2.table.client.FixedWidthGrid;
@@ -36,12 +40,15 @@ import com.google.gwt.gen2.table.client.ScrollTable;
 import com.google.gwt.gen2.table.client.SelectionGrid;
 import com.google.gwt.gen2.table.client.SortableGrid;
 import com.google.gwt.gen2.table.client.TableModelHelper;
+import com.google.gwt.gen2.table.event.client.RowSelectionEvent;
 import com.google.gwt.gen2.table.event.client.RowSelectionHandler;
+import com.google.gwt.gen2.table.event.client.TableEvent;
 import com.google.gwt.gen2.table.override.client.FlexTable;
 import com.google.gwt.gen2.table.override.client.HTMLTable;
 import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.Element;
 import com.google.gwt.user.client.Event;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.Composite;
 import com.google.gwt.user.client.ui.HasHorizontalAlignment;
@@ -80,7 +87,8 @@ public class BaseTable extends Composite {
 
   protected ScrollTable scrollTable;
 
-  private FixedWidthFlexTable tableHeader;
+  /* Visible for testing */
+  FixedWidthFlexTable tableHeader;
 
   protected FixedWidthGrid dataGrid;
 
@@ -90,24 +98,85 @@ public class BaseTable extends Composite {
 
   private int[] columnWidths;
 
-  private int numberOfColumns;
+  /* Visible for testing */
+  int numberOfColumns;
 
   private SelectionGrid.SelectionPolicy selectionPolicy;
 
-  private BaseColumnComparator[] columnComparators;
+  /* Visible for testing */
+  BaseColumnComparator[] columnComparators;
 
   private Collection objects;
 
-  private Map<Element, Object> objectElementMap;
+  // The table model: the values and objects of the rows, as populated, and the order in which rows are displayed.
+  /* Visible for testing */
+  Object[][] rowValues;
+
+  private Object[] rowObjects;
+
+  /* Visible for testing */
+  int[] viewRows;
+
+  // All model rows in sort order, and those of them which pass the filters; viewRows is the current page of these.
+  private int[] sortedRows;
+
+  private int[] filteredRows;
+
+  /* Visible for testing */
+  TableRowFilter rowFilter = new TableRowFilter();
+
+  // Whether the table displays a message, which the filters do not apply to, instead of data.
+  private boolean messageShown;
+
+  private int pageSize;
+
+  private int pageIndex;
+
+  /* Visible for testing */
+  SearchTextBox quickFilterTextBox;
+
+  private Timer quickFilterTimer;
+
+  /* Visible for testing */
+  static final int QUICK_FILTER_DELAY_MILLIS = 150;
 
   private BaseTableColumnSorter baseTableColumnSorter;
 
   private boolean autoSelectionOnFocus = true;
 
+  // Virtual scrolling: only a pool of grid rows, starting at view row virtualFirstRow, is rendered.
+  private static final int DEFAULT_VIRTUAL_ROW_HEIGHT = 24;
+
+  private static final int DEFAULT_VIRTUAL_ROW_POOL_SIZE = 50;
+
+  private static final int VIRTUAL_OVERSCAN_ROWS = 5;
+
+  private boolean virtualScrolling;
+
+  private int virtualRowHeight = DEFAULT_VIRTUAL_ROW_HEIGHT;
+
+  /* Visible for testing */
+  int virtualFirstRow;
+
+  private int virtualFocusedRow;
+
+  // The selected model rows.
+  /* Visible for testing */
+  BitSet virtualSelectedRows = new BitSet();
+
+  // The model row from which shift selects a range of rows, or -1.
+  private int virtualSelectionAnchor = -1;
+
+  private boolean bindingVirtualRows;
+
+  private com.google.gwt.dom.client.Element virtualTopSpacer;
+
+  private com.google.gwt.dom.client.Element virtualBottomSpacer;
+
   private final TableListener internalDoubleClickListener = new TableListener() {
     public void onCellClicked( SourcesTableEvents sender, int row, int cell ) {
       for ( TableListener listener : doubleClickListeners ) {
-        listener.onCellClicked( sender, row, cell );
+        listener.onCellClicked( sender, toViewRow( row ), cell );
       }
     }
   };
@@ -117,13 +186,15 @@ public class BaseTable extends Composite {
   private final TableListener internalTableListener = new TableListener() {
     public void onCellClicked( SourcesTableEvents sender, int row, int cell ) {
       for ( TableListener listener : tableListeners ) {
-        listener.onCellClicked( sender, row, cell );
+        listener.onCellClicked( sender, toViewRow( row ), cell );
       }
     }
   };
 
   private List<TableListener> tableListeners = new ArrayList<TableListener>();
 
+  private List<RowSelectionHandler> rowSelectionHandlers = new ArrayList<RowSelectionHandler>();
+
   /**
    * Simple constructor.
    */
@@ -243,6 +314,70 @@ public class BaseTable extends Composite {
     this.autoSelectionOnFocus = autoSelectionOnFocus;
   }
 
+  /**
+   * Gets a value that indicates whether only the rows in view are rendered.
+   *
+   * @return boolean
+   */
+  public boolean isVirtualScrolling() {
+    return virtualScrolling;
+  }
+
+  /**
+   * Enables or disables virtual scrolling, for tables with many rows.
+   * <p>
+   * When enabled, the data grid only has a pool of rows which fills the visible area. As the user scrolls, the rows of
+   * the pool are rebound to the rows of the table which come into view, and the remaining height is taken by spacers.
+   * All rows must have the same height, which is given by {@link #setVirtualRowHeight(int)}.
+   * <p>
+   * Row indexes passed to, and returned by, the methods of this table, as well as those passed to table listeners,
+   * are the indexes of the rows in display order, and not those of the grid rows which currently render them. The
+   * same goes for the rows of the events which selection handlers receive, and these are only fired when the selection
+   * of the rows changes, and not when rows are rebound as the user scrolls.
+   * <p>
+   * Changing this setting repopulates the table, in the original row order.
+   *
+   * @param virtualScrolling
+   */
+  public void setVirtualScrolling( boolean virtualScrolling ) {
+    if ( this.virtualScrolling == virtualScrolling ) {
+      return;
+    }
+
+    this.virtualScrolling = virtualScrolling;
+    if ( !virtualScrolling ) {
+      removeVirtualSpacers();
+    }
+
+    if ( rowValues != null ) {
+      populateDataGrid( columnWidths, rowValues );
+    }
+  }
+
+  /**
+   * Gets the height, in pixels, of each row, when virtual scrolling is enabled.
+   *
+   * @return int
+   */
+  public int getVirtualRowHeight() {
+    return virtualRowHeight;
+  }
+
+  /**
+   * Sets the height, in pixels, of each row, when virtual scrolling is enabled.
+   *
+   * @param virtualRowHeight
+   */
+  public void setVirtualRowHeight( int virtualRowHeight ) {
+    if ( virtualRowHeight > 0 && this.virtualRowHeight != virtualRowHeight ) {
+      this.virtualRowHeight = virtualRowHeight;
+
+      if ( virtualScrolling ) {
+        bindVirtualRows( true );
+      }
+    }
+  }
+
   /**
    * Creates a table with the given headers, column widths, row/column values, and resize policy.
    */
@@ -378,7 +513,7 @@ public class BaseTable extends Composite {
           Element targetRow = this.getEventTargetRow( event );
           Element eventTarget = DOM.eventGetTarget( event );
           if ( targetRow != null && !ElementUtils.isActiveElement( eventTarget )) {
-            setFocusableRow( this.getRowIndex( targetRow ), true );
+            setFocusableRow( toViewRow( this.getRowIndex( targetRow ) ), true );
           }
         }
       }
@@ -397,6 +532,9 @@ public class BaseTable extends Composite {
     // Add table listeners
     dataGrid.addTableListener( internalTableListener );
 
+    // Track the selection of the model rows, before any other selection handler is called.
+    dataGrid.addRowSelectionHandler( this::onDataGridRowSelection );
+
     // Add table selection listeners
     dataGrid.sinkEvents( Event.ONDBLCLICK | Event.ONKEYDOWN );
     baseTableColumnSorter = new BaseTableColumnSorter();
@@ -428,14 +566,19 @@ public class BaseTable extends Composite {
         if ( !DOM.eventGetTarget( event ).getTagName().equalsIgnoreCase( "input" ) ) {
           event.preventDefault();
           int focusedRow = getFocusedRow();
+          int focusedGridRow = toGridRow( focusedRow );
+          if ( virtualScrolling && ( focusedGridRow < 0 || focusedGridRow >= dataGrid.getRowCount() ) ) {
+            // The focused row was scrolled out of view.
+            break;
+          }
           if ( selectionPolicy == SelectionGrid.SelectionPolicy.MULTI_ROW ) {
             boolean shiftKey = DOM.eventGetShiftKey( event );
             boolean ctrlKey = DOM.eventGetCtrlKey( event )
                     || DOM.eventGetMetaKey( event );
             // Select the rows
-            dataGrid.selectRow( focusedRow, ctrlKey, shiftKey );
+            dataGrid.selectRow( toGridRow( focusedRow ), ctrlKey, shiftKey );
           } else if ( selectionPolicy == SelectionGrid.SelectionPolicy.ONE_ROW ) {
-            dataGrid.selectRow( focusedRow, true );
+            dataGrid.selectRow( toGridRow( focusedRow ), true );
           }
         }
         break;
@@ -446,21 +589,25 @@ public class BaseTable extends Composite {
   private void moveFocusedRow( boolean isDown ) {
     int focusedRow = getFocusedRow();
     if( focusedRow < 0 && !isDown ){
-      focusedRow = dataGrid.getRowCount();
+      focusedRow = getViewRowCount();
     }
 
     int nextRow = isDown ? focusedRow + 1 : focusedRow - 1;
-    if( nextRow >= 0 && nextRow < dataGrid.getRowCount() ) {
+    if( nextRow >= 0 && nextRow < getViewRowCount() ) {
       setFocusableRow( nextRow, true );
 
       if ( isAutoSelectionOnFocus()
            && SelectionGrid.SelectionPolicy.ONE_ROW.equals(dataGrid.getSelectionPolicy()) ) {
-        dataGrid.selectRow( nextRow, true );
+        selectViewRow( nextRow, true );
       }
     }
   }
 
   private int getFocusedRow() {
+    if ( virtualScrolling ) {
+      return virtualFocusedRow;
+    }
+
     int rowCount = dataGrid.getRowCount();
     for (int i = 0; i < rowCount; i++) {
       if( dataGrid.getRowFormatter().getElement(i).getTabIndex() == 0){
@@ -485,6 +632,11 @@ public class BaseTable extends Composite {
    * @param focus
    */
   public void setFocusableRow( int row, boolean focus ) {
+    if ( virtualScrolling ) {
+      setVirtualFocusableRow( row, focus );
+      return;
+    }
+
     int rowCount = dataGrid.getRowCount();
     if( row >= 0 && row < rowCount ) {
       for (int i = 0; i < rowCount; i++) {
@@ -507,6 +659,20 @@ public class BaseTable extends Composite {
     public void redraw() {
       super.redraw();
       syncVerticalScrollbarWidth();
+
+      // The viewport may have been resized.
+      if ( virtualScrolling && scrollTable == this ) {
+        bindVirtualRows( false );
+      }
+    }
+
+    @Override
+    public void onBrowserEvent( Event event ) {
+      super.onBrowserEvent( event );
+
+      if ( virtualScrolling && scrollTable == this && DOM.eventGetType( event ) == Event.ONSCROLL ) {
+        bindVirtualRows( false );
+      }
     }
   }
 
@@ -516,6 +682,10 @@ public class BaseTable extends Composite {
   private void createScrollTable( AbstractScrollTable.ResizePolicy resizePolicy,
                                   AbstractScrollTable.ScrollPolicy scrollPolicy ) {
 
+    // The spacers of virtual scrolling belong to the data wrapper of the previous scroll table, if any.
+    virtualTopSpacer = null;
+    virtualBottomSpacer = null;
+
     scrollTable = new MyScrollTable( dataGrid, tableHeader, (BaseTableImages) GWT.create( BaseTableImages.class ) ) {
       protected void resizeTablesVerticallyNow() {
 
@@ -566,87 +736,739 @@ public class BaseTable extends Composite {
    * Populates the data grid with data then sets the column widths.
    */
   protected void populateDataGrid( int[] columnWidths, Object[][] rowAndColumnValues, Collection objects ) {
+    this.messageShown = false;
     this.objects = objects;
     populateDataGrid( columnWidths, rowAndColumnValues );
   }
 
   /**
    * Populates the data grid with data then sets the column widths.
+   * <p>
+   * Only the rows which pass the filters, and are in the current page, are displayed.
    */
   protected void populateDataGrid( int[] columnWidths, Object[][] rowAndColumnValues ) {
-    while ( dataGrid.getRowCount() > 0 ) {
-      dataGrid.removeRow( 0 );
+    Object[] objectArray = null;
+    if ( objects != null ) {
+      objectArray = objects.toArray();
+    }
+
+    setTableModel( rowAndColumnValues, objectArray );
+    renderViewRows();
+
+    resetHeaderTabIndexes();
+
+    // Set column widths
+    setColumnWidths( columnWidths );
+
+    scrollTable.redraw();
+  }
+
+  /**
+   * Renders the rows in view, after these change, clearing the selection.
+   * <p>
+   * Existing grid rows are reused. Each cell is written once, in the same pass which sets the row styles, the row tab
+   * indexes, and the cell tooltips.
+   */
+  private void renderViewRows() {
+    if ( !dataGrid.getSelectedRows().isEmpty() ) {
+      dataGrid.deselectAllRows();
+    }
+
+    if ( virtualScrolling ) {
+      virtualSelectedRows.clear();
+      virtualSelectionAnchor = -1;
+      virtualFocusedRow = 0;
+
+      com.google.gwt.dom.client.Element dataWrapper = getDataWrapper( scrollTable );
+      if ( dataWrapper != null ) {
+        dataWrapper.setScrollTop( 0 );
+      }
+
+      bindVirtualRows( true );
+      return;
     }
-    // Set table values
-    //
-    dataGrid.resizeRows( rowAndColumnValues.length );
-    for ( int i = 0; i < rowAndColumnValues.length; i++ ) {
+
+    // Resize in place, instead of removing each row.
+    int rowCount = viewRows.length;
+    int reusedRowCount = Math.min( dataGrid.getRowCount(), rowCount );
+    dataGrid.resizeRows( rowCount );
+
+    // Set table values, row styles and cell styles/tooltips
+    final HTMLTable.RowFormatter rowFormatter = dataGrid.getRowFormatter();
+    final HTMLTable.CellFormatter cellFormatter = dataGrid.getCellFormatter();
+    int columnCount = dataGrid.getColumnCount();
+    for ( int i = 0; i < rowCount; i++ ) {
+      boolean reused = i < reusedRowCount;
+      Object[] values = rowValues[viewRows[i]];
+
       // For even rows, add background highlighting
       if ( i % 2 != 0 ) {
-        dataGrid.getRowFormatter().setStyleName( i, "cellTableOddRow" );
+        rowFormatter.setStyleName( i, "cellTableOddRow" );
+      } else if ( reused ) {
+        rowFormatter.setStyleName( i, "" );
       }
 
-      dataGrid.getRowFormatter().getElement(i).setTabIndex( i == 0 ? 0 : -1 );
+      rowFormatter.getElement( i ).setTabIndex( i == 0 ? 0 : -1 );
 
-      for ( int j = 0; j < rowAndColumnValues[i].length; j++ ) {
-        Object value = rowAndColumnValues[i][j];
+      for ( int j = 0; j < values.length; j++ ) {
+        Object value = values[j];
 
         if ( value != null ) {
-          if ( value instanceof String ) {
-            dataGrid.setHTML( i, j, value.toString() );
-          } else if ( value instanceof Widget ) {
-            dataGrid.setWidget( i, j, (Widget) value );
-          } else {
-            System.err.print( MSGS.invalidDataGridTypeSet() );
-            Window.alert( MSGS.invalidDataGridTypeSet() );
+          if ( !setCellValue( i, j, value ) ) {
             return;
           }
+        } else if ( reused ) {
+          dataGrid.clearCell( i, j );
+        }
+
+        Element element = null;
+        try {
+          element = cellFormatter.getElement( i, j );
+        } catch ( Exception e ) {
+          //ignore
+        }
+
+        if ( element != null ) {
+          if ( value instanceof String && !value.equals( "&nbsp;" ) ) { //$NON-NLS-1$
+            element.setTitle( value.toString() );
+          } else if ( reused ) {
+            element.removeAttribute( "title" ); //$NON-NLS-1$
+          }
+        }
+      }
+
+      // Clear what remains of a reused row.
+      if ( reused ) {
+        for ( int j = values.length; j < columnCount; j++ ) {
+          dataGrid.clearCell( i, j );
+          cellFormatter.getElement( i, j ).removeAttribute( "title" ); //$NON-NLS-1$
         }
       }
     }
+  }
 
+  private void resetHeaderTabIndexes() {
     for ( int j = 0; j < tableHeader.getColumnCount(); j++ ) {
       tableHeader.getCellFormatter().getElement( 0, j ).setTabIndex( j == 0 && isColumnSortable( j ) ? 0 : -1 );
     }
+  }
 
-    // Set column widths
-    setColumnWidths( columnWidths );
+  /**
+   * Sizes the pool of grid rows to the viewport and binds it to the rows in view.
+   * <p>
+   * Unless <code>rebindAll</code> is <code>true</code>, nothing is done while the same rows remain in view.
+   */
+  /* Visible for testing */
+  void bindVirtualRows( boolean rebindAll ) {
+    if ( rowValues == null ) {
+      return;
+    }
 
-    // Set cell styles/tooltip for data grid cells
+    com.google.gwt.dom.client.Element dataWrapper = getDataWrapper( scrollTable );
+    int viewportHeight = dataWrapper != null ? dataWrapper.getClientHeight() : 0;
+    int scrollTop = dataWrapper != null ? dataWrapper.getScrollTop() : 0;
+
+    int viewRowCount = viewRows.length;
+    int poolSize = viewportHeight > 0
+        ? viewportHeight / virtualRowHeight + 1 + 2 * VIRTUAL_OVERSCAN_ROWS
+        : DEFAULT_VIRTUAL_ROW_POOL_SIZE;
+    poolSize = Math.min( poolSize, viewRowCount );
+    int firstRow = Math.max( 0, Math.min( scrollTop / virtualRowHeight - VIRTUAL_OVERSCAN_ROWS,
+        viewRowCount - poolSize ) );
+
+    int rowCount = dataGrid.getRowCount();
+    if ( !rebindAll && firstRow == virtualFirstRow && poolSize == rowCount ) {
+      return;
+    }
+
+    // When only the pool grows, just its new rows need to be bound.
+    int firstUnboundRow = rebindAll || firstRow != virtualFirstRow ? 0 : rowCount;
+    virtualFirstRow = firstRow;
+
+    bindingVirtualRows = true;
+    try {
+      if ( poolSize != rowCount ) {
+        dataGrid.resizeRows( poolSize );
+      }
+
+      for ( int gridRow = firstUnboundRow; gridRow < poolSize; gridRow++ ) {
+        if ( !bindVirtualRow( gridRow, firstRow + gridRow, gridRow < rowCount ) ) {
+          break;
+        }
+        syncVirtualRowSelection( gridRow, viewRows[firstRow + gridRow] );
+      }
+    } finally {
+      bindingVirtualRows = false;
+    }
+
+    if ( dataWrapper != null ) {
+      if ( virtualTopSpacer == null ) {
+        virtualTopSpacer = DOM.createDiv();
+        virtualBottomSpacer = DOM.createDiv();
+        dataWrapper.insertFirst( virtualTopSpacer );
+        dataWrapper.appendChild( virtualBottomSpacer );
+      }
+
+      virtualTopSpacer.getStyle().setHeight( firstRow * virtualRowHeight, Style.Unit.PX );
+      virtualBottomSpacer.getStyle().setHeight( ( viewRowCount - firstRow - poolSize ) * virtualRowHeight,
+          Style.Unit.PX );
+    }
+  }
+
+  /**
+   * Binds a grid row to a row of the table model: its cells, tooltips, styles and tab index.
+   *
+   * @return <code>false</code>, if a value is of an invalid type; <code>true</code>, otherwise.
+   */
+  /* Visible for testing */
+  boolean bindVirtualRow( int gridRow, int viewRow, boolean reused ) {
+    int modelRow = viewRows[viewRow];
+    Object[] values = rowValues[modelRow];
+
+    final HTMLTable.RowFormatter rowFormatter = dataGrid.getRowFormatter();
     final HTMLTable.CellFormatter cellFormatter = dataGrid.getCellFormatter();
-    objectElementMap = new HashMap<Element, Object>();
-    Object[] objectArray = null;
-    if ( objects != null ) {
-      objectArray = objects.toArray();
+
+    Element tr = rowFormatter.getElement( gridRow );
+    tr.getStyle().setHeight( virtualRowHeight, Style.Unit.PX );
+    tr.setTabIndex( viewRow == virtualFocusedRow ? 0 : -1 );
+
+    // The selection style of the row must be kept.
+    if ( viewRow % 2 != 0 ) {
+      rowFormatter.addStyleName( gridRow, "cellTableOddRow" );
+    } else {
+      rowFormatter.removeStyleName( gridRow, "cellTableOddRow" );
+    }
+
+    int columnCount = dataGrid.getColumnCount();
+    for ( int j = 0; j < columnCount; j++ ) {
+      Object value = j < values.length ? values[j] : null;
+
+      if ( value != null ) {
+        if ( !setCellValue( gridRow, j, value ) ) {
+          return false;
+        }
+      } else if ( reused ) {
+        dataGrid.clearCell( gridRow, j );
+      }
+
+      Element element = cellFormatter.getElement( gridRow, j );
+      if ( value instanceof String && !value.equals( "&nbsp;" ) ) { //$NON-NLS-1$
+        element.setTitle( value.toString() );
+      } else if ( reused ) {
+        element.removeAttribute( "title" ); //$NON-NLS-1$
+      }
     }
 
-    for ( int i = 0; i < rowAndColumnValues.length; i++ ) {
-      Object object = null;
-      if ( objectArray != null ) {
-        object = objectArray[i];
+    return true;
+  }
+
+  private void syncVirtualRowSelection( int gridRow, int modelRow ) {
+    boolean selected = virtualSelectedRows.get( modelRow );
+    if ( selected != dataGrid.isRowSelected( gridRow ) ) {
+      if ( selected ) {
+        dataGrid.selectRow( gridRow, false );
+      } else {
+        dataGrid.deselectRow( gridRow );
       }
-      for ( int j = 0; j < rowAndColumnValues[i].length; j++ ) {
-        Object value = rowAndColumnValues[i][j];
-        Element element = null;
-        try {
-          element = cellFormatter.getElement( i, j );
-        } catch ( Exception e ) {
-          //ignore
+    }
+  }
+
+  /**
+   * Tracks the selection of the model rows and notifies the selection handlers, after the selection of the data grid
+   * changes.
+   */
+  private void onDataGridRowSelection( RowSelectionEvent event ) {
+    if ( !virtualScrolling ) {
+      for ( RowSelectionHandler handler : rowSelectionHandlers ) {
+        handler.onRowSelection( event );
+      }
+      return;
+    }
+
+    if ( bindingVirtualRows || rowValues == null ) {
+      return;
+    }
+
+    BitSet previousSelectedRows = copySelectedRows();
+    onVirtualRowSelection();
+    fireVirtualRowSelection( previousSelectedRows );
+  }
+
+  /**
+   * Updates the selected model rows from the selection of the grid rows, after the user changes it.
+   */
+  private void onVirtualRowSelection() {
+    // As the grid does for its rows, a selection made without modifier keys replaces that of rows not in view.
+    Event event = Event.getCurrentEvent();
+    boolean multiRow = SelectionGrid.SelectionPolicy.MULTI_ROW.equals( dataGrid.getSelectionPolicy() );
+    boolean ctrlKey = multiRow && event != null && ( DOM.eventGetCtrlKey( event ) || DOM.eventGetMetaKey( event ) );
+    boolean shiftKey = multiRow && event != null && DOM.eventGetShiftKey( event );
+    int targetRow = event != null ? getEventTargetRow( event ) : -1;
+
+    int anchorRow = shiftKey && targetRow != -1 ? indexOfViewRow( virtualSelectionAnchor ) : -1;
+    if ( anchorRow != -1 ) {
+      // The grid only selects the rows of the range which are in the pool.
+      selectVirtualRowRange( anchorRow, targetRow, !ctrlKey );
+      return;
+    }
+
+    if ( !ctrlKey && !shiftKey ) {
+      virtualSelectedRows.clear();
+    }
+
+    int rowCount = dataGrid.getRowCount();
+    for ( int gridRow = 0; gridRow < rowCount; gridRow++ ) {
+      virtualSelectedRows.set( viewRows[virtualFirstRow + gridRow], dataGrid.isRowSelected( gridRow ) );
+    }
+
+    if ( targetRow != -1 && !shiftKey ) {
+      virtualSelectionAnchor = viewRows[targetRow];
+    }
+  }
+
+  /**
+   * Selects the rows between two rows, given their indexes in display order, both included.
+   */
+  /* Visible for testing */
+  void selectVirtualRowRange( int fromRow, int toRow, boolean unselectAll ) {
+    if ( unselectAll ) {
+      virtualSelectedRows.clear();
+    }
+    for ( int row = Math.min( fromRow, toRow ); row <= Math.max( fromRow, toRow ); row++ ) {
+      virtualSelectedRows.set( viewRows[row] );
+    }
+
+    syncPooledRowSelection();
+  }
+
+  /**
+   * Gets the index, in display order, of the row of the data grid in which an event occurred.
+   *
+   * @return The index of the row, or -1, if the event did not occur in a row of the data grid.
+   */
+  private int getEventTargetRow( Event event ) {
+    Element element = DOM.eventGetTarget( event );
+    while ( element != null && element != dataGrid.getElement() ) {
+      if ( "tr".equalsIgnoreCase( element.getTagName() ) ) { //$NON-NLS-1$
+        int row = getRowIndex( element );
+        if ( row != -1 ) {
+          return row;
         }
+      }
+      element = DOM.getParent( element );
+    }
 
-        if ( element != null ) {
+    return -1;
+  }
 
-          if ( value != null && value instanceof String && !value.equals( "&nbsp;" ) ) { //$NON-NLS-1$
-            element.setTitle( value.toString() );
-          }
+  /**
+   * Gets the index, in display order, of a model row.
+   *
+   * @return The index of the row, or -1, if the row is not in view.
+   */
+  private int indexOfViewRow( int modelRow ) {
+    if ( modelRow >= 0 ) {
+      for ( int i = 0; i < viewRows.length; i++ ) {
+        if ( viewRows[i] == modelRow ) {
+          return i;
         }
-        if ( object != null ) {
-          objectElementMap.put( element, object );
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Selects a row, given its index in display order.
+   */
+  private void selectViewRow( int row, boolean unselectAll ) {
+    if ( !virtualScrolling ) {
+      dataGrid.selectRow( row, unselectAll );
+      return;
+    }
+
+    if ( rowValues == null || row < 0 || row >= viewRows.length ) {
+      return;
+    }
+
+    BitSet previousSelectedRows = copySelectedRows();
+    if ( unselectAll || !SelectionGrid.SelectionPolicy.MULTI_ROW.equals( dataGrid.getSelectionPolicy() ) ) {
+      virtualSelectedRows.clear();
+    }
+    virtualSelectedRows.set( viewRows[row] );
+    virtualSelectionAnchor = viewRows[row];
+
+    syncPooledRowSelection();
+    fireVirtualRowSelection( previousSelectedRows );
+  }
+
+  /**
+   * Makes the selection of the grid rows match that of the model rows which they render.
+   */
+  private void syncPooledRowSelection() {
+    // Deselect first, so that single row selection policies are not violated.
+    bindingVirtualRows = true;
+    try {
+      int rowCount = dataGrid.getRowCount();
+      for ( int gridRow = 0; gridRow < rowCount; gridRow++ ) {
+        int modelRow = viewRows[virtualFirstRow + gridRow];
+        if ( !virtualSelectedRows.get( modelRow ) ) {
+          syncVirtualRowSelection( gridRow, modelRow );
         }
       }
+      for ( int gridRow = 0; gridRow < rowCount; gridRow++ ) {
+        syncVirtualRowSelection( gridRow, viewRows[virtualFirstRow + gridRow] );
+      }
+    } finally {
+      bindingVirtualRows = false;
     }
-    baseTableColumnSorter.setObjectMap( objectElementMap );
-    scrollTable.redraw();
+  }
+
+  private BitSet copySelectedRows() {
+    BitSet selectedRows = new BitSet();
+    selectedRows.or( virtualSelectedRows );
+    return selectedRows;
+  }
+
+  /**
+   * Notifies the selection handlers, if the selected model rows changed, with the rows in display order.
+   */
+  private void fireVirtualRowSelection( BitSet previousSelectedRows ) {
+    if ( previousSelectedRows.equals( virtualSelectedRows ) || rowSelectionHandlers.isEmpty() ) {
+      return;
+    }
+
+    Set<TableEvent.Row> oldRows = new TreeSet<TableEvent.Row>();
+    Set<TableEvent.Row> newRows = new TreeSet<TableEvent.Row>();
+    for ( int i = 0; i < viewRows.length; i++ ) {
+      if ( previousSelectedRows.get( viewRows[i] ) ) {
+        oldRows.add( new TableEvent.Row( i ) );
+      }
+      if ( virtualSelectedRows.get( viewRows[i] ) ) {
+        newRows.add( new TableEvent.Row( i ) );
+      }
+    }
+
+    RowSelectionEvent event = new RowSelectionEvent( oldRows, newRows );
+    for ( RowSelectionHandler handler : rowSelectionHandlers ) {
+      handler.onRowSelection( event );
+    }
+  }
+
+  /**
+   * Scrolls a row into view, if needed, and makes it the keyboard navigation row.
+   */
+  private void setVirtualFocusableRow( int row, boolean focus ) {
+    if ( rowValues == null || row < 0 || row >= viewRows.length ) {
+      return;
+    }
+
+    virtualFocusedRow = row;
+
+    com.google.gwt.dom.client.Element dataWrapper = getDataWrapper( scrollTable );
+    if ( dataWrapper != null ) {
+      int rowTop = row * virtualRowHeight;
+      int scrollTop = dataWrapper.getScrollTop();
+      int viewportHeight = dataWrapper.getClientHeight();
+      if ( rowTop < scrollTop ) {
+        dataWrapper.setScrollTop( rowTop );
+      } else if ( viewportHeight > 0 && rowTop + virtualRowHeight > scrollTop + viewportHeight ) {
+        dataWrapper.setScrollTop( rowTop + virtualRowHeight - viewportHeight );
+      }
+    }
+
+    bindVirtualRows( false );
+
+    int rowCount = dataGrid.getRowCount();
+    for ( int i = 0; i < rowCount; i++ ) {
+      dataGrid.getRowFormatter().getElement( i ).setTabIndex( virtualFirstRow + i == row ? 0 : -1 );
+    }
+
+    int gridRow = toGridRow( row );
+    if ( focus && gridRow >= 0 && gridRow < rowCount ) {
+      dataGrid.getRowFormatter().getElement( gridRow ).focus();
+    }
+  }
+
+  private void removeVirtualSpacers() {
+    if ( virtualTopSpacer != null ) {
+      virtualTopSpacer.removeFromParent();
+      virtualBottomSpacer.removeFromParent();
+      virtualTopSpacer = null;
+      virtualBottomSpacer = null;
+    }
+
+    int rowCount = dataGrid.getRowCount();
+    for ( int i = 0; i < rowCount; i++ ) {
+      dataGrid.getRowFormatter().getElement( i ).getStyle().clearHeight();
+    }
+  }
+
+  /**
+   * Gets the number of rows of the table, rendered or not.
+   */
+  private int getViewRowCount() {
+    return virtualScrolling && viewRows != null ? viewRows.length : dataGrid.getRowCount();
+  }
+
+  /**
+   * Converts the index of a grid row to the index of the row, in display order, which it renders.
+   */
+  /* Visible for testing */
+  int toViewRow( int gridRow ) {
+    return virtualScrolling ? virtualFirstRow + gridRow : gridRow;
+  }
+
+  /**
+   * Converts the index of a row, in display order, to the index of the grid row which renders it.
+   * The result is out of the range of grid rows, if the row is not rendered.
+   */
+  /* Visible for testing */
+  int toGridRow( int viewRow ) {
+    return virtualScrolling ? viewRow - virtualFirstRow : viewRow;
+  }
+
+  /**
+   * Sets the value of a cell: an HTML string or a widget.
+   *
+   * @return <code>false</code>, if the value is of an invalid type; <code>true</code>, otherwise.
+   */
+  private boolean setCellValue( int row, int column, Object value ) {
+    if ( value instanceof String ) {
+      dataGrid.setHTML( row, column, value.toString() );
+    } else if ( value instanceof Widget ) {
+      dataGrid.setWidget( row, column, (Widget) value );
+    } else {
+      System.err.print( MSGS.invalidDataGridTypeSet() );
+      Window.alert( MSGS.invalidDataGridTypeSet() );
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Keeps the values and objects of the rows, which are displayed in their original order, filtered, from the first
+   * page.
+   */
+  /* Visible for testing */
+  void setTableModel( Object[][] rowAndColumnValues, Object[] objectArray ) {
+    rowValues = rowAndColumnValues.clone();
+    rowObjects = objectArray;
+    sortedRows = new int[rowValues.length];
+    for ( int i = 0; i < sortedRows.length; i++ ) {
+      sortedRows[i] = i;
+    }
+
+    rowFilter.setRowValues( rowValues );
+    pageIndex = 0;
+    updateViewRows();
+  }
+
+  /**
+   * Updates the rows which pass the filters and the rows of the current page, from the sorted rows.
+   */
+  private void updateViewRows() {
+    filteredRows = messageShown ? sortedRows : rowFilter.filter( sortedRows );
+
+    pageIndex = Math.max( 0, Math.min( pageIndex, getPageCount() - 1 ) );
+    if ( pageSize > 0 ) {
+      int fromRow = pageIndex * pageSize;
+      viewRows = Arrays.copyOfRange( filteredRows, fromRow, Math.min( fromRow + pageSize, filteredRows.length ) );
+    } else {
+      viewRows = filteredRows;
+    }
+  }
+
+  /**
+   * Updates and renders the rows in view, after the filters or the page change.
+   */
+  private void refreshViewRows() {
+    if ( rowValues != null ) {
+      updateViewRows();
+      renderViewRows();
+      scrollTable.redraw();
+    }
+  }
+
+  /**
+   * Gets the quick filter text: rows are displayed only if the text of any of their cells contains it, ignoring case.
+   */
+  public String getQuickFilter() {
+    return rowFilter.getQuickFilter();
+  }
+
+  /**
+   * Sets the quick filter text, and displays the first page of the rows which pass the filters.
+   * <p>
+   * While the text is being extended, as when the user types, only the rows which passed are filtered again.
+   *
+   * @param text
+   *          The text to filter by, or <code>null</code> or empty, to display all rows.
+   */
+  public void setQuickFilter( String text ) {
+    if ( rowFilter.setQuickFilter( text ) ) {
+      pageIndex = 0;
+      refreshViewRows();
+    }
+  }
+
+  /**
+   * Gets a search box which sets the quick filter text as the user types, once the user pauses.
+   */
+  public SearchTextBox getQuickFilterTextBox() {
+    if ( quickFilterTextBox == null ) {
+      quickFilterTextBox = new SearchTextBox();
+      quickFilterTextBox.addChangeListener( widget -> onQuickFilterChange() );
+    }
+
+    return quickFilterTextBox;
+  }
+
+  /**
+   * Applies the text of the quick filter box. Clearing it is applied right away, while typing is debounced.
+   */
+  /* Visible for testing */
+  void onQuickFilterChange() {
+    if ( quickFilterTimer == null ) {
+      quickFilterTimer = new Timer() {
+        @Override
+        public void run() {
+          setQuickFilter( quickFilterTextBox.getValue() );
+        }
+      };
+    }
+
+    cancel( quickFilterTimer );
+
+    String text = quickFilterTextBox.getValue();
+    if ( text == null || text.isEmpty() ) {
+      setQuickFilter( text );
+    } else {
+      schedule( quickFilterTimer, QUICK_FILTER_DELAY_MILLIS );
+    }
+  }
+
+  /* Visible for testing */
+  void schedule( Timer timer, int delayMillis ) {
+    timer.schedule( delayMillis );
+  }
+
+  /* Visible for testing */
+  void cancel( Timer timer ) {
+    timer.cancel();
+  }
+
+  /**
+   * Sets the predicate which the values of a column must satisfy for rows to be displayed, and displays the first
+   * page of the rows which pass the filters.
+   *
+   * @param column
+   *          The column.
+   * @param predicate
+   *          The predicate, which is given the values with which the table was populated, or <code>null</code>, to
+   *          remove the column's filter.
+   */
+  public void setColumnFilter( int column, Predicate<Object> predicate ) {
+    rowFilter.setColumnPredicate( column, predicate );
+    pageIndex = 0;
+    refreshViewRows();
+  }
+
+  /**
+   * Removes the quick filter text and the column filters.
+   */
+  public void clearFilters() {
+    if ( quickFilterTextBox != null ) {
+      quickFilterTextBox.setValue( "" ); //$NON-NLS-1$
+    }
+
+    if ( rowFilter.isFiltered() ) {
+      rowFilter.clearColumnPredicates();
+      rowFilter.setQuickFilter( null );
+
+      pageIndex = 0;
+      refreshViewRows();
+    }
+  }
+
+  /**
+   * Gets the number of rows which pass the filters, in all pages.
+   */
+  public int getFilteredRowCount() {
+    return filteredRows != null ? filteredRows.length : 0;
+  }
+
+  /**
+   * Gets the maximum number of rows displayed at a time. Zero means all rows are displayed.
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets the maximum number of rows displayed at a time, and displays the first page.
+   *
+   * @param pageSize
+   *          The page size, or zero, to display all rows.
+   */
+  public void setPageSize( int pageSize ) {
+    this.pageSize = Math.max( 0, pageSize );
+    this.pageIndex = 0;
+    refreshViewRows();
+  }
+
+  public int getPageIndex() {
+    return pageIndex;
+  }
+
+  /**
+   * Displays a page of the rows which pass the filters.
+   *
+   * @param pageIndex
+   *          The index of the page, which is limited to the existing pages.
+   */
+  public void setPageIndex( int pageIndex ) {
+    if ( this.pageIndex != pageIndex ) {
+      this.pageIndex = pageIndex;
+      refreshViewRows();
+    }
+  }
+
+  /**
+   * Gets the number of pages of the rows which pass the filters. There is always at least one page.
+   */
+  public int getPageCount() {
+    int rowCount = getFilteredRowCount();
+    return pageSize > 0 && rowCount > 0 ? ( rowCount + pageSize - 1 ) / pageSize : 1;
+  }
+
+  /**
+   * Gets the object of a grid row, or <code>null</code>, if it has none.
+   */
+  private Object getGridRowObject( int gridRow ) {
+    int viewRow = toViewRow( gridRow );
+    if ( rowObjects == null || viewRow < 0 || viewRow >= viewRows.length ) {
+      return null;
+    }
+
+    int modelRow = viewRows[viewRow];
+    return modelRow < rowObjects.length ? rowObjects[modelRow] : null;
+  }
+
+  /**
+   * Gets the objects of the rows, in the order in which rows are displayed.
+   */
+  private List getViewObjects() {
+    List viewObjects = new ArrayList( viewRows.length );
+    if ( rowObjects != null ) {
+      for ( int modelRow : viewRows ) {
+        if ( modelRow < rowObjects.length ) {
+          viewObjects.add( rowObjects[modelRow] );
+        }
+      }
+    }
+    return viewObjects;
   }
 
   private void setColumnWidths( int[] columnWidths ) {
@@ -691,6 +1513,8 @@ public class BaseTable extends Composite {
 
   /**
    * Makes this table display a message instead of the column data.
+   * <p>
+   * The message is displayed whatever the filters, which are kept and apply to the data which is populated next.
    *
    * @param message
    *          The message to display.
@@ -699,6 +1523,9 @@ public class BaseTable extends Composite {
 
     parentPanel.clear();
 
+    // The message must not be filtered out, but the filters are kept for the data which is populated next.
+    messageShown = true;
+
     String[] simpleMessageHeaderValues = new String[] { "&nbsp;" }; //$NON-NLS-1$ //$NON-NLS-2$
     String[][] simpleMessageRowAndColumnValues = new String[][] { { message, "&nbsp;" } }; //$NON-NLS-1$
 
@@ -721,6 +1548,7 @@ public class BaseTable extends Composite {
    * Creates the table using the default values specified in the constructor but with new data for the rows.
    */
   public void populateTable( Object[][] rowAndColumnValues ) {
+    messageShown = false;
     populateDataGrid( columnWidths, rowAndColumnValues );
   }
 
@@ -733,9 +1561,11 @@ public class BaseTable extends Composite {
 
   /**
    * Adds an additional table selection listener in addition to the default listener.
+   * <p>
+   * The rows of the events are the indexes of the rows in display order.
    */
   public void addRowSelectionHandler( RowSelectionHandler handler ) {
-    dataGrid.addRowSelectionHandler( handler );
+    rowSelectionHandlers.add( handler );
   }
 
   /**
@@ -749,7 +1579,14 @@ public class BaseTable extends Composite {
    * Gets the text within the specified cell.
    */
   public String getText( int row, int column ) {
-    return dataGrid.getText( row, column );
+    int gridRow = toGridRow( row );
+    if ( virtualScrolling && ( gridRow < 0 || gridRow >= dataGrid.getRowCount() ) ) {
+      // The row is not rendered: get the text from the table model.
+      Object[] values = rowValues[viewRows[row]];
+      return TableRowFilter.getText( column < values.length ? values[column] : null );
+    }
+
+    return dataGrid.getText( gridRow, column );
   }
 
   /**
@@ -763,13 +1600,23 @@ public class BaseTable extends Composite {
    * Select a row in the data table.
    */
   public void selectRow( int row ) {
-    dataGrid.selectRow( row, false );
+    selectViewRow( row, false );
   }
 
   /**
    * Returns the set of selected row indexes.
    */
   public Set<Integer> getSelectedRows() {
+    if ( virtualScrolling && rowValues != null ) {
+      Set<Integer> selectedRows = new TreeSet<Integer>();
+      for ( int i = 0; i < viewRows.length; i++ ) {
+        if ( virtualSelectedRows.get( viewRows[i] ) ) {
+          selectedRows.add( i );
+        }
+      }
+      return selectedRows;
+    }
+
     return dataGrid.getSelectedRows();
   }
 
@@ -777,7 +1624,65 @@ public class BaseTable extends Composite {
    * Deselect all selected rows in the data table.
    */
   public void deselectRows() {
-    dataGrid.deselectAllRows();
+    if ( !virtualScrolling || rowValues == null ) {
+      virtualSelectedRows.clear();
+      dataGrid.deselectAllRows();
+      return;
+    }
+
+    BitSet previousSelectedRows = copySelectedRows();
+    virtualSelectedRows.clear();
+    bindingVirtualRows = true;
+    try {
+      dataGrid.deselectAllRows();
+    } finally {
+      bindingVirtualRows = false;
+    }
+    fireVirtualRowSelection( previousSelectedRows );
+  }
+
+  /**
+   * Gets the object of a row, given its index in display order.
+   *
+   * @return The object, or <code>null</code>, if the table was populated without objects.
+   */
+  public Object getRowObject( int row ) {
+    if ( rowObjects == null || row < 0 || row >= viewRows.length ) {
+      return null;
+    }
+
+    int modelRow = viewRows[row];
+    return modelRow < rowObjects.length ? rowObjects[modelRow] : null;
+  }
+
+  /**
+   * Gets the objects of the selected rows, in display order.
+   */
+  public List getSelectedObjects() {
+    List selectedObjects = new ArrayList();
+    for ( int row : getSelectedRows() ) {
+      Object object = getRowObject( row );
+      if ( object != null ) {
+        selectedObjects.add( object );
+      }
+    }
+    return selectedObjects;
+  }
+
+  /**
+   * Gets the index, in display order, of the row rendered by a row element of the data grid.
+   *
+   * @return The index of the row, or -1, if the element is not a row of the data grid.
+   */
+  public int getRowIndex( Element rowElement ) {
+    // The first row of the data grid's body is its ghost row.
+    int gridRow = TableRowElement.as( rowElement ).getSectionRowIndex() - 1;
+    if ( gridRow < 0 || gridRow >= dataGrid.getRowCount()
+        || dataGrid.getRowFormatter().getElement( gridRow ) != rowElement ) {
+      return -1;
+    }
+
+    return toViewRow( gridRow );
   }
 
   /**
@@ -785,75 +1690,169 @@ public class BaseTable extends Composite {
    */
   final class BaseTableColumnSorter extends SortableGrid.ColumnSorter {
 
-    private Map<Element, Object> objMap;
-
     private TableColumnSortListener sortListener;
 
     public void setTableColumnSortListener( TableColumnSortListener sortListener ) {
       this.sortListener = sortListener;
     }
 
-    public void setObjectMap( Map<Element, Object> objMap ) {
-      this.objMap = objMap;
-    }
+    public void onSortColumn( SortableGrid grid, TableModelHelper.ColumnSortList sortList,
+        SortableGrid.ColumnSorterCallback callback ) {
+
+      if ( rowValues != null && ( virtualScrolling || viewRows.length == grid.getRowCount() ) ) {
+        sortTableModel( grid, sortList, callback );
+        return;
+      }
+
+      // Get the primary column and sort order
+      int column = sortList.getPrimaryColumn();
+      boolean ascending = sortList.isPrimaryAscending();
+      int rowCount = grid.getRowCount();
+
+      final BaseColumnComparator comparator = columnComparators != null && columnComparators[column] != null
+          ? columnComparators[column] : DEFAULT_COLUMN_COMPARATOR;
+
+      // Read each cell, and extract its sort key, only once.
+      Element[] tdElems = new Element[rowCount];
+      final Object[] keys = new Object[rowCount];
+      Integer[] order = new Integer[rowCount];
+      for ( int i = 0; i < rowCount; i++ ) {
+        tdElems[i] = grid.getCellFormatter().getElement( i, column );
+        keys[i] = comparator.extractSortKey( tdElems[i] );
+        order[i] = i;
+      }
+
+      // Sort the row indexes by key, in either direction. The sort is stable, so rows with equal keys keep their
+      // current order, also when descending.
+      if ( grid.getColumnCount() > column ) {
+        Arrays.sort( order, ( row1, row2 ) -> {
+          int result = comparator.compareSortKeys( keys[row1], keys[row2] );
+          return ascending ? result : -result;
+        } );
+      }
+
+      // Convert the sorted row indexes to trElems, and resolve the objects of the rows.
+      Element[] trElems = new Element[rowCount];
+      List sortedObjects = new ArrayList( rowCount );
+      for ( int i = 0; i < rowCount; i++ ) {
+        int row = order[i];
+        trElems[i] = DOM.getParent( tdElems[row] );
 
-    private List sortObjectCollection( List<Element> elements ) {
-      List objects = new ArrayList();
-      for ( Element element : elements ) {
-        if ( objMap.containsKey( element ) ) {
-          objects.add( objMap.get( element ) );
+        Object object = getGridRowObject( row );
+        if ( object != null ) {
+          sortedObjects.add( object );
         }
       }
-      return objects;
+
+      callback.onSortingComplete( trElems );
+      if ( sortListener != null ) {
+        sortListener.onSortingComplete( sortedObjects );
+      }
+
+      // now that the sorting is done, reset the alternating row color
+      setOddRowStyles( grid );
     }
 
-    public void onSortColumn( SortableGrid grid, TableModelHelper.ColumnSortList sortList,
+    /**
+     * Sorts the rows of the table model by all the columns in the sort list, primary first, and then moves the rows
+     * of the grid accordingly. The sort is stable, so rows which compare equal keep their current order.
+     * <p>
+     * All rows are sorted, including those filtered out, so that the order holds when filters change.
+     */
+    private void sortTableModel( SortableGrid grid, TableModelHelper.ColumnSortList sortList,
         SortableGrid.ColumnSorterCallback callback ) {
 
-      // Get the primary column and sort order
-      int column = sortList.getPrimaryColumn();
-      boolean ascending = sortList.isPrimaryAscending();
+      List<TableModelHelper.ColumnSortInfo> sortInfos = new ArrayList<TableModelHelper.ColumnSortInfo>();
+      for ( TableModelHelper.ColumnSortInfo sortInfo : sortList ) {
+        int column = sortInfo.getColumn();
+        if ( column < numberOfColumns && ( columnComparators == null || columnComparators[column] != null ) ) {
+          sortInfos.add( sortInfo );
+        }
+      }
 
-      // Apply the default quicksort algorithm
-      // Element[] tdElems = new Element[grid.getRowCount()];
-      List<Element> tdElems = new ArrayList<Element>();
-      for ( int i = 0; i < grid.getRowCount(); i++ ) {
-        // first, clear out existing row styling for oddRow.
-        grid.getRowFormatter().setStyleName( i, "" );
-        tdElems.add( grid.getCellFormatter().getElement( i, column ) );
+      // Extract the sort keys of each sort column, only once per row.
+      final int sortColumnCount = sortInfos.size();
+      final BaseColumnComparator[] comparators = new BaseColumnComparator[sortColumnCount];
+      final boolean[] ascendings = new boolean[sortColumnCount];
+      final Object[][] keys = new Object[sortColumnCount][rowValues.length];
+      for ( int k = 0; k < sortColumnCount; k++ ) {
+        int column = sortInfos.get( k ).getColumn();
+        comparators[k] = columnComparators != null ? columnComparators[column] : DEFAULT_COLUMN_COMPARATOR;
+        ascendings[k] = sortInfos.get( k ).isAscending();
+
+        for ( int modelRow = 0; modelRow < rowValues.length; modelRow++ ) {
+          Object[] values = rowValues[modelRow];
+          keys[k][modelRow] = comparators[k].extractValueSortKey( column < values.length ? values[column] : null );
+        }
       }
 
-      if ( grid.getColumnCount() > column ) {
-        Collections.sort( tdElems, columnComparators != null && columnComparators[column] != null
-            ? columnComparators[column] : DEFAULT_COLUMN_COMPARATOR );
+      // Sort the model rows, starting from the current order.
+      Integer[] order = new Integer[sortedRows.length];
+      for ( int i = 0; i < order.length; i++ ) {
+        order[i] = sortedRows[i];
       }
 
-      // Convert tdElems to trElems, reversing if needed
-      Element[] trElems = new Element[tdElems.size()];
-      List<Element> sortedTdElement = new ArrayList<Element>();
+      Arrays.sort( order, ( row1, row2 ) -> {
+        for ( int k = 0; k < sortColumnCount; k++ ) {
+          int result = comparators[k].compareSortKeys( keys[k][row1], keys[k][row2] );
+          if ( result != 0 ) {
+            return ascendings[k] ? result : -result;
+          }
+        }
+        return 0;
+      } );
+
+      int[] previousViewRows = viewRows;
+      sortedRows = new int[order.length];
+      for ( int i = 0; i < order.length; i++ ) {
+        sortedRows[i] = order[i];
+      }
+      updateViewRows();
+
+      if ( virtualScrolling || pageSize > 0 ) {
+        // The grid rows stay in place, and are rebound to the rows in view, which, when paging, may be other rows.
+        if ( virtualScrolling ) {
+          bindVirtualRows( true );
+        } else {
+          renderViewRows();
+        }
 
-      if ( ascending ) {
-        for ( int i = 0; i < tdElems.size(); i++ ) {
-          trElems[i] = DOM.getParent( tdElems.get( i ) );
-          sortedTdElement.add( tdElems.get( i ) );
+        Element[] trElems = new Element[grid.getRowCount()];
+        for ( int i = 0; i < trElems.length; i++ ) {
+          trElems[i] = grid.getRowFormatter().getElement( i );
         }
-      } else {
-        int maxElem = tdElems.size() - 1;
-        for ( int i = 0; i <= maxElem; i++ ) {
-          trElems[i] = DOM.getParent( tdElems.get( maxElem - i ) );
-          sortedTdElement.add( tdElems.get( maxElem - i ) );
+
+        callback.onSortingComplete( trElems );
+        if ( sortListener != null ) {
+          sortListener.onSortingComplete( getViewObjects() );
         }
+        return;
       }
+
+      // Move each grid row to the position of its model row.
+      int rowCount = viewRows.length;
+      int[] positions = new int[rowValues.length];
+      for ( int i = 0; i < rowCount; i++ ) {
+        positions[previousViewRows[i]] = i;
+      }
+
+      Element[] trElems = new Element[rowCount];
+      for ( int i = 0; i < rowCount; i++ ) {
+        trElems[i] = grid.getRowFormatter().getElement( positions[viewRows[i]] );
+      }
+
       callback.onSortingComplete( trElems );
-      sortListener.onSortingComplete( sortObjectCollection( sortedTdElement ) );
+      if ( sortListener != null ) {
+        sortListener.onSortingComplete( getViewObjects() );
+      }
 
-      // now that the sorting is done, set the alternating row color
+      setOddRowStyles( grid );
+    }
+
+    private void setOddRowStyles( SortableGrid grid ) {
       for ( int i = 0; i < grid.getRowCount(); i++ ) {
-        if ( i % 2 != 0 ) {
-          grid.getRowFormatter().setStyleName( i, "cellTableOddRow" );
-        }
+        grid.getRowFormatter().setStyleName( i, i % 2 != 0 ? "cellTableOddRow" : "" );
       }
-
     }
   };
 
@@ -900,19 +1899,30 @@ public class BaseTable extends Composite {
   }
 
   public void replaceRow( int row, Object[] data ) {
+    if ( rowValues != null && row >= 0 && row < viewRows.length ) {
+      rowValues[viewRows[row]] = data;
+      rowFilter.invalidateRow( viewRows[row] );
+    }
+
+    if ( virtualScrolling ) {
+      // Only a rendered row needs to be rebound.
+      int gridRow = toGridRow( row );
+      if ( gridRow >= 0 && gridRow < dataGrid.getRowCount() ) {
+        bindingVirtualRows = true;
+        try {
+          bindVirtualRow( gridRow, row, true );
+        } finally {
+          bindingVirtualRows = false;
+        }
+      }
+      return;
+    }
+
     for ( int j = 0; j < data.length; j++ ) {
       Object value = data[j];
 
-      if ( value != null ) {
-        if ( value instanceof String ) {
-          dataGrid.setHTML( row, j, value.toString() );
-        } else if ( value instanceof Widget ) {
-          dataGrid.setWidget( row, j, (Widget) value );
-        } else {
-          System.err.print( MSGS.invalidDataGridTypeSet() );
-          Window.alert( MSGS.invalidDataGridTypeSet() );
-          return;
-        }
+      if ( value != null && !setCellValue( row, j, value ) ) {
+        return;
       }
     }
   }
@@ -18,9 +18,14 @@ import java.util.Date;
 
 import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.Element;
+import com.google.gwt.user.client.ui.Widget;
 
 /**
  * Classes for comparing columns when sorting a scroll table.
+ * <p>
+ * Sorting extracts a typed key from each cell only once, using {@link BaseColumnComparator#extractSortKey(Element)},
+ * or, from the cell's value, using {@link BaseColumnComparator#extractValueSortKey(Object)}, and then compares the
+ * keys, using {@link BaseColumnComparator#compareSortKeys(Object, Object)}.
  */
 public interface ColumnComparators {
   public enum ColumnComparatorTypes {
@@ -66,9 +71,180 @@ public interface ColumnComparators {
     protected Element getRightObject( Element o1, Element o2 ) {
       return ascending ? o2 : o1;
     }
+
+    /**
+     * Extracts the key by which the given cell is sorted.
+     * <p>
+     * By default, the key is the cell itself, and keys are compared using {@link #compare(Object, Object)}.
+     *
+     * @param cell The cell element. May be <code>null</code>.
+     * @return The sort key.
+     */
+    public Object extractSortKey( Element cell ) {
+      return cell;
+    }
+
+    /**
+     * Compares two keys extracted by {@link #extractSortKey(Element)}. Keys must be ordered in the same way as
+     * {@link #compare(Object, Object)} orders the corresponding cells.
+     *
+     * @param key1 The first key.
+     * @param key2 The second key.
+     * @return A negative number, zero, or a positive number, as the first key is less than, equal to, or greater than
+     * the second key.
+     */
+    public int compareSortKeys( Object key1, Object key2 ) {
+      return compare( (Element) key1, (Element) key2 );
+    }
+
+    /**
+     * Extracts the key by which a cell with the given value is sorted, without the cell having to be rendered. The
+     * value is one of those passed to {@link BaseTable#populateTable(Object[][])}: an HTML string or a widget.
+     * <p>
+     * By default, the value is rendered into a detached cell element, whose key is then extracted using
+     * {@link #extractSortKey(Element)}.
+     *
+     * @param value The cell value. May be <code>null</code>.
+     * @return The sort key.
+     */
+    public Object extractValueSortKey( Object value ) {
+      if ( value instanceof Widget ) {
+        return extractSortKey( ( (Widget) value ).getElement() );
+      }
+
+      Element cell = DOM.createTD();
+      if ( value != null ) {
+        cell.setInnerHTML( value.toString() );
+      }
+
+      return extractSortKey( cell );
+    }
+
+    /**
+     * Compares two comparable keys, honoring {@link #isAscending()}. A <code>null</code> key is less than any other.
+     */
+    @SuppressWarnings( "unchecked" )
+    protected int compareComparableKeys( Object key1, Object key2 ) {
+      Object left = ascending ? key1 : key2;
+      Object right = ascending ? key2 : key1;
+
+      if ( left == null ) {
+        return right == null ? 0 : -1;
+      }
+      if ( right == null ) {
+        return 1;
+      }
+
+      return ( (Comparable<Object>) left ).compareTo( right );
+    }
+  }
+
+  /**
+   * Base class for comparators whose sort key is extracted from the text of a cell.
+   * Keys are extracted from HTML values without creating any elements.
+   */
+  public abstract class TextColumnComparator extends BaseColumnComparator {
+    /**
+     * Extracts the sort key from the text of a cell.
+     *
+     * @param text The text of the cell.
+     * @return The sort key, or <code>null</code>, if the text is not valid.
+     */
+    protected abstract Object extractTextSortKey( String text );
+
+    @Override
+    public Object extractSortKey( Element cell ) {
+      return cell == null ? null : extractTextSortKey( DOM.getInnerText( cell ) );
+    }
+
+    @Override
+    public Object extractValueSortKey( Object value ) {
+      if ( value instanceof String ) {
+        return extractTextSortKey( getHtmlText( (String) value ) );
+      }
+
+      return super.extractValueSortKey( value );
+    }
+
+    @Override
+    public int compareSortKeys( Object key1, Object key2 ) {
+      return compareComparableKeys( key1, key2 );
+    }
+
+    /**
+     * Gets the text of an HTML fragment, by removing its tags and decoding its character references.
+     */
+    protected static String getHtmlText( String html ) {
+      if ( html.indexOf( '<' ) < 0 && html.indexOf( '&' ) < 0 ) {
+        return html;
+      }
+
+      StringBuilder text = new StringBuilder( html.length() );
+      int length = html.length();
+      int i = 0;
+      while ( i < length ) {
+        char c = html.charAt( i );
+        if ( c == '<' ) {
+          int end = html.indexOf( '>', i );
+          if ( end < 0 ) {
+            text.append( html, i, length );
+            break;
+          }
+
+          i = end + 1;
+          continue;
+        }
+
+        if ( c == '&' ) {
+          int end = html.indexOf( ';', i );
+          String decoded = end > i + 1 ? decodeCharacterReference( html.substring( i + 1, end ) ) : null;
+          if ( decoded != null ) {
+            text.append( decoded );
+            i = end + 1;
+            continue;
+          }
+        }
+
+        text.append( c );
+        i++;
+      }
+
+      return text.toString();
+    }
+
+    private static String decodeCharacterReference( String name ) {
+      switch ( name ) {
+        case "amp":
+          return "&";
+        case "lt":
+          return "<";
+        case "gt":
+          return ">";
+        case "quot":
+          return "\"";
+        case "apos":
+          return "'";
+        case "nbsp":
+          return "\u00a0";
+        default:
+          break;
+      }
+
+      if ( name.length() > 1 && name.charAt( 0 ) == '#' ) {
+        try {
+          boolean hex = name.charAt( 1 ) == 'x' || name.charAt( 1 ) == 'X';
+          int codePoint = hex ? Integer.parseInt( name.substring( 2 ), 16 ) : Integer.parseInt( name.substring( 1 ) );
+          return new String( Character.toChars( codePoint ) );
+        } catch ( IllegalArgumentException ex ) {
+          return null;
+        }
+      }
+
+      return null;
+    }
   }
 
-  public class NumericColumnComparator extends BaseColumnComparator {
+  public class NumericColumnComparator extends TextColumnComparator {
     public int compare( Element arg0, Element arg1 ) {
       Element left = getLeftObject( arg0, arg1 );
       Element right = getRightObject( arg0, arg1 );
@@ -94,9 +270,21 @@ public interface ColumnComparators {
       // Assumed equal
       return 0;
     }
+
+    /**
+     * Extracts the number in the text, or <code>null</code>, if the text is not a valid number.
+     */
+    @Override
+    protected Object extractTextSortKey( String text ) {
+      try {
+        return Double.valueOf( text );
+      } catch ( NumberFormatException ex ) {
+        return null;
+      }
+    }
   }
 
-  public class DateColumnComparator extends BaseColumnComparator {
+  public class DateColumnComparator extends TextColumnComparator {
     @SuppressWarnings( "deprecation" )
     // GWT requires new Date(String)
     public int compare( Element arg0, Element arg1 ) {
@@ -136,9 +324,23 @@ public interface ColumnComparators {
       // Assumed equal
       return 0;
     }
+
+    /**
+     * Extracts the epoch milliseconds of the date in the text, or <code>null</code>, if the text is not a valid date.
+     */
+    @Override
+    @SuppressWarnings( "deprecation" )
+    // GWT requires new Date(String)
+    protected Object extractTextSortKey( String text ) {
+      try {
+        return new Date( text ).getTime();
+      } catch ( Exception ex ) {
+        return null;
+      }
+    }
   }
 
-  public class StringColumnComparator extends BaseColumnComparator {
+  public class StringColumnComparator extends TextColumnComparator {
     private boolean caseSensitive = false;
 
     public void setCaseSensitive( boolean caseSensitive ) {
@@ -177,5 +379,13 @@ public interface ColumnComparators {
         return vLeft.compareToIgnoreCase( vRight );
       }
     }
+
+    /**
+     * Extracts the text, lower-cased, unless case-sensitive.
+     */
+    @Override
+    protected Object extractTextSortKey( String text ) {
+      return caseSensitive ? text : text.toLowerCase();
+    }
   }
 }
@@ -17,6 +17,12 @@ import java.util.Collection;
 
 public interface TableColumnSortListener {
 
+  /**
+   * Called after the table is sorted.
+   *
+   * @param data The objects of the rows, as passed to {@link BaseTable#populateTable(Object[][], Collection)}, in the
+   *             sorted order.
+   */
   public void onSortingComplete( Collection data );
 
 }
@@ -0,0 +1,214 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.table;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Filters the rows of a table model by column predicates and by a quick filter text, which must be contained, ignoring
+ * case, in the text of any of the cells of a row.
+ * <p>
+ * The rows which match are kept between changes. A change which can only narrow them, such as a quick filter text
+ * which contains the previous one, or a predicate for a column which had none, only tests the rows which matched.
+ * The text of each row is extracted once, when first needed.
+ */
+class TableRowFilter {
+
+  private Object[][] rowValues = new Object[0][];
+
+  private String[] rowTexts;
+
+  private final Map<Integer, Predicate<Object>> columnPredicates = new LinkedHashMap<Integer, Predicate<Object>>();
+
+  private String quickFilter = ""; //$NON-NLS-1$
+
+  // The rows which match the current filters, or null, if these need to be computed.
+  private BitSet matches;
+
+  /**
+   * Sets the rows to filter, invalidating any previous matches.
+   */
+  public void setRowValues( Object[][] rowValues ) {
+    this.rowValues = rowValues;
+    this.rowTexts = null;
+    this.matches = null;
+  }
+
+  /**
+   * Updates whether a row matches, after its values change. Rows in view are not filtered again until the next change
+   * of the filters.
+   */
+  public void invalidateRow( int row ) {
+    if ( rowTexts != null ) {
+      rowTexts[row] = null;
+    }
+    if ( matches != null ) {
+      matches.set( row, matchesRow( row ) );
+    }
+  }
+
+  /**
+   * Gets a value that indicates whether any filter is set.
+   */
+  public boolean isFiltered() {
+    return !columnPredicates.isEmpty() || !quickFilter.isEmpty();
+  }
+
+  public String getQuickFilter() {
+    return quickFilter;
+  }
+
+  /**
+   * Sets the quick filter text.
+   *
+   * @return <code>true</code>, if the filter changed; <code>false</code>, otherwise.
+   */
+  public boolean setQuickFilter( String text ) {
+    String normalized = text == null ? "" : text.trim().toLowerCase(); //$NON-NLS-1$
+    if ( normalized.equals( quickFilter ) ) {
+      return false;
+    }
+
+    boolean narrows = normalized.contains( quickFilter );
+    quickFilter = normalized;
+
+    if ( !narrows ) {
+      matches = null;
+    } else if ( matches != null ) {
+      for ( int row = matches.nextSetBit( 0 ); row >= 0; row = matches.nextSetBit( row + 1 ) ) {
+        if ( !getRowText( row ).contains( quickFilter ) ) {
+          matches.clear( row );
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Sets the predicate which the value of a column must satisfy, or removes it, if <code>null</code>.
+   */
+  public void setColumnPredicate( int column, Predicate<Object> predicate ) {
+    Predicate<Object> previous = predicate == null
+        ? columnPredicates.remove( column )
+        : columnPredicates.put( column, predicate );
+
+    if ( previous != null || predicate == null ) {
+      matches = null;
+    } else if ( matches != null ) {
+      for ( int row = matches.nextSetBit( 0 ); row >= 0; row = matches.nextSetBit( row + 1 ) ) {
+        if ( !predicate.test( getValue( row, column ) ) ) {
+          matches.clear( row );
+        }
+      }
+    }
+  }
+
+  public void clearColumnPredicates() {
+    if ( !columnPredicates.isEmpty() ) {
+      columnPredicates.clear();
+      matches = null;
+    }
+  }
+
+  /**
+   * Filters a sequence of rows, keeping their order.
+   *
+   * @return The given array, if no filter is set; a new array with the rows which match, otherwise.
+   */
+  public int[] filter( int[] rows ) {
+    if ( !isFiltered() ) {
+      return rows;
+    }
+
+    BitSet matches = getMatches();
+    int[] filteredRows = new int[matches.cardinality()];
+    int count = 0;
+    for ( int row : rows ) {
+      if ( matches.get( row ) ) {
+        filteredRows[count++] = row;
+      }
+    }
+
+    return count == filteredRows.length ? filteredRows : Arrays.copyOf( filteredRows, count );
+  }
+
+  private BitSet getMatches() {
+    if ( matches == null ) {
+      matches = new BitSet( rowValues.length );
+      for ( int row = 0; row < rowValues.length; row++ ) {
+        if ( matchesRow( row ) ) {
+          matches.set( row );
+        }
+      }
+    }
+
+    return matches;
+  }
+
+  private boolean matchesRow( int row ) {
+    for ( Map.Entry<Integer, Predicate<Object>> entry : columnPredicates.entrySet() ) {
+      if ( !entry.getValue().test( getValue( row, entry.getKey() ) ) ) {
+        return false;
+      }
+    }
+
+    return quickFilter.isEmpty() || getRowText( row ).contains( quickFilter );
+  }
+
+  private Object getValue( int row, int column ) {
+    Object[] values = rowValues[row];
+    return column < values.length ? values[column] : null;
+  }
+
+  /**
+   * Gets the lower-cased text of the cells of a row, separated by new lines, so that the quick filter text, which is
+   * trimmed, cannot match across cells.
+   */
+  private String getRowText( int row ) {
+    if ( rowTexts == null ) {
+      rowTexts = new String[rowValues.length];
+    }
+
+    String rowText = rowTexts[row];
+    if ( rowText == null ) {
+      StringBuilder builder = new StringBuilder();
+      for ( Object value : rowValues[row] ) {
+        builder.append( getText( value ).toLowerCase() ).append( '\n' );
+      }
+
+      rowText = builder.toString();
+      rowTexts[row] = rowText;
+    }
+
+    return rowText;
+  }
+
+  static String getText( Object value ) {
+    if ( value instanceof String ) {
+      return ColumnComparators.TextColumnComparator.getHtmlText( (String) value );
+    }
+    if ( value instanceof Widget ) {
+      return ( (Widget) value ).getElement().getInnerText();
+    }
+
+    return ""; //$NON-NLS-1$
+  }
+}
@@ -30,6 +30,9 @@ import com.google.gwt.user.client.ui.VerticalSplitPanel;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.gwt.user.client.ui.impl.FocusImpl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.pentaho.gwt.widgets.client.utils.string.StringUtils.isEmpty;
 
 public class ElementUtils {
@@ -237,6 +240,51 @@ public class ElementUtils {
     return r;
   }
 
+  /**
+   * Gets the sizes of several elements, like {@link #getSize(com.google.gwt.user.client.Element)}, but batching all
+   * DOM reads and writes so that the browser computes the layout at most twice, instead of once per element.
+   *
+   * @param elements The elements to measure.
+   * @return The sizes of the elements, in the same order.
+   */
+  public static Rectangle[] getSizes( List<? extends Element> elements ) {
+    Rectangle[] sizes = new Rectangle[ elements.size() ];
+
+    // First pass: read the sizes of the elements which are rendered.
+    List<Integer> unrenderedIndexes = new ArrayList<>();
+    for ( int i = 0; i < sizes.length; i++ ) {
+      Element ele = elements.get( i );
+      sizes[ i ] = new Rectangle( 0, 0, ele.getOffsetWidth(), ele.getOffsetHeight() );
+      if ( sizes[ i ].width == 0 && sizes[ i ].height == 0 ) {
+        unrenderedIndexes.add( i );
+      }
+    }
+
+    if ( unrenderedIndexes.isEmpty() ) {
+      return sizes;
+    }
+
+    // Second pass: clone all the other elements into the "sandbox", read their sizes, and only then remove them.
+    List<Element> clones = new ArrayList<>( unrenderedIndexes.size() );
+    for ( int index : unrenderedIndexes ) {
+      Element e = elements.get( index ).cloneNode( true ).cast();
+      sandbox.getElement().appendChild( e );
+      clones.add( e );
+    }
+
+    for ( int i = 0; i < clones.size(); i++ ) {
+      Rectangle r = sizes[ unrenderedIndexes.get( i ) ];
+      r.width = clones.get( i ).getOffsetWidth();
+      r.height = clones.get( i ).getOffsetHeight();
+    }
+
+    for ( Element e : clones ) {
+      sandbox.getElement().removeChild( e );
+    }
+
+    return sizes;
+  }
+
   public static boolean isVisible(Element ele) {
     if ( ele.getStyle().getProperty( "display" ).equals( "none" ) ) { //$NON-NLS-1$ //$NON-NLS-2$
       return false;
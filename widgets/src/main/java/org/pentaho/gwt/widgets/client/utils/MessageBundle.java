@@ -13,7 +13,6 @@
 
 package org.pentaho.gwt.widgets.client.utils;
 
-import com.google.gwt.http.client.Header;
 import com.google.gwt.http.client.Request;
 import com.google.gwt.http.client.RequestBuilder;
 import com.google.gwt.http.client.RequestCallback;
@@ -22,6 +21,8 @@ import com.google.gwt.http.client.Response;
 import com.google.gwt.user.client.Window;
 import org.pentaho.gwt.widgets.client.i18n.WidgetsLocalizedMessages;
 import org.pentaho.gwt.widgets.client.i18n.WidgetsLocalizedMessagesSingleton;
+import org.pentaho.gwt.widgets.client.utils.i18n.MessageTemplate;
+import org.pentaho.gwt.widgets.client.utils.i18n.PersistentBundleCache;
 import org.pentaho.gwt.widgets.client.utils.string.StringUtils;
 
 import java.util.HashMap;
@@ -50,49 +51,19 @@ public class MessageBundle {
   private static final Map<String, String> bundleCache = new HashMap<String, String>();
   private static final WidgetsLocalizedMessages MSGS = WidgetsLocalizedMessagesSingleton.getInstance().getMessages();
   public static final String PROPERTIES_EXTENSION = ".properties"; //$NON-NLS-1$
+  private static final int BASE_LAYER = 0;
+  private static final int LANG_LAYER = 1;
+  private static final int LANG_COUNTRY_LAYER = 2;
   private HashMap<String, String> bundle = new HashMap<String, String>();
-  private RequestCallback baseCallback = null;
-  private RequestCallback langCallback = null;
-  private RequestCallback langCountryCallback = null;
+  // the compiled messages which have been formatted with parameters, by key
+  private final Map<String, MessageTemplate> templates = new HashMap<String, MessageTemplate>();
   private String path = null;
   private String bundleName = null;
   private IMessageBundleLoadCallback bundleLoadCallback = null;
   private String localeName = "default"; //$NON-NLS-1$
-  private String currentAttemptUrl = null;
-
-  private class FakeResponse extends Response {
-
-    private String text;
-
-    public FakeResponse( String text ) {
-      this.text = text;
-    }
-
-    public String getHeader( String arg0 ) {
-      return null;
-    }
-
-    public Header[] getHeaders() {
-      return null;
-    }
-
-    public String getHeadersAsString() {
-      return null;
-    }
-
-    public int getStatusCode() {
-      return Response.SC_OK;
-    }
-
-    public String getStatusText() {
-      return null;
-    }
-
-    public String getText() {
-      return text;
-    }
-
-  }
+  // the properties text of each layer being loaded, in order of precedence, and the number of layers still pending
+  private String[] layerTexts = new String[3];
+  private int pendingLayerCount = 0;
 
   /**
    * The MessageBundle class fetches localized properties files by using the GWT RequestBuilder against the supplied
@@ -115,26 +86,32 @@ public class MessageBundle {
     this.bundleLoadCallback = bundleLoadCallback;
     // get the locale meta property if the url parameter is missing
     this.localeName = StringUtils.defaultIfEmpty( Window.Location.getParameter( "locale" ), getLanguagePreference() ); //$NON-NLS-1$
-    initCallbacks();
     // decompose locale
     // _en_US
     // 1. bundleName.properties
     // 2. bundleName_en.properties
     // 3. bundleName_en_US.properties
-
-    // always fetch the base first
-    currentAttemptUrl = path + bundleName + PROPERTIES_EXTENSION + getUrlExtras();
-    if ( bundleCache.containsKey( currentAttemptUrl ) ) {
-      baseCallback.onResponseReceived( null, new FakeResponse( bundleCache.get( currentAttemptUrl ) ) );
-    } else {
-      RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, currentAttemptUrl );
-      try {
-        requestBuilder.sendRequest( null, baseCallback );
-      } catch ( RequestException e ) {
-        Window.alert( "base load " + MSGS.error() + ":" + e.getMessage() ); //$NON-NLS-1$ //$NON-NLS-2$
-        fireBundleLoadCallback();
+    // all layers are fetched at the same time and merged, in this order, when the last one completes
+    pendingLayerCount = 1;
+    String baseUrl = path + bundleName + PROPERTIES_EXTENSION;
+    fetchLayer( BASE_LAYER, baseUrl, "base", false ); //$NON-NLS-1$
+
+    if ( !localeName.equalsIgnoreCase( "default" ) ) { //$NON-NLS-1$
+      StringTokenizer st = new StringTokenizer( localeName, '_' );
+      if ( st.countTokens() > 0 ) {
+        String lang = st.tokenAt( 0 );
+        // Caching causing some strange behavior with IE6.
+        // TODO: Investigate caching issue.
+        fetchLayer( LANG_LAYER, path + bundleName + "_" + lang + PROPERTIES_EXTENSION, //$NON-NLS-1$
+            "lang", true ); //$NON-NLS-1$
+      }
+      if ( st.countTokens() == 2 ) {
+        fetchLayer( LANG_COUNTRY_LAYER, path + bundleName + "_" + localeName + PROPERTIES_EXTENSION, //$NON-NLS-1$
+            "langCountry", false ); //$NON-NLS-1$
       }
     }
+
+    onLayerCompleted();
   }
 
   @Deprecated
@@ -142,132 +119,83 @@ public class MessageBundle {
                                       return (document.all) ? "?rand="+(Math.random()*10000) : "";
                                       }-*/;
 
+  /**
+   * Fetches the properties text of a layer, from the cache, if there, or from the server. Bundles are cached by their
+   * URL, without the extras which bust the browser cache, and are also kept in the persistent cache.
+   */
   @Deprecated
-  private void initCallbacks() {
-    baseCallback = new RequestCallback() {
-      public void onError( Request request, Throwable exception ) {
-        Window.alert( "baseCallback " + MSGS.error() + ":" + exception.getMessage() ); //$NON-NLS-1$ //$NON-NLS-2$
-        fireBundleLoadCallback();
-      }
-
-      public void onResponseReceived( Request request, Response response ) {
-        String propertiesFileText = response.getText();
+  private void fetchLayer( final int layer, final String url, final String layerName, boolean noCache ) {
+    pendingLayerCount++;
 
-        // build a simple map of key/value pairs from the properties file
-        if ( response.getStatusCode() == Response.SC_OK ) {
-          bundle = PropertiesUtil.buildProperties( propertiesFileText, bundle );
-          if ( response instanceof FakeResponse == false ) {
-            // this is a real bundle load
-            bundleCache.put( currentAttemptUrl, propertiesFileText );
-          }
-        } else {
-          // put empty bundle in cache (not found, but we want to remember it was not found)
-          bundleCache.put( currentAttemptUrl, "" ); //$NON-NLS-1$
-        }
-
-        // now fetch the the lang/country variants
-        if ( localeName.equalsIgnoreCase( "default" ) ) { //$NON-NLS-1$
-          // process only bundleName.properties
-          fireBundleLoadCallback();
-          return;
-        } else {
-          StringTokenizer st = new StringTokenizer( localeName, '_' );
-          if ( st.countTokens() > 0 ) {
-            String lang = st.tokenAt( 0 );
-            // 2. fetch bundleName_lang.properties
-            // 3. fetch bundleName_lang_country.properties
-            currentAttemptUrl = path + bundleName + "_" + lang + PROPERTIES_EXTENSION + getUrlExtras(); //$NON-NLS-1$
-
-            // IE caches the file and causes an issue with the request
-
-            if ( bundleCache.containsKey( currentAttemptUrl ) ) {
-              langCallback.onResponseReceived( null, new FakeResponse( bundleCache.get( currentAttemptUrl ) ) );
-            } else {
-              RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, currentAttemptUrl );
-
-              // Caching causing some strange behavior with IE6.
-              // TODO: Investigate caching issue.
-              requestBuilder.setHeader( "Cache-Control", "no-cache" ); //$NON-NLS-1$ //$NON-NLS-2$
+    String cachedText = bundleCache.get( url );
+    if ( cachedText == null ) {
+      cachedText = PersistentBundleCache.getInstance().get( url );
+    }
+    if ( cachedText != null ) {
+      bundleCache.put( url, cachedText );
+      onLayerLoaded( layer, cachedText );
+      return;
+    }
 
-              try {
-                requestBuilder.sendRequest( null, langCallback );
-              } catch ( RequestException e ) {
-                Window.alert( "lang " + MSGS.error() + ":" + e.getMessage() ); //$NON-NLS-1$ //$NON-NLS-2$
-                fireBundleLoadCallback();
-              }
-            }
-          } else if ( st.countTokens() == 0 ) {
-            // already fetched
-            fireBundleLoadCallback();
-            return;
-          }
-        }
-      }
-    };
-    langCallback = new RequestCallback() {
-      public void onError( Request request, Throwable exception ) {
-        Window.alert( "langCallback " + MSGS.error() + ":" + exception.getMessage() ); //$NON-NLS-1$ //$NON-NLS-2$
-        fireBundleLoadCallback();
-      }
+    RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, url + getUrlExtras() );
+    if ( noCache ) {
+      requestBuilder.setHeader( "Cache-Control", "no-cache" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
 
-      public void onResponseReceived( Request request, Response response ) {
-        String propertiesFileText = response.getText();
-        // build a simple map of key/value pairs from the properties file
-        if ( response.getStatusCode() == Response.SC_OK ) {
-          bundle = PropertiesUtil.buildProperties( propertiesFileText, bundle );
-          if ( response instanceof FakeResponse == false ) {
-            // this is a real bundle load
-            bundleCache.put( currentAttemptUrl, propertiesFileText );
-          }
-        } else {
-          // put empty bundle in cache (not found, but we want to remember it was not found)
-          bundleCache.put( currentAttemptUrl, "" ); //$NON-NLS-1$
+    try {
+      requestBuilder.sendRequest( null, new RequestCallback() {
+        public void onError( Request request, Throwable exception ) {
+          Window.alert( layerName + "Callback " + MSGS.error() + ":" //$NON-NLS-1$ //$NON-NLS-2$
+              + exception.getMessage() );
+          onLayerLoaded( layer, null );
         }
 
-        StringTokenizer st = new StringTokenizer( localeName, '_' );
-        if ( st.countTokens() == 2 ) {
-          // 3. fetch bundleName_lang_country.properties
-          currentAttemptUrl = path + bundleName + "_" + localeName + PROPERTIES_EXTENSION + getUrlExtras(); //$NON-NLS-1$
-          if ( bundleCache.containsKey( currentAttemptUrl ) ) {
-            langCountryCallback.onResponseReceived( null, new FakeResponse( bundleCache.get( currentAttemptUrl ) ) );
+        public void onResponseReceived( Request request, Response response ) {
+          if ( response.getStatusCode() == Response.SC_OK ) {
+            String propertiesFileText = response.getText();
+            bundleCache.put( url, propertiesFileText );
+            PersistentBundleCache.getInstance().put( url, propertiesFileText );
+            onLayerLoaded( layer, propertiesFileText );
           } else {
-            RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, currentAttemptUrl );
-            try {
-              requestBuilder.sendRequest( null, langCountryCallback );
-            } catch ( RequestException e ) {
-              Window.alert( "langCountry " + MSGS.error() + ":" + e.getMessage() ); //$NON-NLS-1$ //$NON-NLS-2$
-              fireBundleLoadCallback();
+            // put empty bundle in cache (not found, but we want to remember it was not found), persisting it only if
+            // it was not found, as other failures are transient
+            bundleCache.put( url, "" ); //$NON-NLS-1$
+            if ( PersistentBundleCache.isPersistable( response.getStatusCode() ) ) {
+              PersistentBundleCache.getInstance().put( url, "" ); //$NON-NLS-1$
             }
+            onLayerLoaded( layer, null );
           }
-        } else {
-          // already fetched
-          fireBundleLoadCallback();
-          return;
         }
-      }
-    };
-    langCountryCallback = new RequestCallback() {
-      public void onError( Request request, Throwable exception ) {
-        Window.alert( "langCountryCallback " + MSGS.error() + ":" + exception.getMessage() ); //$NON-NLS-1$ //$NON-NLS-2$
-        fireBundleLoadCallback();
-      }
+      } );
+    } catch ( RequestException e ) {
+      Window.alert( layerName + " " + MSGS.error() + ":" + e.getMessage() ); //$NON-NLS-1$ //$NON-NLS-2$
+      onLayerLoaded( layer, null );
+    }
+  }
 
-      public void onResponseReceived( Request request, Response response ) {
-        String propertiesFileText = response.getText();
-        // build a simple map of key/value pairs from the properties file
-        if ( response.getStatusCode() == Response.SC_OK ) {
-          bundle = PropertiesUtil.buildProperties( propertiesFileText, bundle );
-          if ( response instanceof FakeResponse == false ) {
-            // this is a real bundle load
-            bundleCache.put( currentAttemptUrl, propertiesFileText );
-          }
-        } else {
-          // put empty bundle in cache (not found, but we want to remember it was not found)
-          bundleCache.put( currentAttemptUrl, "" ); //$NON-NLS-1$
-        }
-        fireBundleLoadCallback();
+  @Deprecated
+  private void onLayerLoaded( int layer, String propertiesFileText ) {
+    layerTexts[layer] = propertiesFileText;
+    onLayerCompleted();
+  }
+
+  /**
+   * Once no layer is pending, merges the layers so that lang overrides base and lang_country overrides lang.
+   */
+  @Deprecated
+  private void onLayerCompleted() {
+    if ( --pendingLayerCount > 0 ) {
+      return;
+    }
+
+    for ( String layerText : layerTexts ) {
+      if ( layerText != null ) {
+        // parse the key/value pairs of the properties file into the bundle, decoding its values only once
+        PropertiesUtil.parseProperties( layerText, bundle, true );
       }
-    };
+    }
+
+    fireBundleLoadCallback();
   }
 
   @Deprecated
@@ -292,7 +220,7 @@ public class MessageBundle {
     if ( resource == null ) {
       return key;
     }
-    return decodeUTF8( bundle.get( key ) );
+    return resource;
   }
 
   /**
@@ -311,10 +239,20 @@ public class MessageBundle {
     if ( resource == null ) {
       return key;
     }
-    for ( int i = 0; i < parameters.length; i++ ) {
-      resource = resource.replace( "{" + i + "}", parameters[i] ); //$NON-NLS-1$ //$NON-NLS-2$
+    return getTemplate( key, resource ).format( parameters );
+  }
+
+  /**
+   * Gets the compiled template of a message, compiling it the first time it is formatted, or after it changes.
+   */
+  @Deprecated
+  private MessageTemplate getTemplate( String key, String resource ) {
+    MessageTemplate template = templates.get( key );
+    if ( template == null || template.getMessage() != resource ) {
+      template = MessageTemplate.compile( resource );
+      templates.put( key, template );
     }
-    return decodeUTF8( resource );
+    return template;
   }
 
   /**
@@ -327,19 +265,6 @@ public class MessageBundle {
     return bundle.keySet();
   }
 
-  @Deprecated
-  private String decodeUTF8( String str ) {
-    if ( str == null ) {
-      return str;
-    }
-    while ( str.indexOf( "\\u" ) != -1 ) { //$NON-NLS-1$
-      int index = str.indexOf( "\\u" ); //$NON-NLS-1$
-      String hex = str.substring( index + 2, index + 6 );
-      str = str.substring( 0, index ) + "&#" + hex + ";" + str.substring( index + 6 ); //$NON-NLS-1$ //$NON-NLS-2$
-    }
-    return str;
-  }
-
   @Deprecated
   private static native String getLanguagePreference()
   /*-{
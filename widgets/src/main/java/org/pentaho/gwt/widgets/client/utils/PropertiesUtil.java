@@ -14,7 +14,7 @@
 package org.pentaho.gwt.widgets.client.utils;
 
 import java.util.HashMap;
-import org.pentaho.gwt.widgets.client.utils.string.StringUtils;
+import java.util.Map;
 
 /**
  * @deprecated Please use org.pentaho.gwt.widgets.client.utils.localization.PropertiesUtil instead. We are gradually
@@ -36,26 +36,7 @@ public class PropertiesUtil {
    */
   @Deprecated
   public static HashMap<String, String> buildProperties( String text, HashMap<String, String> defaultProperties ) {
-    // we're going to override existing settings, in this way we can override default values with locale
-    // specific variants for example, we do not want to modify the user provided list
-    HashMap<String, String> settings = new HashMap<String, String>();
-    // add defaults to new list
-    if ( defaultProperties != null ) {
-      settings.putAll( defaultProperties );
-    }
-    if ( StringUtils.isEmpty( text ) ) {
-      return settings;
-    }
-    StringTokenizer lineTokenizer = new StringTokenizer( text, '\n' );
-    for ( int i = 0; i < lineTokenizer.countTokens(); i++ ) {
-      String line = lineTokenizer.tokenAt( i );
-      if ( line.indexOf( '=' ) != -1 ) {
-        String key = line.substring( 0, line.indexOf( '=' ) ).trim();
-        String value = line.substring( line.indexOf( '=' ) + 1 ).trim();
-        settings.put( key, value );
-      }
-    }
-    return settings;
+    return org.pentaho.gwt.widgets.client.utils.i18n.PropertiesUtil.buildProperties( text, defaultProperties );
   }
 
   /**
@@ -71,4 +52,14 @@ public class PropertiesUtil {
     return buildProperties( text, null );
   }
 
+  /**
+   * This method parses the given input String, in the .properties file format, into the given map, in a single pass.
+   * 
+   * @see org.pentaho.gwt.widgets.client.utils.i18n.PropertiesUtil#parseProperties(String, Map, boolean)
+   */
+  @Deprecated
+  public static void parseProperties( String text, Map<String, String> properties, boolean htmlEscapes ) {
+    org.pentaho.gwt.widgets.client.utils.i18n.PropertiesUtil.parseProperties( text, properties, htmlEscapes );
+  }
+
 }
@@ -0,0 +1,244 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.http.client.URL;
+import org.pentaho.gwt.widgets.client.utils.string.StringTokenizer;
+import org.pentaho.gwt.widgets.client.utils.string.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class loads several ResourceBundles, which share a path and a locale, with a single request to a batch endpoint,
+ * instead of the 3-4 requests which each bundle needs on its own.
+ *
+ * The endpoint is requested as <code>batchUrl?bundle=name1&amp;bundle=name2&amp;locale=xx_YY</code>, and it responds,
+ * for each bundle, with the files of its supported languages, base, language and language_country layers. Each file is
+ * written as its name, a new line, the length of its text, a new line, and its text, which is empty if the file does
+ * not exist. The files are put in the bundle cache, from which the bundles are then loaded.
+ *
+ * When the endpoint is missing, or fails, the bundles are fetched individually.
+ */
+public class BundleBatchLoader {
+
+  public static final String DEFAULT_BATCH_NAME = "bundles"; //$NON-NLS-1$
+  private static final String SUPPORTED_LANGUAGES_SUFFIX = "_supported_languages"; //$NON-NLS-1$
+
+  // the batch endpoints which responded that they do not exist, so that they are not requested again
+  private static final Set<String> missingBatchUrls = new HashSet<String>();
+
+  private final String path;
+  private final String batchUrl;
+  private final String localeName;
+
+  /**
+   * Creates a loader for the bundles in a path, using the batch endpoint in that path and the locale of the page.
+   *
+   * @param path
+   *          The path to the resources (mantle/messages)
+   */
+  public BundleBatchLoader( String path ) {
+    this( path, null, null );
+  }
+
+  /**
+   * @param path
+   *          The path to the resources (mantle/messages)
+   * @param batchUrl
+   *          The URL of the batch endpoint, or <code>null</code>, for the one in the path
+   * @param localeName
+   *          The locale, or <code>null</code>, for the locale of the page
+   */
+  public BundleBatchLoader( String path, String batchUrl, String localeName ) {
+    if ( !StringUtils.isEmpty( path ) && !path.endsWith( "/" ) ) { //$NON-NLS-1$
+      path = path + "/"; //$NON-NLS-1$
+    }
+    this.path = path == null ? "" : path; //$NON-NLS-1$
+    this.batchUrl = batchUrl == null ? this.path + DEFAULT_BATCH_NAME : batchUrl;
+    this.localeName = localeName;
+  }
+
+  /**
+   * Loads bundles, notifying the caller once all of them are loaded.
+   *
+   * @param bundleNames
+   *          The base names of the bundles, for example 'messages'
+   * @param callback
+   *          The callback to invoke when the bundles have finished loading
+   */
+  public void loadBundles( String[] bundleNames, final IBundleBatchLoadCallback callback ) {
+    final Map<String, ResourceBundle> bundles = new LinkedHashMap<String, ResourceBundle>();
+    List<String> uncachedBundleNames = new ArrayList<String>();
+    for ( String bundleName : bundleNames ) {
+      ResourceBundle bundle = localeName == null ? new ResourceBundle() : new ResourceBundle( localeName );
+      bundles.put( bundleName, bundle );
+      if ( !isCached( bundleName, bundle.getLanguage() ) ) {
+        uncachedBundleNames.add( bundleName );
+      }
+    }
+
+    if ( uncachedBundleNames.isEmpty() || missingBatchUrls.contains( batchUrl ) ) {
+      loadBundles( bundles, callback );
+      return;
+    }
+
+    StringBuilder url = new StringBuilder( batchUrl );
+    url.append( batchUrl.indexOf( '?' ) == -1 ? '?' : '&' );
+    for ( String bundleName : uncachedBundleNames ) {
+      url.append( "bundle=" ).append( encodeQueryString( bundleName ) ).append( '&' ); //$NON-NLS-1$
+    }
+    String locale = bundles.get( uncachedBundleNames.get( 0 ) ).getLanguage();
+    url.append( "locale=" ).append( encodeQueryString( locale ) ); //$NON-NLS-1$
+
+    try {
+      sendBatchRequest( url.toString(), new RequestCallback() {
+        public void onError( Request request, Throwable exception ) {
+          loadBundles( bundles, callback );
+        }
+
+        public void onResponseReceived( Request request, Response response ) {
+          if ( response.getStatusCode() == Response.SC_OK ) {
+            try {
+              Map<String, String> texts = new LinkedHashMap<String, String>();
+              for ( Map.Entry<String, String> file : parseResponse( response.getText() ).entrySet() ) {
+                texts.put( path + file.getKey(), file.getValue() );
+              }
+              ResourceBundle.putCachedTexts( texts );
+            } catch ( IllegalArgumentException e ) {
+              // not a batch response, the bundles which were not cached are fetched individually
+            }
+          } else if ( response.getStatusCode() == Response.SC_NOT_FOUND ) {
+            missingBatchUrls.add( batchUrl );
+          }
+          loadBundles( bundles, callback );
+        }
+      } );
+    } catch ( RequestException e ) {
+      loadBundles( bundles, callback );
+    }
+  }
+
+  /**
+   * Loads each bundle, from the cache, if there, or from the server.
+   */
+  private void loadBundles( final Map<String, ResourceBundle> bundles, final IBundleBatchLoadCallback callback ) {
+    if ( bundles.isEmpty() ) {
+      if ( callback != null ) {
+        callback.bundlesLoaded( bundles );
+      }
+      return;
+    }
+
+    final int[] pendingBundleCount = { bundles.size() };
+    IResourceBundleLoadCallback bundleLoadCallback = new IResourceBundleLoadCallback() {
+      public void bundleLoaded( String bundleName ) {
+        if ( --pendingBundleCount[0] == 0 && callback != null ) {
+          callback.bundlesLoaded( bundles );
+        }
+      }
+    };
+
+    for ( Map.Entry<String, ResourceBundle> bundle : bundles.entrySet() ) {
+      loadBundle( bundle.getValue(), bundle.getKey(), bundleLoadCallback );
+    }
+  }
+
+  /**
+   * Encodes a parameter of the request to the batch endpoint.
+   */
+  String encodeQueryString( String value ) {
+    return URL.encodeQueryString( value );
+  }
+
+  /**
+   * Sends a request to the batch endpoint.
+   */
+  void sendBatchRequest( String url, RequestCallback callback ) throws RequestException {
+    new RequestBuilder( RequestBuilder.GET, url ).sendRequest( null, callback );
+  }
+
+  /**
+   * Loads a bundle, from the cache, if there, or from the server.
+   */
+  void loadBundle( ResourceBundle bundle, String bundleName, IResourceBundleLoadCallback callback ) {
+    bundle.loadBundle( path, bundleName, true, callback );
+  }
+
+  private boolean isCached( String bundleName, String localeName ) {
+    for ( String fileName : getFileNames( bundleName, localeName ) ) {
+      if ( ResourceBundle.getCachedText( path + fileName ) == null ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the names of the files which ResourceBundle loads for a bundle and locale.
+   */
+  static List<String> getFileNames( String bundleName, String localeName ) {
+    List<String> fileNames = new ArrayList<String>();
+    fileNames.add( bundleName + SUPPORTED_LANGUAGES_SUFFIX + ResourceBundle.PROPERTIES_EXTENSION );
+    fileNames.add( bundleName + ResourceBundle.PROPERTIES_EXTENSION );
+
+    if ( !StringUtils.isEmpty( localeName ) && !localeName.equalsIgnoreCase( "default" ) ) { //$NON-NLS-1$
+      StringTokenizer st = new StringTokenizer( localeName, '_' );
+      if ( st.countTokens() > 0 ) {
+        fileNames.add( bundleName + "_" + st.tokenAt( 0 ) + ResourceBundle.PROPERTIES_EXTENSION ); //$NON-NLS-1$
+      }
+      if ( st.countTokens() == 2 ) {
+        fileNames.add( bundleName + "_" + localeName + ResourceBundle.PROPERTIES_EXTENSION ); //$NON-NLS-1$
+      }
+    }
+    return fileNames;
+  }
+
+  /**
+   * Splits a batch response into the text of each file, by file name.
+   *
+   * @throws IllegalArgumentException
+   *           If the text is not a batch response
+   */
+  static Map<String, String> parseResponse( String text ) {
+    Map<String, String> files = new LinkedHashMap<String, String>();
+    int index = 0;
+    while ( index < text.length() ) {
+      int nameEnd = text.indexOf( '\n', index );
+      int lengthEnd = nameEnd == -1 ? -1 : text.indexOf( '\n', nameEnd + 1 );
+      if ( lengthEnd == -1 ) {
+        throw new IllegalArgumentException( "Missing the length of a file at " + index ); //$NON-NLS-1$
+      }
+
+      int length = Integer.parseInt( text.substring( nameEnd + 1, lengthEnd ) );
+      int end = lengthEnd + 1 + length;
+      if ( length < 0 || end > text.length() ) {
+        throw new IllegalArgumentException( "Invalid length of a file at " + index ); //$NON-NLS-1$
+      }
+
+      files.put( text.substring( index, nameEnd ), text.substring( lengthEnd + 1, end ) );
+      index = end;
+    }
+    return files;
+  }
+}
@@ -0,0 +1,30 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import java.util.Map;
+
+/**
+ * This class is a simple callback for BundleBatchLoader
+ */
+public interface IBundleBatchLoadCallback {
+
+  /**
+   * This method is called by BundleBatchLoader when all of the requested bundles have been loaded.
+   *
+   * @param bundles
+   *          The loaded bundles, by bundle name, in the order they were requested
+   */
+  public void bundlesLoaded( Map<String, ResourceBundle> bundles );
+}
@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message compiled into a sequence of literal and parameter segments, so that it can be formatted, once per set of
+ * parameters, with a single pass over its segments.
+ * <p>
+ * Parameters are referenced as {n}, where n is the index of the parameter. References to parameters which are not
+ * given are kept as they are.
+ */
+public final class MessageTemplate {
+
+  private final String message;
+
+  // literals[i] precedes the parameter at parameterIndexes[i]; the last literal ends the message
+  private final String[] literals;
+
+  private final int[] parameterIndexes;
+
+  private MessageTemplate( String message, String[] literals, int[] parameterIndexes ) {
+    this.message = message;
+    this.literals = literals;
+    this.parameterIndexes = parameterIndexes;
+  }
+
+  /**
+   * Compiles a message.
+   *
+   * @param message
+   *          The message, with {n} references to its parameters
+   * @return The compiled message
+   */
+  public static MessageTemplate compile( String message ) {
+    List<String> literals = new ArrayList<String>();
+    List<Integer> parameterIndexes = new ArrayList<Integer>();
+
+    int literalStart = 0;
+    int index = message.indexOf( '{' );
+    while ( index != -1 ) {
+      int end = message.indexOf( '}', index + 1 );
+      int parameterIndex = end == -1 ? -1 : parseParameterIndex( message, index + 1, end );
+      if ( parameterIndex == -1 ) {
+        index = message.indexOf( '{', index + 1 );
+        continue;
+      }
+
+      literals.add( message.substring( literalStart, index ) );
+      parameterIndexes.add( parameterIndex );
+      literalStart = end + 1;
+      index = message.indexOf( '{', literalStart );
+    }
+    literals.add( message.substring( literalStart ) );
+
+    int[] indexes = new int[parameterIndexes.size()];
+    for ( int i = 0; i < indexes.length; i++ ) {
+      indexes[i] = parameterIndexes.get( i );
+    }
+
+    return new MessageTemplate( message, literals.toArray( new String[literals.size()] ), indexes );
+  }
+
+  /**
+   * Parses the index of a parameter, written as a non-negative integer without leading zeros, or returns -1.
+   */
+  private static int parseParameterIndex( String message, int start, int end ) {
+    int length = end - start;
+    if ( length == 0 || length > 9 || ( length > 1 && message.charAt( start ) == '0' ) ) {
+      return -1;
+    }
+
+    int parameterIndex = 0;
+    for ( int i = start; i < end; i++ ) {
+      char c = message.charAt( i );
+      if ( c < '0' || c > '9' ) {
+        return -1;
+      }
+      parameterIndex = parameterIndex * 10 + ( c - '0' );
+    }
+    return parameterIndex;
+  }
+
+  /**
+   * Gets the message which was compiled.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Formats the message with the given parameters.
+   *
+   * @param parameters
+   *          The values to replace occurrences of {n} in the message
+   * @return The formatted message
+   */
+  public String format( String... parameters ) {
+    if ( parameterIndexes.length == 0 ) {
+      return message;
+    }
+
+    StringBuilder formatted = new StringBuilder( message.length() + 16 * parameterIndexes.length );
+    for ( int i = 0; i < parameterIndexes.length; i++ ) {
+      formatted.append( literals[i] );
+
+      int parameterIndex = parameterIndexes[i];
+      if ( parameters != null && parameterIndex < parameters.length ) {
+        formatted.append( parameters[parameterIndex] );
+      } else {
+        formatted.append( '{' ).append( parameterIndex ).append( '}' );
+      }
+    }
+
+    return formatted.append( literals[parameterIndexes.length] ).toString();
+  }
+}
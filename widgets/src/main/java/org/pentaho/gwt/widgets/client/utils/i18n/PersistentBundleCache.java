@@ -0,0 +1,511 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.user.client.Command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps the text of fetched bundles, by URL, in the browser's local storage, so that bundles are not fetched
+ * again on the next page loads.
+ *
+ * Entries belong to a deploy version, which is given by the 'bundleVersion' gwt:property meta tag, or by
+ * {@link #setBundleVersion(String)}. When the version changes, all entries are dropped. Without a version, or when
+ * local storage is unavailable, nothing is persisted. The total size of the entries is capped, and the least recently
+ * used entries are evicted to make room for new ones, also when the storage itself is full.
+ *
+ * Entries are keyed by absolute URL, resolved against the base URL of the page, so that pages in different paths of
+ * the same origin do not share relative URLs. The index of the entries, with their sizes and recency, is shared by the
+ * pages of the origin, so it is read again before each change, to keep the cap when several pages write to it. Reads
+ * only mark entries as used; their recency is written with the next change, or by {@link #flush()}.
+ */
+public class PersistentBundleCache {
+
+  /**
+   * The storage of the entries and of their index.
+   */
+  interface Storage {
+    String getItem( String key );
+
+    /**
+     * @return <code>false</code>, if the item could not be stored, such as when the storage is full.
+     */
+    boolean setItem( String key, String value );
+
+    void removeItem( String key );
+  }
+
+  static final String ENTRY_KEY_PREFIX = "pentaho.i18n.bundle:"; //$NON-NLS-1$
+  static final String INDEX_KEY = "pentaho.i18n.bundles"; //$NON-NLS-1$
+  public static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+
+  private static PersistentBundleCache instance = null;
+
+  private final Storage storage;
+  private final String version;
+  private final int maxSize;
+  private final String baseUrl;
+  // the size of each entry, in characters, from the least to the most recently used
+  private final LinkedHashMap<String, Integer> entrySizes = new LinkedHashMap<String, Integer>( 16, 0.75f, true );
+  private int size = 0;
+  // the entries which were read since the index was last written, and whether these were found, in the order read
+  private final LinkedHashMap<String, Boolean> readEntries = new LinkedHashMap<String, Boolean>();
+
+  /**
+   * @param baseUrl
+   *          The URL against which relative URLs are resolved, or <code>null</code>, to key entries by the URLs as
+   *          given
+   */
+  PersistentBundleCache( Storage storage, String version, int maxSize, String baseUrl ) {
+    this.storage = version != null ? storage : null;
+    this.version = version;
+    this.maxSize = maxSize;
+    this.baseUrl = baseUrl;
+    loadIndex();
+  }
+
+  public static PersistentBundleCache getInstance() {
+    if ( instance == null ) {
+      setBundleVersion( getBundleVersionPreference() );
+    }
+    return instance;
+  }
+
+  /**
+   * Sets the deploy version of the bundles. This should be called before any bundle is loaded.
+   *
+   * @param version
+   *          The version, or <code>null</code>, to not persist bundles
+   */
+  public static void setBundleVersion( String version ) {
+    instance = new PersistentBundleCache( LocalStorage.isAvailable() ? new LocalStorage() : null, version,
+        DEFAULT_MAX_SIZE, getDocumentBaseUrl() ) {
+      @Override
+      void scheduleFlush() {
+        Scheduler.get().scheduleDeferred( new Command() {
+          public void execute() {
+            flush();
+          }
+        } );
+      }
+    };
+  }
+
+  /* Visible for testing */
+  static void setInstance( PersistentBundleCache cache ) {
+    instance = cache;
+  }
+
+  /**
+   * Checks whether the response to a bundle request, with the given status, can be persisted. Only bundles which were
+   * found, or which do not exist, are; any other failure, such as a server error, an aborted request or a login
+   * redirect, is transient, and must not outlive the page.
+   *
+   * @param statusCode
+   *          The status code of the response
+   * @return <code>true</code>, for 200 and 404; <code>false</code>, otherwise
+   */
+  public static boolean isPersistable( int statusCode ) {
+    return statusCode == Response.SC_OK || statusCode == Response.SC_NOT_FOUND;
+  }
+
+  public boolean isEnabled() {
+    return storage != null;
+  }
+
+  /**
+   * Gets the text of a bundle.
+   *
+   * @param url
+   *          The URL of the bundle
+   * @return The text, which is empty if the bundle was not found, or <code>null</code>, if it is not cached
+   */
+  public String get( String url ) {
+    if ( storage == null ) {
+      return null;
+    }
+
+    url = resolveUrl( baseUrl, url );
+    if ( !entrySizes.containsKey( url ) ) {
+      return null;
+    }
+
+    String text = storage.getItem( ENTRY_KEY_PREFIX + url );
+    if ( text == null ) {
+      // removed from outside
+      size -= entrySizes.remove( url );
+    } else {
+      // mark as the most recently used
+      entrySizes.get( url );
+    }
+
+    readEntries.remove( url );
+    readEntries.put( url, text != null );
+    if ( readEntries.size() == 1 ) {
+      scheduleFlush();
+    }
+    return text;
+  }
+
+  /**
+   * Writes the recency of the entries which were read since the index was last written.
+   */
+  public void flush() {
+    if ( storage == null || readEntries.isEmpty() ) {
+      return;
+    }
+
+    loadIndex();
+    saveIndex();
+  }
+
+  /**
+   * Arranges for {@link #flush()} to be called, after the entries read by the current event are all read.
+   */
+  void scheduleFlush() {
+  }
+
+  /**
+   * Puts the text of a bundle, evicting the least recently used bundles if there is not enough room. As the index is
+   * shared, each put reads and writes all of it, so several bundles should be put with {@link #putAll(Map)}.
+   *
+   * @param url
+   *          The URL of the bundle
+   * @param text
+   *          The text, which is empty if the bundle was not found
+   */
+  public void put( String url, String text ) {
+    putAll( Collections.singletonMap( url, text ) );
+  }
+
+  /**
+   * Puts the texts of several bundles, evicting the least recently used bundles if there is not enough room. The index
+   * is read and written once for all of them.
+   *
+   * @param texts
+   *          The text of each bundle, which is empty if the bundle was not found, by URL
+   */
+  public void putAll( Map<String, String> texts ) {
+    if ( storage == null || texts.isEmpty() ) {
+      return;
+    }
+
+    loadIndex();
+    for ( Map.Entry<String, String> text : texts.entrySet() ) {
+      putEntry( resolveUrl( baseUrl, text.getKey() ), text.getValue() );
+    }
+    saveIndex();
+  }
+
+  private void putEntry( String url, String text ) {
+    if ( entrySizes.containsKey( url ) ) {
+      size -= entrySizes.remove( url );
+    }
+
+    int entrySize = url.length() + text.length();
+    boolean stored = false;
+    if ( entrySize <= maxSize ) {
+      while ( size + entrySize > maxSize ) {
+        evictEldest();
+      }
+
+      stored = storage.setItem( ENTRY_KEY_PREFIX + url, text );
+      while ( !stored && !entrySizes.isEmpty() ) {
+        // the storage is full
+        evictEldest();
+        stored = storage.setItem( ENTRY_KEY_PREFIX + url, text );
+      }
+    }
+
+    if ( stored ) {
+      entrySizes.put( url, entrySize );
+      size += entrySize;
+    } else {
+      // do not leave a previous text of the entry, which is no longer in the index
+      storage.removeItem( ENTRY_KEY_PREFIX + url );
+    }
+  }
+
+  /**
+   * Removes all bundles.
+   */
+  public void clear() {
+    if ( storage == null ) {
+      return;
+    }
+
+    loadIndex();
+    removeEntries();
+  }
+
+  /**
+   * Gets the total size of the bundles, in characters.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  private void removeEntries() {
+    for ( String url : entrySizes.keySet() ) {
+      storage.removeItem( ENTRY_KEY_PREFIX + url );
+    }
+    entrySizes.clear();
+    size = 0;
+    storage.removeItem( INDEX_KEY );
+  }
+
+  private void evictEldest() {
+    Iterator<Map.Entry<String, Integer>> iterator = entrySizes.entrySet().iterator();
+    Map.Entry<String, Integer> eldest = iterator.next();
+    storage.removeItem( ENTRY_KEY_PREFIX + eldest.getKey() );
+    size -= eldest.getValue();
+    iterator.remove();
+  }
+
+  /**
+   * Reads the index, which is the version, followed by a line per entry, with its URL and size, separated by a tab,
+   * from the least to the most recently used, and then applies the reads of this page to it. Entries of other versions,
+   * and all entries, when the index is corrupted, are removed.
+   */
+  private void loadIndex() {
+    entrySizes.clear();
+    size = 0;
+    if ( storage == null ) {
+      return;
+    }
+
+    String index = storage.getItem( INDEX_KEY );
+    if ( index != null ) {
+      String[] lines = index.split( "\n" ); //$NON-NLS-1$
+      boolean valid = lines[0].equals( version );
+      List<String> urls = new ArrayList<String>();
+      for ( int i = 1; i < lines.length; i++ ) {
+        int tab = lines[i].lastIndexOf( '\t' );
+        if ( tab <= 0 ) {
+          continue;
+        }
+
+        String url = lines[i].substring( 0, tab );
+        urls.add( url );
+        if ( valid ) {
+          int entrySize = parseSize( lines[i].substring( tab + 1 ) );
+          if ( entrySize < 0 ) {
+            valid = false;
+          } else {
+            entrySizes.put( url, entrySize );
+            size += entrySize;
+          }
+        }
+      }
+
+      if ( !valid ) {
+        for ( String url : urls ) {
+          storage.removeItem( ENTRY_KEY_PREFIX + url );
+        }
+        storage.removeItem( INDEX_KEY );
+        entrySizes.clear();
+        size = 0;
+      }
+    }
+
+    for ( Map.Entry<String, Boolean> readEntry : readEntries.entrySet() ) {
+      if ( entrySizes.containsKey( readEntry.getKey() ) ) {
+        if ( readEntry.getValue() ) {
+          entrySizes.get( readEntry.getKey() );
+        } else {
+          size -= entrySizes.remove( readEntry.getKey() );
+        }
+      }
+    }
+    readEntries.clear();
+  }
+
+  /**
+   * @return The size, or -1, if it is not a valid size
+   */
+  private static int parseSize( String str ) {
+    try {
+      int entrySize = Integer.parseInt( str );
+      return entrySize >= 0 ? entrySize : -1;
+    } catch ( NumberFormatException e ) {
+      return -1;
+    }
+  }
+
+  private void saveIndex() {
+    StringBuilder index = new StringBuilder( version );
+    for ( Map.Entry<String, Integer> entry : entrySizes.entrySet() ) {
+      index.append( '\n' ).append( entry.getKey() ).append( '\t' ).append( entry.getValue() );
+    }
+
+    if ( !storage.setItem( INDEX_KEY, index.toString() ) ) {
+      // the storage is full and the index cannot be kept, so drop all entries instead of leaving them unreachable
+      removeEntries();
+    }
+  }
+
+  /**
+   * Resolves a URL against a base URL, as the browser does when requesting it.
+   *
+   * @param baseUrl
+   *          The absolute URL of the page, or <code>null</code>, to return the URL as is
+   */
+  static String resolveUrl( String baseUrl, String url ) {
+    if ( baseUrl == null || url.matches( "^[a-zA-Z][a-zA-Z0-9+.-]*:.*" ) ) { //$NON-NLS-1$
+      return url;
+    }
+
+    int baseEnd = baseUrl.length();
+    for ( char c : new char[] { '?', '#' } ) {
+      int index = baseUrl.indexOf( c );
+      if ( index != -1 && index < baseEnd ) {
+        baseEnd = index;
+      }
+    }
+    baseUrl = baseUrl.substring( 0, baseEnd );
+
+    int schemeEnd = baseUrl.indexOf( "://" ); //$NON-NLS-1$
+    if ( schemeEnd == -1 ) {
+      return url;
+    }
+
+    int authorityEnd = baseUrl.indexOf( '/', schemeEnd + 3 );
+    if ( authorityEnd == -1 ) {
+      authorityEnd = baseUrl.length();
+    }
+
+    String path;
+    if ( url.startsWith( "//" ) ) { //$NON-NLS-1$
+      return baseUrl.substring( 0, schemeEnd + 1 ) + url;
+    } else if ( url.startsWith( "/" ) ) { //$NON-NLS-1$
+      path = url;
+    } else {
+      path = authorityEnd < baseUrl.length()
+          ? baseUrl.substring( authorityEnd, baseUrl.lastIndexOf( '/' ) + 1 ) + url : "/" + url; //$NON-NLS-1$
+    }
+    return baseUrl.substring( 0, authorityEnd ) + removeDotSegments( path );
+  }
+
+  /**
+   * Removes the '.' and '..' segments of the path of a URL.
+   */
+  private static String removeDotSegments( String path ) {
+    int queryStart = path.length();
+    for ( char c : new char[] { '?', '#' } ) {
+      int index = path.indexOf( c );
+      if ( index != -1 && index < queryStart ) {
+        queryStart = index;
+      }
+    }
+
+    List<String> segments = new ArrayList<String>();
+    String[] pathSegments = path.substring( 0, queryStart ).split( "/", -1 ); //$NON-NLS-1$
+    for ( int i = 1; i < pathSegments.length; i++ ) {
+      String segment = pathSegments[i];
+      boolean last = i == pathSegments.length - 1;
+      if ( segment.equals( "." ) ) { //$NON-NLS-1$
+        if ( last ) {
+          segments.add( "" ); //$NON-NLS-1$
+        }
+      } else if ( segment.equals( ".." ) ) { //$NON-NLS-1$
+        if ( !segments.isEmpty() ) {
+          segments.remove( segments.size() - 1 );
+        }
+        if ( last ) {
+          segments.add( "" ); //$NON-NLS-1$
+        }
+      } else {
+        segments.add( segment );
+      }
+    }
+
+    StringBuilder resolved = new StringBuilder();
+    for ( String segment : segments ) {
+      resolved.append( '/' ).append( segment );
+    }
+    if ( resolved.length() == 0 ) {
+      resolved.append( '/' );
+    }
+    return resolved.append( path, queryStart, path.length() ).toString();
+  }
+
+  private static native String getDocumentBaseUrl()
+  /*-{
+    return $doc.baseURI || $doc.URL;
+  }-*/;
+
+  private static native String getBundleVersionPreference()
+  /*-{
+    var m = $doc.getElementsByTagName('meta');
+    for(var i in m) {
+      if(m[i].name == 'gwt:property' && m[i].content && m[i].content.indexOf('bundleVersion=') == 0) {
+        return m[i].content.substring(m[i].content.indexOf('=')+1);
+      }
+    }
+    return null;
+  }-*/;
+
+  /**
+   * The browser's local storage. Any of its operations may fail, when it is disabled or full.
+   */
+  private static class LocalStorage implements Storage {
+
+    public native String getItem( String key )
+    /*-{
+      try {
+        return $wnd.localStorage.getItem(key);
+      } catch(e) {
+        return null;
+      }
+    }-*/;
+
+    public native boolean setItem( String key, String value )
+    /*-{
+      try {
+        $wnd.localStorage.setItem(key, value);
+        return true;
+      } catch(e) {
+        return false;
+      }
+    }-*/;
+
+    public native void removeItem( String key )
+    /*-{
+      try {
+        $wnd.localStorage.removeItem(key);
+      } catch(e) {
+      }
+    }-*/;
+
+    static native boolean isAvailable()
+    /*-{
+      try {
+        var key = '__pentaho.i18n__';
+        $wnd.localStorage.setItem(key, key);
+        $wnd.localStorage.removeItem(key);
+        return true;
+      } catch(e) {
+        return false;
+      }
+    }-*/;
+  }
+}
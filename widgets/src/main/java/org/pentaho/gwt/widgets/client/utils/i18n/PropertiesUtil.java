@@ -13,10 +13,10 @@
 
 package org.pentaho.gwt.widgets.client.utils.i18n;
 
-import org.pentaho.gwt.widgets.client.utils.string.StringTokenizer;
 import org.pentaho.gwt.widgets.client.utils.string.StringUtils;
 
 import java.util.HashMap;
+import java.util.Map;
 
 public class PropertiesUtil {
 
@@ -42,23 +42,10 @@ public class PropertiesUtil {
   public static HashMap<String, String> buildProperties( String text, HashMap<String, String> defaultProperties ) {
     // we're going to override existing settings, in this way we can override default values with locale
     // specific variants for example, we do not want to modify the user provided list
-    HashMap<String, String> settings = new HashMap<String, String>();
-    // add defaults to new list
-    if ( defaultProperties != null ) {
-      settings.putAll( defaultProperties );
-    }
-    if ( StringUtils.isEmpty( text ) ) {
-      return settings;
-    }
-    StringTokenizer lineTokenizer = new StringTokenizer( text, '\n' );
-    for ( int i = 0; i < lineTokenizer.countTokens(); i++ ) {
-      String line = lineTokenizer.tokenAt( i );
-      if ( line.indexOf( '=' ) != -1 ) {
-        String key = line.substring( 0, line.indexOf( '=' ) ).trim();
-        String value = line.substring( line.indexOf( '=' ) + 1 ).trim();
-        settings.put( key, value );
-      }
-    }
+    HashMap<String, String> settings = defaultProperties != null
+        ? new HashMap<String, String>( defaultProperties )
+        : new HashMap<String, String>();
+    parseProperties( text, settings, false );
     return settings;
   }
 
@@ -74,4 +61,203 @@ public class PropertiesUtil {
     return buildProperties( text, null );
   }
 
+  /**
+   * This method parses the given input String, in the .properties file format, into the given map, in a single pass.
+   * When a collision occurs, the new values always win.
+   * <p>
+   * As in java.util.Properties, lines starting with '#' or '!' are comments, a key ends at the first '=', ':' or white
+   * space which is not escaped, lines ending with an odd number of '\\' continue on the next line, and the escapes
+   * \\t, \\n, \\r, \\f and \\uXXXX are decoded. Other escaped characters stand for themselves. Unlike
+   * java.util.Properties, \\u sequences which are not valid escapes are kept as they are.
+   * 
+   * @param text
+   *          This is typically the contents of a .properties file in String form
+   * @param properties
+   *          The map to put the name/value pairs into
+   * @param htmlEscapes
+   *          Whether '&amp;', '&lt;', '&gt;' and the non-breaking space, when \\uXXXX escaped in a value, are written
+   *          as entities, as a browser writes them back from HTML
+   */
+  public static void parseProperties( String text, Map<String, String> properties, boolean htmlEscapes ) {
+    if ( StringUtils.isEmpty( text ) ) {
+      return;
+    }
+
+    int length = text.length();
+    StringBuilder token = new StringBuilder();
+    int index = 0;
+    while ( index < length ) {
+      char c = text.charAt( index );
+      if ( c == ' ' || c == '\t' || c == '\f' || c == '\n' || c == '\r' ) {
+        // leading white space or blank line
+        index++;
+        continue;
+      }
+
+      if ( c == '#' || c == '!' ) {
+        while ( index < length && text.charAt( index ) != '\n' && text.charAt( index ) != '\r' ) {
+          index++;
+        }
+        continue;
+      }
+
+      token.setLength( 0 );
+      index = readToken( text, index, token, true, false );
+      String key = token.toString();
+
+      index = skipWhiteSpace( text, index );
+      if ( index < length && ( text.charAt( index ) == '=' || text.charAt( index ) == ':' ) ) {
+        index = skipWhiteSpace( text, index + 1 );
+      }
+
+      token.setLength( 0 );
+      index = readToken( text, index, token, false, htmlEscapes );
+      properties.put( key, token.toString() );
+    }
+  }
+
+  /**
+   * Reads a key or a value, decoding its escapes and joining its continued lines, up to the end of its line or, for a
+   * key, up to its separator.
+   * 
+   * @return The index of the character which ends the token
+   */
+  private static int readToken( String text, int index, StringBuilder token, boolean isKey, boolean htmlEscapes ) {
+    int length = text.length();
+    // the start of the characters which are not escaped, which are appended at once
+    int start = index;
+    while ( index < length ) {
+      char c = text.charAt( index );
+      if ( c == '\n' || c == '\r' ) {
+        break;
+      }
+      if ( isKey && ( c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f' ) ) {
+        break;
+      }
+
+      if ( c != '\\' ) {
+        index++;
+        continue;
+      }
+
+      token.append( text, start, index );
+      if ( ++index == length ) {
+        return index;
+      }
+
+      c = text.charAt( index++ );
+      switch ( c ) {
+        case '\n':
+        case '\r':
+          index = skipContinuation( text, index, c );
+          break;
+        case 't':
+          token.append( '\t' );
+          break;
+        case 'n':
+          token.append( '\n' );
+          break;
+        case 'r':
+          token.append( '\r' );
+          break;
+        case 'f':
+          token.append( '\f' );
+          break;
+        case 'u':
+          int code = parseHex( text, index, index + 4 );
+          if ( code == -1 ) {
+            token.append( "\\u" ); //$NON-NLS-1$
+          } else if ( htmlEscapes ) {
+            appendHtmlCharacter( token, (char) code );
+            index += 4;
+          } else {
+            token.append( (char) code );
+            index += 4;
+          }
+          break;
+        default:
+          token.append( c );
+      }
+      start = index;
+    }
+    token.append( text, start, index );
+    return index;
+  }
+
+  /**
+   * Skips the white space between a key and its separator or value, including continued lines.
+   */
+  private static int skipWhiteSpace( String text, int index ) {
+    int length = text.length();
+    while ( index < length ) {
+      char c = text.charAt( index );
+      if ( c == ' ' || c == '\t' || c == '\f' ) {
+        index++;
+      } else if ( c == '\\' && index + 1 < length && ( text.charAt( index + 1 ) == '\n'
+          || text.charAt( index + 1 ) == '\r' ) ) {
+        index = skipContinuation( text, index + 2, text.charAt( index + 1 ) );
+      } else {
+        break;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Skips the rest of a line terminator and the leading white space of the line which continues a previous one.
+   */
+  private static int skipContinuation( String text, int index, char terminator ) {
+    int length = text.length();
+    if ( terminator == '\r' && index < length && text.charAt( index ) == '\n' ) {
+      index++;
+    }
+    while ( index < length && ( text.charAt( index ) == ' ' || text.charAt( index ) == '\t'
+        || text.charAt( index ) == '\f' ) ) {
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Parses the hex digits between two indexes of a string, returning -1 if there are not as many.
+   */
+  static int parseHex( String str, int start, int end ) {
+    if ( end > str.length() ) {
+      return -1;
+    }
+
+    int code = 0;
+    for ( int i = start; i < end; i++ ) {
+      int digit = Character.digit( str.charAt( i ), 16 );
+      if ( digit == -1 ) {
+        return -1;
+      }
+      code = code * 16 + digit;
+    }
+    return code;
+  }
+
+  /**
+   * Appends a character as a browser writes it back from HTML, so that '&amp;', '&lt;', '&gt;' and the non-breaking
+   * space are written as entities.
+   */
+  static void appendHtmlCharacter( StringBuilder str, char c ) {
+    switch ( c ) {
+      case '&':
+        str.append( "&amp;" ); //$NON-NLS-1$
+        break;
+      case '<':
+        str.append( "&lt;" ); //$NON-NLS-1$
+        break;
+      case '>':
+        str.append( "&gt;" ); //$NON-NLS-1$
+        break;
+      case '\u00a0':
+        str.append( "&nbsp;" ); //$NON-NLS-1$
+        break;
+      default:
+        str.append( c );
+    }
+  }
+
 }
@@ -14,7 +14,6 @@
 package org.pentaho.gwt.widgets.client.utils.i18n;
 
 import com.google.gwt.core.client.Scheduler;
-import com.google.gwt.http.client.Header;
 import com.google.gwt.http.client.Request;
 import com.google.gwt.http.client.RequestBuilder;
 import com.google.gwt.http.client.RequestCallback;
@@ -22,11 +21,17 @@ import com.google.gwt.http.client.RequestException;
 import com.google.gwt.http.client.Response;
 import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Window;
-import com.google.gwt.user.client.ui.HTML;
 import org.pentaho.gwt.widgets.client.utils.string.StringTokenizer;
 import org.pentaho.gwt.widgets.client.utils.string.StringUtils;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,58 +52,38 @@ public class ResourceBundle {
 
   private static final Map<String, String> bundleCache = new HashMap<String, String>();
   public static final String PROPERTIES_EXTENSION = ".properties"; //$NON-NLS-1$
-  private HashMap<String, String> bundle = new HashMap<String, String>();
-  private RequestCallback baseCallback = null;
-  private RequestCallback langCallback = null;
-  private RequestCallback langCountryCallback = null;
+  private static final int BASE_LAYER = 0;
+  private static final int LANG_LAYER = 1;
+  private static final int LANG_COUNTRY_LAYER = 2;
+  // the parsed key/value pairs of each fetched file, by URL, which the bundles loading the same file share
+  private static final Map<String, Map<String, String>> layerCache = new HashMap<String, Map<String, String>>();
+  // the layers of the bundle, in order of precedence, such as lang_country, lang and base; layers are never modified
+  private final List<Map<String, String>> layers = new ArrayList<Map<String, String>>();
+  // the values put in, and the keys removed from, the map of the bundle, which override its layers
+  private final Map<String, String> overrides = new HashMap<String, String>();
+  private final Set<String> removedKeys = new HashSet<String>();
+  // the key/value pairs resolved over the overrides and layers, once iterated, and the map of the bundle
+  private Map<String, String> resolvedMap = null;
+  private Map<String, String> map = null;
+  // the compiled messages which have been formatted with parameters, by key
+  private final Map<String, MessageTemplate> templates = new HashMap<String, MessageTemplate>();
   private String path = null;
   private String bundleName = null;
   private IResourceBundleLoadCallback bundleLoadCallback = null;
   private String localeName = "default"; //$NON-NLS-1$
-  private String currentAttemptUrl = null;
   private boolean attemptLocalizedFetches = true;
   private Map<String, String> supportedLanguages = null;
-
-  private class FakeResponse extends Response {
-
-    private String text;
-
-    public FakeResponse( String text ) {
-      this.text = text;
-    }
-
-    public String getHeader( String arg0 ) {
-      return null;
-    }
-
-    public Header[] getHeaders() {
-      return null;
-    }
-
-    public String getHeadersAsString() {
-      return null;
-    }
-
-    public int getStatusCode() {
-      return Response.SC_OK;
-    }
-
-    public String getStatusText() {
-      return null;
-    }
-
-    public String getText() {
-      return text;
-    }
-
-  }
+  // the properties text of each layer being loaded, in order of precedence, and the number of layers still pending
+  private String[] layerTexts = null;
+  private String[] layerUrls = null;
+  private int pendingLayerCount = 0;
 
   public ResourceBundle() {
     this.localeName = StringUtils.defaultIfEmpty( Window.Location.getParameter( "locale" ), getLanguagePreference() ); //$NON-NLS-1$
   }
 
   public ResourceBundle( String localeName ) {
-    this.localeName = StringUtils.defaultIfEmpty( localeName, getLanguagePreference() ); //$NON-NLS-1$
+    this.localeName = StringUtils.isEmpty( localeName ) ? getLanguagePreference() : localeName;
   }
 
   /**
@@ -132,13 +117,20 @@ public class ResourceBundle {
     }
     this.path = path;
 
-    // get the locale meta property if the url parameter is missing
-    initCallbacks();
     // decompose locale
     // _en_US
     // 1. bundleName.properties
     // 2. bundleName_en.properties
     // 3. bundleName_en_US.properties
+    // all layers are fetched at the same time and merged, in this order, when the last one completes
+    layerTexts = new String[3];
+    layerUrls = new String[3];
+    // hold the merge until the localized layers, which depend on the supported languages, have been requested
+    pendingLayerCount = 1;
+
+    // the base does not depend on the supported languages, so fetch it right away
+    String baseUrl = this.path + bundleName + PROPERTIES_EXTENSION;
+    fetchLayer( BASE_LAYER, baseUrl, "base", false ); //$NON-NLS-1$
 
     final ResourceBundle supportedLanguagesBundle = new ResourceBundle();
     // callback for when supported_locales has been fetched (if desired)
@@ -147,27 +139,12 @@ public class ResourceBundle {
         // supportedLanguages will be null if the user did not set them prior to loadBundle
         // if the user already set them, keep 'em, it's an override
         if ( ResourceBundle.this.supportedLanguages == null ) {
+          // the values are already decoded
           ResourceBundle.this.supportedLanguages = supportedLanguagesBundle.getMap();
-          decodeMapValues( ResourceBundle.this.supportedLanguages );
-        }
-        // always fetch the base first
-        currentAttemptUrl = ResourceBundle.this.path + bundleName + PROPERTIES_EXTENSION + getUrlExtras();
-        if ( bundleCache.containsKey( currentAttemptUrl ) ) {
-          // call in a separate timeout, to simulate the request builder call as closely as possible
-          Scheduler.get().scheduleDeferred( new Command() {
-            public void execute() {
-              baseCallback.onResponseReceived( null, new FakeResponse( bundleCache.get( currentAttemptUrl ) ) );
-            }
-          } );
-        } else {
-          RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, currentAttemptUrl );
-          try {
-            requestBuilder.sendRequest( null, baseCallback );
-          } catch ( RequestException e ) {
-            Window.alert( "base load: " + e.getMessage() ); //$NON-NLS-1$
-            fireBundleLoadCallback();
-          }
         }
+
+        fetchLocalizedLayers();
+        onLayerCompleted();
       }
     };
 
@@ -183,147 +160,209 @@ public class ResourceBundle {
 
   }
 
-  private void initCallbacks() {
-    baseCallback = new RequestCallback() {
-      public void onError( Request request, Throwable exception ) {
-        Window.alert( "baseCallback: " + exception.getMessage() ); //$NON-NLS-1$
-        fireBundleLoadCallback();
+  /**
+   * Fetches the lang and lang_country layers, if they are supported, all at the same time.
+   */
+  private void fetchLocalizedLayers() {
+    // if we are not attempting to fetch any localized bundles, only the base is loaded
+    if ( !attemptLocalizedFetches || localeName.equalsIgnoreCase( "default" ) ) { //$NON-NLS-1$
+      return;
+    }
+
+    StringTokenizer st = new StringTokenizer( localeName, '_' );
+    if ( st.countTokens() > 0 ) {
+      // 2. fetch bundleName_lang.properties
+      String lang = st.tokenAt( 0 );
+      String langUrl = path + bundleName + "_" + lang + PROPERTIES_EXTENSION; //$NON-NLS-1$
+      if ( isSupportedLanguage( lang ) || getCachedText( langUrl ) != null ) {
+        // Caching causing some strange behavior with IE6.
+        // TODO: Investigate caching issue.
+        fetchLayer( LANG_LAYER, langUrl, "lang", true ); //$NON-NLS-1$
       }
+    }
 
-      public void onResponseReceived( Request request, Response response ) {
-        String propertiesFileText = response.getText();
-
-        // build a simple map of key/value pairs from the properties file
-        if ( response.getStatusCode() == Response.SC_OK ) {
-          bundle = PropertiesUtil.buildProperties( propertiesFileText, bundle );
-          if ( response instanceof FakeResponse == false ) {
-            // this is a real bundle load
-            bundleCache.put( currentAttemptUrl, propertiesFileText );
-          }
-        } else {
-          // put empty bundle in cache (not found, but we want to remember it was not found)
-          bundleCache.put( currentAttemptUrl, "" ); //$NON-NLS-1$
-        }
+    if ( st.countTokens() == 2 ) {
+      // 3. fetch bundleName_lang_country.properties
 
-        // if we are not attempting to fetch any localized bundles
-        // then fire our callback and then return, we're done
-        if ( !attemptLocalizedFetches ) {
-          fireBundleLoadCallback();
-          return;
+      // need to match case-insensitive on country
+      if ( !isSupportedLanguage( localeName ) ) {
+        // try to switch the case on the trailing characters
+        if ( isSupportedLanguage( st.tokenAt( 0 ) + "_" + st.tokenAt( 1 ).toUpperCase() ) ) {
+          localeName = st.tokenAt( 0 ) + "_" + st.tokenAt( 1 ).toUpperCase();
         }
+      }
 
-        // now fetch the the lang/country variants
-        if ( localeName.equalsIgnoreCase( "default" ) ) { //$NON-NLS-1$
-          // process only bundleName.properties
-          fireBundleLoadCallback();
-          return;
-        } else {
-          StringTokenizer st = new StringTokenizer( localeName, '_' );
-          if ( st.countTokens() > 0 ) {
-            String lang = st.tokenAt( 0 );
-            // 2. fetch bundleName_lang.properties
-            // 3. fetch bundleName_lang_country.properties
-            currentAttemptUrl = path + bundleName + "_" + lang + PROPERTIES_EXTENSION + getUrlExtras(); //$NON-NLS-1$
-
-            // IE caches the file and causes an issue with the request
-
-            if ( !isSupportedLanguage( lang ) || bundleCache.containsKey( currentAttemptUrl ) ) {
-              langCallback.onResponseReceived( null, new FakeResponse( bundleCache.get( currentAttemptUrl ) ) );
-            } else {
-              RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, currentAttemptUrl );
-
-              // Caching causing some strange behavior with IE6.
-              // TODO: Investigate caching issue.
-              requestBuilder.setHeader( "Cache-Control", "no-cache" ); //$NON-NLS-1$  //$NON-NLS-2$
-
-              try {
-                requestBuilder.sendRequest( null, langCallback );
-              } catch ( RequestException e ) {
-                Window.alert( "lang: " + e.getMessage() ); //$NON-NLS-1$
-                fireBundleLoadCallback();
-              }
-            }
-          } else if ( st.countTokens() == 0 ) {
-            // already fetched
-            fireBundleLoadCallback();
-            return;
-          }
-        }
+      String langCountryUrl = path + bundleName + "_" + localeName + PROPERTIES_EXTENSION; //$NON-NLS-1$
+      if ( isSupportedLanguage( localeName ) || getCachedText( langCountryUrl ) != null ) {
+        fetchLayer( LANG_COUNTRY_LAYER, langCountryUrl, "langCountry", false ); //$NON-NLS-1$
       }
-    };
-    langCallback = new RequestCallback() {
-      public void onError( Request request, Throwable exception ) {
-        Window.alert( "langCallback: " + exception.getMessage() ); //$NON-NLS-1$
-        fireBundleLoadCallback();
+    }
+  }
+
+  /**
+   * Gets the properties text of a bundle from the cache, or from the persistent cache, if it was fetched on a previous
+   * page load.
+   *
+   * @return The text, which is empty if the bundle was not found, or <code>null</code>, if it is not cached
+   */
+  static String getCachedText( String url ) {
+    String propertiesFileText = bundleCache.get( url );
+    if ( propertiesFileText == null ) {
+      propertiesFileText = PersistentBundleCache.getInstance().get( url );
+      if ( propertiesFileText != null ) {
+        bundleCache.put( url, propertiesFileText );
       }
+    }
+    return propertiesFileText;
+  }
+
+  static void putCachedText( String url, String propertiesFileText ) {
+    bundleCache.put( url, propertiesFileText );
+    PersistentBundleCache.getInstance().put( url, propertiesFileText );
+  }
+
+  /**
+   * Caches the text of several properties files, by URL, writing the persistent cache once for all of them.
+   */
+  static void putCachedTexts( Map<String, String> propertiesFileTexts ) {
+    bundleCache.putAll( propertiesFileTexts );
+    PersistentBundleCache.getInstance().putAll( propertiesFileTexts );
+  }
+
+  /**
+   * Caches the response to a bundle request. A bundle which was not found is cached as empty, to remember it was not
+   * found. Only found and not found bundles are persisted; other failures are only remembered for this page.
+   *
+   * @return The text of the bundle, or <code>null</code>, if it was not found
+   */
+  static String cacheResponse( String url, Response response ) {
+    int statusCode = response.getStatusCode();
+    String propertiesFileText = statusCode == Response.SC_OK ? response.getText() : ""; //$NON-NLS-1$
+    if ( PersistentBundleCache.isPersistable( statusCode ) ) {
+      putCachedText( url, propertiesFileText );
+    } else {
+      bundleCache.put( url, propertiesFileText );
+    }
+    return statusCode == Response.SC_OK ? propertiesFileText : null;
+  }
 
-      public void onResponseReceived( Request request, Response response ) {
-        String propertiesFileText = response.getText();
-        // build a simple map of key/value pairs from the properties file
-        if ( response.getStatusCode() == Response.SC_OK ) {
-          bundle = PropertiesUtil.buildProperties( propertiesFileText, bundle );
-          if ( response instanceof FakeResponse == false ) {
-            // this is a real bundle load
-            bundleCache.put( currentAttemptUrl, propertiesFileText );
-          }
-        } else {
-          // put empty bundle in cache (not found, but we want to remember it was not found)
-          bundleCache.put( currentAttemptUrl, "" ); //$NON-NLS-1$
+  /**
+   * Fetches the properties text of a layer, from the cache, if there, or from the server. Bundles are cached by their
+   * URL, without the extras which bust the browser cache.
+   */
+  private void fetchLayer( final int layer, final String url, final String layerName, boolean noCache ) {
+    pendingLayerCount++;
+    layerUrls[layer] = url;
+
+    final String cachedText = getCachedText( url );
+    if ( cachedText != null ) {
+      // call in a separate timeout, to simulate the request builder call as closely as possible
+      Scheduler.get().scheduleDeferred( new Command() {
+        public void execute() {
+          onLayerLoaded( layer, cachedText );
         }
+      } );
+      return;
+    }
 
-        StringTokenizer st = new StringTokenizer( localeName, '_' );
-        if ( st.countTokens() == 2 ) {
-          // 3. fetch bundleName_lang_country.properties
+    RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, url + getUrlExtras() );
+    if ( noCache ) {
+      requestBuilder.setHeader( "Cache-Control", "no-cache" ); //$NON-NLS-1$  //$NON-NLS-2$
+    }
 
-          // need to match case-insensitive on country
-          if ( !isSupportedLanguage( localeName ) ) {
-            // try to switch the case on the trailing characters
-            if ( isSupportedLanguage( st.tokenAt( 0 ) + "_" + st.tokenAt( 1 ).toUpperCase() ) ) {
-              localeName = st.tokenAt( 0 ) + "_" + st.tokenAt( 1 ).toUpperCase();
-            }
-          }
-
-          currentAttemptUrl = path + bundleName + "_" + localeName + PROPERTIES_EXTENSION + getUrlExtras(); //$NON-NLS-1$
-          if ( !isSupportedLanguage( localeName ) || bundleCache.containsKey( currentAttemptUrl ) ) {
-            langCountryCallback.onResponseReceived( null, new FakeResponse( bundleCache.get( currentAttemptUrl ) ) );
-          } else {
-            RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, currentAttemptUrl );
-            try {
-              requestBuilder.sendRequest( null, langCountryCallback );
-            } catch ( RequestException e ) {
-              Window.alert( "langCountry: " + e.getMessage() ); //$NON-NLS-1$
-              fireBundleLoadCallback();
-            }
-          }
-        } else {
-          // already fetched
-          fireBundleLoadCallback();
-          return;
+    try {
+      requestBuilder.sendRequest( null, new RequestCallback() {
+        public void onError( Request request, Throwable exception ) {
+          Window.alert( layerName + "Callback: " + exception.getMessage() ); //$NON-NLS-1$
+          onLayerLoaded( layer, null );
+        }
+
+        public void onResponseReceived( Request request, Response response ) {
+          onLayerLoaded( layer, cacheResponse( url, response ) );
         }
+      } );
+    } catch ( RequestException e ) {
+      Window.alert( layerName + ": " + e.getMessage() ); //$NON-NLS-1$
+      onLayerLoaded( layer, null );
+    }
+  }
+
+  private void onLayerLoaded( int layer, String propertiesFileText ) {
+    layerTexts[layer] = propertiesFileText;
+    onLayerCompleted();
+  }
+
+  /**
+   * Once no layer is pending, adds the layers so that lang overrides base and lang_country overrides lang.
+   */
+  private void onLayerCompleted() {
+    if ( --pendingLayerCount > 0 ) {
+      return;
+    }
+
+    for ( int i = 0; i < layerTexts.length; i++ ) {
+      if ( layerTexts[i] != null ) {
+        addLayer( getLayer( layerUrls[i], layerTexts[i] ) );
       }
-    };
-    langCountryCallback = new RequestCallback() {
-      public void onError( Request request, Throwable exception ) {
-        Window.alert( "langCountryCallback: " + exception.getMessage() ); //$NON-NLS-1$
-        fireBundleLoadCallback();
+    }
+
+    fireBundleLoadCallback();
+  }
+
+  /**
+   * Gets the key/value pairs of a properties file, parsing it, and decoding its values, only the first time it is used
+   * by any bundle.
+   */
+  static Map<String, String> getLayer( String url, String propertiesFileText ) {
+    Map<String, String> layer = layerCache.get( url );
+    if ( layer == null ) {
+      HashMap<String, String> properties = new HashMap<String, String>();
+      PropertiesUtil.parseProperties( propertiesFileText, properties, true );
+      layer = Collections.unmodifiableMap( properties );
+      layerCache.put( url, layer );
+    }
+    return layer;
+  }
+
+  /**
+   * Adds a layer, which overrides the existing ones. A layer which was already added is moved, as its keys would
+   * resolve to it anyway.
+   */
+  void addLayer( Map<String, String> layer ) {
+    if ( layer.isEmpty() ) {
+      return;
+    }
+
+    for ( int i = 0; i < layers.size(); i++ ) {
+      if ( layers.get( i ) == layer ) {
+        layers.remove( i );
+        break;
       }
+    }
+    layers.add( 0, layer );
+    resolvedMap = null;
+  }
 
-      public void onResponseReceived( Request request, Response response ) {
-        String propertiesFileText = response.getText();
-        // build a simple map of key/value pairs from the properties file
-        if ( response.getStatusCode() == Response.SC_OK ) {
-          bundle = PropertiesUtil.buildProperties( propertiesFileText, bundle );
-          if ( response instanceof FakeResponse == false ) {
-            // this is a real bundle load
-            bundleCache.put( currentAttemptUrl, propertiesFileText );
-          }
-        } else {
-          // put empty bundle in cache (not found, but we want to remember it was not found)
-          bundleCache.put( currentAttemptUrl, "" ); //$NON-NLS-1$
-        }
-        fireBundleLoadCallback();
+  /**
+   * Resolves a key by walking the overrides and the layers, in order of precedence.
+   */
+  private String lookup( String key ) {
+    if ( removedKeys.contains( key ) ) {
+      return null;
+    }
+
+    String override = overrides.get( key );
+    if ( override != null ) {
+      return override;
+    }
+
+    for ( Map<String, String> layer : layers ) {
+      String resource = layer.get( key );
+      if ( resource != null ) {
+        return resource;
       }
-    };
+    }
+    return null;
   }
 
   private void fireBundleLoadCallback() {
@@ -333,11 +372,11 @@ public class ResourceBundle {
   }
 
   public String getString( String key ) {
-    String resource = bundle.get( key );
+    String resource = lookup( key );
     if ( resource == null ) {
       return key;
     }
-    return decodeUTF8( resource );
+    return resource;
   }
 
   /**
@@ -350,11 +389,11 @@ public class ResourceBundle {
    * @return The UTF-8 friendly value found for the given key
    */
   public String getString( String key, String defaultValue ) {
-    String resource = bundle.get( key );
+    String resource = lookup( key );
     if ( resource == null ) {
       return defaultValue;
     }
-    return decodeUTF8( resource );
+    return resource;
   }
 
   /**
@@ -368,14 +407,23 @@ public class ResourceBundle {
    * @return The UTF-8 friendly value found for the given key
    */
   public String getString( String key, String defaultValue, String... parameters ) {
-    String resource = bundle.get( key );
+    String resource = lookup( key );
     if ( resource == null ) {
       return defaultValue;
     }
-    for ( int i = 0; i < parameters.length; i++ ) {
-      resource = resource.replace( "{" + i + "}", parameters[i] ); //$NON-NLS-1$ //$NON-NLS-2$
+    return getTemplate( key, resource ).format( parameters );
+  }
+
+  /**
+   * Gets the compiled template of a message, compiling it the first time it is formatted, or after it changes.
+   */
+  private MessageTemplate getTemplate( String key, String resource ) {
+    MessageTemplate template = templates.get( key );
+    if ( template == null || template.getMessage() != resource ) {
+      template = MessageTemplate.compile( resource );
+      templates.put( key, template );
     }
-    return decodeUTF8( resource );
+    return template;
   }
 
   /**
@@ -384,41 +432,76 @@ public class ResourceBundle {
    * @return The key set for the message bundle
    */
   public Set<String> getKeys() {
-    return bundle.keySet();
+    return getMap().keySet();
   }
 
   /**
-   * This method returns the internal Map of key/value pairs for the bundle
+   * This method returns a Map of the key/value pairs for the bundle, resolved over its layers.
    * 
-   * @return The key set for the message bundle
+   * The map is a view of the bundle, which writes through to its top layer: values put in it override those of the
+   * loaded files, also for getString, and keys removed from it are hidden until they are put again. Layers which are
+   * merged in later do not override these changes. Null values are not kept: putting one removes the key.
+   * 
+   * @return The key/value pairs of the message bundle
    */
   public Map<String, String> getMap() {
-    return bundle;
+    if ( map == null ) {
+      map = new BundleMap();
+    }
+    return map;
+  }
+
+  /**
+   * Gets the key/value pairs resolved over the overrides and layers, building them when first requested after the
+   * bundle changes.
+   */
+  private Map<String, String> resolve() {
+    if ( resolvedMap == null ) {
+      resolvedMap = new HashMap<String, String>();
+      for ( int i = layers.size() - 1; i >= 0; i-- ) {
+        resolvedMap.putAll( layers.get( i ) );
+      }
+      resolvedMap.putAll( overrides );
+      resolvedMap.keySet().removeAll( removedKeys );
+    }
+    return resolvedMap;
   }
 
   public static void clearCache() {
     bundleCache.clear();
+    layerCache.clear();
+    PersistentBundleCache.getInstance().clear();
   }
 
   public void mergeResourceBundle( ResourceBundle inBundle ) {
-    // the incoming bundle will override the defaults in bundle
-    bundle.putAll( inBundle.bundle );
-  }
+    if ( inBundle == this ) {
+      return;
+    }
+    // the values put in its map are copied, as these may still change
+    Map<String, String> inOverrides = new HashMap<String, String>( inBundle.overrides );
+    // the keys removed from its map keep their value in this bundle, although its layers define them
+    Set<String> inRemovedKeys = new HashSet<String>();
+    for ( String key : inBundle.removedKeys ) {
+      String value = lookup( key );
+      if ( value != null ) {
+        inOverrides.put( key, value );
+      } else {
+        inRemovedKeys.add( key );
+      }
+    }
 
-  private static HTML entityDecoder = new HTML();
+    // the incoming bundle will override the defaults in bundle, including the values put in or removed from its map
+    Set<String> inKeys = inBundle.resolve().keySet();
+    overrides.keySet().removeAll( inKeys );
+    removedKeys.removeAll( inKeys );
+    removedKeys.addAll( inRemovedKeys );
 
-  private String decodeUTF8( String str ) {
-    if ( str == null ) {
-      return str;
-    }
-    while ( str.indexOf( "\\u" ) != -1 ) { //$NON-NLS-1$
-      int index = str.indexOf( "\\u" ); //$NON-NLS-1$
-      String hex = str.substring( index + 2, index + 6 );
-      str = str.substring( 0, index ) + "&#x" + hex + ";" + str.substring( index + 6 ); //$NON-NLS-1$ //$NON-NLS-2$
-      entityDecoder.setHTML( str );
-      str = entityDecoder.getHTML();
+    // its layers are shared rather than copied
+    for ( int i = inBundle.layers.size() - 1; i >= 0; i-- ) {
+      addLayer( inBundle.layers.get( i ) );
     }
-    return str;
+    addLayer( inOverrides );
+    resolvedMap = null;
   }
 
   public boolean isSupportedLanguage( String languageCode ) {
@@ -443,10 +526,90 @@ public class ResourceBundle {
     return localeName;
   }
 
-  // Run the values of a map through the decodeUTF8 function to un-escape unicode characters
-  private void decodeMapValues( Map<String, String> map ) {
-    for ( Map.Entry<String, String> entry : map.entrySet() ) {
-      entry.setValue( decodeUTF8( entry.getValue() ) );
+  /**
+   * The map of a bundle, which resolves keys over its layers and writes through to its overrides.
+   */
+  private class BundleMap extends AbstractMap<String, String> {
+
+    @Override
+    public String get( Object key ) {
+      return key instanceof String ? lookup( (String) key ) : null;
+    }
+
+    @Override
+    public boolean containsKey( Object key ) {
+      return get( key ) != null;
+    }
+
+    @Override
+    public String put( String key, String value ) {
+      if ( value == null ) {
+        return remove( key );
+      }
+
+      String previous = lookup( key );
+      overrides.put( key, value );
+      removedKeys.remove( key );
+      resolvedMap = null;
+      return previous;
+    }
+
+    @Override
+    public String remove( Object key ) {
+      String previous = get( key );
+      if ( previous != null ) {
+        overrides.remove( key );
+        removedKeys.add( (String) key );
+        resolvedMap = null;
+      }
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      return resolve().size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+      return new AbstractSet<Map.Entry<String, String>>() {
+        @Override
+        public int size() {
+          return resolve().size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+          // iterate over a copy of the keys, so that entries can be removed and set while iterating
+          final Iterator<String> keys = new ArrayList<String>( resolve().keySet() ).iterator();
+          return new Iterator<Map.Entry<String, String>>() {
+            private String key = null;
+
+            public boolean hasNext() {
+              return keys.hasNext();
+            }
+
+            public Map.Entry<String, String> next() {
+              key = keys.next();
+              return new AbstractMap.SimpleEntry<String, String>( key, lookup( key ) ) {
+                @Override
+                public String setValue( String value ) {
+                  super.setValue( value );
+                  return put( getKey(), value );
+                }
+              };
+            }
+
+            public void remove() {
+              if ( key == null ) {
+                throw new IllegalStateException();
+              }
+              BundleMap.this.remove( key );
+              key = null;
+            }
+          };
+        }
+      };
     }
   }
 
@@ -14,45 +14,123 @@
 package org.pentaho.gwt.widgets.client.utils.string;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-public class StringTokenizer {
+/**
+ * Splits a text into the tokens between any of the given delimiters. Empty tokens between delimiters are kept, while a
+ * trailing delimiter does not end an empty token.
+ * <p>
+ * Tokens are found as they are requested, so that reading the first tokens does not split the whole text. A single
+ * delimiter is found with <code>indexOf</code>, and several delimiters with a lookup table.
+ */
+public class StringTokenizer implements Iterable<String> {
+  // the tokens found so far
   ArrayList<String> tokens = new ArrayList<String>();
 
-  public StringTokenizer( String text, String delimiters ) {
-    if ( text == null || "".equals( text ) ) { //$NON-NLS-1$
-      return;
-    }
-    char[] delimiterArray = delimiters.toCharArray();
-    List<Character> delimiterList = new ArrayList<Character>();
-    for ( char delim : delimiterArray ) {
-      delimiterList.add( delim );
-    }
-    char[] chars = text.toCharArray();
-
-    int sindex = 0;
-    int i;
-    for ( i = 0; i < chars.length; i++ ) {
-      if ( delimiterList.contains( chars[i] ) ) {
-        tokens.add( text.substring( sindex, i ) );
-        sindex = i + 1;
-      }
-    }
+  private final String text;
+  private final char delimiter;
+  // whether each character is a delimiter, or null, if there is a single delimiter
+  private final boolean[] delimiterTable;
+  // the index at which the next token starts
+  private int nextTokenStart = 0;
 
-    if ( sindex < i ) {
-      tokens.add( text.substring( sindex ) );
+  public StringTokenizer( String text, String delimiters ) {
+    this.text = text == null ? "" : text; //$NON-NLS-1$
+    if ( delimiters != null && delimiters.length() == 1 ) {
+      this.delimiter = delimiters.charAt( 0 );
+      this.delimiterTable = null;
+    } else {
+      this.delimiter = 0;
+      this.delimiterTable = createDelimiterTable( delimiters == null ? "" : delimiters ); //$NON-NLS-1$
     }
   }
 
   public StringTokenizer( String text, char delimiter ) {
-    this( text, new String( new char[] { delimiter } ) );
+    this.text = text == null ? "" : text; //$NON-NLS-1$
+    this.delimiter = delimiter;
+    this.delimiterTable = null;
+  }
+
+  private static boolean[] createDelimiterTable( String delimiters ) {
+    char max = 0;
+    for ( int i = 0; i < delimiters.length(); i++ ) {
+      max = (char) Math.max( max, delimiters.charAt( i ) );
+    }
+
+    boolean[] delimiterTable = new boolean[delimiters.isEmpty() ? 0 : max + 1];
+    for ( int i = 0; i < delimiters.length(); i++ ) {
+      delimiterTable[delimiters.charAt( i )] = true;
+    }
+    return delimiterTable;
   }
 
   public int countTokens() {
+    while ( findNextToken() ) {
+      // find all of the tokens
+    }
     return tokens.size();
   }
 
   public String tokenAt( int index ) {
-    return (String) tokens.get( index );
+    while ( tokens.size() <= index && findNextToken() ) {
+      // find the tokens up to the index
+    }
+    return tokens.get( index );
+  }
+
+  /**
+   * Iterates the tokens, finding each one only when it is reached.
+   */
+  public Iterator<String> iterator() {
+    return new Iterator<String>() {
+      private int index = 0;
+
+      public boolean hasNext() {
+        return index < tokens.size() || findNextToken();
+      }
+
+      public String next() {
+        if ( !hasNext() ) {
+          throw new NoSuchElementException();
+        }
+        return tokens.get( index++ );
+      }
+    };
+  }
+
+  /**
+   * Finds the next token, if any, adding it to the tokens found so far.
+   *
+   * @return <code>true</code>, if a token was found; <code>false</code>, if all tokens were found.
+   */
+  private boolean findNextToken() {
+    if ( nextTokenStart >= text.length() ) {
+      return false;
+    }
+
+    int end = findDelimiter( nextTokenStart );
+    tokens.add( text.substring( nextTokenStart, end ) );
+    nextTokenStart = end + 1;
+    return true;
+  }
+
+  /**
+   * Gets the index of the first delimiter from an index, or the length of the text, if there is none.
+   */
+  private int findDelimiter( int from ) {
+    int length = text.length();
+    if ( delimiterTable == null ) {
+      int index = text.indexOf( delimiter, from );
+      return index == -1 ? length : index;
+    }
+
+    for ( int i = from; i < length; i++ ) {
+      char c = text.charAt( i );
+      if ( c < delimiterTable.length && delimiterTable[c] ) {
+        return i;
+      }
+    }
+    return length;
   }
 }
@@ -13,82 +13,336 @@
 
 package org.pentaho.mantle.client.dialogs;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 import org.pentaho.mantle.client.messages.Messages;
 
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.SimplePanel;
 
+/**
+ * The application wide busy indicator.
+ * <p>
+ * {@link #setVisible(boolean)} and {@link #setVisibleById(boolean, String)} show or hide an indicator right away.
+ * Hiding it discards all the requests to show it.
+ * <p>
+ * {@link #show()} and {@link #show(String)} request to show an indicator, until the returned {@link Handle} is
+ * released. Requests are counted, so that overlapping callers do not hide each other's indicator: it is hidden only
+ * once all of them are released. The indicator is only painted if a request remains for at least
+ * {@link #SHOW_DELAY_MILLIS}, so that fast operations do not make it flash. Once painted, it remains so for at least
+ * {@link #MIN_DISPLAY_MILLIS}.
+ */
 public class WaitPopup extends SimplePanel {
 
+  static final int SHOW_DELAY_MILLIS = 250;
+  static final int MIN_DISPLAY_MILLIS = 500;
+
   private static WaitPopup instance = new WaitPopup();
 
-  private WaitPopup() {
+  /**
+   * A request to show a busy indicator.
+   */
+  public interface Handle {
+    /**
+     * Releases the request. Releasing it again has no effect.
+     */
+    void release();
+  }
+
+  /**
+   * The resolved <code>common-ui/util/BusyIndicator</code> module, once required.
+   */
+  private JavaScriptObject busyIndicator;
+
+  /**
+   * The calls to the module made while it is being required, if it is.
+   */
+  private List<Consumer<JavaScriptObject>> pendingCalls;
+
+  private final Indicator indicator = new Indicator( null );
+
+  private final Map<String, Indicator> indicatorsById = new HashMap<String, Indicator>();
+
+  /* Visible for testing */
+  WaitPopup() {
   }
 
   public static WaitPopup getInstance() {
     return instance;
   }
 
+  /**
+   * Requests to show the busy indicator, until the returned handle is released.
+   *
+   * @return the handle of the request
+   */
+  public Handle show() {
+    return indicator.request();
+  }
+
+  /**
+   * Requests to show the busy indicator of the element with the given id, until the returned handle is released.
+   *
+   * @param id the id of the element
+   * @return the handle of the request
+   */
+  public Handle show( String id ) {
+    return getIndicator( id ).request();
+  }
+
   @Override
   public void setVisible( boolean visible ) {
-    if ( visible ) {
-      showBusyIndicator( Messages.getString( "pleaseWait" ), Messages.getString( "waitMessage" ) );
+    indicator.setVisible( visible );
+  }
+
+  @Override
+  public boolean isVisible() {
+    return indicator.isVisible();
+  }
+
+  public void setVisibleById( boolean visible, String id ) {
+    getIndicator( id ).setVisible( visible );
+  }
+
+  private Indicator getIndicator( String id ) {
+    Indicator idIndicator = indicatorsById.get( id );
+    if ( idIndicator == null ) {
+      idIndicator = new Indicator( id );
+      indicatorsById.put( id, idIndicator );
+    }
+    return idIndicator;
+  }
+
+  /**
+   * The state of the busy indicator, or of the busy indicator of an element.
+   */
+  private class Indicator {
+    private final String id;
+
+    private int requestCount;
+
+    // Incremented whenever the requests are discarded, so that their handles no longer count.
+    private int generation;
+
+    private boolean isShown;
+
+    private double shownTime;
+
+    private final Timer showTimer = new Timer() {
+      @Override
+      public void run() {
+        showNow();
+      }
+    };
+
+    private final Timer hideTimer = new Timer() {
+      @Override
+      public void run() {
+        hideNow();
+      }
+    };
+
+    Indicator( String id ) {
+      this.id = id;
+    }
+
+    Handle request() {
+      if ( ++requestCount == 1 ) {
+        if ( isShown ) {
+          // Still painted, within the minimum display time.
+          cancel( hideTimer );
+        } else {
+          schedule( showTimer, SHOW_DELAY_MILLIS );
+        }
+      }
+
+      final int requestGeneration = generation;
+      return new Handle() {
+        private boolean released;
+
+        @Override
+        public void release() {
+          if ( !released ) {
+            released = true;
+            if ( requestGeneration == generation ) {
+              releaseRequest();
+            }
+          }
+        }
+      };
+    }
+
+    private void releaseRequest() {
+      if ( --requestCount > 0 ) {
+        return;
+      }
+
+      if ( !isShown ) {
+        // Fast enough to never be painted.
+        cancel( showTimer );
+        return;
+      }
+
+      int remainingMillis = (int) ( MIN_DISPLAY_MILLIS - ( now() - shownTime ) );
+      if ( remainingMillis > 0 ) {
+        schedule( hideTimer, remainingMillis );
+      } else {
+        hideNow();
+      }
+    }
+
+    void setVisible( boolean visible ) {
+      cancel( showTimer );
+      cancel( hideTimer );
+
+      if ( visible ) {
+        showNow();
+      } else {
+        requestCount = 0;
+        generation++;
+        hideNow();
+      }
+    }
+
+    boolean isVisible() {
+      return requestCount > 0 || isShown;
+    }
+
+    private void showNow() {
+      isShown = true;
+      shownTime = now();
+
+      showIndicator( id );
+    }
+
+    private void hideNow() {
+      isShown = false;
+
+      hideIndicator( id );
+    }
+  }
+
+  /* Visible for testing */
+  void schedule( Timer timer, int delayMillis ) {
+    timer.schedule( delayMillis );
+  }
+
+  /* Visible for testing */
+  void cancel( Timer timer ) {
+    timer.cancel();
+  }
+
+  /* Visible for testing */
+  double now() {
+    return System.currentTimeMillis();
+  }
+
+  /* Visible for testing */
+  void showIndicator( final String id ) {
+    final String title = Messages.getString( "pleaseWait" );
+    final String message = Messages.getString( "waitMessage" );
+    if ( id == null ) {
+      callBusyIndicator( busy -> callShow( busy, title, message ) );
     } else {
-      hideBusyIndicator();
+      callBusyIndicator( busy -> callShow( busy, title, message, id ) );
     }
   }
 
-  public void setVisibleById( boolean visible, String id ) {
-    if ( visible ) {
-      showBusyIndicatorById( Messages.getString( "pleaseWait" ), Messages.getString( "waitMessage" ),
-          id );
+  /* Visible for testing */
+  void hideIndicator( final String id ) {
+    if ( id == null ) {
+      callBusyIndicator( busy -> callHide( busy ) );
     } else {
-      hideBusyIndicatorById( id );
+      callBusyIndicator( busy -> callHide( busy, id ) );
     }
   }
 
+  /**
+   * Calls the busy indicator module, requiring it on first use. Calls made while it is being required are made, in
+   * order, once it is resolved.
+   */
+  private void callBusyIndicator( Consumer<JavaScriptObject> call ) {
+    if ( busyIndicator != null ) {
+      call.accept( busyIndicator );
+      return;
+    }
 
-  public static native void showBusyIndicator( String title, String message )
-  /*-{
-      $wnd.require([
-              "common-ui/util/BusyIndicator"
-          ],
+    if ( pendingCalls == null ) {
+      pendingCalls = new ArrayList<Consumer<JavaScriptObject>>();
+      requireBusyIndicator();
+    }
+    pendingCalls.add( call );
+  }
 
-          function (busy) {
-              busy.show(title, message);
-          });
-  }-*/;
+  /* Visible for testing */
+  void onBusyIndicatorLoaded( JavaScriptObject busy ) {
+    busyIndicator = busy;
 
-  public static native void hideBusyIndicator()
+    List<Consumer<JavaScriptObject>> calls = pendingCalls;
+    pendingCalls = null;
+    if ( calls != null ) {
+      for ( Consumer<JavaScriptObject> call : calls ) {
+        call.accept( busy );
+      }
+    }
+  }
+
+  public static void showBusyIndicator( final String title, final String message ) {
+    instance.callBusyIndicator( busy -> instance.callShow( busy, title, message ) );
+  }
+
+  public static void hideBusyIndicator() {
+    instance.callBusyIndicator( busy -> instance.callHide( busy ) );
+  }
+
+  public static void showBusyIndicatorById( final String title, final String message, final String id ) {
+    instance.callBusyIndicator( busy -> instance.callShow( busy, title, message, id ) );
+  }
+
+  public static void hideBusyIndicatorById( final String id ) {
+    instance.callBusyIndicator( busy -> instance.callHide( busy, id ) );
+  }
+
+  /* Visible for testing */
+  native void requireBusyIndicator()
   /*-{
+      var self = this;
       $wnd.require([
               "common-ui/util/BusyIndicator"
           ],
 
           function (busy) {
-              busy.hide();
+              self.@org.pentaho.mantle.client.dialogs.WaitPopup::onBusyIndicatorLoaded(*)(busy);
           });
   }-*/;
 
-  public static native void showBusyIndicatorById( String title, String message, String id )
+  /* Visible for testing */
+  native void callShow( JavaScriptObject busy, String title, String message )
   /*-{
-      $wnd.require([
-              "common-ui/util/BusyIndicator"
-          ],
+      busy.show(title, message);
+  }-*/;
 
-          function (busy) {
-              busy.show(title, message, id);
-          });
+  /* Visible for testing */
+  native void callShow( JavaScriptObject busy, String title, String message, String id )
+  /*-{
+      busy.show(title, message, id);
   }-*/;
 
-  public static native void hideBusyIndicatorById( String id )
+  /* Visible for testing */
+  native void callHide( JavaScriptObject busy )
   /*-{
-      $wnd.require([
-              "common-ui/util/BusyIndicator"
-          ],
+      busy.hide();
+  }-*/;
 
-          function (busy) {
-              busy.hide(id);
-          });
+  /* Visible for testing */
+  native void callHide( JavaScriptObject busy, String id )
+  /*-{
+      busy.hide(id);
   }-*/;
 
 }
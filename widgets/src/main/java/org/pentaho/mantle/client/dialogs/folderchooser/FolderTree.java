@@ -16,6 +16,7 @@ package org.pentaho.mantle.client.dialogs.folderchooser;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.NativeEvent;
+import com.google.gwt.event.dom.client.MouseOverEvent;
 import com.google.gwt.event.logical.shared.CloseEvent;
 import com.google.gwt.event.logical.shared.OpenEvent;
 import com.google.gwt.event.logical.shared.SelectionEvent;
@@ -48,10 +49,16 @@ import org.pentaho.gwt.widgets.client.utils.string.StringUtils;
 import org.pentaho.mantle.client.dialogs.WaitPopup;
 import org.pentaho.mantle.client.messages.Messages;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import static org.pentaho.gwt.widgets.client.utils.ElementUtils.setStyleProperty;
@@ -63,6 +70,8 @@ public class FolderTree extends Tree {
   private static final String OPEN_STYLE_NAME = "open";
   private static final String LEAF_WIDGET_STYLE_NAME = "leaf-widget";
   private static final String PARENT_WIDGET_STYLE_NAME = "parent-widget";
+  /* Visible for testing */
+  static final int MAX_CONCURRENT_PREFETCHES = 2;
 
   private boolean showLocalizedFileNames = true;
   private boolean showHiddenFiles;
@@ -72,6 +81,33 @@ public class FolderTree extends Tree {
 
   private GenericFileTree loadingTreeModel;
 
+  private boolean prefetchEnabled;
+
+  /**
+   * The pending subtree model requests, either for opening, prefetching or refreshing a tree item.
+   * The pending request for refreshing the root level, if any, has a <code>null</code> key.
+   */
+  private final Map<FolderTreeItem, Request> subtreeModelRequests = new HashMap<>();
+
+  /**
+   * The consumers of the pending refresh requests, which are told when a request is cancelled on collapse.
+   */
+  private final Map<Request, Consumer<GenericFileTree>> refreshConsumers = new HashMap<>();
+
+  /**
+   * The request to show the wait popup while the tree model is fetched.
+   */
+  private WaitPopup.Handle treeModelFetchWait;
+
+  /**
+   * The tree items having a pending prefetch request.
+   * A tree item opened while being prefetched is marked as loading and removed from this set.
+   */
+  private final Set<FolderTreeItem> prefetchTreeItems = new HashSet<>();
+
+  @Nullable
+  private FolderTreeItem nextPrefetchTreeItem;
+
   /**
    * Stores the currently selected item in duplication of the base class' private field,
    * obtained via {@link #getSelectedItem()}. This is because the selection changed event
@@ -97,6 +133,13 @@ public class FolderTree extends Tree {
     addCloseHandler( this::handleClose );
   }
 
+  @Override
+  public void clear() {
+    cancelSubtreeModelRequests();
+
+    super.clear();
+  }
+
   // region fetchTreeModel
   public void fetchTreeModel() {
     fetchTreeModel( null );
@@ -122,35 +165,53 @@ public class FolderTree extends Tree {
     RequestCallback innerCallback = new RequestCallback() {
 
       public void onError( Request request, Throwable exception ) {
+        onTreeModelFetchFailed();
         Window.alert( exception.toString() );
       }
 
       public void onResponseReceived( Request request, Response response ) {
         if ( response.getStatusCode() == Response.SC_OK ) {
-          final GenericFileTreeJsonParser parser = new GenericFileTreeJsonParser( response.getText() );
-          final GenericFileTree fileTreeModel = parser.getTree();
+          final GenericFileTree fileTreeModel = parseTreeModel( response.getText() );
 
           onTreeModelFetched( fileTreeModel, initialOrPreviousSelectedPath );
           if ( callback != null ) {
             callback.onSuccess( fileTreeModel );
           }
+        } else {
+          onTreeModelFetchFailed();
         }
       }
     };
 
     try {
-      builder.sendRequest( null, innerCallback );
+      sendRequest( builder, innerCallback );
     } catch ( RequestException e ) {
+      onTreeModelFetchFailed();
       Window.alert( e.toString() );
     }
   }
 
+  /* Visible for testing */
+  Request sendRequest( @NonNull RequestBuilder builder, @NonNull RequestCallback callback ) throws RequestException {
+    return builder.sendRequest( null, callback );
+  }
+
+  /* Visible for testing */
+  @NonNull
+  GenericFileTree parseTreeModel( @NonNull String json ) {
+    return new GenericFileTreeJsonParser( json ).getTree();
+  }
+
   @NonNull
   private String getServiceBaseUrl() {
     return getFullyQualifiedURL() + "plugin/scheduler-plugin/api/generic-files/";
   }
 
   private String buildFetchTreeModelUrl( @Nullable String expandedPath ) {
+    return buildFetchTreeModelUrl( expandedPath, depth );
+  }
+
+  private String buildFetchTreeModelUrl( @Nullable String expandedPath, int depth ) {
     String url = getServiceBaseUrl() + "tree?"
       + "filter=FOLDERS"
       + "&depth=" + depth
@@ -164,7 +225,8 @@ public class FolderTree extends Tree {
   }
 
   protected void onTreeModelFetching() {
-    WaitPopup.getInstance().setVisible( true );
+    releaseWaitPopup();
+    treeModelFetchWait = WaitPopup.getInstance().show();
 
     clear();
     assert selectedItemLag == null : "Clear should have reset currently selected item";
@@ -176,7 +238,18 @@ public class FolderTree extends Tree {
 
     setTreeModel( treeModel, initialSelectedPath );
 
-    WaitPopup.getInstance().setVisible( false );
+    releaseWaitPopup();
+  }
+
+  protected void onTreeModelFetchFailed() {
+    releaseWaitPopup();
+  }
+
+  private void releaseWaitPopup() {
+    if ( treeModelFetchWait != null ) {
+      treeModelFetchWait.release();
+      treeModelFetchWait = null;
+    }
   }
   // endregion
 
@@ -185,6 +258,17 @@ public class FolderTree extends Tree {
 
     onSubtreeModelFetching( treeItem );
 
+    if ( prefetchTreeItems.remove( treeItem ) ) {
+      // Already being prefetched. Now marked as loading, the response is handled as if fetched for opening.
+      // Frees the prefetch slot.
+      startNextPrefetch();
+      return;
+    }
+
+    sendSubtreeModelRequest( treeItem );
+  }
+
+  private void sendSubtreeModelRequest( @NonNull FolderTreeItem treeItem ) {
     String basePath = treeItem.getFileModel().getPath();
 
     RequestBuilder builder = new RequestBuilder( RequestBuilder.GET, buildFetchSubtreeModelUrl( basePath ) );
@@ -194,26 +278,92 @@ public class FolderTree extends Tree {
     RequestCallback innerCallback = new RequestCallback() {
 
       public void onError( Request request, Throwable exception ) {
-        Window.alert( exception.toString() );
+        boolean isPrefetch = onSubtreeModelResponse( treeItem );
+        if ( !isPrefetch && treeItem.isLoading() ) {
+          Window.alert( exception.toString() );
+
+          onSubtreeModelFetched( null, treeItem );
+        }
       }
 
       public void onResponseReceived( Request request, Response response ) {
+        GenericFileTree fileTreeModel = null;
         if ( response.getStatusCode() == Response.SC_OK ) {
-          final GenericFileTreeJsonParser parser = new GenericFileTreeJsonParser( response.getText() );
-          final GenericFileTree fileTreeModel = parser.getTree();
+          fileTreeModel = parseTreeModel( response.getText() );
+        }
 
+        boolean isPrefetch = onSubtreeModelResponse( treeItem );
+        if ( treeItem.isLoading() ) {
           onSubtreeModelFetched( fileTreeModel, treeItem );
-        } else {
-          onSubtreeModelFetched( null, treeItem );
+        } else if ( isPrefetch ) {
+          onSubtreeModelPrefetched( fileTreeModel, treeItem );
         }
       }
     };
 
     try {
-      builder.sendRequest( null, innerCallback );
+      subtreeModelRequests.put( treeItem, sendRequest( builder, innerCallback ) );
     } catch ( RequestException e ) {
-      Window.alert( e.toString() );
+      prefetchTreeItems.remove( treeItem );
+      if ( treeItem.isLoading() ) {
+        Window.alert( e.toString() );
+      }
+    }
+  }
+
+  /**
+   * Updates the pending request bookkeeping when a subtree model request completes.
+   *
+   * @return <code>true</code>, if the request was a prefetch; <code>false</code>, otherwise.
+   */
+  private boolean onSubtreeModelResponse( @NonNull FolderTreeItem treeItem ) {
+    subtreeModelRequests.remove( treeItem );
+
+    boolean isPrefetch = prefetchTreeItems.remove( treeItem );
+    if ( isPrefetch ) {
+      startNextPrefetch();
+    }
+
+    return isPrefetch;
+  }
+
+  /**
+   * Cancels the pending subtree model request of a tree item, if any, e.g. when it is collapsed while loading or
+   * being refreshed. A loading tree item keeps its "Loading..." placeholder item and its children are fetched again
+   * when next opened.
+   */
+  private void cancelSubtreeModelRequest( @NonNull FolderTreeItem treeItem ) {
+    Request request = subtreeModelRequests.remove( treeItem );
+    if ( request != null ) {
+      request.cancel();
+
+      // A cancelled refresh skips the tree item, but still completes.
+      Consumer<GenericFileTree> refreshConsumer = refreshConsumers.remove( request );
+      if ( refreshConsumer != null ) {
+        refreshConsumer.accept( null );
+      }
+    }
+
+    if ( prefetchTreeItems.remove( treeItem ) ) {
+      startNextPrefetch();
+    }
+
+    treeItem.setLoading( false );
+  }
+
+  private void cancelSubtreeModelRequests() {
+    for ( Map.Entry<FolderTreeItem, Request> entry : subtreeModelRequests.entrySet() ) {
+      entry.getValue().cancel();
+      if ( entry.getKey() != null ) {
+        entry.getKey().setLoading( false );
+      }
     }
+
+    // The tree is being rebuilt, so pending refreshes are abandoned.
+    subtreeModelRequests.clear();
+    refreshConsumers.clear();
+    prefetchTreeItems.clear();
+    nextPrefetchTreeItem = null;
   }
 
   private void onSubtreeModelFetching( @NonNull FolderTreeItem treeItem ) {
@@ -242,8 +392,9 @@ public class FolderTree extends Tree {
     treeItem.removeItems();
 
     buildSolutionTree( treeItem, fileTreeModel );
+    treeItem.setChildItemsBuilt( true );
 
-    fixTreeItemsWidgets( treeItem );
+    updateFolderTreeItem( treeItem );
 
     if ( !fileTreeModel.hasChildren() ) {
       treeItem.removeStyleName( PARENT_WIDGET_STYLE_NAME );
@@ -263,6 +414,543 @@ public class FolderTree extends Tree {
   }
   // endregion
 
+  // region Prefetch
+  /**
+   * Prefetches the children of a tree item, so that opening it is usually instant.
+   * <p>
+   * Called for the tree item under the pointer and for the selected tree item, if prefetching is enabled.
+   * At most {@link #MAX_CONCURRENT_PREFETCHES} prefetch requests are pending at any time.
+   * While at the limit, only the last requested tree item is kept to be prefetched next.
+   */
+  /* Visible for testing */
+  void prefetchSubtreeModel( @NonNull FolderTreeItem treeItem ) {
+    if ( !prefetchEnabled
+      || isLoadingTreeItem( treeItem )
+      || treeItem.isLoading()
+      || treeItem.getTree() != this
+      || subtreeModelRequests.containsKey( treeItem ) ) {
+      return;
+    }
+
+    GenericFileTree treeModel = treeItem.getFileTreeModel();
+    if ( treeModel == null || treeModel.areChildrenLoaded() ) {
+      return;
+    }
+
+    if ( prefetchTreeItems.size() >= MAX_CONCURRENT_PREFETCHES ) {
+      nextPrefetchTreeItem = treeItem;
+      return;
+    }
+
+    prefetchTreeItems.add( treeItem );
+    sendSubtreeModelRequest( treeItem );
+  }
+
+  private void startNextPrefetch() {
+    FolderTreeItem treeItem = nextPrefetchTreeItem;
+    if ( treeItem != null && prefetchTreeItems.size() < MAX_CONCURRENT_PREFETCHES ) {
+      nextPrefetchTreeItem = null;
+      prefetchSubtreeModel( treeItem );
+    }
+  }
+
+  private void onSubtreeModelPrefetched( @Nullable GenericFileTree fileTreeModel, @NonNull FolderTreeItem treeItem ) {
+    if ( fileTreeModel == null || fileTreeModel.getChildren() == null || treeItem.getTree() != this ) {
+      return;
+    }
+
+    GenericFileTree treeModel = treeItem.getFileTreeModel();
+    if ( treeModel.areChildrenLoaded() ) {
+      return;
+    }
+
+    // Only update the model's children. Child tree items are built when opened.
+    treeModel.setChildren( fileTreeModel.getChildren() );
+
+    if ( isLeafTreeModel( treeModel ) ) {
+      // Remove the placeholder item, and with it, the expand/collapse arrow.
+      treeItem.removeItems();
+      treeItem.setChildItemsBuilt( true );
+
+      updateFolderTreeItem( treeItem );
+    }
+  }
+
+  public boolean isPrefetchEnabled() {
+    return prefetchEnabled;
+  }
+
+  /**
+   * Sets if the children of the tree item under the pointer, or of the selected tree item,
+   * should be fetched before it is opened.
+   * <p>
+   * Defaults to <code>false</code>.
+   *
+   * @param prefetchEnabled <code>true</code>, to prefetch children; <code>false</code>, otherwise.
+   */
+  public void setPrefetchEnabled( boolean prefetchEnabled ) {
+    this.prefetchEnabled = prefetchEnabled;
+  }
+  // endregion
+
+  // region refreshTreeModel
+  /**
+   * Refreshes the tree model differentially.
+   * <p>
+   * Unlike {@link #fetchTreeModel(AsyncCallback, String)}, which rebuilds the whole tree, only the children of the
+   * root and of the currently expanded tree items are refetched, one level each. Each fetched level is compared
+   * to the current model, by path, and only the tree items which were added, removed or changed are updated.
+   * Expansion state, selection and scroll position are preserved.
+   * <p>
+   * The loaded children of collapsed tree items are discarded and fetched again when these are next opened,
+   * including those of tree items known to be leafs, as subfolders may have been created meanwhile.
+   * <p>
+   * Falls back to a full fetch if the tree model has not been fetched yet.
+   *
+   * @param callback An optional callback, called when all expanded levels have been refreshed.
+   */
+  public void refreshTreeModel( @Nullable AsyncCallback<GenericFileTree> callback ) {
+    if ( rootTreeModel == null ) {
+      fetchTreeModel( callback );
+      return;
+    }
+
+    List<FolderTreeItem> expandedTreeItems = new ArrayList<>();
+    collectExpandedTreeItems( null, getSelectedItem(), expandedTreeItems );
+
+    // Only the loaded children of refetched tree items are carried over to their fetched models.
+    Set<String> refetchedPaths = new HashSet<>();
+    for ( FolderTreeItem expandedTreeItem : expandedTreeItems ) {
+      refetchedPaths.add( expandedTreeItem.getFileModel().getPath() );
+    }
+
+    // The root level, plus one per expanded tree item.
+    TreeModelRefresh refresh = new TreeModelRefresh( expandedTreeItems.size() + 1, getSelectedPath(), callback );
+
+    final GenericFileTree refreshedRootTreeModel = rootTreeModel;
+
+    fetchRefreshedTreeModel( null, buildFetchTreeModelUrl( null, 1 ), fetchedTreeModel -> {
+      // Ignore if, meanwhile, the whole tree model has been fetched again.
+      if ( fetchedTreeModel != null && refreshedRootTreeModel == rootTreeModel ) {
+        mergeChildTreeModels( null, rootTreeModel, fetchedTreeModel, refetchedPaths );
+      }
+
+      refresh.onLevelRefreshed();
+    } );
+
+    for ( FolderTreeItem expandedTreeItem : expandedTreeItems ) {
+      String path = expandedTreeItem.getFileModel().getPath();
+
+      fetchRefreshedTreeModel( expandedTreeItem, buildFetchSubtreeModelUrl( path ), fetchedTreeModel -> {
+        // Ignore if, meanwhile, the tree item has been removed or its children discarded.
+        if ( fetchedTreeModel != null
+          && expandedTreeItem.getTree() == this
+          && expandedTreeItem.areChildItemsBuilt() ) {
+          mergeChildTreeModels( expandedTreeItem, expandedTreeItem.getFileTreeModel(), fetchedTreeModel,
+            refetchedPaths );
+        }
+
+        refresh.onLevelRefreshed();
+      } );
+    }
+  }
+
+  /**
+   * Collects the tree items whose children should be refetched: those which are open, or are ancestors of the
+   * selected item, and whose child items are built. The loaded children of other tree items are discarded.
+   */
+  private void collectExpandedTreeItems( @Nullable FolderTreeItem parentTreeItem,
+                                         @Nullable FolderTreeItem selectedItem,
+                                         @NonNull List<FolderTreeItem> expandedTreeItems ) {
+
+    for ( FolderTreeItem childTreeItem : getChildItems( parentTreeItem ) ) {
+      if ( isLoadingTreeItem( childTreeItem ) || childTreeItem.isLoading() ) {
+        continue;
+      }
+
+      if ( childTreeItem.areChildItemsBuilt()
+        && ( childTreeItem.getState() || isAncestorTreeItem( childTreeItem, selectedItem ) ) ) {
+        expandedTreeItems.add( childTreeItem );
+
+        collectExpandedTreeItems( childTreeItem, selectedItem, expandedTreeItems );
+      } else {
+        discardChildTreeModels( childTreeItem );
+      }
+    }
+  }
+
+  private static boolean isAncestorTreeItem( @NonNull TreeItem ancestorTreeItem, @Nullable TreeItem treeItem ) {
+    TreeItem parentTreeItem = treeItem != null ? treeItem.getParentItem() : null;
+    while ( parentTreeItem != null ) {
+      if ( parentTreeItem == ancestorTreeItem ) {
+        return true;
+      }
+
+      parentTreeItem = parentTreeItem.getParentItem();
+    }
+
+    return false;
+  }
+
+  /**
+   * Marks the children of a collapsed tree item as not loaded, so that these are fetched when it is next opened.
+   * Known leafs are also discarded, so that folders which have meanwhile got subfolders show their expand arrow.
+   */
+  private void discardChildTreeModels( @NonNull FolderTreeItem treeItem ) {
+    GenericFileTree treeModel = treeItem.getFileTreeModel();
+    if ( treeModel == null || !treeModel.areChildrenLoaded() ) {
+      return;
+    }
+
+    boolean wasLeaf = isLeafTreeModel( treeModel );
+
+    treeModel.setChildren( null );
+    resetChildItems( treeItem );
+
+    if ( wasLeaf ) {
+      updateFolderTreeItem( treeItem );
+    }
+  }
+
+  /**
+   * Fetches the refreshed model of a tree item, or of the root level, if <code>null</code>. The request is tracked
+   * along with the other subtree model requests, replacing any pending one for the same tree item, so that it is
+   * cancelled when the tree is cleared or the tree item is collapsed.
+   */
+  private void fetchRefreshedTreeModel( @Nullable FolderTreeItem treeItem,
+                                        @NonNull String url,
+                                        @NonNull Consumer<GenericFileTree> consumer ) {
+    RequestBuilder builder = new RequestBuilder( RequestBuilder.GET, url );
+    builder.setHeader( "Accept", "application/json" );
+    builder.setHeader( "If-Modified-Since", "01 Jan 1970 00:00:00 GMT" );
+
+    RequestCallback innerCallback = new RequestCallback() {
+
+      public void onError( Request request, Throwable exception ) {
+        if ( onRefreshResponse( treeItem, request ) ) {
+          consumer.accept( null );
+        }
+      }
+
+      public void onResponseReceived( Request request, Response response ) {
+        if ( !onRefreshResponse( treeItem, request ) ) {
+          return;
+        }
+
+        if ( response.getStatusCode() == Response.SC_OK ) {
+          consumer.accept( parseTreeModel( response.getText() ) );
+        } else {
+          consumer.accept( null );
+        }
+      }
+    };
+
+    try {
+      Request request = sendRequest( builder, innerCallback );
+
+      Request previousRequest = subtreeModelRequests.put( treeItem, request );
+      if ( previousRequest != null ) {
+        // Superseded by this refresh.
+        previousRequest.cancel();
+        Consumer<GenericFileTree> previousConsumer = refreshConsumers.remove( previousRequest );
+        if ( previousConsumer != null ) {
+          previousConsumer.accept( null );
+        }
+      }
+
+      refreshConsumers.put( request, consumer );
+    } catch ( RequestException e ) {
+      consumer.accept( null );
+    }
+  }
+
+  /**
+   * Updates the pending request bookkeeping when a refresh request completes.
+   *
+   * @return <code>true</code>, if the request is still pending; <code>false</code>, if it was cancelled.
+   */
+  private boolean onRefreshResponse( @Nullable FolderTreeItem treeItem, @NonNull Request request ) {
+    if ( refreshConsumers.remove( request ) == null ) {
+      return false;
+    }
+
+    if ( subtreeModelRequests.get( treeItem ) == request ) {
+      subtreeModelRequests.remove( treeItem );
+    }
+
+    return true;
+  }
+
+  /**
+   * Merges the fetched children of a folder into its current model and updates the corresponding child tree items,
+   * if built. Children are matched by path. The loaded descendants of matched children are preserved only for
+   * those which are being refetched; other children take the loaded state of their fetched model, and so are
+   * revalidated when next opened.
+   *
+   * @param parentTreeItem   The parent tree item, or <code>null</code>, for the root level.
+   * @param parentTreeModel  The current model of the parent folder.
+   * @param fetchedTreeModel The freshly fetched model of the parent folder.
+   * @param refetchedPaths   The paths of the folders whose children are being refetched.
+   */
+  private void mergeChildTreeModels( @Nullable FolderTreeItem parentTreeItem,
+                                     @NonNull GenericFileTree parentTreeModel,
+                                     @NonNull GenericFileTree fetchedTreeModel,
+                                     @NonNull Set<String> refetchedPaths ) {
+
+    List<GenericFileTree> currentChildTreeModels = parentTreeModel.getChildren();
+    List<GenericFileTree> fetchedChildTreeModels = fetchedTreeModel.getChildren();
+    if ( currentChildTreeModels == null || fetchedChildTreeModels == null ) {
+      return;
+    }
+
+    boolean wasLeaf = isLeafTreeModel( parentTreeModel );
+
+    Map<String, GenericFileTree> currentChildTreeModelsByPath = new HashMap<>();
+    for ( GenericFileTree currentChildTreeModel : currentChildTreeModels ) {
+      currentChildTreeModelsByPath.put( currentChildTreeModel.getFile().getPath(), currentChildTreeModel );
+    }
+
+    for ( GenericFileTree fetchedChildTreeModel : fetchedChildTreeModels ) {
+      String path = fetchedChildTreeModel.getFile().getPath();
+      GenericFileTree currentChildTreeModel = currentChildTreeModelsByPath.get( path );
+      if ( currentChildTreeModel != null
+        && currentChildTreeModel.areChildrenLoaded()
+        && refetchedPaths.contains( path ) ) {
+        // Descendants of expanded children are refreshed separately.
+        fetchedChildTreeModel.setChildren( currentChildTreeModel.getChildren() );
+      }
+    }
+
+    fetchedChildTreeModels.sort( getTreeModelComparator() );
+    parentTreeModel.setChildren( fetchedChildTreeModels );
+
+    if ( parentTreeItem != null ? !parentTreeItem.areChildItemsBuilt() : !shouldShowFileTreeModel( parentTreeModel ) ) {
+      return;
+    }
+
+    Map<String, FolderTreeItem> childTreeItemsByPath = new HashMap<>();
+    for ( FolderTreeItem childTreeItem : getChildItems( parentTreeItem ) ) {
+      if ( !isLoadingTreeItem( childTreeItem ) ) {
+        childTreeItemsByPath.put( childTreeItem.getFileModel().getPath(), childTreeItem );
+      }
+    }
+
+    List<GenericFileTree> shownChildTreeModels = new ArrayList<>();
+    for ( GenericFileTree childTreeModel : fetchedChildTreeModels ) {
+      // Excludes non-folders and, when !showHiddenFiles, also hidden folders.
+      if ( shouldShowFileTreeModel( childTreeModel ) ) {
+        shownChildTreeModels.add( childTreeModel );
+      }
+    }
+
+    // Remove the tree items of folders which no longer exist or should no longer be shown.
+    Set<String> shownPaths = new HashSet<>();
+    for ( GenericFileTree childTreeModel : shownChildTreeModels ) {
+      shownPaths.add( childTreeModel.getFile().getPath() );
+    }
+
+    Iterator<Map.Entry<String, FolderTreeItem>> entryIterator = childTreeItemsByPath.entrySet().iterator();
+    while ( entryIterator.hasNext() ) {
+      Map.Entry<String, FolderTreeItem> entry = entryIterator.next();
+      if ( !shownPaths.contains( entry.getKey() ) ) {
+        entry.getValue().remove();
+        entryIterator.remove();
+      }
+    }
+
+    // Update, move or insert the remaining tree items, in sort order.
+    int itemIndex = 0;
+    for ( GenericFileTree childTreeModel : shownChildTreeModels ) {
+      FolderTreeItem childTreeItem = childTreeItemsByPath.get( childTreeModel.getFile().getPath() );
+      if ( childTreeItem == null ) {
+        insertChildItem( parentTreeItem, itemIndex, buildFolderTreeItem( childTreeModel ) );
+      } else {
+        boolean isChanged = isPresentationChanged( childTreeItem.getFileModel(), childTreeModel.getFile() )
+          || isLeafTreeModel( childTreeItem.getFileTreeModel() ) != isLeafTreeModel( childTreeModel );
+
+        childTreeItem.setFileTreeModel( childTreeModel );
+        if ( !refetchedPaths.contains( childTreeModel.getFile().getPath() ) ) {
+          syncChildItems( childTreeItem );
+        }
+
+        if ( isChanged ) {
+          updateFolderTreeItem( childTreeItem );
+        }
+
+        if ( getChildItem( parentTreeItem, itemIndex ) != childTreeItem ) {
+          childTreeItem.remove();
+          insertChildItem( parentTreeItem, itemIndex, childTreeItem );
+        }
+      }
+
+      itemIndex++;
+    }
+
+    if ( parentTreeItem != null && wasLeaf != isLeafTreeModel( parentTreeModel ) ) {
+      updateFolderTreeItem( parentTreeItem );
+    }
+  }
+
+  /**
+   * Makes the child tree items of a tree item, which is not being refetched, match the loaded state of its model:
+   * a placeholder, if its children are not loaded, or none, if it is known to be a leaf.
+   * Tree items whose children are being loaded are left as is.
+   */
+  private void syncChildItems( @NonNull FolderTreeItem treeItem ) {
+    GenericFileTree treeModel = treeItem.getFileTreeModel();
+    if ( treeItem.isLoading() ) {
+      return;
+    }
+
+    if ( !treeModel.areChildrenLoaded() ) {
+      resetChildItems( treeItem );
+    } else if ( isLeafTreeModel( treeModel ) && !treeItem.areChildItemsBuilt() ) {
+      treeItem.removeItems();
+      treeItem.setChildItemsBuilt( true );
+    }
+  }
+
+  /**
+   * Replaces the child tree items of a tree item, whose children are no longer loaded, by a placeholder, so that it
+   * shows the expand/collapse arrow and its children are fetched when opened. Known leafs, which were built without a
+   * placeholder, get one as well.
+   */
+  private void resetChildItems( @NonNull FolderTreeItem treeItem ) {
+    if ( treeItem.areChildItemsBuilt() ) {
+      treeItem.removeItems();
+      treeItem.setChildItemsBuilt( false );
+    }
+
+    if ( treeItem.getChildCount() == 0 ) {
+      treeItem.addItem( buildLoadingTreeItem() );
+    }
+  }
+
+  private static boolean isPresentationChanged( @NonNull GenericFile currentFileModel,
+                                                @NonNull GenericFile fetchedFileModel ) {
+    return !Objects.equals( currentFileModel.getName(), fetchedFileModel.getName() )
+      || !Objects.equals( currentFileModel.getNameDecoded(), fetchedFileModel.getNameDecoded() )
+      || !Objects.equals( currentFileModel.getTitle(), fetchedFileModel.getTitle() )
+      || !Objects.equals( currentFileModel.getDescription(), fetchedFileModel.getDescription() )
+      || currentFileModel.isHidden() != fetchedFileModel.isHidden();
+  }
+
+  private class TreeModelRefresh {
+    private int pendingLevelCount;
+
+    @Nullable
+    private final String selectedPath;
+
+    @Nullable
+    private final AsyncCallback<GenericFileTree> callback;
+
+    TreeModelRefresh( int pendingLevelCount,
+                      @Nullable String selectedPath,
+                      @Nullable AsyncCallback<GenericFileTree> callback ) {
+      this.pendingLevelCount = pendingLevelCount;
+      this.selectedPath = selectedPath;
+      this.callback = callback;
+    }
+
+    void onLevelRefreshed() {
+      if ( --pendingLevelCount > 0 ) {
+        return;
+      }
+
+      // Restore the selection, if the selected tree item was removed or moved.
+      if ( getSelectedItem() == null && selectedPath != null ) {
+        selectNearest( selectedPath );
+      }
+
+      if ( callback != null ) {
+        callback.onSuccess( rootTreeModel );
+      }
+    }
+  }
+  // endregion
+
+  // region insertTreeModel
+  /**
+   * Inserts a file tree model as a child of the tree item having the given parent path, and selects it.
+   * <p>
+   * The model and the tree items are updated locally, without a network round trip, which is useful to reflect
+   * a folder which was just created. The new tree item is placed according to the sort order of
+   * {@link GenericFileTreeComparator}.
+   * <p>
+   * Nothing is inserted if the parent tree item is not found, if its children are not loaded yet, or if the given
+   * model should not be shown.
+   *
+   * @param parentPath     The path of the parent folder.
+   * @param childTreeModel The file tree model to insert.
+   * @return The inserted (or already existing) tree item, if any; <code>null</code>, otherwise.
+   */
+  @Nullable
+  public FolderTreeItem insertTreeModel( @NonNull String parentPath, @NonNull GenericFileTree childTreeModel ) {
+    FolderTreeItem parentTreeItem = findTreeItem( parentPath );
+    if ( parentTreeItem == null || parentTreeItem.isLoading() || !shouldShowFileTreeModel( childTreeModel ) ) {
+      return null;
+    }
+
+    GenericFileTree parentTreeModel = parentTreeItem.getFileTreeModel();
+    if ( parentTreeModel == null || !parentTreeModel.areChildrenLoaded() ) {
+      return null;
+    }
+
+    // Build the existing child items first, so that the new item is not added twice when these are built later.
+    ensureChildTreeItems( parentTreeItem );
+
+    // Already there? Possibly inserted by a concurrent refresh.
+    FolderTreeItem childTreeItem = findTreeItem( childTreeModel.getFile().getPath() );
+    if ( childTreeItem == null ) {
+      childTreeItem = insertChildTreeItem( parentTreeItem, childTreeModel );
+    }
+
+    setSelectedItem( childTreeItem, true );
+
+    return childTreeItem;
+  }
+
+  @NonNull
+  private FolderTreeItem insertChildTreeItem( @NonNull FolderTreeItem parentTreeItem,
+                                              @NonNull GenericFileTree childTreeModel ) {
+
+    GenericFileTree parentTreeModel = parentTreeItem.getFileTreeModel();
+    boolean wasLeaf = isLeafTreeModel( parentTreeModel );
+
+    Comparator<GenericFileTree> comparator = getTreeModelComparator();
+
+    // Keep the model sorted, just like buildSolutionTree does.
+    List<GenericFileTree> siblingTreeModels = parentTreeModel.getChildren();
+    int modelIndex = 0;
+    while ( modelIndex < siblingTreeModels.size()
+      && comparator.compare( siblingTreeModels.get( modelIndex ), childTreeModel ) <= 0 ) {
+      modelIndex++;
+    }
+    siblingTreeModels.add( modelIndex, childTreeModel );
+
+    // Tree items are a filtered view of the model, so find the item index independently.
+    int itemIndex = 0;
+    for ( FolderTreeItem siblingTreeItem : parentTreeItem.getChildItems() ) {
+      if ( isLoadingTreeItem( siblingTreeItem )
+        || comparator.compare( siblingTreeItem.getFileTreeModel(), childTreeModel ) > 0 ) {
+        break;
+      }
+      itemIndex++;
+    }
+
+    FolderTreeItem childTreeItem = buildFolderTreeItem( childTreeModel );
+
+    parentTreeItem.insertItem( itemIndex, childTreeItem );
+
+    if ( wasLeaf ) {
+      // The parent item now has a child folder, so it needs the expand/collapse arrow.
+      updateFolderTreeItem( parentTreeItem );
+    }
+
+    return childTreeItem;
+  }
+  // endregion
+
   // region Loading Tree Item
   @NonNull
   private GenericFileTree buildLoadingTreeModel() {
@@ -380,47 +1068,43 @@ public class FolderTree extends Tree {
     }
   }
 
-  // region fixTreeItemsWidgets et al.
-  private void fixTreeItemsWidgets() {
-    traverseTreeItems( this::fixTreeItemWidget );
-  }
-
-  private void fixTreeItemsWidgets( @NonNull FolderTreeItem treeItem ) {
-    traverseTreeItems( treeItem, this::fixTreeItemWidget );
-  }
-
-  private void fixTreeItemWidget( @NonNull FolderTreeItem treeItem ) {
-    GenericFileTree fileTreeModel = treeItem.getFileTreeModel();
-
-    LeafItemWidget leafWidget;
-    String itemText = treeItem.getText();
-    if ( fileTreeModel != null && ( fileTreeModel.areChildrenLoaded() && !fileTreeModel.hasChildren() ) ) {
-      leafWidget = new LeafItemWidget(
-        itemText, "icon-tree-node", "icon-tree-leaf", "icon-folder", "icon-zoomable" );
-    } else {
-      leafWidget = new LeafItemWidget( itemText, "icon-tree-node", "icon-folder", "icon-zoomable" );
+  // region Tree item widgets
+  /* Visible for testing */
+  @NonNull
+  LeafItemWidget buildTreeItemWidget( @NonNull GenericFileTree fileTreeModel, String itemText ) {
+    if ( isLeafTreeModel( fileTreeModel ) ) {
+      return new LeafItemWidget( itemText, "icon-tree-node", "icon-tree-leaf", "icon-folder", "icon-zoomable" );
     }
 
-    treeItem.setWidget( leafWidget );
-
-    treeItem.getElement().getStyle().setProperty( "paddingLeft", "0px" );
+    return new LeafItemWidget( itemText, "icon-tree-node", "icon-folder", "icon-zoomable" );
   }
 
-  private void traverseTreeItems( @NonNull Consumer<FolderTreeItem> consumer ) {
-    for ( int i = 0; i < getItemCount(); i++ ) {
-      traverseTreeItems( (FolderTreeItem) getItem( i ), consumer );
-    }
+  /**
+   * Gets the sort order of sibling file tree models, as shown in the tree.
+   */
+  /* Visible for testing */
+  @NonNull
+  Comparator<GenericFileTree> getTreeModelComparator() {
+    return new GenericFileTreeComparator( showLocalizedFileNames );
   }
 
-  private void traverseTreeItems( @NonNull FolderTreeItem treeItem, @NonNull Consumer<FolderTreeItem> consumer ) {
-
-    if ( !isLoadingTreeItem( treeItem ) ) {
-      consumer.accept( treeItem );
+  /**
+   * Indicates if a file tree model is known to have no child folders which should be shown.
+   * Models whose children are not loaded yet are not considered leafs.
+   */
+  private boolean isLeafTreeModel( @NonNull GenericFileTree fileTreeModel ) {
+    List<GenericFileTree> childTreeModels = fileTreeModel.getChildren();
+    if ( childTreeModels == null ) {
+      return false;
     }
 
-    for ( int i = 0; i < treeItem.getChildCount(); i++ ) {
-      traverseTreeItems( (FolderTreeItem) treeItem.getChild( i ), consumer );
+    for ( GenericFileTree childTreeModel : childTreeModels ) {
+      if ( shouldShowFileTreeModel( childTreeModel ) ) {
+        return false;
+      }
     }
+
+    return true;
   }
   // endregion
 
@@ -438,6 +1122,11 @@ public class FolderTree extends Tree {
       return parentTreeItem;
     }
 
+    if ( parentTreeItem != null ) {
+      // Descending into a tree item which may not have been opened yet.
+      ensureChildTreeItems( parentTreeItem );
+    }
+
     for ( FolderTreeItem childTreeItem : getChildItems( parentTreeItem ) ) {
       FolderTreeItem foundTreeItem = matchTreeItemRecursive( childTreeItem, pathSegments, level );
       if ( foundTreeItem != null ) {
@@ -514,6 +1203,25 @@ public class FolderTree extends Tree {
     return null;
   }
 
+  /**
+   * Selects the tree item having the given path or, if it does not exist, its nearest existing ancestor.
+   */
+  @Nullable
+  protected TreeItem selectNearest( @NonNull String path ) {
+    String nearestPath = path;
+    while ( !StringUtils.isEmpty( nearestPath ) ) {
+      TreeItem treeItem = findTreeItem( nearestPath );
+      if ( treeItem != null ) {
+        setSelectedItem( treeItem, true );
+        return treeItem;
+      }
+
+      nearestPath = GenericFileNameUtils.getParentPath( nearestPath );
+    }
+
+    return select( path );
+  }
+
   @Nullable
   public GenericFile getSelectedFileModel() {
     final FolderTreeItem selectedItem = getSelectedItem();
@@ -549,6 +1257,9 @@ public class FolderTree extends Tree {
         styleUIObject.removeStyleDependentName( HIDDEN_STYLE_NAME );
       }
 
+      // Keyboard focus follows selection.
+      prefetchSubtreeModel( selectedItemLag );
+
       // TODO: Still not working in all cases. Just on arrow keys... Not working on initial loading.
       Scheduler.get().scheduleDeferred( (Command) () -> {
         FolderTreeItem selectedItem = getSelectedItem();
@@ -586,7 +1297,8 @@ public class FolderTree extends Tree {
   }
   // endregion
 
-  private void handleOpen( OpenEvent<TreeItem> event ) {
+  /* Visible for testing */
+  void handleOpen( OpenEvent<TreeItem> event ) {
     if ( !( event.getTarget() instanceof FolderTreeItem ) ) {
       return;
     }
@@ -594,15 +1306,28 @@ public class FolderTree extends Tree {
     FolderTreeItem openingTreeItem = (FolderTreeItem) event.getTarget();
     if ( !openingTreeItem.isLoading() ) {
       GenericFileTree treeModel = openingTreeItem.getFileTreeModel();
-      if ( treeModel != null && !treeModel.areChildrenLoaded() ) {
-        fetchSubtreeModel( openingTreeItem );
+      if ( treeModel != null ) {
+        if ( treeModel.areChildrenLoaded() ) {
+          ensureChildTreeItems( openingTreeItem );
+        } else {
+          fetchSubtreeModel( openingTreeItem );
+        }
       }
     }
 
     openingTreeItem.addStyleName( OPEN_STYLE_NAME );
   }
 
-  private void handleClose( CloseEvent<TreeItem> event ) {
+  /* Visible for testing */
+  void handleClose( CloseEvent<TreeItem> event ) {
+    if ( event.getTarget() instanceof FolderTreeItem ) {
+      FolderTreeItem closingTreeItem = (FolderTreeItem) event.getTarget();
+      if ( closingTreeItem.isLoading() || subtreeModelRequests.containsKey( closingTreeItem ) ) {
+        // No longer needed.
+        cancelSubtreeModelRequest( closingTreeItem );
+      }
+    }
+
     event.getTarget().removeStyleName( OPEN_STYLE_NAME );
   }
 
@@ -615,8 +1340,6 @@ public class FolderTree extends Tree {
 
     if ( shouldShowFileTreeModel( rootTreeModel ) ) {
       buildSolutionTree( this, rootTreeModel );
-
-      fixTreeItemsWidgets();
     }
   }
 
@@ -625,6 +1348,12 @@ public class FolderTree extends Tree {
     return fileModel.isFolder() && ( !fileModel.isHidden() || isShowHiddenFiles() );
   }
 
+  /**
+   * Builds the tree items of the direct children of the given file tree model.
+   * <p>
+   * Deeper levels are built only when their parent tree item is first opened or searched,
+   * via {@link #ensureChildTreeItems(FolderTreeItem)}.
+   */
   private void buildSolutionTree( @NonNull HasTreeItems treeItem, @NonNull GenericFileTree treeModel ) {
 
     List<GenericFileTree> childTreeModels = treeModel.getChildren();
@@ -632,15 +1361,12 @@ public class FolderTree extends Tree {
     // Children loaded?
     if ( childTreeModels != null ) {
       // BISERVER-9599 - Custom Sort
-      childTreeModels.sort( new GenericFileTreeComparator( showLocalizedFileNames ) );
+      childTreeModels.sort( getTreeModelComparator() );
 
       for ( GenericFileTree childTreeModel : childTreeModels ) {
         // Excludes non-folders and, when !showHiddenFiles, also hidden folders.
         if ( shouldShowFileTreeModel( childTreeModel ) ) {
-          FolderTreeItem childTreeItem = buildFolderTreeItem( childTreeModel );
-          treeItem.addItem( childTreeItem );
-
-          buildSolutionTree( childTreeItem, childTreeModel );
+          treeItem.addItem( buildFolderTreeItem( childTreeModel ) );
         }
       }
     } else {
@@ -648,33 +1374,82 @@ public class FolderTree extends Tree {
     }
   }
 
+  /**
+   * Builds the child tree items of a tree item whose children are loaded in the model,
+   * if not built already, replacing its placeholder tree item.
+   */
+  private void ensureChildTreeItems( @NonNull FolderTreeItem treeItem ) {
+    if ( treeItem.areChildItemsBuilt() || treeItem.isLoading() || isLoadingTreeItem( treeItem ) ) {
+      return;
+    }
+
+    GenericFileTree treeModel = treeItem.getFileTreeModel();
+    if ( treeModel == null || !treeModel.areChildrenLoaded() ) {
+      return;
+    }
+
+    treeItem.removeItems();
+
+    buildSolutionTree( treeItem, treeModel );
+    treeItem.setChildItemsBuilt( true );
+  }
+
   @NonNull
   private FolderTreeItem buildFolderTreeItem( @NonNull GenericFileTree fileTreeModel ) {
     GenericFile fileModel = fileTreeModel.getFile();
 
     assert !fileModel.isGroupFolder() : "Folder tree item should not be mapped to group folder";
 
-    String name = fileModel.getNameDecoded();
-    String title = fileModel.getTitleOrNameDecoded();
-    String description = fileModel.getDescription();
-
-    FolderTreeItem treeItem = new FolderTreeItem();
+    FolderTreeItem treeItem = createFolderTreeItem();
     treeItem.setFileTreeModel( fileTreeModel );
 
     treeItem.getElement().setAttribute( "id", fileModel.getPath() );
     treeItem.setStylePrimaryName( LEAF_WIDGET_STYLE_NAME );
-    if ( !fileTreeModel.areChildrenLoaded() || fileTreeModel.hasChildFolders() ) {
+
+    if ( !isLeafTreeModel( fileTreeModel ) ) {
+      // Child tree items are built when first opened. Until then, a placeholder lets the expand arrow render.
+      treeItem.addItem( buildLoadingTreeItem() );
+    }
+
+    ElementUtils.killAllTextSelection( treeItem.getElement() );
+
+    updateFolderTreeItem( treeItem );
+
+    return treeItem;
+  }
+
+  /* Visible for testing */
+  @NonNull
+  FolderTreeItem createFolderTreeItem() {
+    return new FolderTreeItem();
+  }
+
+  /**
+   * Updates the styles, tooltip and widget of a tree item to reflect its current file tree model.
+   */
+  private void updateFolderTreeItem( @NonNull FolderTreeItem treeItem ) {
+    GenericFileTree fileTreeModel = treeItem.getFileTreeModel();
+    GenericFile fileModel = fileTreeModel.getFile();
+
+    String name = fileModel.getNameDecoded();
+    String title = fileModel.getTitleOrNameDecoded();
+    String description = fileModel.getDescription();
+
+    if ( isLeafTreeModel( fileTreeModel ) ) {
+      treeItem.removeStyleName( PARENT_WIDGET_STYLE_NAME );
+    } else {
       treeItem.addStyleName( PARENT_WIDGET_STYLE_NAME );
     }
 
     if ( fileModel.isHidden() ) {
       treeItem.addStyleDependentName( HIDDEN_STYLE_NAME );
+    } else {
+      treeItem.removeStyleDependentName( HIDDEN_STYLE_NAME );
     }
 
-    ElementUtils.killAllTextSelection( treeItem.getElement() );
-
+    String text;
     if ( showLocalizedFileNames ) {
-      treeItem.setText( title );
+      text = title;
 
       if ( isUseDescriptionsForTooltip() && !StringUtils.isEmpty( description ) ) {
         treeItem.setTitle( description );
@@ -682,7 +1457,7 @@ public class FolderTree extends Tree {
         treeItem.setTitle( name );
       }
     } else {
-      treeItem.setText( name );
+      text = name;
 
       if ( isUseDescriptionsForTooltip() && !StringUtils.isEmpty( description ) ) {
         treeItem.setTitle( description );
@@ -691,7 +1466,11 @@ public class FolderTree extends Tree {
       }
     }
 
-    return treeItem;
+    LeafItemWidget leafWidget = buildTreeItemWidget( fileTreeModel, text );
+    leafWidget.addDomHandler( event -> prefetchSubtreeModel( treeItem ), MouseOverEvent.getType() );
+
+    treeItem.setWidget( leafWidget );
+    treeItem.getElement().getStyle().setProperty( "paddingLeft", "0px" );
   }
   // endregion
 
@@ -778,6 +1557,25 @@ public class FolderTree extends Tree {
     return parentTreeItem != null ? parentTreeItem.getChildItems() : getChildItems();
   }
 
+  @Nullable
+  private TreeItem getChildItem( @Nullable FolderTreeItem parentTreeItem, int index ) {
+    int count = parentTreeItem != null ? parentTreeItem.getChildCount() : getItemCount();
+    if ( index >= count ) {
+      return null;
+    }
+
+    return parentTreeItem != null ? parentTreeItem.getChild( index ) : getItem( index );
+  }
+
+  private void insertChildItem( @Nullable FolderTreeItem parentTreeItem, int beforeIndex,
+                                @NonNull FolderTreeItem childTreeItem ) {
+    if ( parentTreeItem != null ) {
+      parentTreeItem.insertItem( beforeIndex, childTreeItem );
+    } else {
+      insertItem( beforeIndex, childTreeItem );
+    }
+  }
+
   private static class FolderTreeItemIterable implements Iterable<FolderTreeItem> {
     @NonNull
     private final FolderTree parentTree;
@@ -30,6 +30,8 @@ public class FolderTreeItem extends TreeItem {
 
   private boolean isLoading;
 
+  private boolean childItemsBuilt;
+
   public FolderTreeItem() {
   }
 
@@ -100,6 +102,21 @@ public class FolderTreeItem extends TreeItem {
     }
   }
 
+  /**
+   * Indicates if the child tree items have been built from the children of the file tree model.
+   * <p>
+   * While not built, the tree item may contain a single placeholder child item.
+   *
+   * @return <code>true</code>, if the child tree items have been built; <code>false</code>, otherwise.
+   */
+  public boolean areChildItemsBuilt() {
+    return childItemsBuilt;
+  }
+
+  public void setChildItemsBuilt( boolean childItemsBuilt ) {
+    this.childItemsBuilt = childItemsBuilt;
+  }
+
   private static class FolderTreeItemIterable implements Iterable<FolderTreeItem> {
     @NonNull
     private final TreeItem parentTreeItem;
@@ -29,11 +29,14 @@ import org.pentaho.gwt.widgets.client.dialogs.MessageDialogBox;
 import org.pentaho.gwt.widgets.client.dialogs.PromptDialogBox;
 import org.pentaho.gwt.widgets.client.genericfile.GenericFile;
 import org.pentaho.gwt.widgets.client.genericfile.GenericFileNameUtils;
+import org.pentaho.gwt.widgets.client.genericfile.GenericFileTree;
 import org.pentaho.gwt.widgets.client.ui.ICallback;
 import org.pentaho.mantle.client.commands.AbstractCommand;
 import org.pentaho.mantle.client.csrf.CsrfRequestBuilder;
 import org.pentaho.mantle.client.messages.Messages;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Objects;
 
 import static org.pentaho.mantle.client.environment.EnvironmentHelper.getFullyQualifiedURL;
@@ -85,6 +88,38 @@ public class NewFolderCommand extends AbstractCommand {
     this.callback = callback;
   }
 
+  @NonNull
+  public GenericFile getParentFolder() {
+    return parentFolder;
+  }
+
+  /**
+   * Builds the file tree model of a folder created by this command, as a child of the parent folder.
+   * <p>
+   * Allows the caller to reflect the new folder locally, without fetching it from the server.
+   * The new folder is known to have no children.
+   *
+   * @param folderPath The path of the created folder, as passed to the callback.
+   * @return The file tree model of the created folder.
+   */
+  @NonNull
+  public GenericFileTree buildFolderTreeModel( @NonNull String folderPath ) {
+    GenericFile fileModel = new GenericFile();
+    fileModel.setName( folderPath.substring( folderPath.lastIndexOf( GenericFileNameUtils.PATH_SEPARATOR ) + 1 ) );
+    fileModel.setPath( folderPath );
+    fileModel.setParentPath( parentFolder.getPath() );
+    fileModel.setProvider( parentFolder.getProvider() );
+    fileModel.setType( GenericFile.TYPE_FOLDER );
+    fileModel.setModifiedDate( new Date() );
+    // Could create the folder in the parent, so can most likely create folders in the new folder as well.
+    fileModel.setCanAddChildren( parentFolder.isCanAddChildren() );
+
+    GenericFileTree fileTreeModel = new GenericFileTree( fileModel );
+    fileTreeModel.setChildren( new ArrayList<>() );
+
+    return fileTreeModel;
+  }
+
   protected void performOperation() {
     performOperation( true );
   }
@@ -22,6 +22,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import org.pentaho.gwt.widgets.client.dialogs.PromptDialogBox;
 import org.pentaho.gwt.widgets.client.genericfile.GenericFile;
+import org.pentaho.gwt.widgets.client.genericfile.GenericFileTree;
 import org.pentaho.gwt.widgets.client.panel.VerticalFlexPanel;
 import org.pentaho.gwt.widgets.client.toolbar.Toolbar;
 import org.pentaho.gwt.widgets.client.toolbar.ToolbarButton;
@@ -106,7 +107,9 @@ public class SelectFolderDialog extends PromptDialogBox {
       GenericFile selectedFileModel = tree.getSelectedFileModel();
       if ( selectedFileModel != null ) {
         NewFolderCommand newFolderCommand = new NewFolderCommand( selectedFileModel );
-        newFolderCommand.setCallback( this::fetchModel );
+        newFolderCommand.setCallback(
+          folderPath -> onFolderCreated( newFolderCommand.getParentFolder(),
+            newFolderCommand.buildFolderTreeModel( folderPath ) ) );
         newFolderCommand.execute();
       }
     } );
@@ -123,7 +126,8 @@ public class SelectFolderDialog extends PromptDialogBox {
     button.setCommand( () -> {
       // Refresh command applies regardless of selection.
       RefreshFolderTreeCommand refreshFolderCommand = new RefreshFolderTreeCommand();
-      refreshFolderCommand.setCallback( nothing -> fetchModel( null ) );
+      // Only refetch the expanded levels, preserving expansion state and selection.
+      refreshFolderCommand.setCallback( nothing -> tree.refreshTreeModel( null ) );
       refreshFolderCommand.execute();
     } );
 
@@ -154,8 +158,22 @@ public class SelectFolderDialog extends PromptDialogBox {
     return selectedPath != null ? selectedPath : defaultSelectedPath;
   }
 
+  /* Visible for testing */
+  FolderTree getTree() {
+    return tree;
+  }
+
   private void fetchModel( String selectedPath ) {
-    tree.fetchTreeModel( null, selectedPath );
+    getTree().fetchTreeModel( null, selectedPath );
+  }
+
+  /* Visible for testing */
+  void onFolderCreated( @NonNull GenericFile parentFolder, @NonNull GenericFileTree folderTreeModel ) {
+    // Insert the new folder locally, to avoid refetching the whole tree.
+    // Falls back to refetching if the parent folder is not displayed or its children are not loaded.
+    if ( getTree().insertTreeModel( parentFolder.getPath(), folderTreeModel ) == null ) {
+      fetchModel( folderTreeModel.getFile().getPath() );
+    }
   }
 
   @Override
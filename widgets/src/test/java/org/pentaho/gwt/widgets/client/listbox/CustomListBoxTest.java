@@ -15,6 +15,7 @@ package org.pentaho.gwt.widgets.client.listbox;
 
 import com.allen_sauer.gwt.dnd.client.DragController;
 import com.google.gwt.dom.client.Style;
+import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.user.client.Element;
 import com.google.gwt.user.client.Event;
 import com.google.gwt.user.client.ui.ChangeListener;
@@ -22,30 +23,44 @@ import com.google.gwt.user.client.ui.FlexTable;
 import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.PopupPanel;
 import com.google.gwt.user.client.ui.ScrollPanel;
+import com.google.gwt.user.client.ui.SimplePanel;
 import com.google.gwt.user.client.ui.TextBox;
+import com.google.gwt.user.client.ui.VerticalPanel;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.gwtmockito.GwtMockitoTestRunner;
 import com.google.gwtmockito.WithClassesToStub;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.pentaho.gwt.widgets.client.panel.PentahoFocusPanel;
 import org.pentaho.gwt.widgets.client.text.SearchTextBox;
+import org.pentaho.gwt.widgets.client.utils.Rectangle;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyChar;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -64,6 +79,16 @@ public class CustomListBoxTest {
   @Mock
   private Label selectedItemPlaceholder;
 
+  // The panels, and the scroll position, of the virtualized list.
+  private VerticalPanel virtualPanel;
+  private List<Widget> virtualRendered;
+  private ScrollPanel virtualScrollPanel;
+  private ScrollHandler virtualScrollHandler;
+  private int scrollPosition;
+
+  // The current time, for type-ahead.
+  private long typeAheadTime;
+
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks( this );
@@ -121,7 +146,8 @@ public class CustomListBoxTest {
   public void testRemoveAll() throws Exception {
     doCallRealMethod().when( customListBox ).removeAll();
 
-    customListBox.selectedItems = mock( List.class );
+    customListBox.selection = new BitSet();
+    customListBox.selection.set( 1 );
 
     customListBox.suppressLayout = true;
     customListBox.selectedIndex = 1;
@@ -132,22 +158,48 @@ public class CustomListBoxTest {
     customListBox.removeAll();
 
     verify( customListBox.items ).clear();
-    verify( customListBox.selectedItems ).clear();
+    assertTrue( customListBox.selection.isEmpty() );
     assertEquals( -1, customListBox.selectedIndex );
     verify( changeListener, never() ).onChange( customListBox );
     verify( customListBox, never() ).updateUI();
 
     customListBox.suppressLayout = false;
     customListBox.selectedIndex = 1;
+    customListBox.selection.set( 1 );
     customListBox.removeAll();
 
     verify( customListBox.items, times( 2 ) ).clear();
-    verify( customListBox.selectedItems, times( 2 ) ).clear();
+    assertTrue( customListBox.selection.isEmpty() );
     assertEquals( -1, customListBox.selectedIndex );
     verify( changeListener ).onChange( customListBox );
     verify( customListBox ).updateUI();
   }
 
+  @Test
+  @SuppressWarnings( "deprecation" )
+  public void testSelectedItems() {
+    final ListItem item0 = mock( ListItem.class );
+    final ListItem item1 = mock( ListItem.class );
+    final ListItem item2 = mock( ListItem.class );
+    customListBox.items = new ArrayList<ListItem>( Arrays.asList( item0, item1, item2 ) );
+    customListBox.selection = new BitSet();
+    customListBox.selectedItems = customListBox.new SelectedItems();
+
+    customListBox.selection.set( 2 );
+    customListBox.selectedItems.add( item0 );
+    assertEquals( Arrays.asList( item0, item2 ), customListBox.selectedItems );
+    assertTrue( customListBox.selectedItems.contains( item2 ) );
+    assertFalse( customListBox.selectedItems.contains( item1 ) );
+
+    customListBox.selectedItems.remove( item2 );
+    assertEquals( 1, customListBox.selection.cardinality() );
+    assertTrue( customListBox.selection.get( 0 ) );
+
+    customListBox.selectedItems.clear();
+    assertTrue( customListBox.selection.isEmpty() );
+    assertTrue( customListBox.selectedItems.isEmpty() );
+  }
+
   // region addItem( ListItem )
   @Test
   public void testAddItem_ListItem() {
@@ -279,6 +331,89 @@ public class CustomListBoxTest {
   }
   // endregion addItem( String )
 
+  // region bulk items
+  @Test
+  public void testSetItems() {
+    doCallRealMethod().when( customListBox ).setItems( any( List.class ) );
+
+    final ListItem item1 = mock( ListItem.class );
+    final ListItem item2 = mock( ListItem.class );
+    final ChangeListener changeListener = mock( ChangeListener.class );
+    customListBox.listeners = new LinkedList<ChangeListener>() { {
+      add( changeListener );
+    } };
+    customListBox.selection = new BitSet();
+    customListBox.selectedIndex = 3;
+    customListBox.visible = 1;
+
+    customListBox.setItems( Arrays.asList( item1, item2 ) );
+
+    assertEquals( Arrays.asList( item1, item2 ), customListBox.items );
+    verify( item1 ).setListItemListener( customListBox );
+    verify( item2 ).setListItemListener( customListBox );
+    verify( customListBox ).setSelectedIndex( 0 );
+    verify( customListBox, times( 1 ) ).updateUI();
+  }
+
+  @Test
+  public void testSetItems_suppressLayout() {
+    doCallRealMethod().when( customListBox ).setItems( any( List.class ) );
+
+    customListBox.selection = new BitSet();
+    customListBox.suppressLayout = true;
+
+    customListBox.setItems( Arrays.asList( mock( ListItem.class ) ) );
+
+    assertEquals( 1, customListBox.items.size() );
+    verify( customListBox, never() ).setSelectedIndex( anyInt() );
+    verify( customListBox, never() ).updateUI();
+  }
+
+  @Test
+  public void testAddItems() {
+    doCallRealMethod().when( customListBox ).addItems( any( Collection.class ) );
+
+    final ListItem item1 = mock( ListItem.class );
+    final ListItem item2 = mock( ListItem.class );
+    final ChangeListener changeListener = mock( ChangeListener.class );
+    customListBox.listeners = new LinkedList<ChangeListener>() { {
+      add( changeListener );
+    } };
+    customListBox.items = new ArrayList<>();
+    customListBox.selectedIndex = 0;
+
+    customListBox.addItems( Arrays.asList( item1, item2 ) );
+
+    assertEquals( Arrays.asList( item1, item2 ), customListBox.items );
+    verify( changeListener, times( 1 ) ).onChange( customListBox );
+    verify( customListBox, times( 1 ) ).updateUI();
+
+    customListBox.addItems( new ArrayList<>() );
+
+    verify( changeListener, times( 1 ) ).onChange( customListBox );
+    verify( customListBox, times( 1 ) ).updateUI();
+  }
+
+  @Test
+  public void testSetItems_valuesAndLabels() {
+    doCallRealMethod().when( customListBox ).setItems( any( Object[].class ), any( String[].class ) );
+
+    customListBox.selection = new BitSet();
+    customListBox.suppressLayout = true;
+
+    customListBox.setItems( new Object[] { 1, 2, 3 }, new String[] { "one", "two", "three" } );
+
+    assertEquals( 3, customListBox.items.size() );
+
+    try {
+      customListBox.setItems( new Object[] { 1, 2 }, new String[] { "one" } );
+      fail();
+    } catch ( IllegalArgumentException e ) {
+      // expected
+    }
+  }
+  // endregion
+
   @Test
   public void testSetSuppressLayout() throws Exception {
     doCallRealMethod().when( customListBox ).setSuppressLayout( anyBoolean() );
@@ -383,9 +518,10 @@ public class CustomListBoxTest {
 
     final int index = 4;
     final ListItem selectedItem = mock( ListItem.class );
-    customListBox.selectedItems = mock( List.class );
+    customListBox.selection = new BitSet();
     final int prevSelectedIndex = 2;
     customListBox.selectedIndex = prevSelectedIndex;
+    customListBox.selection.set( prevSelectedIndex );
     final ListItem prevSelectedItem = mock( ListItem.class );
     when( customListBox.items.get( prevSelectedIndex ) ).thenReturn( prevSelectedItem );
     when( customListBox.items.get( index ) ).thenReturn( selectedItem );
@@ -397,8 +533,8 @@ public class CustomListBoxTest {
       } };
     customListBox.setSelectedIndex( index );
     verify( prevSelectedItem ).onDeselect();
-    verify( customListBox.selectedItems ).clear();
-    verify( customListBox.selectedItems ).add( selectedItem );
+    assertEquals( 1, customListBox.selection.cardinality() );
+    assertTrue( customListBox.selection.get( index ) );
     assertEquals( index, customListBox.selectedIndex );
     verify( selectedItem ).onSelect();
     verify( customListBox ).scrollSelectedItemIntoView();
@@ -417,23 +553,23 @@ public class CustomListBoxTest {
 
     customListBox.multiSelect = true;
     final ListItem prevSelectedItem = mock( ListItem.class );
-    customListBox.selectedItems = new LinkedList<ListItem>() { {
-        add( prevSelectedItem );
-      } };
+    customListBox.selection = new BitSet();
+    customListBox.selection.set( 0 );
     final ChangeListener changeListener = mock( ChangeListener.class );
     customListBox.listeners = new LinkedList<ChangeListener>() { {
         add( changeListener );
       } };
     final ListItem selectedItem1 = mock( ListItem.class );
     final ListItem selectedItem2 = mock( ListItem.class );
+    when( customListBox.items.get( 0 ) ).thenReturn( prevSelectedItem );
     when( customListBox.items.get( 2 ) ).thenReturn( selectedItem1 );
     when( customListBox.items.get( 3 ) ).thenReturn( selectedItem2 );
     when( customListBox.items.size() ).thenReturn( 5 );
     customListBox.setSelectedIndices( new int[] { 2, 3 } );
     verify( prevSelectedItem ).onDeselect();
-    assertEquals( 2, customListBox.selectedItems.size() );
-    assertEquals( selectedItem1, customListBox.selectedItems.get( 0 ) );
-    assertEquals( selectedItem2, customListBox.selectedItems.get( 1 ) );
+    assertEquals( 2, customListBox.selection.cardinality() );
+    assertTrue( customListBox.selection.get( 2 ) );
+    assertTrue( customListBox.selection.get( 3 ) );
     verify( selectedItem1 ).onSelect();
     verify( selectedItem2 ).onSelect();
     verify( changeListener ).onChange( customListBox );
@@ -462,10 +598,9 @@ public class CustomListBoxTest {
 
     final ListItem selItem1 = mock( ListItem.class );
     final ListItem selItem2 = mock( ListItem.class );
-    customListBox.selectedItems = new LinkedList<ListItem>() { {
-        add( selItem1 );
-        add( selItem2 );
-      } };
+    customListBox.selection = new BitSet();
+    customListBox.selection.set( 2 );
+    customListBox.selection.set( 0 );
     customListBox.items = new LinkedList<ListItem>() { {
         add( selItem1 );
         add( mock( ListItem.class ) );
@@ -478,6 +613,93 @@ public class CustomListBoxTest {
     assertEquals( 2, selectedIndices[1] );
   }
 
+  @Test
+  public void testGetSelectedItems() {
+    doCallRealMethod().when( customListBox ).getSelectedItems();
+
+    final ListItem selItem1 = mock( ListItem.class );
+    final ListItem selItem2 = mock( ListItem.class );
+    customListBox.selection = new BitSet();
+    customListBox.selection.set( 2 );
+    customListBox.selection.set( 0 );
+    customListBox.items = new LinkedList<ListItem>() { {
+        add( selItem1 );
+        add( mock( ListItem.class ) );
+        add( selItem2 );
+      } };
+
+    assertEquals( Arrays.asList( selItem1, selItem2 ), customListBox.getSelectedItems() );
+  }
+
+  // region selection ranges
+  @Test
+  public void testSelectRange() {
+    doCallRealMethod().when( customListBox ).selectRange( anyInt(), anyInt() );
+
+    final ListItem item0 = mock( ListItem.class );
+    final ListItem item1 = mock( ListItem.class );
+    final ListItem item2 = mock( ListItem.class );
+    customListBox.items = Arrays.asList( item0, item1, item2 );
+    customListBox.selection = new BitSet();
+    customListBox.multiSelect = true;
+    final ChangeListener changeListener = mock( ChangeListener.class );
+    customListBox.listeners = new LinkedList<ChangeListener>() { {
+      add( changeListener );
+    } };
+
+    customListBox.selectRange( 1, 5 );
+
+    assertEquals( 2, customListBox.selection.cardinality() );
+    assertTrue( customListBox.selection.get( 1 ) );
+    assertTrue( customListBox.selection.get( 2 ) );
+    verify( item0, never() ).onSelect();
+    verify( item1 ).onSelect();
+    verify( item2 ).onSelect();
+    verify( changeListener ).onChange( customListBox );
+  }
+
+  @Test
+  public void testSelectRange_singleSelect() {
+    doCallRealMethod().when( customListBox ).selectRange( anyInt(), anyInt() );
+
+    customListBox.multiSelect = false;
+    customListBox.selectRange( 1, 2 );
+
+    verify( customListBox ).setSelectedIndex( 1 );
+  }
+
+  @Test
+  public void testDeselectRange() {
+    doCallRealMethod().when( customListBox ).deselectRange( anyInt(), anyInt() );
+
+    final ListItem item0 = mock( ListItem.class );
+    final ListItem item1 = mock( ListItem.class );
+    final ListItem item2 = mock( ListItem.class );
+    customListBox.items = Arrays.asList( item0, item1, item2 );
+    customListBox.selection = new BitSet();
+    customListBox.selection.set( 0, 3 );
+    customListBox.listeners = new LinkedList<>();
+
+    customListBox.deselectRange( 1, 2 );
+
+    assertEquals( 1, customListBox.selection.cardinality() );
+    assertTrue( customListBox.selection.get( 0 ) );
+    verify( item0, never() ).onDeselect();
+    verify( item1 ).onDeselect();
+    verify( item2 ).onDeselect();
+  }
+
+  @Test
+  public void testSelectAll() {
+    doCallRealMethod().when( customListBox ).selectAll();
+    customListBox.items = Arrays.asList( mock( ListItem.class ), mock( ListItem.class ) );
+
+    customListBox.selectAll();
+
+    verify( customListBox ).selectRange( 0, 1 );
+  }
+  // endregion
+
   @Test
   public void testSetStylePrimaryName() throws Exception {
     doCallRealMethod().when( customListBox ).setStylePrimaryName( anyString() );
@@ -661,6 +883,49 @@ public class CustomListBoxTest {
     assertEquals( 1, actual.size() );
   }
 
+  @Test
+  public void testFindItemsAfterItemChanged() {
+    doCallRealMethod().when( customListBox ).findItems( anyString() );
+    doCallRealMethod().when( customListBox ).itemChanged( any( ListItem.class ) );
+
+    ListItem item = mock( ListItem.class );
+    when( item.getText() ).thenReturn( "apple" );
+    customListBox.items = new ArrayList<>( Collections.singletonList( item ) );
+
+    assertEquals( Collections.singletonList( item ), customListBox.findItems( "apple" ) );
+
+    // The index is not rebuilt until the item reports the change.
+    when( item.getText() ).thenReturn( "banana" );
+    assertEquals( Collections.singletonList( item ), customListBox.findItems( "apple" ) );
+
+    customListBox.itemChanged( item );
+    assertTrue( customListBox.findItems( "apple" ).isEmpty() );
+    assertEquals( Collections.singletonList( item ), customListBox.findItems( "banana" ) );
+  }
+
+  @Test
+  public void testFindItemsAfterItemsModifiedThroughGetItems() {
+    doCallRealMethod().when( customListBox ).findItems( anyString() );
+    doCallRealMethod().when( customListBox ).getItems();
+
+    ListItem apple = mock( ListItem.class );
+    when( apple.getText() ).thenReturn( "apple" );
+    ListItem applePie = mock( ListItem.class );
+    when( applePie.getText() ).thenReturn( "apple pie" );
+    customListBox.items = new ArrayList<>( Collections.singletonList( apple ) );
+
+    assertEquals( Collections.singletonList( apple ), customListBox.findItems( "apple" ) );
+
+    customListBox.getItems().add( applePie );
+    assertEquals( Arrays.asList( apple, applePie ), customListBox.findItems( "apple" ) );
+
+    customListBox.getItems().remove( apple );
+    assertEquals( Collections.singletonList( applePie ), customListBox.findItems( "apple" ) );
+
+    customListBox.getItems().set( 0, apple );
+    assertEquals( Collections.singletonList( apple ), customListBox.findItems( "apple" ) );
+  }
+
   @Test
   public void testOnPopupClosed() {
     doCallRealMethod().when( customListBox ).onPopupClosed( any(), anyBoolean() );
@@ -749,4 +1014,449 @@ public class CustomListBoxTest {
     verify( customListBox, times( 1 ) ).getSearchTextBox();
     verify( customListBox.getSearchTextBox(), times( 1 ) ).addChangeListener( any( ChangeListener.class ) );
   }
+
+  @Test
+  public void testRenderItems() {
+    List<Widget> rendered = new ArrayList<>();
+    VerticalPanel panel = mockPanel( rendered );
+    Widget spacer = mock( Widget.class );
+    rendered.add( spacer );
+
+    ListItem item0 = mockItem();
+    ListItem item1 = mockItem();
+    ListItem item2 = mockItem();
+
+    CustomListBox.renderItems( panel, Arrays.asList( item0, item1, item2 ) );
+    assertEquals( Arrays.asList( item0.getWidget(), item1.getWidget(), item2.getWidget() ), rendered );
+
+    // Narrowing only detaches the items which no longer match.
+    CustomListBox.renderItems( panel, Arrays.asList( item0, item2 ) );
+    assertEquals( Arrays.asList( item0.getWidget(), item2.getWidget() ), rendered );
+    verify( panel, times( 1 ) ).insert( item0.getWidget(), 0 );
+    verify( panel, times( 1 ) ).insert( item2.getWidget(), 2 );
+
+    // Widening only attaches the items which were not rendered.
+    CustomListBox.renderItems( panel, Arrays.asList( item0, item1, item2 ) );
+    assertEquals( Arrays.asList( item0.getWidget(), item1.getWidget(), item2.getWidget() ), rendered );
+    verify( panel, times( 2 ) ).insert( item1.getWidget(), 1 );
+    verify( panel, times( 1 ) ).insert( item0.getWidget(), 0 );
+    verify( panel, times( 1 ) ).insert( item2.getWidget(), 2 );
+
+    // Reordering moves the items in place.
+    CustomListBox.renderItems( panel, Arrays.asList( item2, item0 ) );
+    assertEquals( Arrays.asList( item2.getWidget(), item0.getWidget() ), rendered );
+  }
+
+  // region item sizes
+  @Test
+  public void testItemSizesAreCached() {
+    doCallRealMethod().when( customListBox ).measureItems( any() );
+    customListBox.itemSizes = new HashMap<>();
+
+    ListItem item0 = mockSizedItem( "item0", 10, 20 );
+    ListItem item1 = mockSizedItem( "item1", 30, 20 );
+    List<ListItem> listItems = Arrays.asList( item0, item1 );
+
+    assertSizes( customListBox.measureItems( listItems ), 10, 20, 30, 20 );
+
+    // The changed sizes are not measured again.
+    when( item0.getWidget().getElement().getOffsetWidth() ).thenReturn( 15 );
+    assertSizes( customListBox.measureItems( listItems ), 10, 20, 30, 20 );
+    verify( item0.getWidget().getElement(), times( 1 ) ).getOffsetHeight();
+    verify( item1.getWidget().getElement(), times( 1 ) ).getOffsetHeight();
+  }
+
+  @Test
+  public void testItemChangedInvalidatesItemSize() {
+    doCallRealMethod().when( customListBox ).measureItems( any() );
+    doCallRealMethod().when( customListBox ).itemChanged( any( ListItem.class ) );
+    doCallRealMethod().when( customListBox ).invalidateItemSize( any( ListItem.class ) );
+    customListBox.itemSizes = new HashMap<>();
+
+    ListItem item0 = mockSizedItem( "item0", 10, 20 );
+    ListItem item1 = mockSizedItem( "item1", 30, 20 );
+    List<ListItem> listItems = Arrays.asList( item0, item1 );
+    customListBox.measureItems( listItems );
+
+    when( item0.getWidget().getElement().getOffsetWidth() ).thenReturn( 15 );
+    when( item1.getWidget().getElement().getOffsetWidth() ).thenReturn( 35 );
+    customListBox.itemChanged( item0 );
+
+    assertSizes( customListBox.measureItems( listItems ), 15, 20, 30, 20 );
+  }
+
+  @Test
+  public void testUnrenderedItemSizeIsNotCached() {
+    doCallRealMethod().when( customListBox ).measureItems( any() );
+    customListBox.itemSizes = new HashMap<>();
+
+    // Neither the item nor its clone can be laid out.
+    ListItem item = mockSizedItem( "item", 0, 0 );
+    Element element = item.getWidget().getElement();
+    Element clone = mock( Element.class );
+    when( element.cloneNode( true ) ).thenReturn( clone );
+    when( clone.cast() ).thenReturn( clone );
+
+    assertSizes( customListBox.measureItems( Collections.singletonList( item ) ), 0, 0 );
+    assertTrue( customListBox.itemSizes.isEmpty() );
+
+    when( element.getOffsetWidth() ).thenReturn( 10 );
+    when( element.getOffsetHeight() ).thenReturn( 20 );
+    assertSizes( customListBox.measureItems( Collections.singletonList( item ) ), 10, 20 );
+  }
+
+  @Test
+  public void testUniformItemSizeMeasuresLongestItem() {
+    doCallRealMethod().when( customListBox ).measureItems( any() );
+    doCallRealMethod().when( customListBox ).setUniformItemSize( anyBoolean() );
+    customListBox.itemSizes = new HashMap<>();
+    customListBox.setUniformItemSize( true );
+
+    ListItem shortItem = mockSizedItem( "a", 10, 20 );
+    ListItem longItem = mockSizedItem( "a longer item", 30, 20 );
+
+    assertSizes( customListBox.measureItems( Arrays.asList( shortItem, longItem ) ), 30, 20, 30, 20 );
+    verify( shortItem.getWidget().getElement(), never() ).getOffsetWidth();
+  }
+
+  /**
+   * Mocks an item whose element has the given size.
+   */
+  private static ListItem mockSizedItem( String text, int width, int height ) {
+    ListItem item = mockItem();
+    when( item.getText() ).thenReturn( text );
+
+    Element element = mock( Element.class );
+    when( element.getOffsetWidth() ).thenReturn( width );
+    when( element.getOffsetHeight() ).thenReturn( height );
+    when( item.getWidget().getElement() ).thenReturn( element );
+    return item;
+  }
+
+  /**
+   * Asserts the widths and heights of the given sizes.
+   */
+  private static void assertSizes( Rectangle[] sizes, int... widthsAndHeights ) {
+    assertEquals( widthsAndHeights.length / 2, sizes.length );
+    for ( int i = 0; i < sizes.length; i++ ) {
+      assertEquals( widthsAndHeights[ 2 * i ], sizes[ i ].width );
+      assertEquals( widthsAndHeights[ 2 * i + 1 ], sizes[ i ].height );
+    }
+  }
+  // endregion item sizes
+
+  // region virtualized rendering
+  @Test
+  public void testVirtualWindowRendersVisibleRows() {
+    List<ListItem> listItems = setUpVirtualList( 100 );
+    CustomListBox.VirtualItemWindow window = customListBox.listWindow;
+
+    // The 5 visible rows, and up to 5 more above and below them.
+    window.setItems( listItems );
+    assertRendered( listItems, 0, 16 );
+    verify( window.topSpacer ).setHeight( "0px" );
+    verify( window.bottomSpacer ).setHeight( "1680px" );
+
+    scrollTo( 1000 );
+    assertRendered( listItems, 45, 61 );
+    verify( window.topSpacer ).setHeight( "900px" );
+    verify( window.bottomSpacer ).setHeight( "780px" );
+
+    // Scrolling a little only attaches the rows which come into view.
+    scrollTo( 1100 );
+    assertRendered( listItems, 50, 66 );
+    verify( virtualPanel, times( 1 ) ).insert( eq( listItems.get( 55 ).getWidget() ), anyInt() );
+    verify( virtualPanel, times( 1 ) ).insert( eq( listItems.get( 65 ).getWidget() ), anyInt() );
+
+    scrollTo( 1900 );
+    assertRendered( listItems, 90, 100 );
+    verify( window.topSpacer ).setHeight( "1800px" );
+    verify( window.bottomSpacer ).setHeight( "0px" );
+  }
+
+  @Test
+  public void testVirtualWindowFollowsKeyboardSelection() {
+    List<ListItem> listItems = setUpVirtualList( 100 );
+    customListBox.listWindow.setItems( listItems );
+
+    // Moving down past the last visible row scrolls by a row.
+    customListBox.selectedIndex = 9;
+    customListBox.onKeyUp( null, (char) 40, 0 );
+    assertEquals( 10, customListBox.getSelectedIndex() );
+    assertEquals( 120, scrollPosition );
+    assertRendered( listItems, 1, 17 );
+
+    // Moving to a row which is not rendered renders the rows around it.
+    customListBox.selectedIndex = 81;
+    customListBox.onKeyUp( null, (char) 38, 0 );
+    assertEquals( 80, customListBox.getSelectedIndex() );
+    assertEquals( 1520, scrollPosition );
+    assertRendered( listItems, 71, 87 );
+
+    // Moving within the visible rows does not scroll.
+    customListBox.onKeyUp( null, (char) 38, 0 );
+    assertEquals( 79, customListBox.getSelectedIndex() );
+    assertEquals( 1520, scrollPosition );
+    verify( virtualScrollPanel, times( 2 ) ).setVerticalScrollPosition( anyInt() );
+  }
+
+  @Test
+  public void testVirtualSelectionOutsideWindow() {
+    List<ListItem> listItems = setUpVirtualList( 100 );
+    customListBox.listWindow.setItems( listItems );
+
+    // An item which is not rendered is selected, without rendering it.
+    customListBox.setSelectedIndex( 90 );
+    assertEquals( 90, customListBox.getSelectedIndex() );
+    assertTrue( customListBox.selection.get( 90 ) );
+    verify( listItems.get( 90 ) ).onSelect();
+    assertRendered( listItems, 0, 16 );
+
+    // The item is rendered, selected, when scrolled into view, and stays selected when scrolled out of it.
+    customListBox.scrollSelectedItemIntoView();
+    assertRendered( listItems, 81, 97 );
+
+    scrollTo( 0 );
+    assertRendered( listItems, 0, 16 );
+    verify( listItems.get( 90 ), never() ).onDeselect();
+    assertEquals( 90, customListBox.getSelectedIndex() );
+  }
+
+  @Test
+  public void testVirtualWindowMeasuresWidestItem() {
+    doCallRealMethod().when( customListBox ).measureItems( any() );
+    customListBox.itemSizes = new HashMap<>();
+
+    List<ListItem> listItems = new ArrayList<>();
+    for ( int i = 0; i < 100; i++ ) {
+      listItems.add( mockSizedItem( "item" + i, 50, 19 ) );
+    }
+    listItems.set( 70, mockSizedItem( "a much longer item", 300, 19 ) );
+    listItems.set( 99, mockSizedItem( "z", 400, 19 ) );
+    setUpVirtualList( listItems );
+    customListBox.listWindow.setItems( listItems );
+
+    // The unrendered items with the longest texts are measured, but not all of them.
+    assertEquals( 300, customListBox.listWindow.measureMaxWidth() );
+    verify( listItems.get( 99 ).getWidget().getElement(), never() ).getOffsetWidth();
+
+    // The cached sizes of all items count.
+    customListBox.itemSizes.put( listItems.get( 99 ), new Rectangle( 0, 0, 400, 19 ) );
+    assertEquals( 400, customListBox.listWindow.measureMaxWidth() );
+  }
+
+  /**
+   * Sets up the mocked list box to show a number of items, virtualized, 5 at a time, in rows which are 20 pixels apart.
+   */
+  private List<ListItem> setUpVirtualList( int itemCount ) {
+    List<ListItem> listItems = new ArrayList<>();
+    for ( int i = 0; i < itemCount; i++ ) {
+      listItems.add( mockItem() );
+    }
+
+    setUpVirtualList( listItems );
+    return listItems;
+  }
+
+  private void setUpVirtualList( List<ListItem> listItems ) {
+    doCallRealMethod().when( customListBox ).setVirtualized( anyBoolean() );
+    doCallRealMethod().when( customListBox ).setRowHeight( anyInt() );
+    doCallRealMethod().when( customListBox ).setSelectedIndex( anyInt() );
+    doCallRealMethod().when( customListBox ).getSelectedIndex();
+    doCallRealMethod().when( customListBox ).scrollSelectedItemIntoView();
+    doCallRealMethod().when( customListBox ).onKeyUp( any( Widget.class ), anyChar(), anyInt() );
+    when( customListBox.isEnabled() ).thenReturn( true );
+
+    customListBox.items = listItems;
+    customListBox.selection = new BitSet();
+    customListBox.selectedIndex = -1;
+    customListBox.suppressLayout = true;
+    customListBox.visible = 5;
+    customListBox.setVirtualized( true );
+    customListBox.setRowHeight( 19 );
+
+    scrollPosition = 0;
+    virtualScrollPanel = mock( ScrollPanel.class );
+    when( virtualScrollPanel.getOffsetHeight() ).thenReturn( 100 );
+    when( virtualScrollPanel.getVerticalScrollPosition() ).thenAnswer( invocation -> scrollPosition );
+    doAnswer( invocation -> {
+      scrollPosition = (Integer) invocation.getArguments()[ 0 ];
+      return null;
+    } ).when( virtualScrollPanel ).setVerticalScrollPosition( anyInt() );
+
+    virtualRendered = new ArrayList<>();
+    virtualPanel = mockPanel( virtualRendered );
+    doAnswer( invocation -> {
+      virtualRendered.clear();
+      return null;
+    } ).when( virtualPanel ).clear();
+    doAnswer( invocation -> {
+      virtualRendered.add( (Widget) invocation.getArguments()[ 0 ] );
+      return null;
+    } ).when( virtualPanel ).add( any( Widget.class ) );
+
+    customListBox.listWindow = customListBox.new VirtualItemWindow( virtualPanel, virtualScrollPanel );
+    customListBox.listWindow.topSpacer = mock( SimplePanel.class );
+    customListBox.listWindow.bottomSpacer = mock( SimplePanel.class );
+
+    ArgumentCaptor<ScrollHandler> scrollHandler = ArgumentCaptor.forClass( ScrollHandler.class );
+    verify( virtualScrollPanel ).addScrollHandler( scrollHandler.capture() );
+    virtualScrollHandler = scrollHandler.getValue();
+  }
+
+  /**
+   * Scrolls the virtualized list, as the user does.
+   */
+  private void scrollTo( int position ) {
+    scrollPosition = position;
+    virtualScrollHandler.onScroll( null );
+  }
+
+  /**
+   * Asserts that the widgets of a range of the given items, and only these, are rendered between the spacers.
+   */
+  private void assertRendered( List<ListItem> listItems, int fromIndex, int toIndex ) {
+    List<Widget> expected = new ArrayList<>();
+    expected.add( customListBox.listWindow.topSpacer );
+    for ( ListItem item : listItems.subList( fromIndex, toIndex ) ) {
+      expected.add( item.getWidget() );
+    }
+    expected.add( customListBox.listWindow.bottomSpacer );
+
+    assertEquals( expected, virtualRendered );
+  }
+  // endregion virtualized rendering
+
+  // region type-ahead
+  @Test
+  public void testTypeAheadAccumulatesKeystrokes() {
+    List<ListItem> listItems = setUpTypeAhead( "Apple", "Banana", "Blueberry", "Cherry", "Bean", "avocado" );
+
+    type( 'B', 0 );
+    assertEquals( 1, customListBox.getSelectedIndex() );
+
+    type( 'l', 100 );
+    assertEquals( 2, customListBox.getSelectedIndex() );
+
+    // The selected item is kept while it still matches.
+    type( 'u', 200 );
+    assertEquals( 2, customListBox.getSelectedIndex() );
+    verify( listItems.get( 2 ), times( 1 ) ).onSelect();
+
+    // Nothing is selected when no item matches.
+    type( 'x', 300 );
+    assertEquals( 2, customListBox.getSelectedIndex() );
+  }
+
+  @Test
+  public void testTypeAheadCyclesOnRepeatedKey() {
+    setUpTypeAhead( "Apple", "Banana", "Blueberry", "Cherry", "Bean", "avocado" );
+
+    type( 'b', 0 );
+    assertEquals( 1, customListBox.getSelectedIndex() );
+    type( 'b', 100 );
+    assertEquals( 2, customListBox.getSelectedIndex() );
+    type( 'b', 200 );
+    assertEquals( 4, customListBox.getSelectedIndex() );
+
+    // Cycling wraps around.
+    type( 'b', 300 );
+    assertEquals( 1, customListBox.getSelectedIndex() );
+  }
+
+  @Test
+  public void testTypeAheadResetsAfterPause() {
+    setUpTypeAhead( "Apple", "Banana", "Blueberry", "Cherry", "Bean", "avocado" );
+
+    type( 'b', 0 );
+    type( 'e', 1000 );
+    assertEquals( 4, customListBox.getSelectedIndex() );
+
+    // After the pause, "a" is a new prefix, and not an extension of "be".
+    type( 'a', 2001 );
+    assertEquals( 5, customListBox.getSelectedIndex() );
+  }
+
+  @Test
+  public void testTypeAheadDoesNotUpdateUI() {
+    List<ListItem> listItems = setUpTypeAhead( "Apple", "Banana", "Blueberry", "Cherry", "Bean", "avocado" );
+
+    type( 'c', 0 );
+    assertEquals( 3, customListBox.getSelectedIndex() );
+    verify( listItems.get( 3 ) ).onSelect();
+    verify( customListBox.listScrollPanel ).ensureVisible( listItems.get( 3 ).getWidget() );
+    verify( customListBox, never() ).updateUI();
+  }
+
+  /**
+   * Sets up the mocked list box to show items with the given texts, and to let the user type ahead.
+   */
+  private List<ListItem> setUpTypeAhead( String... texts ) {
+    doCallRealMethod().when( customListBox ).onKeyPress( any( Widget.class ), anyChar(), anyInt() );
+    doCallRealMethod().when( customListBox ).setSelectedIndex( anyInt() );
+    doCallRealMethod().when( customListBox ).getSelectedIndex();
+    doCallRealMethod().when( customListBox ).scrollSelectedItemIntoView();
+    when( customListBox.isEnabled() ).thenReturn( true );
+    when( customListBox.now() ).thenAnswer( invocation -> typeAheadTime );
+
+    List<ListItem> listItems = new ArrayList<>();
+    for ( String text : texts ) {
+      ListItem item = mockItem();
+      when( item.getText() ).thenReturn( text );
+      listItems.add( item );
+    }
+
+    customListBox.items = listItems;
+    customListBox.selection = new BitSet();
+    customListBox.selectedIndex = -1;
+    customListBox.suppressLayout = true;
+    customListBox.visible = 5;
+    customListBox.listScrollPanel = mock( ScrollPanel.class );
+    return listItems;
+  }
+
+  /**
+   * Types a character, some time after the list box was set up.
+   */
+  private void type( char c, long atMillis ) {
+    // The clock starts well after the epoch, as it does, so that the first key starts a new prefix.
+    typeAheadTime = 10000 + atMillis;
+    customListBox.onKeyPress( null, c, 0 );
+  }
+  // endregion type-ahead
+
+  private static ListItem mockItem() {
+    ListItem item = mock( ListItem.class );
+    Widget widget = mock( Widget.class );
+    when( item.getWidget() ).thenReturn( widget );
+    return item;
+  }
+
+  /**
+   * Mocks a panel which renders the given widgets, moving a widget when it is inserted again, as panels do.
+   */
+  private static VerticalPanel mockPanel( List<Widget> rendered ) {
+    VerticalPanel panel = mock( VerticalPanel.class );
+    when( panel.getWidgetCount() ).thenAnswer( invocation -> rendered.size() );
+    when( panel.getWidget( anyInt() ) )
+        .thenAnswer( invocation -> rendered.get( (Integer) invocation.getArguments()[ 0 ] ) );
+    when( panel.remove( anyInt() ) ).thenAnswer( invocation -> {
+      rendered.remove( (int) (Integer) invocation.getArguments()[ 0 ] );
+      return true;
+    } );
+    doAnswer( invocation -> {
+      Widget widget = (Widget) invocation.getArguments()[ 0 ];
+      int beforeIndex = (Integer) invocation.getArguments()[ 1 ];
+      int index = rendered.indexOf( widget );
+      if ( index >= 0 ) {
+        rendered.remove( index );
+        if ( index < beforeIndex ) {
+          beforeIndex--;
+        }
+      }
+      rendered.add( beforeIndex, widget );
+      return null;
+    } ).when( panel ).insert( any( Widget.class ), anyInt() );
+    return panel;
+  }
 }
@@ -100,4 +100,26 @@ public class DefaultListItemTest {
     verify( defaultListItem ).removeStyleDependentName( DefaultListItem.PROXY_VALID );
     verify( defaultListItem.dragIndicator, times( 2 ) ).setUrl( anyString() );
   }
+
+  @Test
+  public void testChangesNotifyListener() throws Exception {
+    doCallRealMethod().when( defaultListItem ).setText( anyString() );
+    doCallRealMethod().when( defaultListItem ).setValue( any() );
+    doCallRealMethod().when( defaultListItem ).fireItemChanged();
+
+    // Not yet added to a list.
+    defaultListItem.setText( "text" );
+
+    defaultListItem.listItemListener = mock( ListItemListener.class );
+    defaultListItem.setText( "changed" );
+    verify( defaultListItem.listItemListener ).itemChanged( defaultListItem );
+
+    defaultListItem.setValue( "value" );
+    verify( defaultListItem.listItemListener, times( 2 ) ).itemChanged( defaultListItem );
+
+    doCallRealMethod().when( defaultListItem ).setStylePrimaryName( anyString() );
+    defaultListItem.dropWidget = mock( Widget.class );
+    defaultListItem.setStylePrimaryName( "style" );
+    verify( defaultListItem.listItemListener, times( 3 ) ).itemChanged( defaultListItem );
+  }
 }
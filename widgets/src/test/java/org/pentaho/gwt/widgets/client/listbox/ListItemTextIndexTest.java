@@ -0,0 +1,137 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.listbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ListItemTextIndexTest {
+  private ListItem apple;
+  private ListItem apricot;
+  private ListItem banana;
+  private ListItem pineapple;
+  private ListItemTextIndex index;
+
+  @Before
+  public void setUp() {
+    apple = mockItem( "Apple" );
+    apricot = mockItem( "apricot" );
+    banana = mockItem( "Banana" );
+    pineapple = mockItem( "PineApple" );
+
+    index = new ListItemTextIndex( Arrays.asList( apple, apricot, banana, pineapple ) );
+  }
+
+  private static ListItem mockItem( String text ) {
+    ListItem item = mock( ListItem.class );
+    when( item.getText() ).thenReturn( text );
+    return item;
+  }
+
+  @Test
+  public void testFindIgnoresCase() {
+    assertEquals( Arrays.asList( apple, pineapple ), index.find( "APPLE" ) );
+  }
+
+  @Test
+  public void testFindKeepsItemOrder() {
+    assertEquals( Arrays.asList( apple, apricot, banana, pineapple ), index.find( "a" ) );
+  }
+
+  @Test
+  public void testFindNarrowsPreviousMatches() {
+    assertEquals( Arrays.asList( apple, apricot, pineapple ), index.find( "p" ) );
+    assertEquals( 4, index.getLastScanCount() );
+
+    // Extends the previous query, so only its matches are scanned.
+    assertEquals( Arrays.asList( apple, pineapple ), index.find( "pp" ) );
+    assertEquals( 3, index.getLastScanCount() );
+    assertEquals( Arrays.asList( apple, pineapple ), index.find( "PPLE" ) );
+    assertEquals( 2, index.getLastScanCount() );
+
+    // Does not extend it, so all texts are scanned again.
+    assertEquals( Arrays.asList( apple, apricot, pineapple ), index.find( "ap" ) );
+    assertEquals( 4, index.getLastScanCount() );
+  }
+
+  @Test
+  public void testFindAfterShorterQuery() {
+    assertEquals( Arrays.asList( apple, pineapple ), index.find( "appl" ) );
+    assertEquals( Arrays.asList( banana ), index.find( "b" ) );
+    assertEquals( Arrays.asList( apple, apricot, pineapple ), index.find( "ap" ) );
+  }
+
+  @Test
+  public void testFindWithinTexts() {
+    assertEquals( Arrays.asList( apple, pineapple ), index.find( "PPL" ) );
+    assertEquals( Arrays.asList( pineapple ), index.find( "neap" ) );
+    assertEquals( Arrays.asList( banana ), index.find( "ana" ) );
+    assertEquals( Arrays.asList( apricot ), index.find( "apricot" ) );
+  }
+
+  @Test
+  public void testFindDoesNotMatchAcrossTexts() {
+    // "apple" is followed by "apricot" and "banana" by "pineapple".
+    assertTrue( index.find( "eap" ).contains( pineapple ) );
+    assertTrue( index.find( "leap" ).isEmpty() );
+    assertTrue( index.find( "eapr" ).isEmpty() );
+    assertTrue( index.find( "nap" ).isEmpty() );
+  }
+
+  @Test
+  public void testFindNoMatches() {
+    assertTrue( index.find( "cherry" ).isEmpty() );
+    assertTrue( index.find( "cherry pie" ).isEmpty() );
+  }
+
+  @Test
+  public void testFindNextWithPrefix() {
+    assertEquals( 0, index.findNextWithPrefix( "AP", 0 ) );
+    assertEquals( 1, index.findNextWithPrefix( "apr", 0 ) );
+    assertEquals( 2, index.findNextWithPrefix( "b", 0 ) );
+    assertEquals( 3, index.findNextWithPrefix( "pine", 0 ) );
+  }
+
+  @Test
+  public void testFindNextWithPrefixCycles() {
+    assertEquals( 1, index.findNextWithPrefix( "a", 1 ) );
+    assertEquals( 0, index.findNextWithPrefix( "a", 2 ) );
+    assertEquals( 2, index.findNextWithPrefix( "b", 3 ) );
+  }
+
+  @Test
+  public void testFindNextWithPrefixNoMatches() {
+    assertEquals( -1, index.findNextWithPrefix( "c", 0 ) );
+    assertEquals( -1, index.findNextWithPrefix( "applesauce", 0 ) );
+    assertEquals( -1, new ListItemTextIndex( new ArrayList<>() ).findNextWithPrefix( "a", 0 ) );
+  }
+
+  @Test
+  public void testIndexIsSnapshot() {
+    List<ListItem> items = new ArrayList<>( Arrays.asList( apple, banana ) );
+    ListItemTextIndex snapshot = new ListItemTextIndex( items );
+    items.add( pineapple );
+
+    assertEquals( Arrays.asList( apple ), snapshot.find( "apple" ) );
+  }
+}
@@ -18,22 +18,50 @@ import com.google.gwt.gen2.table.client.FixedWidthFlexTable;
 import com.google.gwt.gen2.table.client.FixedWidthGrid;
 import com.google.gwt.gen2.table.client.ScrollTable;
 import com.google.gwt.gen2.table.client.SelectionGrid;
+import com.google.gwt.gen2.table.client.SortableGrid;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.override.client.HTMLTable;
+import com.google.gwt.user.client.Element;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.Panel;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.gwtmockito.GwtMockitoTestRunner;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.gwt.widgets.client.table.ColumnComparators.BaseColumnComparator;
+import org.pentaho.gwt.widgets.client.table.ColumnComparators.ColumnComparatorTypes;
+import org.pentaho.gwt.widgets.client.text.SearchTextBox;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 @RunWith( GwtMockitoTestRunner.class )
 public class BaseTableTest {
+  private static final int NAME = 0;
+
+  private static final int SIZE = 1;
+
+  private static final Object[][] ROW_VALUES = {
+    { "b", "2" }, { "a", "1" }, { "c", "2" }, { "a", "2" }, { "d", "1" } };
+
   private BaseTable baseTable;
 
+  private Element[] gridRows;
+
+  private SortableGrid.ColumnSorterCallback sortCallback;
+
+  private TableColumnSortListener sortListener;
+
   @Before
   public void setUp() throws Exception {
     baseTable = mock( BaseTable.class );
@@ -72,6 +100,38 @@ public class BaseTableTest {
     verify( baseTable ).fillWidth();
   }
 
+  @Test
+  public void testShowMessageKeepsFilters() throws Exception {
+    setUpTableModel();
+    doCallRealMethod().when( baseTable ).showMessage( anyString() );
+    doCallRealMethod().when( baseTable ).populateTable( any( Object[][].class ) );
+    doCallRealMethod().when( baseTable ).populateDataGrid( any( int[].class ), any( Object[][].class ) );
+    doCallRealMethod().when( baseTable ).setQuickFilter( anyString() );
+    doCallRealMethod().when( baseTable ).getQuickFilter();
+    doAnswer( invocation -> {
+      baseTable.populateDataGrid( (int[]) invocation.getArguments()[1], (Object[][]) invocation.getArguments()[2] );
+      return null;
+    } ).when( baseTable ).createTable( any( String[].class ), any( int[].class ), any( Object[][].class ),
+        any( AbstractScrollTable.ResizePolicy.class ), any( SelectionGrid.SelectionPolicy.class ),
+        any( AbstractScrollTable.ScrollPolicy.class ) );
+    baseTable.parentPanel = mock( Panel.class );
+    baseTable.scrollTable = mock( ScrollTable.class );
+    baseTable.tableHeader = mock( FixedWidthFlexTable.class );
+
+    baseTable.setQuickFilter( "d" );
+    assertArrayEquals( new int[] { 4 }, baseTable.viewRows );
+
+    // The message is displayed, although it does not pass the filters.
+    baseTable.showMessage( "message" );
+    assertArrayEquals( new int[] { 0 }, baseTable.viewRows );
+    verify( baseTable.dataGrid ).setHTML( 0, 0, "message" );
+    assertEquals( "d", baseTable.getQuickFilter() );
+
+    // The filters apply to the data which is populated next.
+    baseTable.populateTable( ROW_VALUES );
+    assertArrayEquals( new int[] { 4 }, baseTable.viewRows );
+  }
+
   @Test
   public void testPopulateTable() throws Exception {
     doCallRealMethod().when( baseTable ).populateTable( any( Object[][].class ), any( Collection.class ) );
@@ -133,4 +193,442 @@ public class BaseTableTest {
     verify( baseTable.dataGrid, times( 2 ) ).setHTML( anyInt(), anyInt(), anyString() );
     verify( baseTable.dataGrid, times( 2 ) ).setWidget( anyInt(), anyInt(), any( Widget.class ) );
   }
+
+  @Test
+  public void testSetVirtualScrolling() throws Exception {
+    doCallRealMethod().when( baseTable ).setVirtualScrolling( anyBoolean() );
+    doCallRealMethod().when( baseTable ).isVirtualScrolling();
+
+    baseTable.dataGrid = mock( FixedWidthGrid.class );
+    baseTable.setVirtualScrolling( true );
+    assertTrue( baseTable.isVirtualScrolling() );
+
+    baseTable.setVirtualScrolling( false );
+    assertFalse( baseTable.isVirtualScrolling() );
+
+    // Not populated yet.
+    verify( baseTable, never() ).populateDataGrid( any( int[].class ), any( Object[][].class ) );
+  }
+
+  @Test
+  public void testSetVirtualRowHeight() throws Exception {
+    doCallRealMethod().when( baseTable ).setVirtualRowHeight( anyInt() );
+    doCallRealMethod().when( baseTable ).getVirtualRowHeight();
+
+    baseTable.setVirtualRowHeight( 30 );
+    assertEquals( 30, baseTable.getVirtualRowHeight() );
+
+    baseTable.setVirtualRowHeight( 0 );
+    assertEquals( 30, baseTable.getVirtualRowHeight() );
+  }
+
+  @Test
+  public void testToViewRowAndToGridRow() throws Exception {
+    doCallRealMethod().when( baseTable ).setVirtualScrolling( anyBoolean() );
+    doCallRealMethod().when( baseTable ).toViewRow( anyInt() );
+    doCallRealMethod().when( baseTable ).toGridRow( anyInt() );
+
+    baseTable.dataGrid = mock( FixedWidthGrid.class );
+    baseTable.virtualFirstRow = 40;
+    assertEquals( 5, baseTable.toViewRow( 5 ) );
+    assertEquals( 5, baseTable.toGridRow( 5 ) );
+
+    baseTable.setVirtualScrolling( true );
+    assertEquals( 45, baseTable.toViewRow( 5 ) );
+    assertEquals( 5, baseTable.toGridRow( 45 ) );
+
+    // Rows which are not rendered are out of the range of grid rows.
+    assertEquals( -40, baseTable.toGridRow( 0 ) );
+  }
+
+  @Test
+  public void testBindVirtualRowsSizesThePool() throws Exception {
+    setUpVirtualRows( 200 );
+
+    baseTable.bindVirtualRows( true );
+    verify( baseTable.dataGrid ).resizeRows( 50 );
+    verify( baseTable, times( 50 ) ).bindVirtualRow( anyInt(), anyInt(), eq( false ) );
+    verify( baseTable ).bindVirtualRow( 49, 49, false );
+  }
+
+  @Test
+  public void testBindVirtualRowsWithFewerRowsThanThePool() throws Exception {
+    setUpVirtualRows( 20 );
+
+    baseTable.bindVirtualRows( true );
+    verify( baseTable.dataGrid ).resizeRows( 20 );
+    verify( baseTable, times( 20 ) ).bindVirtualRow( anyInt(), anyInt(), eq( false ) );
+  }
+
+  @Test
+  public void testBindVirtualRowsRebindsThePool() throws Exception {
+    setUpVirtualRows( 200 );
+    baseTable.bindVirtualRows( true );
+    when( baseTable.dataGrid.getRowCount() ).thenReturn( 50 );
+
+    // Nothing to do while the same rows remain in view.
+    baseTable.bindVirtualRows( false );
+    verify( baseTable, times( 50 ) ).bindVirtualRow( anyInt(), anyInt(), anyBoolean() );
+
+    // The rows of the pool are reused.
+    baseTable.bindVirtualRows( true );
+    verify( baseTable.dataGrid ).resizeRows( 50 );
+    verify( baseTable, times( 50 ) ).bindVirtualRow( anyInt(), anyInt(), eq( true ) );
+  }
+
+  @Test
+  public void testVirtualSelectionSurvivesRebind() throws Exception {
+    setUpVirtualRows( 200 );
+    doCallRealMethod().when( baseTable ).selectVirtualRowRange( anyInt(), anyInt(), anyBoolean() );
+    doCallRealMethod().when( baseTable ).getSelectedRows();
+    baseTable.bindVirtualRows( true );
+    when( baseTable.dataGrid.getRowCount() ).thenReturn( 50 );
+
+    // A range is selected over all rows, and not only those of the pool.
+    baseTable.selectVirtualRowRange( 120, 45, true );
+    assertEquals( 76, baseTable.getSelectedRows().size() );
+    verify( baseTable.dataGrid ).selectRow( 45, false );
+    verify( baseTable.dataGrid ).selectRow( 49, false );
+    verify( baseTable.dataGrid, never() ).selectRow( 44, false );
+
+    // Display the rows in reverse order, as sorting does, which moves the selected rows out of the pool.
+    int[] viewRows = baseTable.viewRows.clone();
+    for ( int i = 0; i < viewRows.length; i++ ) {
+      baseTable.viewRows[i] = viewRows[viewRows.length - 1 - i];
+    }
+    when( baseTable.dataGrid.isRowSelected( anyInt() ) ).thenAnswer( invocation -> {
+      int gridRow = (Integer) invocation.getArguments()[0];
+      return gridRow >= 45 && gridRow < 50;
+    } );
+    baseTable.bindVirtualRows( true );
+    verify( baseTable.dataGrid ).deselectRow( 45 );
+    verify( baseTable.dataGrid ).deselectRow( 49 );
+    assertEquals( 76, baseTable.getSelectedRows().size() );
+    assertTrue( baseTable.getSelectedRows().contains( 200 - 1 - 120 ) );
+
+    // The selection is restored when the rows come back into view.
+    baseTable.viewRows = viewRows;
+    when( baseTable.dataGrid.isRowSelected( anyInt() ) ).thenReturn( false );
+    baseTable.bindVirtualRows( true );
+    verify( baseTable.dataGrid, times( 2 ) ).selectRow( 45, false );
+    verify( baseTable.dataGrid, times( 2 ) ).selectRow( 49, false );
+    assertTrue( baseTable.getSelectedRows().containsAll( Arrays.asList( 45, 120 ) ) );
+  }
+
+  // region column sorting
+  @Test
+  public void testSortBreaksTiesBySecondaryColumn() throws Exception {
+    BaseTable.BaseTableColumnSorter sorter = setUpSorting();
+
+    // By size, ascending, and then by name, descending.
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( SIZE, true ),
+        new ColumnSortInfo( NAME, false ) ), sortCallback );
+
+    assertArrayEquals( new int[] { 4, 1, 2, 0, 3 }, baseTable.viewRows );
+  }
+
+  @Test
+  public void testSortIsStableAcrossRepeatedClicks() throws Exception {
+    BaseTable.BaseTableColumnSorter sorter = setUpSorting();
+
+    // Rows of the same size keep their current order, whichever the direction.
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( SIZE, true ) ), sortCallback );
+    assertArrayEquals( new int[] { 1, 4, 0, 2, 3 }, baseTable.viewRows );
+
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( SIZE, false ) ), sortCallback );
+    assertArrayEquals( new int[] { 0, 2, 3, 1, 4 }, baseTable.viewRows );
+
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( SIZE, true ) ), sortCallback );
+    assertArrayEquals( new int[] { 1, 4, 0, 2, 3 }, baseTable.viewRows );
+  }
+
+  @Test
+  public void testSortMovesGridRowsAndReportsObjects() throws Exception {
+    BaseTable.BaseTableColumnSorter sorter = setUpSorting();
+
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( NAME, true ) ), sortCallback );
+
+    // Each grid row moves along with its model row.
+    verify( sortCallback ).onSortingComplete(
+        new Element[] { gridRows[1], gridRows[3], gridRows[0], gridRows[2], gridRows[4] } );
+    verify( sortListener ).onSortingComplete( Arrays.asList( "o1", "o3", "o0", "o2", "o4" ) );
+    verify( baseTable.dataGrid.getRowFormatter() ).setStyleName( 1, "cellTableOddRow" );
+    verify( baseTable.dataGrid.getRowFormatter() ).setStyleName( 2, "" );
+  }
+
+  @Test
+  public void testSortRebindsThePage() throws Exception {
+    BaseTable.BaseTableColumnSorter sorter = setUpSorting();
+    doCallRealMethod().when( baseTable ).setPageSize( anyInt() );
+    baseTable.scrollTable = mock( ScrollTable.class );
+    baseTable.setPageSize( 2 );
+    when( baseTable.dataGrid.getRowCount() ).thenReturn( 2 );
+
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( SIZE, true ) ), sortCallback );
+
+    // The page displays the first rows of all, and not the rows which it displayed, sorted.
+    assertArrayEquals( new int[] { 1, 4 }, baseTable.viewRows );
+    verify( baseTable.dataGrid ).setHTML( 0, NAME, "a" );
+    verify( baseTable.dataGrid ).setHTML( 1, NAME, "d" );
+
+    // The grid rows stay in place.
+    verify( sortCallback ).onSortingComplete( new Element[] { gridRows[0], gridRows[1] } );
+    verify( sortListener ).onSortingComplete( Arrays.asList( "o1", "o4" ) );
+  }
+
+  @Test
+  public void testSortRebindsVirtualRows() throws Exception {
+    BaseTable.BaseTableColumnSorter sorter = setUpSorting();
+    doCallRealMethod().when( baseTable ).setVirtualScrolling( anyBoolean() );
+    baseTable.setVirtualScrolling( true );
+
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( NAME, false ) ), sortCallback );
+
+    assertArrayEquals( new int[] { 4, 2, 0, 1, 3 }, baseTable.viewRows );
+    verify( baseTable ).bindVirtualRows( true );
+    verify( sortCallback ).onSortingComplete( gridRows );
+    verify( sortListener ).onSortingComplete( Arrays.asList( "o4", "o2", "o0", "o1", "o3" ) );
+  }
+
+  @Test
+  public void testSortGridCellsDescendingIsStable() throws Exception {
+    BaseTable.BaseTableColumnSorter sorter = setUpSorting();
+    doCallRealMethod().when( baseTable ).toViewRow( anyInt() );
+    when( baseTable.dataGrid.getColumnCount() ).thenReturn( 2 );
+
+    // Without a table model, the cells of the grid are sorted.
+    baseTable.rowValues = null;
+    final Map<Element, Object> cellValues = new HashMap<Element, Object>();
+    HTMLTable.CellFormatter cellFormatter = baseTable.dataGrid.getCellFormatter();
+    for ( int i = 0; i < ROW_VALUES.length; i++ ) {
+      Element cell = mock( Element.class );
+      cellValues.put( cell, ROW_VALUES[i][SIZE] );
+      when( cellFormatter.getElement( i, SIZE ) ).thenReturn( cell );
+    }
+    baseTable.columnComparators[SIZE] = new BaseColumnComparator() {
+      @Override
+      public Object extractSortKey( Element cell ) {
+        return cellValues.get( cell );
+      }
+
+      @Override
+      public int compareSortKeys( Object key1, Object key2 ) {
+        return ( (String) key1 ).compareTo( (String) key2 );
+      }
+
+      @Override
+      public int compare( Element cell1, Element cell2 ) {
+        return compareSortKeys( extractSortKey( cell1 ), extractSortKey( cell2 ) );
+      }
+    };
+
+    // Rows of the same size keep their order.
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( SIZE, false ) ), sortCallback );
+    verify( sortListener ).onSortingComplete( Arrays.asList( "o0", "o2", "o3", "o1", "o4" ) );
+  }
+  // endregion
+
+  // region filtering and paging
+  @Test
+  public void testPaging() throws Exception {
+    setUpTableModel();
+    doCallRealMethod().when( baseTable ).setPageSize( anyInt() );
+    doCallRealMethod().when( baseTable ).getPageSize();
+    doCallRealMethod().when( baseTable ).setPageIndex( anyInt() );
+    doCallRealMethod().when( baseTable ).getPageIndex();
+    doCallRealMethod().when( baseTable ).getPageCount();
+    doCallRealMethod().when( baseTable ).getFilteredRowCount();
+    baseTable.scrollTable = mock( ScrollTable.class );
+    assertEquals( 1, baseTable.getPageCount() );
+
+    baseTable.setPageSize( 2 );
+    assertEquals( 2, baseTable.getPageSize() );
+    assertEquals( 3, baseTable.getPageCount() );
+    assertEquals( 5, baseTable.getFilteredRowCount() );
+    assertArrayEquals( new int[] { 0, 1 }, baseTable.viewRows );
+    verify( baseTable.dataGrid ).resizeRows( 2 );
+
+    baseTable.setPageIndex( 2 );
+    assertEquals( 2, baseTable.getPageIndex() );
+    assertArrayEquals( new int[] { 4 }, baseTable.viewRows );
+
+    // The page index is limited to the existing pages.
+    baseTable.setPageIndex( 7 );
+    assertEquals( 2, baseTable.getPageIndex() );
+    assertArrayEquals( new int[] { 4 }, baseTable.viewRows );
+
+    baseTable.setPageIndex( -1 );
+    assertEquals( 0, baseTable.getPageIndex() );
+    assertArrayEquals( new int[] { 0, 1 }, baseTable.viewRows );
+
+    // Setting the page size displays the first page.
+    baseTable.setPageIndex( 1 );
+    baseTable.setPageSize( 3 );
+    assertEquals( 0, baseTable.getPageIndex() );
+    assertEquals( 2, baseTable.getPageCount() );
+    assertArrayEquals( new int[] { 0, 1, 2 }, baseTable.viewRows );
+
+    baseTable.setPageSize( 0 );
+    assertEquals( 1, baseTable.getPageCount() );
+    assertArrayEquals( new int[] { 0, 1, 2, 3, 4 }, baseTable.viewRows );
+  }
+
+  @Test
+  public void testPagingFilteredRows() throws Exception {
+    setUpTableModel();
+    doCallRealMethod().when( baseTable ).setPageSize( anyInt() );
+    doCallRealMethod().when( baseTable ).setPageIndex( anyInt() );
+    doCallRealMethod().when( baseTable ).getPageIndex();
+    doCallRealMethod().when( baseTable ).getPageCount();
+    doCallRealMethod().when( baseTable ).getFilteredRowCount();
+    doCallRealMethod().when( baseTable ).setColumnFilter( anyInt(), any( Predicate.class ) );
+    baseTable.scrollTable = mock( ScrollTable.class );
+    baseTable.setPageSize( 2 );
+    baseTable.setPageIndex( 2 );
+
+    // Filtering displays the first page of the rows which pass.
+    baseTable.setColumnFilter( SIZE, "2"::equals );
+    assertEquals( 0, baseTable.getPageIndex() );
+    assertEquals( 3, baseTable.getFilteredRowCount() );
+    assertEquals( 2, baseTable.getPageCount() );
+    assertArrayEquals( new int[] { 0, 2 }, baseTable.viewRows );
+
+    baseTable.setPageIndex( 1 );
+    assertArrayEquals( new int[] { 3 }, baseTable.viewRows );
+  }
+
+  @Test
+  public void testFilterAndSort() throws Exception {
+    BaseTable.BaseTableColumnSorter sorter = setUpSorting();
+    doCallRealMethod().when( baseTable ).setColumnFilter( anyInt(), any( Predicate.class ) );
+    doCallRealMethod().when( baseTable ).clearFilters();
+    baseTable.scrollTable = mock( ScrollTable.class );
+
+    baseTable.setColumnFilter( SIZE, "2"::equals );
+    assertArrayEquals( new int[] { 0, 2, 3 }, baseTable.viewRows );
+
+    // The rows which pass the filters are sorted.
+    when( baseTable.dataGrid.getRowCount() ).thenReturn( 3 );
+    sorter.onSortColumn( baseTable.dataGrid, sortList( new ColumnSortInfo( NAME, true ) ), sortCallback );
+    assertArrayEquals( new int[] { 3, 0, 2 }, baseTable.viewRows );
+    verify( sortCallback ).onSortingComplete( new Element[] { gridRows[2], gridRows[0], gridRows[1] } );
+    verify( sortListener ).onSortingComplete( Arrays.asList( "o3", "o0", "o2" ) );
+
+    // The rows which were filtered out are sorted too.
+    baseTable.clearFilters();
+    assertArrayEquals( new int[] { 1, 3, 0, 2, 4 }, baseTable.viewRows );
+
+    // The rows which pass the filters keep the sort order.
+    baseTable.setColumnFilter( NAME, "a"::equals );
+    assertArrayEquals( new int[] { 1, 3 }, baseTable.viewRows );
+  }
+
+  @Test
+  public void testQuickFilterBoxIsDebounced() throws Exception {
+    setUpTableModel();
+    doCallRealMethod().when( baseTable ).onQuickFilterChange();
+    doCallRealMethod().when( baseTable ).setQuickFilter( anyString() );
+    doCallRealMethod().when( baseTable ).getQuickFilter();
+    baseTable.scrollTable = mock( ScrollTable.class );
+    baseTable.quickFilterTextBox = mock( SearchTextBox.class );
+
+    // Typing is applied once the user pauses.
+    when( baseTable.quickFilterTextBox.getValue() ).thenReturn( "D" );
+    baseTable.onQuickFilterChange();
+    ArgumentCaptor<Timer> timer = ArgumentCaptor.forClass( Timer.class );
+    verify( baseTable ).schedule( timer.capture(), eq( BaseTable.QUICK_FILTER_DELAY_MILLIS ) );
+    assertEquals( "", baseTable.getQuickFilter() );
+    assertEquals( 5, baseTable.viewRows.length );
+
+    // Each change restarts the delay.
+    baseTable.onQuickFilterChange();
+    verify( baseTable, times( 2 ) ).cancel( timer.getValue() );
+    verify( baseTable, times( 2 ) ).schedule( timer.getValue(), BaseTable.QUICK_FILTER_DELAY_MILLIS );
+
+    timer.getValue().run();
+    assertEquals( "d", baseTable.getQuickFilter() );
+    assertArrayEquals( new int[] { 4 }, baseTable.viewRows );
+
+    // Clearing the box is applied right away.
+    when( baseTable.quickFilterTextBox.getValue() ).thenReturn( "" );
+    baseTable.onQuickFilterChange();
+    verify( baseTable, times( 2 ) ).schedule( any( Timer.class ), anyInt() );
+    assertEquals( "", baseTable.getQuickFilter() );
+    assertArrayEquals( new int[] { 0, 1, 2, 3, 4 }, baseTable.viewRows );
+  }
+  // endregion
+
+  /**
+   * Sets up the mocked table with rows of a name and a size, in their original order, and gets its column sorter.
+   */
+  private BaseTable.BaseTableColumnSorter setUpSorting() {
+    setUpTableModel();
+
+    sortCallback = mock( SortableGrid.ColumnSorterCallback.class );
+    sortListener = mock( TableColumnSortListener.class );
+
+    BaseTable.BaseTableColumnSorter sorter = baseTable.new BaseTableColumnSorter();
+    sorter.setTableColumnSortListener( sortListener );
+    return sorter;
+  }
+
+  /**
+   * Sets up the mocked table with rows of a name and a size, in their original order, all rendered.
+   */
+  private void setUpTableModel() {
+    doCallRealMethod().when( baseTable ).setTableModel( any( Object[][].class ), any( Object[].class ) );
+
+    baseTable.rowFilter = new TableRowFilter();
+    baseTable.numberOfColumns = 2;
+    baseTable.columnComparators = new BaseColumnComparator[] {
+      BaseColumnComparator.getInstance( ColumnComparatorTypes.STRING_NOCASE ),
+      BaseColumnComparator.getInstance( ColumnComparatorTypes.NUMERIC ) };
+
+    baseTable.setTableModel( ROW_VALUES, new Object[] { "o0", "o1", "o2", "o3", "o4" } );
+
+    baseTable.dataGrid = mock( FixedWidthGrid.class );
+    HTMLTable.RowFormatter rowFormatter = mock( HTMLTable.RowFormatter.class );
+    when( baseTable.dataGrid.getRowFormatter() ).thenReturn( rowFormatter );
+    when( baseTable.dataGrid.getCellFormatter() ).thenReturn( mock( HTMLTable.CellFormatter.class ) );
+    when( baseTable.dataGrid.getRowCount() ).thenReturn( ROW_VALUES.length );
+
+    gridRows = new Element[ROW_VALUES.length];
+    for ( int i = 0; i < gridRows.length; i++ ) {
+      gridRows[i] = mock( Element.class );
+      when( rowFormatter.getElement( i ) ).thenReturn( gridRows[i] );
+    }
+  }
+
+  /**
+   * Creates a sort list, given its primary sort first.
+   */
+  private static ColumnSortList sortList( ColumnSortInfo... sortInfos ) {
+    ColumnSortList sortList = new ColumnSortList();
+    for ( int i = sortInfos.length - 1; i >= 0; i-- ) {
+      sortList.add( sortInfos[i] );
+    }
+    return sortList;
+  }
+
+  /**
+   * Sets up the mocked table with virtual scrolling and a number of rows, in their original order.
+   */
+  private void setUpVirtualRows( int rowCount ) {
+    doCallRealMethod().when( baseTable ).setVirtualScrolling( anyBoolean() );
+    doCallRealMethod().when( baseTable ).setVirtualRowHeight( anyInt() );
+    doCallRealMethod().when( baseTable ).bindVirtualRows( anyBoolean() );
+    doReturn( true ).when( baseTable ).bindVirtualRow( anyInt(), anyInt(), anyBoolean() );
+
+    baseTable.dataGrid = mock( FixedWidthGrid.class );
+    baseTable.virtualSelectedRows = new BitSet();
+    baseTable.setVirtualRowHeight( 24 );
+    baseTable.setVirtualScrolling( true );
+
+    baseTable.rowValues = new Object[rowCount][];
+    baseTable.viewRows = new int[rowCount];
+    for ( int i = 0; i < rowCount; i++ ) {
+      baseTable.rowValues[i] = new Object[] { "row" + i };
+      baseTable.viewRows[i] = i;
+    }
+  }
 }
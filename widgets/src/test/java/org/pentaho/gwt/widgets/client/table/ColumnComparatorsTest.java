@@ -0,0 +1,84 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.table;
+
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pentaho.gwt.widgets.client.table.ColumnComparators.BaseColumnComparator;
+import org.pentaho.gwt.widgets.client.table.ColumnComparators.ColumnComparatorTypes;
+import org.pentaho.gwt.widgets.client.table.ColumnComparators.TextColumnComparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith( GwtMockitoTestRunner.class )
+public class ColumnComparatorsTest {
+
+  @Test
+  public void testCompareNumericSortKeys() {
+    BaseColumnComparator comparator = BaseColumnComparator.getInstance( ColumnComparatorTypes.NUMERIC );
+
+    assertTrue( comparator.compareSortKeys( 2.0, 10.0 ) < 0 );
+    assertTrue( comparator.compareSortKeys( 10.0, 2.0 ) > 0 );
+    assertEquals( 0, comparator.compareSortKeys( 2.0, 2.0 ) );
+  }
+
+  @Test
+  public void testCompareSortKeysNullIsLess() {
+    BaseColumnComparator comparator = BaseColumnComparator.getInstance( ColumnComparatorTypes.DATE );
+
+    assertTrue( comparator.compareSortKeys( null, 1000L ) < 0 );
+    assertTrue( comparator.compareSortKeys( 1000L, null ) > 0 );
+    assertEquals( 0, comparator.compareSortKeys( null, null ) );
+  }
+
+  @Test
+  public void testCompareSortKeysDescending() {
+    BaseColumnComparator comparator = BaseColumnComparator.getInstance( ColumnComparatorTypes.STRING_NOCASE );
+    comparator.setAscending( false );
+
+    assertTrue( comparator.compareSortKeys( "apple", "banana" ) > 0 );
+    assertTrue( comparator.compareSortKeys( null, "apple" ) > 0 );
+  }
+
+  @Test
+  public void testExtractValueSortKeyFromHtml() {
+    assertEquals( 12.5, BaseColumnComparator.getInstance( ColumnComparatorTypes.NUMERIC )
+      .extractValueSortKey( "<b>12.5</b>" ) );
+    assertEquals( "a & b", BaseColumnComparator.getInstance( ColumnComparatorTypes.STRING_NOCASE )
+      .extractValueSortKey( "<span title=\"x\">A &amp; B</span>" ) );
+    assertEquals( "A & B", BaseColumnComparator.getInstance( ColumnComparatorTypes.STRING_CASE )
+      .extractValueSortKey( "A &amp; B" ) );
+    assertNull( BaseColumnComparator.getInstance( ColumnComparatorTypes.NUMERIC ).extractValueSortKey( "n/a" ) );
+  }
+
+  @Test
+  public void testGetHtmlText() {
+    assertEquals( "plain", TextColumnComparator.getHtmlText( "plain" ) );
+    assertEquals( "bold text", TextColumnComparator.getHtmlText( "<b>bold</b> text" ) );
+    assertEquals( "<>\"'\u00a0", TextColumnComparator.getHtmlText( "&lt;&gt;&quot;&apos;&nbsp;" ) );
+    assertEquals( "AB", TextColumnComparator.getHtmlText( "&#65;&#x42;" ) );
+    assertEquals( "a &unknown; b & c", TextColumnComparator.getHtmlText( "a &unknown; b & c" ) );
+    assertEquals( "a <b", TextColumnComparator.getHtmlText( "a <b" ) );
+  }
+
+  @Test
+  public void testExtractSortKeyOfMissingCell() {
+    assertNull( BaseColumnComparator.getInstance( ColumnComparatorTypes.NUMERIC ).extractSortKey( null ) );
+    assertNull( BaseColumnComparator.getInstance( ColumnComparatorTypes.DATE ).extractSortKey( null ) );
+    assertNull( BaseColumnComparator.getInstance( ColumnComparatorTypes.STRING_CASE ).extractSortKey( null ) );
+  }
+}
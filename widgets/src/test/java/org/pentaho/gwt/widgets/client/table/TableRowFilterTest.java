@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.table;
+
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith( GwtMockitoTestRunner.class )
+public class TableRowFilterTest {
+
+  private static final int[] ALL_ROWS = { 0, 1, 2, 3 };
+
+  private TableRowFilter filter;
+
+  @Before
+  public void setUp() {
+    filter = new TableRowFilter();
+    filter.setRowValues( new Object[][] {
+      { "Daily sales", "admin" },
+      { "<b>Weekly</b> sales", "suzy" },
+      { "Inventory", "Admin" },
+      { "Tom &amp; Jerry", null }
+    } );
+  }
+
+  @Test
+  public void testNoFilterReturnsSameRows() {
+    assertFalse( filter.isFiltered() );
+    assertSame( ALL_ROWS, filter.filter( ALL_ROWS ) );
+  }
+
+  @Test
+  public void testQuickFilterIgnoresCaseAndMarkup() {
+    filter.setQuickFilter( "ADMIN" );
+    assertArrayEquals( new int[] { 0, 2 }, filter.filter( ALL_ROWS ) );
+
+    filter.setQuickFilter( "weekly sales" );
+    assertArrayEquals( new int[] { 1 }, filter.filter( ALL_ROWS ) );
+
+    filter.setQuickFilter( "tom & jerry" );
+    assertArrayEquals( new int[] { 3 }, filter.filter( ALL_ROWS ) );
+  }
+
+  @Test
+  public void testQuickFilterDoesNotMatchAcrossCells() {
+    filter.setQuickFilter( "sales admin" );
+    assertArrayEquals( new int[0], filter.filter( ALL_ROWS ) );
+  }
+
+  @Test
+  public void testQuickFilterNarrowsAndWidens() {
+    filter.setQuickFilter( "s" );
+    assertArrayEquals( new int[] { 0, 1 }, filter.filter( ALL_ROWS ) );
+
+    filter.setQuickFilter( "sales" );
+    assertArrayEquals( new int[] { 0, 1 }, filter.filter( ALL_ROWS ) );
+
+    filter.setQuickFilter( "daily sales" );
+    assertArrayEquals( new int[] { 0 }, filter.filter( ALL_ROWS ) );
+
+    filter.setQuickFilter( "in" );
+    assertArrayEquals( new int[] { 0, 2 }, filter.filter( ALL_ROWS ) );
+
+    assertTrue( filter.setQuickFilter( null ) );
+    assertFalse( filter.setQuickFilter( "  " ) );
+    assertSame( ALL_ROWS, filter.filter( ALL_ROWS ) );
+  }
+
+  @Test
+  public void testFilterKeepsOrder() {
+    filter.setQuickFilter( "a" );
+    assertArrayEquals( new int[] { 2, 1, 0 }, filter.filter( new int[] { 3, 2, 1, 0 } ) );
+  }
+
+  @Test
+  public void testColumnPredicates() {
+    filter.setColumnPredicate( 1, value -> value != null );
+    assertArrayEquals( new int[] { 0, 1, 2 }, filter.filter( ALL_ROWS ) );
+
+    filter.setColumnPredicate( 0, value -> value.toString().contains( "sales" ) );
+    assertArrayEquals( new int[] { 0, 1 }, filter.filter( ALL_ROWS ) );
+
+    filter.setQuickFilter( "suzy" );
+    assertArrayEquals( new int[] { 1 }, filter.filter( ALL_ROWS ) );
+
+    filter.setColumnPredicate( 0, null );
+    filter.setQuickFilter( null );
+    assertArrayEquals( new int[] { 0, 1, 2 }, filter.filter( ALL_ROWS ) );
+
+    filter.clearColumnPredicates();
+    assertSame( ALL_ROWS, filter.filter( ALL_ROWS ) );
+  }
+
+  @Test
+  public void testInvalidateRow() {
+    Object[][] rowValues = { { "alpha" }, { "beta" } };
+    filter.setRowValues( rowValues );
+    filter.setQuickFilter( "alp" );
+    assertArrayEquals( new int[] { 0 }, filter.filter( new int[] { 0, 1 } ) );
+
+    rowValues[1] = new Object[] { "alphabet" };
+    filter.invalidateRow( 1 );
+    assertArrayEquals( new int[] { 0, 1 }, filter.filter( new int[] { 0, 1 } ) );
+
+    filter.setQuickFilter( "alph" );
+    assertArrayEquals( new int[] { 0, 1 }, filter.filter( new int[] { 0, 1 } ) );
+  }
+}
@@ -0,0 +1,95 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils;
+
+import com.google.gwt.dom.client.Element;
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith( GwtMockitoTestRunner.class )
+public class ElementUtilsTest {
+
+  @Test
+  public void testGetSizesOfRenderedElements() {
+    Element element0 = mockElement( 10, 20 );
+    Element element1 = mockElement( 30, 40 );
+
+    Rectangle[] sizes = ElementUtils.getSizes( Arrays.asList( element0, element1 ) );
+
+    assertSize( sizes[ 0 ], 10, 20 );
+    assertSize( sizes[ 1 ], 30, 40 );
+    verify( element0, never() ).cloneNode( anyBoolean() );
+    verify( element1, never() ).cloneNode( anyBoolean() );
+  }
+
+  @Test
+  public void testGetSizesClonesUnrenderedElementsAtOnce() {
+    Element rendered = mockElement( 10, 20 );
+    Element unrendered0 = mockElement( 0, 0 );
+    Element clone0 = mockClone( unrendered0, 30, 40 );
+    Element unrendered1 = mockElement( 0, 0 );
+    Element clone1 = mockClone( unrendered1, 50, 60 );
+
+    Rectangle[] sizes = ElementUtils.getSizes( Arrays.asList( unrendered0, rendered, unrendered1 ) );
+
+    assertSize( sizes[ 0 ], 30, 40 );
+    assertSize( sizes[ 1 ], 10, 20 );
+    assertSize( sizes[ 2 ], 50, 60 );
+    verify( rendered, never() ).cloneNode( anyBoolean() );
+
+    // All the clones are added before any of them is measured.
+    InOrder order = inOrder( unrendered0, unrendered1, clone0, clone1 );
+    order.verify( unrendered0 ).cloneNode( true );
+    order.verify( unrendered1 ).cloneNode( true );
+    order.verify( clone0 ).getOffsetWidth();
+    order.verify( clone1 ).getOffsetWidth();
+  }
+
+  @Test
+  public void testGetSizesOfNoElements() {
+    assertEquals( 0, ElementUtils.getSizes( Collections.<Element>emptyList() ).length );
+  }
+
+  private static Element mockElement( int width, int height ) {
+    Element element = mock( Element.class );
+    when( element.getOffsetWidth() ).thenReturn( width );
+    when( element.getOffsetHeight() ).thenReturn( height );
+    return element;
+  }
+
+  private static Element mockClone( Element element, int width, int height ) {
+    Element clone = mockElement( width, height );
+    when( element.cloneNode( true ) ).thenReturn( clone );
+    when( clone.cast() ).thenReturn( clone );
+    return clone;
+  }
+
+  private static void assertSize( Rectangle size, int width, int height ) {
+    assertEquals( width, size.width );
+    assertEquals( height, size.height );
+  }
+}
@@ -0,0 +1,240 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import com.google.gwt.http.client.Header;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests how {@link BundleBatchLoader} loads bundles, with the requests to the batch endpoint and the loading of each
+ * bundle replaced. Each test uses its own path, as the bundle cache and the missing endpoints are shared.
+ */
+@RunWith( GwtMockitoTestRunner.class )
+public class BundleBatchLoaderLoadTest {
+
+  private static final String[] BUNDLE_NAMES = { "messages", "dialogs" };
+
+  // region loadBundles
+  @Test
+  public void testLoadBundlesPopulatesTheCache() {
+    TestLoader loader = new TestLoader( "populate" );
+    LoadCallback callback = new LoadCallback();
+    loader.loadBundles( BUNDLE_NAMES, callback );
+
+    assertEquals( Arrays.asList( "populate/bundles?bundle=messages&bundle=dialogs&locale=pt" ), loader.requestUrls );
+    loader.respond( new TestResponse( Response.SC_OK, createBatch( BUNDLE_NAMES ) ) );
+
+    assertEquals( "title=messages\n", ResourceBundle.getCachedText( "populate/messages.properties" ) );
+    assertEquals( "title=dialogs_pt\n", ResourceBundle.getCachedText( "populate/dialogs_pt.properties" ) );
+    assertEquals( "", ResourceBundle.getCachedText( "populate/dialogs_supported_languages.properties" ) );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), callback.bundleNames );
+  }
+
+  @Test
+  public void testLoadBundlesSkipsCachedBundles() {
+    cacheBundle( "cached", "messages" );
+
+    TestLoader loader = new TestLoader( "cached" );
+    loader.loadBundles( BUNDLE_NAMES, new LoadCallback() );
+    assertEquals( Arrays.asList( "cached/bundles?bundle=dialogs&locale=pt" ), loader.requestUrls );
+
+    cacheBundle( "cached", "dialogs" );
+
+    loader = new TestLoader( "cached" );
+    LoadCallback callback = new LoadCallback();
+    loader.loadBundles( BUNDLE_NAMES, callback );
+    assertTrue( loader.requestUrls.isEmpty() );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), callback.bundleNames );
+  }
+
+  @Test
+  public void testMissingBatchEndpointIsRemembered() {
+    TestLoader loader = new TestLoader( "missing" );
+    LoadCallback callback = new LoadCallback();
+    loader.loadBundles( BUNDLE_NAMES, callback );
+    loader.respond( new TestResponse( Response.SC_NOT_FOUND, "" ) );
+
+    // The bundles are fetched individually.
+    assertNull( ResourceBundle.getCachedText( "missing/messages.properties" ) );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), callback.bundleNames );
+
+    // The endpoint is not requested again, by any loader.
+    loader = new TestLoader( "missing" );
+    loader.loadBundles( BUNDLE_NAMES, new LoadCallback() );
+    assertTrue( loader.requestUrls.isEmpty() );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+  }
+
+  @Test
+  public void testFailedRequestsFallBackToIndividualFetches() {
+    TestLoader loader = new TestLoader( "failed" );
+    LoadCallback callback = new LoadCallback();
+    loader.loadBundles( BUNDLE_NAMES, callback );
+    loader.requestCallback.onError( null, new RuntimeException() );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), callback.bundleNames );
+
+    // Not a batch response.
+    loader = new TestLoader( "failed" );
+    loader.loadBundles( BUNDLE_NAMES, new LoadCallback() );
+    loader.respond( new TestResponse( Response.SC_OK, "<html><body>Login</body></html>" ) );
+    assertNull( ResourceBundle.getCachedText( "failed/messages.properties" ) );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+
+    // The request cannot be sent.
+    loader = new TestLoader( "failed" );
+    loader.requestException = new RequestException();
+    callback = new LoadCallback();
+    loader.loadBundles( BUNDLE_NAMES, callback );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), callback.bundleNames );
+
+    // Failures are not remembered, as with a missing endpoint.
+    assertEquals( 1, loader.requestUrls.size() );
+  }
+  // endregion
+
+  /**
+   * Creates the batch response for bundles, with a base file and, for dialogs, a language file.
+   */
+  private static String createBatch( String... bundleNames ) {
+    StringBuilder batch = new StringBuilder();
+    for ( String bundleName : bundleNames ) {
+      for ( String fileName : BundleBatchLoader.getFileNames( bundleName, "pt" ) ) {
+        String text = "";
+        if ( fileName.equals( bundleName + ".properties" ) ) {
+          text = "title=" + bundleName + "\n";
+        } else if ( fileName.equals( "dialogs_pt.properties" ) ) {
+          text = "title=dialogs_pt\n";
+        }
+        batch.append( fileName ).append( '\n' ).append( text.length() ).append( '\n' ).append( text );
+      }
+    }
+    return batch.toString();
+  }
+
+  private static void cacheBundle( String path, String bundleName ) {
+    for ( String fileName : BundleBatchLoader.getFileNames( bundleName, "pt" ) ) {
+      ResourceBundle.putCachedText( path + "/" + fileName, "" );
+    }
+  }
+
+  /**
+   * A loader which records its requests, for the test to respond to, and which loads each bundle at once.
+   */
+  private static class TestLoader extends BundleBatchLoader {
+
+    private final List<String> requestUrls = new ArrayList<String>();
+    private final List<String> loadedBundleNames = new ArrayList<String>();
+    private RequestCallback requestCallback;
+    private RequestException requestException;
+
+    TestLoader( String path ) {
+      super( path, null, "pt" );
+    }
+
+    @Override
+    String encodeQueryString( String value ) {
+      return URLEncoder.encode( value, StandardCharsets.UTF_8 );
+    }
+
+    @Override
+    void sendBatchRequest( String url, RequestCallback callback ) throws RequestException {
+      requestUrls.add( url );
+      if ( requestException != null ) {
+        throw requestException;
+      }
+      requestCallback = callback;
+    }
+
+    @Override
+    void loadBundle( ResourceBundle bundle, String bundleName, IResourceBundleLoadCallback callback ) {
+      loadedBundleNames.add( bundleName );
+      callback.bundleLoaded( bundleName );
+    }
+
+    void respond( Response response ) {
+      requestCallback.onResponseReceived( null, response );
+    }
+  }
+
+  private static class LoadCallback implements IBundleBatchLoadCallback {
+
+    private List<String> bundleNames;
+
+    public void bundlesLoaded( Map<String, ResourceBundle> bundles ) {
+      bundleNames = new ArrayList<String>( bundles.keySet() );
+    }
+  }
+
+  private static class TestResponse extends Response {
+
+    private final int statusCode;
+    private final String text;
+
+    TestResponse( int statusCode, String text ) {
+      this.statusCode = statusCode;
+      this.text = text;
+    }
+
+    @Override
+    public String getHeader( String header ) {
+      return null;
+    }
+
+    @Override
+    public Header[] getHeaders() {
+      return new Header[0];
+    }
+
+    @Override
+    public String getHeadersAsString() {
+      return "";
+    }
+
+    @Override
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    @Override
+    public String getStatusText() {
+      return "";
+    }
+
+    @Override
+    public String getText() {
+      return text;
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import com.google.gwt.http.client.Header;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.Response;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link BundleBatchLoader} against {@link BundleBatchServlet}, with the batch requests sent over HTTP. Each
+ * test starts its own server, on its own port, so the bundle cache and the missing endpoints are not shared.
+ */
+public class BundleBatchLoaderServerTest {
+
+  private static final String[] BUNDLE_NAMES = { "messages", "dialogs" };
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Server server;
+  private String serverUrl;
+  private String batchUrl;
+
+  @Before
+  public void setUp() throws Exception {
+    File directory = temporaryFolder.getRoot();
+    write( directory, "messages.properties", "title=Title\nok=OK\n" );
+    write( directory, "messages_pt.properties", "title=T\u00edtulo\n" );
+    write( directory, "messages_supported_languages.properties", "pt=Portugu\u00eas\n" );
+    write( directory, "dialogs.properties", "cancel=Cancel\n" );
+
+    server = new Server( 0 );
+    ServletContextHandler context = new ServletContextHandler( "/" );
+    context.addServlet( new ServletHolder( new BundleBatchServlet( directory ) ), "/messages/bundles" );
+    server.setHandler( context );
+    server.start();
+
+    serverUrl = "http://localhost:" + ( (ServerConnector) server.getConnectors()[0] ).getLocalPort();
+    batchUrl = serverUrl + "/messages/bundles";
+
+    // Do not persist bundles.
+    PersistentBundleCache.setInstance( new PersistentBundleCache( null, null, 0, null ) );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    PersistentBundleCache.setInstance( null );
+    server.stop();
+  }
+
+  // region servlet
+  @Test
+  public void testServletResponse() throws IOException {
+    Map<String, String> files =
+        BundleBatchLoader.parseResponse( get( batchUrl + "?bundle=messages&bundle=dialogs&locale=pt_BR" ) );
+
+    assertEquals( 8, files.size() );
+    assertEquals( "pt=Portugu\u00eas\n", files.get( "messages_supported_languages.properties" ) );
+    assertEquals( "title=Title\nok=OK\n", files.get( "messages.properties" ) );
+    assertEquals( "title=T\u00edtulo\n", files.get( "messages_pt.properties" ) );
+    assertEquals( "", files.get( "messages_pt_BR.properties" ) );
+    assertEquals( "cancel=Cancel\n", files.get( "dialogs.properties" ) );
+    assertEquals( "", files.get( "dialogs_pt.properties" ) );
+  }
+
+  @Test
+  public void testServletRejectsPaths() throws IOException {
+    assertEquals( HttpURLConnection.HTTP_BAD_REQUEST, getStatus( batchUrl + "?bundle=../messages&locale=pt" ) );
+    assertEquals( HttpURLConnection.HTTP_BAD_REQUEST, getStatus( batchUrl + "?locale=pt" ) );
+  }
+  // endregion
+
+  // region loadBundles
+  @Test
+  public void testLoadBundles() {
+    HttpLoader loader = new HttpLoader( serverUrl + "/messages", null );
+    LoadCallback callback = new LoadCallback();
+    loader.loadBundles( BUNDLE_NAMES, callback );
+
+    assertEquals( Arrays.asList( batchUrl + "?bundle=messages&bundle=dialogs&locale=pt_BR" ), loader.requestUrls );
+    String path = serverUrl + "/messages/";
+    assertEquals( "title=Title\nok=OK\n", ResourceBundle.getCachedText( path + "messages.properties" ) );
+    assertEquals( "title=T\u00edtulo\n", ResourceBundle.getCachedText( path + "messages_pt.properties" ) );
+    assertEquals( "", ResourceBundle.getCachedText( path + "messages_pt_BR.properties" ) );
+    assertEquals( "", ResourceBundle.getCachedText( path + "dialogs_supported_languages.properties" ) );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), callback.bundleNames );
+
+    // The bundles are now loaded from the cache.
+    loader = new HttpLoader( serverUrl + "/messages", null );
+    loader.loadBundles( BUNDLE_NAMES, new LoadCallback() );
+    assertTrue( loader.requestUrls.isEmpty() );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+  }
+
+  @Test
+  public void testLoadBundlesWithoutTheServlet() {
+    HttpLoader loader = new HttpLoader( serverUrl + "/messages", serverUrl + "/missing/bundles" );
+    LoadCallback callback = new LoadCallback();
+    loader.loadBundles( BUNDLE_NAMES, callback );
+
+    // The bundles are fetched individually.
+    assertEquals( 1, loader.requestUrls.size() );
+    assertNull( ResourceBundle.getCachedText( serverUrl + "/messages/messages.properties" ) );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), callback.bundleNames );
+
+    // The missing endpoint is not requested again.
+    loader = new HttpLoader( serverUrl + "/messages", serverUrl + "/missing/bundles" );
+    loader.loadBundles( BUNDLE_NAMES, new LoadCallback() );
+    assertTrue( loader.requestUrls.isEmpty() );
+    assertEquals( Arrays.asList( BUNDLE_NAMES ), loader.loadedBundleNames );
+  }
+  // endregion
+
+  private static void write( File directory, String fileName, String text ) throws IOException {
+    Files.write( new File( directory, fileName ).toPath(), text.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  private static String get( String url ) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL( url ).openConnection();
+    try ( InputStream in = connection.getInputStream() ) {
+      return new String( in.readAllBytes(), StandardCharsets.UTF_8 );
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static int getStatus( String url ) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL( url ).openConnection();
+    try {
+      return connection.getResponseCode();
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * A loader which sends its batch requests over HTTP, and waits for their responses, and which loads each bundle at
+   * once, as loading a bundle needs the browser.
+   */
+  private static class HttpLoader extends BundleBatchLoader {
+
+    private final List<String> requestUrls = new ArrayList<String>();
+    private final List<String> loadedBundleNames = new ArrayList<String>();
+
+    HttpLoader( String path, String batchUrl ) {
+      super( path, batchUrl, "pt_BR" );
+    }
+
+    @Override
+    String encodeQueryString( String value ) {
+      return URLEncoder.encode( value, StandardCharsets.UTF_8 );
+    }
+
+    @Override
+    void sendBatchRequest( String url, RequestCallback callback ) {
+      requestUrls.add( url );
+      Response response;
+      try {
+        HttpURLConnection connection = (HttpURLConnection) new URL( url ).openConnection();
+        try {
+          int statusCode = connection.getResponseCode();
+          InputStream in = statusCode < HttpURLConnection.HTTP_BAD_REQUEST
+              ? connection.getInputStream() : connection.getErrorStream();
+          String text = in == null ? "" : new String( in.readAllBytes(), StandardCharsets.UTF_8 );
+          response = new HttpResponse( statusCode, connection.getResponseMessage(), text );
+        } finally {
+          connection.disconnect();
+        }
+      } catch ( IOException e ) {
+        callback.onError( null, e );
+        return;
+      }
+      callback.onResponseReceived( null, response );
+    }
+
+    @Override
+    void loadBundle( ResourceBundle bundle, String bundleName, IResourceBundleLoadCallback callback ) {
+      loadedBundleNames.add( bundleName );
+      callback.bundleLoaded( bundleName );
+    }
+  }
+
+  private static class LoadCallback implements IBundleBatchLoadCallback {
+
+    private List<String> bundleNames;
+
+    public void bundlesLoaded( Map<String, ResourceBundle> bundles ) {
+      bundleNames = new ArrayList<String>( bundles.keySet() );
+    }
+  }
+
+  private static class HttpResponse extends Response {
+
+    private final int statusCode;
+    private final String statusText;
+    private final String text;
+
+    HttpResponse( int statusCode, String statusText, String text ) {
+      this.statusCode = statusCode;
+      this.statusText = statusText;
+      this.text = text;
+    }
+
+    @Override
+    public String getHeader( String header ) {
+      return null;
+    }
+
+    @Override
+    public Header[] getHeaders() {
+      return new Header[0];
+    }
+
+    @Override
+    public String getHeadersAsString() {
+      return "";
+    }
+
+    @Override
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    @Override
+    public String getStatusText() {
+      return statusText;
+    }
+
+    @Override
+    public String getText() {
+      return text;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class BundleBatchLoaderTest {
+
+  // region getFileNames
+  @Test
+  public void testGetFileNames() {
+    assertEquals( Arrays.asList( "messages_supported_languages.properties", "messages.properties" ),
+        BundleBatchLoader.getFileNames( "messages", "default" ) );
+    assertEquals( Arrays.asList( "messages_supported_languages.properties", "messages.properties",
+        "messages_pt.properties", "messages_pt_BR.properties" ),
+        BundleBatchLoader.getFileNames( "messages", "pt_BR" ) );
+  }
+  // endregion
+
+  // region parseResponse
+  @Test
+  public void testParseResponse() {
+    Map<String, String> files = BundleBatchLoader.parseResponse( "a.properties\n4\nx=1\nb.properties\n0\n" );
+    assertEquals( 2, files.size() );
+    assertEquals( "x=1\n", files.get( "a.properties" ) );
+    assertEquals( "", files.get( "b.properties" ) );
+    assertEquals( 0, BundleBatchLoader.parseResponse( "" ).size() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testParseResponseWithoutLength() {
+    BundleBatchLoader.parseResponse( "<html><body>Not a batch</body></html>" );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testParseResponseWithInvalidLength() {
+    BundleBatchLoader.parseResponse( "a.properties\n10\nx=1" );
+  }
+  // endregion
+}
@@ -0,0 +1,64 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * A stand-in for the batch endpoint which {@link BundleBatchLoader} requests, serving the bundles of a directory.
+ */
+public class BundleBatchServlet extends HttpServlet {
+
+  private final File directory;
+
+  public BundleBatchServlet( File directory ) {
+    this.directory = directory;
+  }
+
+  @Override
+  protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException {
+    String[] bundleNames = request.getParameterValues( "bundle" );
+    String localeName = request.getParameter( "locale" );
+    if ( bundleNames == null ) {
+      response.sendError( HttpServletResponse.SC_BAD_REQUEST );
+      return;
+    }
+
+    StringBuilder body = new StringBuilder();
+    for ( String bundleName : bundleNames ) {
+      if ( bundleName.isEmpty() || bundleName.contains( "/" ) || bundleName.contains( "\\" )
+          || bundleName.contains( ".." ) ) {
+        response.sendError( HttpServletResponse.SC_BAD_REQUEST );
+        return;
+      }
+
+      for ( String fileName : BundleBatchLoader.getFileNames( bundleName, localeName ) ) {
+        File file = new File( directory, fileName );
+        String text = file.isFile() ? new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 ) : "";
+        body.append( fileName ).append( '\n' ).append( text.length() ).append( '\n' ).append( text );
+      }
+    }
+
+    response.setContentType( "text/plain" );
+    response.setCharacterEncoding( "UTF-8" );
+    response.getWriter().write( body.toString() );
+  }
+}
@@ -0,0 +1,62 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MessageTemplateTest {
+
+  @Test
+  public void testFormat() {
+    MessageTemplate template = MessageTemplate.compile( "{0} of {1} rows, {0} selected" );
+    assertEquals( "5 of 10 rows, 5 selected", template.format( "5", "10" ) );
+    assertEquals( "1 of 2 rows, 1 selected", template.format( "1", "2" ) );
+  }
+
+  @Test
+  public void testFormatWithoutParameters() {
+    String message = "No parameters here";
+    MessageTemplate template = MessageTemplate.compile( message );
+    assertSame( message, template.format( "unused" ) );
+    assertSame( message, template.getMessage() );
+  }
+
+  @Test
+  public void testFormatKeepsMissingParameters() {
+    MessageTemplate template = MessageTemplate.compile( "{0} and {2}" );
+    assertEquals( "a and {2}", template.format( "a", "b" ) );
+    assertEquals( "{0} and {2}", template.format() );
+  }
+
+  @Test
+  public void testFormatKeepsNonParameterBraces() {
+    MessageTemplate template = MessageTemplate.compile( "{{0}} {a} {} {01} {-1} {1" );
+    assertEquals( "{x} {a} {} {01} {-1} {1", template.format( "x", "y" ) );
+  }
+
+  @Test
+  public void testFormatMatchesReplace() {
+    String message = "At {0}, {1} ran {2} in {3}ms";
+    String[] parameters = { "noon", "admin", "report", "42" };
+
+    String replaced = message;
+    for ( int i = 0; i < parameters.length; i++ ) {
+      replaced = replaced.replace( "{" + i + "}", parameters[i] );
+    }
+
+    assertEquals( replaced, MessageTemplate.compile( message ).format( parameters ) );
+  }
+}
@@ -0,0 +1,277 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentBundleCacheTest {
+
+  private static final String BASE_URL = "messages/messages.properties";
+  private static final String LANG_URL = "messages/messages_pt.properties";
+  private static final String LANG_COUNTRY_URL = "messages/messages_pt_PT.properties";
+  private static final String PAGE_URL = "http://localhost:8080/pentaho/mantle/Home?locale=pt";
+
+  private FakeStorage storage;
+
+  @Before
+  public void setUp() {
+    storage = new FakeStorage( Integer.MAX_VALUE );
+  }
+
+  @Test
+  public void testWarmLoad() {
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    cache.put( BASE_URL, "a=b" );
+    cache.put( LANG_URL, "" );
+
+    PersistentBundleCache warmCache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    assertEquals( "a=b", warmCache.get( BASE_URL ) );
+    assertEquals( "", warmCache.get( LANG_URL ) );
+    assertNull( warmCache.get( LANG_COUNTRY_URL ) );
+    assertEquals( cache.getSize(), warmCache.getSize() );
+  }
+
+  @Test
+  public void testNewVersionDropsEntries() {
+    new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL ).put( BASE_URL, "a=b" );
+
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.1", 1000, PAGE_URL );
+    assertNull( cache.get( BASE_URL ) );
+    assertEquals( 0, cache.getSize() );
+    assertFalse( storage.items.containsKey( entryKey( BASE_URL ) ) );
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    int entrySize = resolve( BASE_URL ).length() + 10;
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 2 * entrySize + 5, PAGE_URL );
+    cache.put( BASE_URL, "0123456789" );
+    cache.put( LANG_URL, "0123456789" );
+    cache.get( BASE_URL );
+    cache.put( LANG_COUNTRY_URL, "0" );
+
+    assertEquals( "0123456789", cache.get( BASE_URL ) );
+    assertNull( cache.get( LANG_URL ) );
+    assertEquals( "0", cache.get( LANG_COUNTRY_URL ) );
+    assertFalse( storage.items.containsKey( entryKey( LANG_URL ) ) );
+  }
+
+  @Test
+  public void testSkipsEntriesLargerThanTheCap() {
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 10, PAGE_URL );
+    cache.put( BASE_URL, "a=b" );
+
+    assertNull( cache.get( BASE_URL ) );
+    assertEquals( 0, cache.getSize() );
+  }
+
+  @Test
+  public void testFullStorageEvictsEntries() {
+    storage = new FakeStorage( entryKey( BASE_URL ).length() + entryKey( LANG_URL ).length() + 100 );
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    cache.put( BASE_URL, "0123456789" );
+    cache.put( LANG_URL, "01234567890123456789" );
+
+    assertNull( cache.get( BASE_URL ) );
+    assertEquals( "01234567890123456789", cache.get( LANG_URL ) );
+  }
+
+  @Test
+  public void testUnavailableStorage() {
+    PersistentBundleCache cache = new PersistentBundleCache( null, "1.0", 1000, PAGE_URL );
+    assertFalse( cache.isEnabled() );
+    cache.put( BASE_URL, "a=b" );
+    assertNull( cache.get( BASE_URL ) );
+
+    cache = new PersistentBundleCache( storage, null, 1000, PAGE_URL );
+    assertFalse( cache.isEnabled() );
+    cache.put( BASE_URL, "a=b" );
+    assertTrue( storage.items.isEmpty() );
+  }
+
+  @Test
+  public void testEntryRemovedFromOutside() {
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    cache.put( BASE_URL, "a=b" );
+    storage.removeItem( entryKey( BASE_URL ) );
+
+    assertNull( cache.get( BASE_URL ) );
+    assertEquals( 0, cache.getSize() );
+  }
+
+  @Test
+  public void testClear() {
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    cache.put( BASE_URL, "a=b" );
+    cache.clear();
+
+    assertNull( cache.get( BASE_URL ) );
+    assertTrue( storage.items.isEmpty() );
+  }
+
+  @Test
+  public void testCorruptedIndexDropsEntries() {
+    new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL ).put( BASE_URL, "a=b" );
+    storage.setItem( PersistentBundleCache.INDEX_KEY, "1.0\n" + resolve( BASE_URL ) + "\tx" );
+
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    assertNull( cache.get( BASE_URL ) );
+    assertEquals( 0, cache.getSize() );
+    assertTrue( storage.items.isEmpty() );
+  }
+
+  @Test
+  public void testPagesShareTheCap() {
+    int maxSize = resolve( LANG_URL ).length() + resolve( LANG_COUNTRY_URL ).length() + 20;
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", maxSize, PAGE_URL );
+    PersistentBundleCache otherCache = new PersistentBundleCache( storage, "1.0", maxSize, PAGE_URL );
+    cache.put( BASE_URL, "0123456789" );
+    otherCache.put( LANG_URL, "0123456789" );
+    cache.put( LANG_COUNTRY_URL, "0123456789" );
+
+    assertEquals( maxSize, cache.getSize() );
+    assertFalse( storage.items.containsKey( entryKey( BASE_URL ) ) );
+    assertTrue( storage.items.containsKey( entryKey( LANG_URL ) ) );
+    assertTrue( storage.items.containsKey( entryKey( LANG_COUNTRY_URL ) ) );
+    assertEquals( maxSize, new PersistentBundleCache( storage, "1.0", maxSize, PAGE_URL ).getSize() );
+  }
+
+  @Test
+  public void testReadsAreWrittenOnFlush() {
+    int entrySize = resolve( BASE_URL ).length() + 10;
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 2 * entrySize + 5, PAGE_URL );
+    cache.put( BASE_URL, "0123456789" );
+    cache.put( LANG_URL, "0123456789" );
+
+    String index = storage.getItem( PersistentBundleCache.INDEX_KEY );
+    cache.get( BASE_URL );
+    cache.get( BASE_URL );
+    assertEquals( index, storage.getItem( PersistentBundleCache.INDEX_KEY ) );
+
+    cache.flush();
+    PersistentBundleCache otherCache = new PersistentBundleCache( storage, "1.0", 2 * entrySize + 5, PAGE_URL );
+    otherCache.put( LANG_COUNTRY_URL, "0" );
+    assertTrue( storage.items.containsKey( entryKey( BASE_URL ) ) );
+    assertFalse( storage.items.containsKey( entryKey( LANG_URL ) ) );
+  }
+
+  @Test
+  public void testPutAllWritesTheIndexOnce() {
+    PersistentBundleCache cache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    Map<String, String> texts = new LinkedHashMap<String, String>();
+    texts.put( BASE_URL, "a=b" );
+    texts.put( LANG_URL, "a=c" );
+    texts.put( LANG_COUNTRY_URL, "" );
+    cache.putAll( texts );
+    assertEquals( 1, storage.indexWrites );
+
+    PersistentBundleCache warmCache = new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL );
+    assertEquals( "a=b", warmCache.get( BASE_URL ) );
+    assertEquals( "a=c", warmCache.get( LANG_URL ) );
+    assertEquals( "", warmCache.get( LANG_COUNTRY_URL ) );
+    assertEquals( cache.getSize(), warmCache.getSize() );
+  }
+
+  @Test
+  public void testEntriesAreKeyedByAbsoluteUrl() {
+    new PersistentBundleCache( storage, "1.0", 1000, PAGE_URL ).put( BASE_URL, "a=b" );
+
+    assertTrue( storage.items.containsKey( PersistentBundleCache.ENTRY_KEY_PREFIX
+        + "http://localhost:8080/pentaho/mantle/messages/messages.properties" ) );
+    assertEquals( "a=b", new PersistentBundleCache( storage, "1.0", 1000, "http://localhost:8080/pentaho/mantle/" )
+        .get( BASE_URL ) );
+    assertNull( new PersistentBundleCache( storage, "1.0", 1000, "http://localhost:8080/pentaho/content/" )
+        .get( BASE_URL ) );
+  }
+
+  @Test
+  public void testResolveUrl() {
+    String baseUrl = "http://localhost:8080/pentaho/mantle/Home?locale=pt#top";
+    assertEquals( "http://localhost:8080/pentaho/mantle/messages/a.properties",
+        PersistentBundleCache.resolveUrl( baseUrl, "messages/a.properties" ) );
+    assertEquals( "http://localhost:8080/pentaho/content/a.properties",
+        PersistentBundleCache.resolveUrl( baseUrl, "../content/./a.properties" ) );
+    assertEquals( "http://localhost:8080/messages/a.properties",
+        PersistentBundleCache.resolveUrl( baseUrl, "/messages/a.properties" ) );
+    assertEquals( "http://example.com/a.properties",
+        PersistentBundleCache.resolveUrl( baseUrl, "//example.com/a.properties" ) );
+    assertEquals( "https://example.com/a.properties",
+        PersistentBundleCache.resolveUrl( baseUrl, "https://example.com/a.properties" ) );
+    assertEquals( "http://localhost:8080/a.properties",
+        PersistentBundleCache.resolveUrl( "http://localhost:8080", "a.properties" ) );
+    assertEquals( "a.properties", PersistentBundleCache.resolveUrl( null, "a.properties" ) );
+  }
+
+  private static String resolve( String url ) {
+    return PersistentBundleCache.resolveUrl( PAGE_URL, url );
+  }
+
+  private static String entryKey( String url ) {
+    return PersistentBundleCache.ENTRY_KEY_PREFIX + resolve( url );
+  }
+
+  /**
+   * A storage which fails to set items once the total length of its keys and values would exceed its capacity, and
+   * which counts the writes of the index.
+   */
+  private static class FakeStorage implements PersistentBundleCache.Storage {
+
+    private final Map<String, String> items = new HashMap<String, String>();
+    private final int capacity;
+    private int indexWrites = 0;
+
+    FakeStorage( int capacity ) {
+      this.capacity = capacity;
+    }
+
+    public String getItem( String key ) {
+      return items.get( key );
+    }
+
+    public boolean setItem( String key, String value ) {
+      if ( key.equals( PersistentBundleCache.INDEX_KEY ) ) {
+        indexWrites++;
+      }
+      String previous = items.remove( key );
+      int length = key.length() + value.length();
+      for ( Map.Entry<String, String> item : items.entrySet() ) {
+        length += item.getKey().length() + item.getValue().length();
+      }
+
+      if ( length > capacity ) {
+        if ( previous != null ) {
+          items.put( key, previous );
+        }
+        return false;
+      }
+
+      items.put( key, value );
+      return true;
+    }
+
+    public void removeItem( String key ) {
+      items.remove( key );
+    }
+  }
+}
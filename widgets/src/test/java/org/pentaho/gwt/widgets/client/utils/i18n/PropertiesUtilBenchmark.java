@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import org.pentaho.gwt.widgets.client.utils.string.StringTokenizer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Times the parsing of large message files, against java.util.Properties and the previous parsing, by lines and then
+ * decoding. This is not run with the tests; run its main method to compare.
+ */
+public class PropertiesUtilBenchmark {
+
+  private static final int MESSAGE_COUNT = 20000;
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 50;
+
+  public static void main( String[] args ) throws IOException {
+    String text = createMessages( MESSAGE_COUNT );
+    System.out.println( "Parsing " + MESSAGE_COUNT + " messages, " + text.length() + " characters" );
+
+    long checksum = 0;
+    for ( int i = 0; i < WARMUP_ITERATIONS; i++ ) {
+      checksum += parse( text ) + load( text ) + parseLines( text );
+    }
+
+    long parseNanos = 0;
+    long loadNanos = 0;
+    long parseLinesNanos = 0;
+    for ( int i = 0; i < ITERATIONS; i++ ) {
+      long start = System.nanoTime();
+      checksum += parse( text );
+      parseNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      checksum += load( text );
+      loadNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      checksum += parseLines( text );
+      parseLinesNanos += System.nanoTime() - start;
+    }
+
+    System.out.println( "PropertiesUtil.parseProperties: " + parseNanos / ITERATIONS / 1000 + " us" );
+    System.out.println( "java.util.Properties.load:      " + loadNanos / ITERATIONS / 1000 + " us" );
+    System.out.println( "previous parsing:               " + parseLinesNanos / ITERATIONS / 1000 + " us" );
+    System.out.println( "(" + checksum + ")" );
+  }
+
+  /**
+   * Creates the text of a message file, with comments, parameters and escapes, as in the message files of the
+   * platform.
+   */
+  static String createMessages( int count ) {
+    StringBuilder text = new StringBuilder();
+    for ( int i = 0; i < count; i++ ) {
+      if ( i % 25 == 0 ) {
+        text.append( "# Section " ).append( i / 25 ).append( '\n' );
+      }
+      text.append( "dialog" ).append( i % 40 ).append( ".message" ).append( i ).append( '=' );
+      switch ( i % 4 ) {
+        case 0:
+          text.append( "The file {0} could not be saved." );
+          break;
+        case 1:
+          text.append( "Ol\\u00e1, {0}! Voc\\u00ea tem {1} mensagens." );
+          break;
+        case 2:
+          text.append( "A long message, which continues \\\n    on the next line." );
+          break;
+        default:
+          text.append( "Tom \\u0026 Jerry" );
+      }
+      text.append( '\n' );
+    }
+    return text.toString();
+  }
+
+  private static int parse( String text ) {
+    Map<String, String> properties = new HashMap<String, String>();
+    PropertiesUtil.parseProperties( text, properties, true );
+    return properties.size();
+  }
+
+  private static int load( String text ) throws IOException {
+    Properties properties = new Properties();
+    properties.load( new StringReader( text ) );
+    return properties.size();
+  }
+
+  /**
+   * Parses as PropertiesUtil did before, tokenizing the lines and looking for '=' twice per line, and then decodes the
+   * values as the bundles did.
+   */
+  private static int parseLines( String text ) {
+    Map<String, String> properties = new HashMap<String, String>();
+    StringTokenizer lineTokenizer = new StringTokenizer( text, '\n' );
+    for ( int i = 0; i < lineTokenizer.countTokens(); i++ ) {
+      String line = lineTokenizer.tokenAt( i );
+      if ( line.indexOf( '=' ) != -1 ) {
+        String key = line.substring( 0, line.indexOf( '=' ) ).trim();
+        String value = line.substring( line.indexOf( '=' ) + 1 ).trim();
+        properties.put( key, value );
+      }
+    }
+    for ( Map.Entry<String, String> entry : properties.entrySet() ) {
+      entry.setValue( decodeUnicodeEscapes( entry.getValue() ) );
+    }
+    return properties.size();
+  }
+
+  private static String decodeUnicodeEscapes( String str ) {
+    StringBuilder decoded = new StringBuilder( str.length() );
+    int start = 0;
+    int index = str.indexOf( "\\u" );
+    while ( index != -1 ) {
+      int code = PropertiesUtil.parseHex( str, index + 2, index + 6 );
+      if ( code == -1 ) {
+        index = str.indexOf( "\\u", index + 2 );
+        continue;
+      }
+      decoded.append( str, start, index );
+      PropertiesUtil.appendHtmlCharacter( decoded, (char) code );
+      start = index + 6;
+      index = str.indexOf( "\\u", start );
+    }
+    return decoded.append( str, start, str.length() ).toString();
+  }
+}
@@ -15,7 +15,10 @@ package org.pentaho.gwt.widgets.client.utils.i18n;
 
 import org.junit.Test;
 
+import java.io.StringReader;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
 import static org.junit.Assert.*;
 
@@ -65,4 +68,73 @@ public class PropertiesUtilTest {
     assertEquals( 2, buildProperties.size() );
     assertEquals( two, buildProperties.get( "2" ) );
   }
+
+  @Test
+  public void testBuildPropertiesKeepsDefaults() throws Exception {
+    final HashMap<String, String> defaultProperties = new HashMap<String, String>();
+    defaultProperties.put( "1", "one" );
+    PropertiesUtil.buildProperties( "1=uno", defaultProperties );
+    assertEquals( "one", defaultProperties.get( "1" ) );
+  }
+
+  @Test
+  public void testParsePropertiesMatchesJavaProperties() throws Exception {
+    final String text = "# comment\n"
+        + "! another comment = not a property\n"
+        + "\n"
+        + "   \t\n"
+        + "equals=one\n"
+        + "colon:two\n"
+        + "space three\n"
+        + "  padded   =   four  \n"
+        + "empty=\n"
+        + "keyOnly\n"
+        + "escaped\\ key\\=\\:=five\n"
+        + "escapes=tab\\tnew\\nline\\\\ \\q\n"
+        + "unicode=caf\\u00e9 \\u0026\n"
+        + "continued=first \\\n"
+        + "          second \\\r\n"
+        + "\t third\r"
+        + "windows=six\r\n"
+        + "separators=a=b:c\n"
+        + "notContinued=even\\\\\n"
+        + "# comment ending with \\\n"
+        + "afterComment=seven\n"
+        + "equals=overridden";
+
+    Properties expected = new Properties();
+    expected.load( new StringReader( text ) );
+
+    Map<String, String> properties = new HashMap<String, String>();
+    PropertiesUtil.parseProperties( text, properties, false );
+
+    assertEquals( expected.size(), properties.size() );
+    for ( String key : expected.stringPropertyNames() ) {
+      assertEquals( key, expected.getProperty( key ), properties.get( key ) );
+    }
+  }
+
+  @Test
+  public void testParsePropertiesWritesIntoMap() throws Exception {
+    final Map<String, String> properties = new HashMap<String, String>();
+    properties.put( "1", "one" );
+    properties.put( "2", "two" );
+    PropertiesUtil.parseProperties( "2=dois\n3=tr\\u00eas", properties, false );
+    assertEquals( 3, properties.size() );
+    assertEquals( "one", properties.get( "1" ) );
+    assertEquals( "dois", properties.get( "2" ) );
+    assertEquals( "tr\u00eas", properties.get( "3" ) );
+
+    PropertiesUtil.parseProperties( null, properties, false );
+    PropertiesUtil.parseProperties( "", properties, false );
+    assertEquals( 3, properties.size() );
+  }
+
+  @Test
+  public void testParsePropertiesHtmlEscapes() throws Exception {
+    final Map<String, String> properties = new HashMap<String, String>();
+    PropertiesUtil.parseProperties( "tom=Tom \\u0026 Jerry & co\ntag=\\u003cb\\u003e", properties, true );
+    assertEquals( "Tom &amp; Jerry & co", properties.get( "tom" ) );
+    assertEquals( "&lt;b&gt;", properties.get( "tag" ) );
+  }
 }
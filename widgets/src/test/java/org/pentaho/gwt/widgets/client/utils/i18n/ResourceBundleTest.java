@@ -0,0 +1,246 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.gwt.widgets.client.utils.i18n;
+
+import com.google.gwt.http.client.Response;
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith( GwtMockitoTestRunner.class )
+public class ResourceBundleTest {
+
+  // Escaped values, and the values which the browser gave back when their escapes were decoded through the DOM.
+  private static final String[][] ESCAPED_CORPUS = {
+    { "no escapes", "no escapes" },
+    { "Caf\\u00e9", "Caf\u00e9" },
+    { "\\u00C0 la carte", "\u00c0 la carte" },
+    { "\\u0101\\u0102\\u0103", "\u0101\u0102\u0103" },
+    { "\\u4e2d\\u6587 {0}", "\u4e2d\u6587 {0}" },
+    { "{0} \\u00e9 {1}", "{0} \u00e9 {1}" },
+    { "<b>\\u00e9t\\u00e9</b>", "<b>\u00e9t\u00e9</b>" },
+    { "Tom \\u0026 Jerry", "Tom &amp; Jerry" },
+    { "a \\u003c b \\u003e c", "a &lt; b &gt; c" },
+    { "non\\u00a0breaking", "non&nbsp;breaking" },
+    { "\\u0022quoted\\u0022", "\"quoted\"" },
+  };
+
+  // Values mixing escapes with literal markup or entities: the value, what the browser gave back when it was decoded
+  // through the DOM, and what it now decodes to. Once a value had an escape, the DOM serialized all of it, escaping
+  // literal '&' and '<', lower casing tags and decoding entities. Values are now decoded the same with and without
+  // escapes: only the escaped characters are HTML escaped, and literal text is kept as written, as it already was in
+  // values without escapes. Both render the same text as HTML.
+  private static final String[][] MIXED_CORPUS = {
+    { "R&D \\u00e9", "R&amp;D \u00e9", "R&D \u00e9" },
+    { "R&D", "R&D", "R&D" },
+    { "Tom & Jerry \\u0026 co", "Tom &amp; Jerry &amp; co", "Tom & Jerry &amp; co" },
+    { "a < b \\u00e9", "a &lt; b \u00e9", "a < b \u00e9" },
+    { "<B>\\u00e9t\\u00e9</B>", "<b>\u00e9t\u00e9</b>", "<B>\u00e9t\u00e9</B>" },
+    { "&copy; 2024 \\u00e9", "\u00a9 2024 \u00e9", "&copy; 2024 \u00e9" },
+  };
+
+  @Test
+  public void testDecodeUnicodeEscapesCorpus() {
+    for ( String[] entry : ESCAPED_CORPUS ) {
+      assertEquals( entry[0], entry[1], decodeValue( entry[0] ) );
+    }
+  }
+
+  @Test
+  public void testDecodeUnicodeEscapesMixedCorpus() {
+    for ( String[] entry : MIXED_CORPUS ) {
+      assertEquals( entry[0], entry[2], decodeValue( entry[0] ) );
+      assertEquals( entry[0], toText( entry[1] ), toText( entry[2] ) );
+    }
+  }
+
+  @Test
+  public void testDecodeUnicodeEscapesKeepsInvalidEscapes() {
+    assertEquals( "C:\\users\\u00e", decodeValue( "C:\\users\\u00e" ) );
+    assertEquals( "\\uZZZZ \u00e9", decodeValue( "\\uZZZZ \\u00e9" ) );
+  }
+
+  @Test
+  public void testKeysAreNotHtmlEscaped() {
+    Map<String, String> bundle = new HashMap<String, String>();
+    PropertiesUtil.parseProperties( "a\\u0026b=\\u0026", bundle, true );
+    assertEquals( "&amp;", bundle.get( "a&b" ) );
+  }
+
+  @Test
+  public void testLayeredLookup() {
+    ResourceBundle bundle = new ResourceBundle( "pt_PT" );
+    bundle.addLayer( ResourceBundle.getLayer( "lookup/messages.properties", "a=base\nb=base\nc=base" ) );
+    bundle.addLayer( ResourceBundle.getLayer( "lookup/messages_pt.properties", "a=pt\nb=pt" ) );
+    bundle.addLayer( ResourceBundle.getLayer( "lookup/messages_pt_PT.properties", "a=pt_PT" ) );
+
+    assertEquals( "pt_PT", bundle.getString( "a" ) );
+    assertEquals( "pt", bundle.getString( "b" ) );
+    assertEquals( "base", bundle.getString( "c" ) );
+    assertEquals( "d", bundle.getString( "d" ) );
+    assertEquals( "default", bundle.getString( "d", "default" ) );
+    assertEquals( 3, bundle.getKeys().size() );
+    assertEquals( "pt", bundle.getMap().get( "b" ) );
+  }
+
+  @Test
+  public void testLayersAreShared() {
+    Map<String, String> layer = ResourceBundle.getLayer( "shared/messages.properties", "a=base" );
+    assertSame( layer, ResourceBundle.getLayer( "shared/messages.properties", "a=base" ) );
+
+    ResourceBundle bundle = new ResourceBundle( "en" );
+    bundle.addLayer( layer );
+    ResourceBundle otherBundle = new ResourceBundle( "pt" );
+    otherBundle.addLayer( layer );
+    otherBundle.addLayer( ResourceBundle.getLayer( "shared/messages_pt.properties", "a=pt" ) );
+
+    assertEquals( "base", bundle.getString( "a" ) );
+    assertEquals( "pt", otherBundle.getString( "a" ) );
+  }
+
+  @Test
+  public void testMergeResourceBundle() {
+    ResourceBundle bundle = new ResourceBundle( "en" );
+    bundle.addLayer( ResourceBundle.getLayer( "merge/messages.properties", "a=messages\nb=messages" ) );
+    assertEquals( "messages", bundle.getMap().get( "a" ) );
+
+    ResourceBundle inBundle = new ResourceBundle( "en" );
+    inBundle.addLayer( ResourceBundle.getLayer( "merge/dialogs.properties", "a=dialogs\nc=dialogs" ) );
+    bundle.mergeResourceBundle( inBundle );
+    bundle.mergeResourceBundle( bundle );
+
+    assertEquals( "dialogs", bundle.getString( "a" ) );
+    assertEquals( "messages", bundle.getString( "b" ) );
+    assertEquals( "dialogs", bundle.getString( "c" ) );
+    assertEquals( "dialogs", bundle.getMap().get( "a" ) );
+    assertEquals( 3, bundle.getMap().size() );
+  }
+
+  @Test
+  public void testOnlyFoundAndNotFoundResponsesArePersisted() {
+    Map<String, String> items = new HashMap<String, String>();
+    PersistentBundleCache cache = new PersistentBundleCache( new PersistentBundleCache.Storage() {
+      public String getItem( String key ) {
+        return items.get( key );
+      }
+
+      public boolean setItem( String key, String value ) {
+        items.put( key, value );
+        return true;
+      }
+
+      public void removeItem( String key ) {
+        items.remove( key );
+      }
+    }, "1.0", PersistentBundleCache.DEFAULT_MAX_SIZE, null );
+    PersistentBundleCache.setInstance( cache );
+
+    try {
+      assertEquals( "a=b", ResourceBundle.cacheResponse( "status/ok.properties", mockResponse( 200, "a=b" ) ) );
+      assertNull( ResourceBundle.cacheResponse( "status/missing.properties", mockResponse( 404, "Not found" ) ) );
+      assertEquals( "a=b", cache.get( "status/ok.properties" ) );
+      assertEquals( "", cache.get( "status/missing.properties" ) );
+
+      int[] transientStatusCodes = { 0, 302, 401, 500, 503 };
+      for ( int statusCode : transientStatusCodes ) {
+        String url = "status/" + statusCode + ".properties";
+        assertNull( ResourceBundle.cacheResponse( url, mockResponse( statusCode, "<html>Login</html>" ) ) );
+
+        // Remembered for this page only.
+        assertEquals( "", ResourceBundle.getCachedText( url ) );
+        assertNull( cache.get( url ) );
+      }
+    } finally {
+      PersistentBundleCache.setInstance( null );
+    }
+  }
+
+  @Test
+  public void testMapWritesThroughToTheBundle() {
+    ResourceBundle bundle = new ResourceBundle( "en" );
+    bundle.addLayer( ResourceBundle.getLayer( "map/messages.properties", "a=messages\nb=messages\nc=messages" ) );
+    Map<String, String> map = bundle.getMap();
+
+    assertEquals( "messages", map.put( "a", "changed" ) );
+    assertNull( map.put( "d", "added" ) );
+    assertEquals( "messages", map.remove( "b" ) );
+    assertEquals( "changed", bundle.getString( "a" ) );
+    assertEquals( "added", bundle.getString( "d" ) );
+    assertEquals( "b", bundle.getString( "b" ) );
+    assertEquals( 3, map.size() );
+    assertFalse( bundle.getKeys().contains( "b" ) );
+
+    // The merged bundle overrides the changes.
+    ResourceBundle inBundle = new ResourceBundle( "en" );
+    inBundle.addLayer( ResourceBundle.getLayer( "map/dialogs.properties", "a=dialogs\nb=dialogs\nc=dialogs" ) );
+    bundle.mergeResourceBundle( inBundle );
+    assertEquals( "dialogs", bundle.getString( "a" ) );
+    assertEquals( "dialogs", bundle.getString( "b" ) );
+    assertEquals( "dialogs", map.get( "c" ) );
+    assertEquals( "added", bundle.getString( "d" ) );
+    assertEquals( 4, map.size() );
+
+    for ( Map.Entry<String, String> entry : map.entrySet() ) {
+      if ( entry.getKey().equals( "c" ) ) {
+        entry.setValue( "set" );
+      }
+    }
+    assertEquals( "set", bundle.getString( "c" ) );
+
+    map.clear();
+    assertTrue( map.isEmpty() );
+    assertEquals( "a", bundle.getString( "a" ) );
+
+    // The changes to a bundle are merged along with its layers.
+    inBundle.getMap().put( "e", "put" );
+    inBundle.getMap().remove( "c" );
+    map.put( "c", "kept" );
+    bundle.mergeResourceBundle( inBundle );
+    assertEquals( "put", bundle.getString( "e" ) );
+    assertEquals( "dialogs", bundle.getString( "a" ) );
+    assertEquals( "kept", bundle.getString( "c" ) );
+    assertFalse( bundle.getKeys().contains( "d" ) );
+  }
+
+  private static Response mockResponse( int statusCode, String text ) {
+    Response response = mock( Response.class );
+    when( response.getStatusCode() ).thenReturn( statusCode );
+    when( response.getText() ).thenReturn( text );
+    return response;
+  }
+
+  /**
+   * Gets the text which HTML renders, for the markup and entities of the mixed corpus.
+   */
+  private static String toText( String html ) {
+    return html.replaceAll( "<[^>]*>", "" ).replace( "&copy;", "\u00a9" ).replace( "&lt;", "<" )
+        .replace( "&amp;", "&" );
+  }
+
+  /**
+   * Decodes a value as the bundles do, as it is loaded.
+   */
+  private static String decodeValue( String escaped ) {
+    Map<String, String> bundle = new HashMap<String, String>();
+    PropertiesUtil.parseProperties( "key=" + escaped, bundle, true );
+    return bundle.get( "key" );
+  }
+}
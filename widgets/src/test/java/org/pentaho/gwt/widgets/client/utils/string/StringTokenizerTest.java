@@ -15,6 +15,12 @@ package org.pentaho.gwt.widgets.client.utils.string;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
 import static org.junit.Assert.*;
 
 public class StringTokenizerTest {
@@ -29,4 +35,60 @@ public class StringTokenizerTest {
   public void testTokenAt() throws Exception {
     assertEquals( "try.t", new StringTokenizer( "shqwhsiu,erteryt,try.t,rytuty.utyu,tyuty", "," ).tokenAt( 2 ) );
   }
+
+  @Test
+  public void testEmptyTokens() throws Exception {
+    assertTokens( new StringTokenizer( ",a,,b,", ',' ), "", "a", "", "b" );
+    assertTokens( new StringTokenizer( ",a.,b.", ",." ), "", "a", "", "b" );
+    assertTokens( new StringTokenizer( ",", "," ), "" );
+    assertTokens( new StringTokenizer( "", "," ) );
+    assertTokens( new StringTokenizer( null, ',' ) );
+  }
+
+  @Test
+  public void testDelimiters() throws Exception {
+    assertTokens( new StringTokenizer( "a b", "" ), "a b" );
+    assertTokens( new StringTokenizer( "a\u4e2db\u00e9c", "\u4e2d\u00e9" ), "a", "b", "c" );
+    assertTokens( new StringTokenizer( "path?a=1&b=2", "?&" ), "path", "a=1", "b=2" );
+  }
+
+  @Test
+  public void testLazyTokens() throws Exception {
+    StringTokenizer tokenizer = new StringTokenizer( "en_US_POSIX", '_' );
+    assertEquals( "en", tokenizer.tokenAt( 0 ) );
+    assertEquals( 1, tokenizer.tokens.size() );
+
+    Iterator<String> iterator = tokenizer.iterator();
+    assertEquals( "en", iterator.next() );
+    assertEquals( "US", iterator.next() );
+    assertEquals( 2, tokenizer.tokens.size() );
+
+    assertEquals( 3, tokenizer.countTokens() );
+    assertEquals( "POSIX", iterator.next() );
+    assertFalse( iterator.hasNext() );
+  }
+
+  @Test( expected = NoSuchElementException.class )
+  public void testIteratorEnd() throws Exception {
+    Iterator<String> iterator = new StringTokenizer( "a", ',' ).iterator();
+    iterator.next();
+    iterator.next();
+  }
+
+  @Test( expected = IndexOutOfBoundsException.class )
+  public void testTokenAtOutOfBounds() throws Exception {
+    new StringTokenizer( "a,b", ',' ).tokenAt( 2 );
+  }
+
+  private static void assertTokens( StringTokenizer tokenizer, String... expected ) {
+    List<String> tokens = new ArrayList<String>();
+    for ( String token : tokenizer ) {
+      tokens.add( token );
+    }
+    assertEquals( Arrays.asList( expected ), tokens );
+    assertEquals( expected.length, tokenizer.countTokens() );
+    for ( int i = 0; i < expected.length; i++ ) {
+      assertEquals( expected[i], tokenizer.tokenAt( i ) );
+    }
+  }
 }
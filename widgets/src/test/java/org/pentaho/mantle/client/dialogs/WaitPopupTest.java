@@ -0,0 +1,290 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.mantle.client.dialogs;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.user.client.Timer;
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests {@link WaitPopup} with its timers, clock and busy indicator module replaced.
+ */
+@RunWith( GwtMockitoTestRunner.class )
+public class WaitPopupTest {
+
+  private TestWaitPopup popup;
+  private List<String> calls;
+  private Map<Timer, Double> timers;
+  private double now;
+  private int requireCount;
+
+  @Before
+  public void setUp() {
+    calls = new ArrayList<>();
+    timers = new HashMap<>();
+    now = 1000;
+    requireCount = 0;
+
+    popup = new TestWaitPopup();
+    popup.onBusyIndicatorLoaded( mock( JavaScriptObject.class ) );
+  }
+
+  // region show()
+  @Test
+  public void testShowIsDelayed() {
+    popup.show();
+    assertTrue( popup.isVisible() );
+
+    advance( WaitPopup.SHOW_DELAY_MILLIS - 1 );
+    assertEquals( Collections.emptyList(), calls );
+
+    advance( 1 );
+    assertEquals( Collections.singletonList( "show" ), calls );
+  }
+
+  @Test
+  public void testFastRequestIsNeverShown() {
+    WaitPopup.Handle handle = popup.show();
+    advance( WaitPopup.SHOW_DELAY_MILLIS - 50 );
+    handle.release();
+    assertFalse( popup.isVisible() );
+
+    advance( 1000 );
+    assertEquals( Collections.emptyList(), calls );
+  }
+
+  @Test
+  public void testShownForMinimumTime() {
+    WaitPopup.Handle handle = popup.show();
+    advance( WaitPopup.SHOW_DELAY_MILLIS );
+    advance( 100 );
+    handle.release();
+    assertEquals( Collections.singletonList( "show" ), calls );
+
+    advance( WaitPopup.MIN_DISPLAY_MILLIS - 101 );
+    assertEquals( Collections.singletonList( "show" ), calls );
+
+    advance( 1 );
+    assertEquals( Arrays.asList( "show", "hide" ), calls );
+    assertFalse( popup.isVisible() );
+  }
+
+  @Test
+  public void testReleaseAfterMinimumTimeHidesRightAway() {
+    WaitPopup.Handle handle = popup.show();
+    advance( WaitPopup.SHOW_DELAY_MILLIS + WaitPopup.MIN_DISPLAY_MILLIS );
+    handle.release();
+
+    assertEquals( Arrays.asList( "show", "hide" ), calls );
+  }
+
+  @Test
+  public void testNestedRequests() {
+    WaitPopup.Handle outer = popup.show();
+    WaitPopup.Handle inner = popup.show();
+    advance( WaitPopup.SHOW_DELAY_MILLIS );
+    assertEquals( Collections.singletonList( "show" ), calls );
+
+    inner.release();
+    advance( 1000 );
+    assertTrue( popup.isVisible() );
+
+    // Releasing a handle again does not release the other request.
+    inner.release();
+    assertEquals( Collections.singletonList( "show" ), calls );
+
+    outer.release();
+    assertEquals( Arrays.asList( "show", "hide" ), calls );
+  }
+
+  @Test
+  public void testRequestWithinMinimumTimeKeepsIndicatorShown() {
+    WaitPopup.Handle first = popup.show();
+    advance( WaitPopup.SHOW_DELAY_MILLIS );
+    first.release();
+    advance( 100 );
+
+    WaitPopup.Handle second = popup.show();
+    advance( 1000 );
+    assertEquals( Collections.singletonList( "show" ), calls );
+
+    second.release();
+    assertEquals( Arrays.asList( "show", "hide" ), calls );
+  }
+  // endregion show()
+
+  // region setVisible( boolean )
+  @Test
+  public void testSetVisibleShowsAndHidesRightAway() {
+    popup.setVisible( true );
+    assertEquals( Collections.singletonList( "show" ), calls );
+    assertTrue( popup.isVisible() );
+
+    popup.setVisible( false );
+    assertEquals( Arrays.asList( "show", "hide" ), calls );
+    assertFalse( popup.isVisible() );
+  }
+
+  @Test
+  public void testHideDiscardsRequests() {
+    WaitPopup.Handle discarded = popup.show();
+    popup.show();
+    advance( WaitPopup.SHOW_DELAY_MILLIS );
+
+    popup.setVisible( false );
+    assertEquals( Arrays.asList( "show", "hide" ), calls );
+    assertFalse( popup.isVisible() );
+
+    WaitPopup.Handle handle = popup.show();
+    discarded.release();
+    advance( WaitPopup.SHOW_DELAY_MILLIS );
+    assertEquals( Arrays.asList( "show", "hide", "show" ), calls );
+
+    handle.release();
+    advance( WaitPopup.MIN_DISPLAY_MILLIS );
+    assertEquals( Arrays.asList( "show", "hide", "show", "hide" ), calls );
+  }
+  // endregion setVisible( boolean )
+
+  // region by id
+  @Test
+  public void testShowById() {
+    WaitPopup.Handle handle = popup.show( "panel" );
+    assertFalse( popup.isVisible() );
+
+    advance( WaitPopup.SHOW_DELAY_MILLIS );
+    assertEquals( Collections.singletonList( "show panel" ), calls );
+
+    handle.release();
+    advance( WaitPopup.MIN_DISPLAY_MILLIS );
+    assertEquals( Arrays.asList( "show panel", "hide panel" ), calls );
+  }
+
+  @Test
+  public void testSetVisibleByIdDiscardsRequests() {
+    WaitPopup.Handle handle = popup.show( "panel" );
+    WaitPopup.Handle other = popup.show( "other" );
+    popup.setVisibleById( true, "panel" );
+    assertEquals( Collections.singletonList( "show panel" ), calls );
+
+    popup.setVisibleById( false, "panel" );
+    handle.release();
+    advance( 1000 );
+    assertEquals( Arrays.asList( "show panel", "hide panel", "show other" ), calls );
+
+    other.release();
+    assertEquals( Arrays.asList( "show panel", "hide panel", "show other", "hide other" ), calls );
+  }
+  // endregion by id
+
+  @Test
+  public void testBusyIndicatorIsRequiredOnce() {
+    popup = new TestWaitPopup();
+
+    popup.setVisible( true );
+    popup.setVisible( false );
+    assertEquals( 1, requireCount );
+    assertEquals( Collections.emptyList(), calls );
+
+    // The calls made while it was required are made in order.
+    popup.onBusyIndicatorLoaded( mock( JavaScriptObject.class ) );
+    assertEquals( Arrays.asList( "show", "hide" ), calls );
+
+    popup.setVisible( true );
+    assertEquals( 1, requireCount );
+    assertEquals( Arrays.asList( "show", "hide", "show" ), calls );
+  }
+
+  /**
+   * Advances the clock, running the timers which are due, each at its time.
+   */
+  private void advance( int millis ) {
+    double end = now + millis;
+
+    Timer due;
+    do {
+      due = null;
+      for ( Map.Entry<Timer, Double> entry : timers.entrySet() ) {
+        if ( entry.getValue() <= end && ( due == null || entry.getValue() < timers.get( due ) ) ) {
+          due = entry.getKey();
+        }
+      }
+
+      if ( due != null ) {
+        now = timers.remove( due );
+        due.run();
+      }
+    } while ( due != null );
+
+    now = end;
+  }
+
+  private class TestWaitPopup extends WaitPopup {
+
+    @Override
+    void schedule( Timer timer, int delayMillis ) {
+      timers.put( timer, now + delayMillis );
+    }
+
+    @Override
+    void cancel( Timer timer ) {
+      timers.remove( timer );
+    }
+
+    @Override
+    double now() {
+      return now;
+    }
+
+    @Override
+    void requireBusyIndicator() {
+      requireCount++;
+    }
+
+    @Override
+    void callShow( JavaScriptObject busy, String title, String message ) {
+      calls.add( "show" );
+    }
+
+    @Override
+    void callShow( JavaScriptObject busy, String title, String message, String id ) {
+      calls.add( "show " + id );
+    }
+
+    @Override
+    void callHide( JavaScriptObject busy ) {
+      calls.add( "hide" );
+    }
+
+    @Override
+    void callHide( JavaScriptObject busy, String id ) {
+      calls.add( "hide " + id );
+    }
+  }
+}
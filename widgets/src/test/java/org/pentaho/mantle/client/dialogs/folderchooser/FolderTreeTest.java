@@ -13,18 +13,79 @@
 
 package org.pentaho.mantle.client.dialogs.folderchooser;
 
+import com.google.gwt.event.logical.shared.CloseEvent;
+import com.google.gwt.event.logical.shared.OpenEvent;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.gwt.user.client.ui.TreeItem;
 import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.pentaho.gwt.widgets.client.genericfile.GenericFile;
+import org.pentaho.gwt.widgets.client.genericfile.GenericFileTree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+/**
+ * Tests {@link FolderTree} with its requests to the generic files service replaced. The tree items under test hang
+ * from a top tree item which is not attached to the tree. These only report it as their tree.
+ */
 @RunWith( GwtMockitoTestRunner.class )
 public class FolderTreeTest {
 
+  private FolderTree tree;
+  private List<RequestCallback> requestCallbacks;
+  private List<Request> requests;
+
+  @Before
+  public void setUp() throws RequestException {
+    tree = spy( new FolderTree() );
+    requestCallbacks = new ArrayList<>();
+    requests = new ArrayList<>();
+
+    doAnswer( invocation -> {
+      Request request = mock( Request.class );
+      requests.add( request );
+      requestCallbacks.add( (RequestCallback) invocation.getArguments()[ 1 ] );
+      return request;
+    } ).when( tree ).sendRequest( any( RequestBuilder.class ), any( RequestCallback.class ) );
+
+    // Only sets the tree model. The tree items under test are built from the top tree item.
+    doNothing().when( tree ).onModelChanged( any() );
+    doAnswer( invocation -> createTreeItem() ).when( tree ).createFolderTreeItem();
+
+    // The natively collating comparator is not available in tests.
+    doReturn( Comparator.comparing( ( GenericFileTree treeModel ) -> treeModel.getFile().getName() ) )
+      .when( tree ).getTreeModelComparator();
+  }
+
   @Test
   public void select_simpleTest() {
 
@@ -38,4 +99,402 @@ public class FolderTreeTest {
     verify( tree ).select( path );
     verify( tree ).findTreeItem( anyString() );
   }
+
+  // region refreshTreeModel
+  @Test
+  public void testRefreshedLeafCanBeOpened() {
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", folder( "/home" ) ) );
+    open( topTreeItem );
+
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    assertEquals( 0, homeTreeItem.getChildCount() );
+    assertFalse( homeTreeItem.areChildItemsBuilt() );
+
+    tree.refreshTreeModel( null );
+
+    // The collapsed leaf is revalidated: its children are discarded and a placeholder restores its expand arrow.
+    assertNull( homeTreeItem.getFileTreeModel().getChildren() );
+    assertEquals( 1, homeTreeItem.getChildCount() );
+
+    // The top level, then the top tree item.
+    assertEquals( 2, requests.size() );
+    respond( 1, folder( "/", unloadedFolder( "/home" ) ) );
+    assertEquals( homeTreeItem, getChildItem( topTreeItem, 0 ) );
+    assertEquals( 1, homeTreeItem.getChildCount() );
+
+    // Opening it fetches the subfolder created meanwhile.
+    open( homeTreeItem );
+    assertEquals( 3, requests.size() );
+    respond( 2, folder( "/home", unloadedFolder( "/home/reports" ) ) );
+
+    assertTrue( homeTreeItem.areChildItemsBuilt() );
+    assertEquals( 1, homeTreeItem.getChildCount() );
+    assertEquals( "/home/reports", getChildItem( homeTreeItem, 0 ).getFileModel().getPath() );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testCollapseCancelsRefresh() {
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", folder( "/home", folder( "/home/reports" ) ) ) );
+    open( topTreeItem );
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    open( homeTreeItem );
+
+    AsyncCallback<GenericFileTree> callback = mock( AsyncCallback.class );
+    tree.refreshTreeModel( callback );
+
+    // The top level, then the top and home tree items.
+    assertEquals( 3, requests.size() );
+
+    close( homeTreeItem );
+    verify( requests.get( 2 ) ).cancel();
+    verify( requests.get( 1 ), never() ).cancel();
+
+    // The refresh completes without the home tree item.
+    respondWithError( 0 );
+    respondWithError( 1 );
+    verify( callback ).onSuccess( any() );
+
+    // A late response to the cancelled request is ignored.
+    respond( 2, folder( "/home" ) );
+    assertEquals( 1, homeTreeItem.getChildCount() );
+    assertEquals( "/home/reports", getChildItem( homeTreeItem, 0 ).getFileModel().getPath() );
+    verify( callback ).onSuccess( any() );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testClearCancelsRefresh() {
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", folder( "/home" ) ) );
+    open( topTreeItem );
+
+    AsyncCallback<GenericFileTree> callback = mock( AsyncCallback.class );
+    tree.refreshTreeModel( callback );
+    assertEquals( 2, requests.size() );
+
+    tree.clear();
+    verify( requests.get( 0 ) ).cancel();
+    verify( requests.get( 1 ) ).cancel();
+
+    // The tree is being rebuilt, so the refresh is abandoned.
+    respondWithError( 0 );
+    respond( 1, folder( "/", folder( "/home" ), folder( "/public" ) ) );
+    verify( callback, never() ).onSuccess( any() );
+    assertEquals( 1, topTreeItem.getFileTreeModel().getChildren().size() );
+  }
+  // endregion
+
+  // region prefetchSubtreeModel
+  @Test
+  public void testPrefetchLimit() {
+    tree.setPrefetchEnabled( true );
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", unloadedFolder( "/a" ), unloadedFolder( "/b" ),
+      unloadedFolder( "/c" ), unloadedFolder( "/d" ) ) );
+    open( topTreeItem );
+
+    for ( int i = 0; i < 4; i++ ) {
+      tree.prefetchSubtreeModel( getChildItem( topTreeItem, i ) );
+    }
+
+    // Only the last tree item over the limit is kept to be prefetched next.
+    assertEquals( FolderTree.MAX_CONCURRENT_PREFETCHES, requests.size() );
+
+    respond( 0, folder( "/a", folder( "/a/reports" ) ) );
+    assertEquals( 3, requests.size() );
+    respondWithError( 1 );
+    assertEquals( 3, requests.size() );
+
+    respond( 2, folder( "/d", folder( "/d/reports" ) ) );
+    assertTrue( getChildItem( topTreeItem, 0 ).getFileTreeModel().areChildrenLoaded() );
+    assertFalse( getChildItem( topTreeItem, 1 ).getFileTreeModel().areChildrenLoaded() );
+    assertFalse( getChildItem( topTreeItem, 2 ).getFileTreeModel().areChildrenLoaded() );
+    assertTrue( getChildItem( topTreeItem, 3 ).getFileTreeModel().areChildrenLoaded() );
+  }
+
+  @Test
+  public void testPrefetchIsNotRepeated() {
+    tree.setPrefetchEnabled( true );
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", unloadedFolder( "/a" ) ) );
+    open( topTreeItem );
+    FolderTreeItem aTreeItem = getChildItem( topTreeItem, 0 );
+
+    tree.prefetchSubtreeModel( aTreeItem );
+    tree.prefetchSubtreeModel( aTreeItem );
+    assertEquals( 1, requests.size() );
+
+    // Once loaded, it is not prefetched again.
+    respond( 0, folder( "/a", folder( "/a/reports" ) ) );
+    tree.prefetchSubtreeModel( aTreeItem );
+    assertEquals( 1, requests.size() );
+  }
+  // endregion
+
+  // region ensureChildTreeItems
+  @Test
+  public void testClosedItemsHoldOnlyPlaceholder() {
+    GenericFileTree homeTreeModel = buildHomeTreeModel();
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", homeTreeModel ) );
+    open( topTreeItem );
+
+    // Although its children are loaded, only a placeholder is built for them.
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    assertFalse( homeTreeItem.areChildItemsBuilt() );
+    assertEquals( 1, homeTreeItem.getChildCount() );
+    assertEquals( "loadingEllipsis", getChildItem( homeTreeItem, 0 ).getFileModel().getName() );
+    verify( tree, never() ).buildTreeItemWidget( eq( homeTreeModel.getChildren().get( 0 ) ), anyString() );
+  }
+
+  @Test
+  public void testChildItemsAreBuiltOnceOnFirstOpen() {
+    GenericFileTree homeTreeModel = buildHomeTreeModel();
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", homeTreeModel ) );
+    open( topTreeItem );
+
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    open( homeTreeItem );
+
+    assertTrue( homeTreeItem.areChildItemsBuilt() );
+    assertEquals( 2, homeTreeItem.getChildCount() );
+    FolderTreeItem aTreeItem = getChildItem( homeTreeItem, 0 );
+    FolderTreeItem bTreeItem = getChildItem( homeTreeItem, 1 );
+    assertEquals( "/home/a", aTreeItem.getFileModel().getPath() );
+    assertEquals( "/home/b", bTreeItem.getFileModel().getPath() );
+
+    // A leaf has no placeholder, while a folder with child folders has one, until opened.
+    assertEquals( 0, aTreeItem.getChildCount() );
+    assertEquals( 1, bTreeItem.getChildCount() );
+    assertFalse( bTreeItem.areChildItemsBuilt() );
+
+    // Opening it again keeps the same tree items.
+    close( homeTreeItem );
+    open( homeTreeItem );
+    assertEquals( 2, homeTreeItem.getChildCount() );
+    assertEquals( aTreeItem, getChildItem( homeTreeItem, 0 ) );
+    assertEquals( bTreeItem, getChildItem( homeTreeItem, 1 ) );
+
+    // Its children were loaded, so none was requested.
+    assertTrue( requests.isEmpty() );
+  }
+
+  @Test
+  public void testTreeItemWidgetsAreBuiltOnce() {
+    GenericFileTree homeTreeModel = buildHomeTreeModel();
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", homeTreeModel ) );
+    open( topTreeItem );
+
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    open( homeTreeItem );
+    close( homeTreeItem );
+    open( homeTreeItem );
+    open( getChildItem( homeTreeItem, 1 ) );
+
+    verify( tree ).buildTreeItemWidget( eq( homeTreeModel ), anyString() );
+    for ( GenericFileTree childTreeModel : homeTreeModel.getChildren() ) {
+      verify( tree ).buildTreeItemWidget( eq( childTreeModel ), anyString() );
+    }
+    GenericFileTree cTreeModel = homeTreeModel.getChildren().get( 1 ).getChildren().get( 0 );
+    verify( tree ).buildTreeItemWidget( eq( cTreeModel ), anyString() );
+  }
+
+  @Test
+  public void testFindTreeItemBuildsChildItems() {
+    GenericFileTree homeTreeModel = buildHomeTreeModel();
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", homeTreeModel ) );
+    open( topTreeItem );
+
+    // Searching descends into tree items which were never opened, building only the levels on the path.
+    FolderTreeItem cTreeItem = tree.findTreeItem( "/home/b/c" );
+    assertEquals( "/home/b/c", cTreeItem.getFileModel().getPath() );
+
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    FolderTreeItem bTreeItem = getChildItem( homeTreeItem, 1 );
+    assertTrue( homeTreeItem.areChildItemsBuilt() );
+    assertTrue( bTreeItem.areChildItemsBuilt() );
+    assertFalse( getChildItem( homeTreeItem, 0 ).areChildItemsBuilt() );
+  }
+
+  /**
+   * Builds the model of a home folder, with a leaf and a folder having a child folder, all loaded.
+   */
+  private static GenericFileTree buildHomeTreeModel() {
+    return folder( "/home", folder( "/home/a" ), folder( "/home/b", folder( "/home/b/c" ) ) );
+  }
+  // endregion
+
+  // region insertTreeModel
+  @Test
+  public void testInsertTreeModelKeepsSortOrder() {
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", folder( "/a" ), file( "/ab.txt" ), folder( "/c" ) ) );
+    open( topTreeItem );
+    doNothing().when( tree ).setSelectedItem( any(), anyBoolean() );
+
+    FolderTreeItem bTreeItem = tree.insertTreeModel( "/", folder( "/b" ) );
+    FolderTreeItem dTreeItem = tree.insertTreeModel( "/", folder( "/d" ) );
+
+    assertEquals( Arrays.asList( "/a", "/ab.txt", "/b", "/c", "/d" ),
+      getPaths( topTreeItem.getFileTreeModel().getChildren() ) );
+    assertEquals( 4, topTreeItem.getChildCount() );
+    assertEquals( bTreeItem, getChildItem( topTreeItem, 1 ) );
+    assertEquals( dTreeItem, getChildItem( topTreeItem, 3 ) );
+
+    // The new tree items are selected. The parent already had child folders, so it is not restyled.
+    verify( tree ).setSelectedItem( bTreeItem, true );
+    verify( tree ).setSelectedItem( dTreeItem, true );
+    verify( tree, never() ).buildTreeItemWidget( eq( topTreeItem.getFileTreeModel() ), anyString() );
+  }
+
+  @Test
+  public void testInsertTreeModelRestylesLeafParent() {
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", folder( "/home" ) ) );
+    open( topTreeItem );
+    doNothing().when( tree ).setSelectedItem( any(), anyBoolean() );
+
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    GenericFileTree homeTreeModel = homeTreeItem.getFileTreeModel();
+    assertEquals( 0, homeTreeItem.getChildCount() );
+    verify( tree ).buildTreeItemWidget( eq( homeTreeModel ), anyString() );
+
+    FolderTreeItem reportsTreeItem = tree.insertTreeModel( "/home", folder( "/home/reports" ) );
+
+    assertEquals( 1, homeTreeItem.getChildCount() );
+    assertEquals( reportsTreeItem, getChildItem( homeTreeItem, 0 ) );
+    // Its widget is rebuilt, now as a parent.
+    verify( tree, times( 2 ) ).buildTreeItemWidget( eq( homeTreeModel ), anyString() );
+    verify( tree ).setSelectedItem( reportsTreeItem, true );
+  }
+
+  @Test
+  public void testInsertTreeModelIntoUnloadedParent() {
+    FolderTreeItem topTreeItem = setUpTopTreeItem( folder( "/", unloadedFolder( "/home" ) ) );
+    open( topTreeItem );
+    doNothing().when( tree ).setSelectedItem( any(), anyBoolean() );
+
+    assertNull( tree.insertTreeModel( "/home", folder( "/home/reports" ) ) );
+    assertNull( tree.insertTreeModel( "/missing", folder( "/missing/reports" ) ) );
+
+    // The placeholder is kept, so that the children are fetched when opened.
+    FolderTreeItem homeTreeItem = getChildItem( topTreeItem, 0 );
+    assertNull( homeTreeItem.getFileTreeModel().getChildren() );
+    assertEquals( 1, homeTreeItem.getChildCount() );
+    assertFalse( homeTreeItem.areChildItemsBuilt() );
+    verify( tree, never() ).setSelectedItem( any(), anyBoolean() );
+  }
+  // endregion
+
+  /**
+   * Sets the tree model, with the given folder as its only child, and a top tree item for it.
+   */
+  private FolderTreeItem setUpTopTreeItem( GenericFileTree treeModel ) {
+    GenericFile rootFileModel = new GenericFile();
+    rootFileModel.setType( GenericFile.TYPE_FOLDER );
+    GenericFileTree rootTreeModel = new GenericFileTree( rootFileModel );
+    rootTreeModel.setChildren( new ArrayList<>( Arrays.asList( treeModel ) ) );
+    tree.setTreeModel( rootTreeModel, null );
+
+    FolderTreeItem topTreeItem = createTreeItem();
+    topTreeItem.setFileTreeModel( treeModel );
+
+    doReturn( 1 ).when( tree ).getItemCount();
+    doReturn( topTreeItem ).when( tree ).getItem( 0 );
+
+    return topTreeItem;
+  }
+
+  /**
+   * Creates a tree item which reports the tree as its tree.
+   */
+  private FolderTreeItem createTreeItem() {
+    FolderTreeItem treeItem = spy( new FolderTreeItem() );
+    doReturn( tree ).when( treeItem ).getTree();
+    return treeItem;
+  }
+
+  /**
+   * Opens a tree item, as when its expand arrow is clicked.
+   */
+  @SuppressWarnings( "unchecked" )
+  private void open( FolderTreeItem treeItem ) {
+    OpenEvent<TreeItem> event = mock( OpenEvent.class );
+    when( event.getTarget() ).thenReturn( treeItem );
+
+    tree.handleOpen( event );
+    treeItem.setState( true, false );
+  }
+
+  /**
+   * Closes a tree item, as when its collapse arrow is clicked.
+   */
+  @SuppressWarnings( "unchecked" )
+  private void close( FolderTreeItem treeItem ) {
+    CloseEvent<TreeItem> event = mock( CloseEvent.class );
+    when( event.getTarget() ).thenReturn( treeItem );
+
+    tree.handleClose( event );
+    treeItem.setState( false, false );
+  }
+
+  /**
+   * Responds to a request with the given tree model.
+   */
+  private void respond( int requestIndex, GenericFileTree treeModel ) {
+    String json = "tree" + requestIndex;
+    doReturn( treeModel ).when( tree ).parseTreeModel( json );
+
+    Response response = mock( Response.class );
+    when( response.getStatusCode() ).thenReturn( Response.SC_OK );
+    when( response.getText() ).thenReturn( json );
+
+    requestCallbacks.get( requestIndex ).onResponseReceived( requests.get( requestIndex ), response );
+  }
+
+  /**
+   * Responds to a request with an error.
+   */
+  private void respondWithError( int requestIndex ) {
+    requestCallbacks.get( requestIndex ).onError( requests.get( requestIndex ), new RequestException() );
+  }
+
+  private static List<String> getPaths( List<GenericFileTree> treeModels ) {
+    List<String> paths = new ArrayList<>();
+    for ( GenericFileTree treeModel : treeModels ) {
+      paths.add( treeModel.getFile().getPath() );
+    }
+    return paths;
+  }
+
+  private static FolderTreeItem getChildItem( FolderTreeItem treeItem, int index ) {
+    return (FolderTreeItem) treeItem.getChild( index );
+  }
+
+  /**
+   * Creates the model of a folder, with its children loaded.
+   */
+  private static GenericFileTree folder( String path, GenericFileTree... children ) {
+    GenericFileTree treeModel = unloadedFolder( path );
+    treeModel.setChildren( new ArrayList<>( Arrays.asList( children ) ) );
+    return treeModel;
+  }
+
+  /**
+   * Creates the model of a file.
+   */
+  private static GenericFileTree file( String path ) {
+    GenericFileTree treeModel = unloadedFolder( path );
+    treeModel.getFile().setType( GenericFile.TYPE_FILE );
+    return treeModel;
+  }
+
+  /**
+   * Creates the model of a folder, with its children not loaded.
+   */
+  private static GenericFileTree unloadedFolder( String path ) {
+    GenericFile fileModel = new GenericFile();
+    fileModel.setType( GenericFile.TYPE_FOLDER );
+    fileModel.setPath( path );
+    if ( !path.equals( "/" ) ) {
+      fileModel.setParentPath( path.substring( 0, Math.max( 1, path.lastIndexOf( '/' ) ) ) );
+    }
+    fileModel.setName( path.substring( path.lastIndexOf( '/' ) + 1 ) );
+    return new GenericFileTree( fileModel );
+  }
 }
@@ -0,0 +1,73 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.mantle.client.dialogs.folderchooser;
+
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pentaho.gwt.widgets.client.genericfile.GenericFile;
+import org.pentaho.gwt.widgets.client.genericfile.GenericFileTree;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith( GwtMockitoTestRunner.class )
+public class SelectFolderDialogTest {
+
+  private SelectFolderDialog dialog;
+  private FolderTree tree;
+  private GenericFile parentFolder;
+  private GenericFileTree folderTreeModel;
+
+  @Before
+  public void setUp() {
+    dialog = mock( SelectFolderDialog.class );
+    tree = mock( FolderTree.class );
+    when( dialog.getTree() ).thenReturn( tree );
+    doCallRealMethod().when( dialog ).onFolderCreated( any( GenericFile.class ), any( GenericFileTree.class ) );
+
+    parentFolder = new GenericFile();
+    parentFolder.setPath( "/home" );
+
+    GenericFile folder = new GenericFile();
+    folder.setPath( "/home/reports" );
+    folderTreeModel = new GenericFileTree( folder );
+  }
+
+  @Test
+  public void testOnFolderCreatedInsertsFolder() {
+    when( tree.insertTreeModel( "/home", folderTreeModel ) ).thenReturn( mock( FolderTreeItem.class ) );
+
+    dialog.onFolderCreated( parentFolder, folderTreeModel );
+
+    verify( tree ).insertTreeModel( "/home", folderTreeModel );
+    verify( tree, never() ).fetchTreeModel( any(), anyString() );
+  }
+
+  @Test
+  public void testOnFolderCreatedFetchesTreeModelIfNotInserted() {
+    when( tree.insertTreeModel( "/home", folderTreeModel ) ).thenReturn( null );
+
+    dialog.onFolderCreated( parentFolder, folderTreeModel );
+
+    // Fetches the tree model again, selecting the new folder.
+    verify( tree ).fetchTreeModel( null, "/home/reports" );
+  }
+}